@@ -0,0 +1,82 @@
+package deveone.graphics.additional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CanvasJournalTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void reopenRestoresCommittedState() throws IOException {
+        CanvasState state = sample();
+        try (CanvasJournal journal = CanvasJournal.open(directory)) {
+            journal.record(state);
+            journal.flush();
+        }
+
+        try (CanvasJournal journal = CanvasJournal.open(directory)) {
+            assertSameCircuit(state, journal.restored());
+        }
+    }
+
+    @Test
+    void secondInstanceGetsNoJournal() throws IOException {
+        try (CanvasJournal journal = CanvasJournal.open(directory)) {
+            assertNotNull(journal);
+            assertNull(CanvasJournal.open(directory));
+        }
+        try (CanvasJournal journal = CanvasJournal.open(directory)) {
+            assertNotNull(journal);
+        }
+    }
+
+    // Ошибка записи снимка не теряет правки: следующая фиксация повторяет запись
+    @Test
+    void failedSnapshotKeepsRecords() throws IOException {
+        CanvasState state = sample();
+        Path blocker = directory.resolve("canvas.snapshot.tmp");
+        try (CanvasJournal journal = CanvasJournal.open(directory)) {
+            journal.record(state);
+            Files.createDirectories(blocker.resolve("busy"));
+            assertThrows(IOException.class, journal::snapshot);
+
+            Files.delete(blocker.resolve("busy"));
+            Files.delete(blocker);
+            journal.flush();
+            state = state.withoutVertex(state.vertex(0));
+            journal.record(state);
+        }
+
+        try (CanvasJournal journal = CanvasJournal.open(directory)) {
+            assertSameCircuit(state, journal.restored());
+        }
+    }
+
+    private static CanvasState sample() {
+        CanvasState state = CanvasState.EMPTY;
+        for (int i = 0; i < 5; i++)
+            state = state.withVertex(new Point(10 * i, i));
+        for (int i = 0; i < 4; i++)
+            state = state.withResistor(state.vertex(i), state.vertex(i + 1), i + 1);
+        return state.withResistor(state.vertex(0), state.vertex(1), 9);
+    }
+
+    private static void assertSameCircuit(CanvasState expected, CanvasState actual) {
+        assertEquals(expected.vertices(), actual.vertices());
+        for (Vertex v : expected.vertices())
+            assertEquals(v.getPos(), actual.vertex(v.getId()).getPos());
+        assertEquals(expected.resistors(), actual.resistors());
+        for (Resistor r : expected.resistors()) {
+            assertEquals(r.getWeight(), actual.resistor(r.getId()).getWeight());
+            assertEquals(r.getLane(), actual.resistor(r.getId()).getLane());
+        }
+    }
+}
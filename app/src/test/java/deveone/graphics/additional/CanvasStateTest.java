@@ -0,0 +1,137 @@
+package deveone.graphics.additional;
+
+import deveone.logic.graph.VersionHistory;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CanvasStateTest {
+    @Test
+    void removingVertexRemovesItsResistors() {
+        CanvasState state = CanvasState.EMPTY.withVertex(new Point(0, 0)).withVertex(new Point(10, 0))
+                .withVertex(new Point(20, 0));
+        Vertex a = state.vertex(0);
+        Vertex b = state.vertex(1);
+        Vertex c = state.vertex(2);
+        state = state.withResistor(a, b, 5).withResistor(b, c, 7);
+
+        CanvasState removed = state.withoutVertex(b);
+
+        assertEquals(2, removed.vertices().size());
+        assertTrue(removed.resistors().isEmpty());
+        assertEquals(0, removed.getGraph().edgeCount());
+        // Старое состояние не изменилось
+        assertEquals(2, state.resistors().size());
+    }
+
+    @Test
+    void parallelResistorsGetSeparateLanes() {
+        CanvasState state = CanvasState.EMPTY.withVertex(new Point(0, 0)).withVertex(new Point(10, 0));
+        Vertex a = state.vertex(0);
+        Vertex b = state.vertex(1);
+        state = state.withResistor(a, b, 1).withResistor(b, a, 2).withResistor(a, b, 3);
+
+        List<Integer> lanes = new ArrayList<>();
+        for (Resistor r : state.resistors())
+            lanes.add(r.getLane());
+        assertEquals(List.of(0, 1, 2), lanes);
+        assertEquals(3, state.getGraph().parallelCount(0, 1));
+    }
+
+    @Test
+    void undoRedoRestoresStates() {
+        VersionHistory<CanvasState> history = new VersionHistory<>(CanvasState.EMPTY);
+        history.update(s -> s.withVertex(new Point(0, 0)));
+        history.update(s -> s.withVertex(new Point(10, 0)));
+        history.update(s -> s.withResistor(s.vertex(0), s.vertex(1), 4));
+        CanvasState full = history.current();
+
+        history.update(s -> s.withoutVertex(s.vertex(0)));
+        assertEquals(1, history.current().vertices().size());
+        assertTrue(history.current().resistors().isEmpty());
+
+        assertTrue(history.undo());
+        assertSame(full, history.current());
+        assertEquals(1, history.current().getGraph().edgeCount());
+        assertEquals(4, history.current().resistor(0).getWeight());
+
+        assertTrue(history.undo());
+        assertTrue(history.current().resistors().isEmpty());
+        assertTrue(history.redo());
+        assertTrue(history.redo());
+        assertNull(history.current().vertex(0));
+        assertNotNull(history.current().vertex(1));
+    }
+
+    // Номер удалённой вершины переиспользуется, а промежутки в векторах читаются как пустые
+    @Test
+    void removedIdsAreReused() {
+        CanvasState state = CanvasState.EMPTY;
+        for (int i = 0; i < 101; i++)
+            state = state.withVertex(new Point(i, 0));
+        for (int i = 1; i < 100; i++)
+            state = state.withoutVertex(state.vertex(i));
+
+        assertEquals(2, state.vertices().size());
+        assertNull(state.vertex(50));
+        state = state.withVertex(new Point(1, 1));
+        assertEquals(3, state.vertices().size());
+        assertEquals(new Point(1, 1), state.vertex(state.vertices().get(1).getId()).getPos());
+    }
+
+    @Test
+    void batchMatchesChainedChanges() {
+        CanvasState base = CanvasState.EMPTY.withVertex(new Point(0, 0)).withVertex(new Point(10, 0));
+        base = base.withResistor(base.vertex(0), base.vertex(1), 2);
+
+        CanvasState chained = base.withVertex(new Point(20, 0));
+        chained = chained.withResistor(chained.vertex(1), chained.vertex(2), 3).withoutResistor(chained.resistor(0));
+
+        CanvasState.Batch batch = base.batch();
+        Vertex v = batch.addVertex(new Point(20, 0));
+        batch.addResistor(batch.vertex(1), v, 3);
+        batch.removeResistor(batch.resistor(0));
+        CanvasState batched = batch.commit();
+
+        assertEquals(chained.vertices(), batched.vertices());
+        assertEquals(chained.resistors(), batched.resistors());
+        assertEquals(chained.getGraph().edgeCount(), batched.getGraph().edgeCount());
+        assertSame(base, base.batch().commit());
+    }
+
+    @Test
+    void changesSinceListsRemovalsBeforeAdditions() {
+        CanvasState before = CanvasState.EMPTY.withVertex(new Point(0, 0)).withVertex(new Point(10, 0));
+        before = before.withResistor(before.vertex(0), before.vertex(1), 1);
+        CanvasState after = before.withoutVertex(before.vertex(1)).withVertex(new Point(5, 5));
+
+        List<String> events = new ArrayList<>();
+        after.changesSince(before, new CanvasState.Changes() {
+            @Override
+            public void vertexAdded(Vertex vertex) {
+                events.add("+v" + vertex.getId());
+            }
+
+            @Override
+            public void vertexRemoved(Vertex vertex) {
+                events.add("-v" + vertex.getId());
+            }
+
+            @Override
+            public void resistorAdded(Resistor resistor) {
+                events.add("+r" + resistor.getId());
+            }
+
+            @Override
+            public void resistorRemoved(Resistor resistor) {
+                events.add("-r" + resistor.getId());
+            }
+        });
+
+        assertEquals(List.of("-r0", "-v1", "+v1"), events);
+    }
+}
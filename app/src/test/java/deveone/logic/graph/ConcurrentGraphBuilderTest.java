@@ -0,0 +1,182 @@
+package deveone.logic.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentGraphBuilderTest {
+    private static final int VERTICES = 20_000;
+    private static final int EDGES = 200_000;
+
+    private final int[] from = new int[EDGES];
+    private final int[] to = new int[EDGES];
+    private final double[] weight = new double[EDGES];
+
+    ConcurrentGraphBuilderTest() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < EDGES; i++) {
+            from[i] = random.nextInt(VERTICES);
+            // Немного петель, чтобы проверить их учёт в неориентированном графе
+            to[i] = random.nextInt(50) == 0 ? from[i] : random.nextInt(VERTICES);
+            weight[i] = 1 + random.nextInt(1000);
+        }
+    }
+
+    @Test
+    void numericMatchesSequentialBuilder() throws Exception {
+        for (int threads : new int[]{1, 4, 16}) {
+            ConcurrentGraphBuilder builder = new ConcurrentGraphBuilder();
+            ingest(threads, i -> builder.edge(from[i], to[i], weight[i]));
+            assertRowsEqual(sequential(false), builder.build(), identity());
+        }
+    }
+
+    @Test
+    void directedMatchesSequentialBuilder() throws Exception {
+        ConcurrentGraphBuilder builder = new ConcurrentGraphBuilder(true);
+        ingest(8, i -> builder.edge(from[i], to[i], weight[i]));
+        assertRowsEqual(sequential(true), builder.build(), identity());
+    }
+
+    // Номера по именам раздаются в порядке первого обращения - сравниваем в исходных номерах
+    @Test
+    void namedMatchesSequentialBuilder() throws Exception {
+        String[] names = new String[VERTICES];
+        Map<String, Integer> original = new HashMap<>();
+        for (int v = 0; v < VERTICES; v++) {
+            names[v] = "N" + v;
+            original.put(names[v], v);
+        }
+        ConcurrentGraphBuilder builder = new ConcurrentGraphBuilder();
+        ingest(8, i -> builder.edge(names[from[i]], names[to[i]], weight[i]));
+        CsrWeightedGraph graph = builder.build();
+
+        String[] assigned = builder.names();
+        int[] toOriginal = new int[assigned.length];
+        for (int id = 0; id < assigned.length; id++)
+            toOriginal[id] = original.get(assigned[id]);
+        assertRowsEqual(sequential(false), graph, toOriginal);
+    }
+
+    // Писателей больше, чем потоков пула: буферы сливаются группами
+    @Test
+    void manyWritersOnSmallPool() throws Exception {
+        ConcurrentGraphBuilder builder = new ConcurrentGraphBuilder();
+        ingest(64, i -> builder.edge(from[i], to[i], weight[i]));
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            assertRowsEqual(sequential(false), builder.build(pool), identity());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void buildReleasesBuffers() throws Exception {
+        ConcurrentGraphBuilder builder = new ConcurrentGraphBuilder();
+        ingest(4, i -> builder.edge(from[i], to[i], weight[i]));
+        assertEquals(EDGES, builder.size());
+
+        builder.build();
+        assertEquals(0, builder.size());
+
+        builder.edge(0, 1, 5);
+        CsrWeightedGraph next = builder.build();
+        assertEquals(1, next.edgeCount());
+        assertEquals(5.0, next.getWeight(0, 1));
+    }
+
+    @Test
+    void mixingNumbersAndNamesIsRejected() {
+        ConcurrentGraphBuilder numeric = new ConcurrentGraphBuilder();
+        numeric.edge(0, 1, 1);
+        assertThrows(IllegalStateException.class, () -> numeric.edge("a", "b", 1));
+
+        ConcurrentGraphBuilder named = new ConcurrentGraphBuilder();
+        named.edge("a", "b", 1);
+        assertThrows(IllegalStateException.class, () -> named.edge(0, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentGraphBuilder().edge(-1, 0, 1));
+    }
+
+    private interface EdgeWriter {
+        void write(int i);
+    }
+
+    // Каждый поток пишет свою часть рёбер; старт по общему сигналу, чтобы записи шли одновременно
+    private static void ingest(int threads, EdgeWriter writer) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> parts = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int begin = (int) ((long) EDGES * t / threads);
+                int end = (int) ((long) EDGES * (t + 1) / threads);
+                parts.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = begin; i < end; i++)
+                        writer.write(i);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> part : parts)
+                part.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private CsrWeightedGraph sequential(boolean directed) {
+        CsrWeightedGraph.Builder builder = CsrWeightedGraph.builder(directed);
+        for (int i = 0; i < EDGES; i++)
+            builder.edge(from[i], to[i], weight[i]);
+        return builder.build();
+    }
+
+    private static int[] identity() {
+        int[] ids = new int[VERTICES];
+        for (int v = 0; v < VERTICES; v++)
+            ids[v] = v;
+        return ids;
+    }
+
+    /**
+     * Строка каждой вершины actual (в исходных номерах original) совпадает со строкой expected
+     * как мультимножество пар (сосед, вес)
+     */
+    private static void assertRowsEqual(CsrWeightedGraph expected, CsrWeightedGraph actual, int[] original) {
+        assertEquals(expected.vertexCount(), actual.vertexCount());
+        assertEquals(expected.edgeCount(), actual.edgeCount());
+        int n = expected.vertexCount();
+        int[] rowOf = new int[n];
+        for (int id = 0; id < n; id++)
+            rowOf[original[id]] = id;
+        for (int v = 0; v < n; v++) {
+            int row = rowOf[v];
+            assertArrayEquals(row(expected, v, null), row(actual, row, original), "строка вершины " + v);
+        }
+    }
+
+    private static String[] row(CsrWeightedGraph graph, int v, int[] original) {
+        String[] entries = new String[graph.degree(v)];
+        for (int i = graph.rowStart(v); i < graph.rowEnd(v); i++) {
+            int target = original != null ? original[graph.target(i)] : graph.target(i);
+            entries[i - graph.rowStart(v)] = target + ":" + graph.weight(i);
+        }
+        Arrays.sort(entries);
+        return entries;
+    }
+}
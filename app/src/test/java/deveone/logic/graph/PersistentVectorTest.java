@@ -0,0 +1,92 @@
+package deveone.logic.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentVectorTest {
+    @Test
+    void setKeepsOldVersion() {
+        PersistentVector<String> v1 = PersistentVector.<String>empty().set(0, "a").set(1, "b");
+        PersistentVector<String> v2 = v1.set(1, "c");
+
+        assertEquals("b", v1.get(1));
+        assertEquals("c", v2.get(1));
+        assertEquals("a", v2.get(0));
+        assertEquals(2, v2.size());
+    }
+
+    @Test
+    void outOfRangeReadsNull() {
+        PersistentVector<Integer> v = PersistentVector.<Integer>empty().set(3, 3);
+
+        assertNull(v.get(-1));
+        assertNull(v.get(4));
+        assertEquals(4, v.size());
+    }
+
+    // Поддеревья промежутка не создаются: чтение из них не должно падать
+    @Test
+    void gapReadsNull() {
+        PersistentVector<Integer> v = PersistentVector.<Integer>empty().set(0, 0).set(100_000, 1);
+
+        assertEquals(100_001, v.size());
+        for (int i = 1; i < 100_000; i += 37)
+            assertNull(v.get(i));
+        assertEquals(0, v.get(0));
+        assertEquals(1, v.get(100_000));
+    }
+
+    @Test
+    void gapsAfterRemovalReadNull() {
+        PersistentVector<Integer> v = PersistentVector.empty();
+        for (int i = 0; i < 5000; i++)
+            v = v.set(i, i);
+        for (int i = 1; i < 4999; i++)
+            v = v.set(i, null);
+
+        assertEquals(0, v.get(0));
+        assertNull(v.get(2500));
+        assertEquals(4999, v.get(4999));
+    }
+
+    @Test
+    void setAllMatchesChainOfSet() {
+        SplittableRandom random = new SplittableRandom(1);
+        PersistentVector<Integer> base = PersistentVector.empty();
+        for (int i = 0; i < 2000; i += 3)
+            base = base.set(i, i);
+
+        IntObjectMap<Integer> changes = new IntObjectMap<>();
+        PersistentVector<Integer> chained = base;
+        for (int k = 0; k < 300; k++) {
+            int i = random.nextInt(40_000);
+            Integer value = random.nextInt(4) == 0 ? null : k;
+            changes.put(i, value);
+            chained = chained.set(i, value);
+        }
+        PersistentVector<Integer> batched = base.setAll(changes);
+
+        assertEquals(chained.size(), batched.size());
+        for (int i = 0; i < chained.size(); i++)
+            assertEquals(chained.get(i), batched.get(i), "элемент " + i);
+        assertSame(base, base.setAll(new IntObjectMap<>()));
+    }
+
+    @Test
+    void diffReportsOnlyChanges() {
+        PersistentVector<String> before = PersistentVector.empty();
+        for (int i = 0; i < 1000; i++)
+            before = before.set(i, "v" + i);
+        PersistentVector<String> after = before.set(5, "x").set(700, null).set(40_000, "far");
+
+        List<String> changes = new ArrayList<>();
+        after.diff(before, (i, old, now) -> changes.add(i + ":" + old + "->" + now));
+
+        assertEquals(List.of("5:v5->x", "700:v700->null", "40000:null->far"), changes);
+    }
+}
@@ -0,0 +1,60 @@
+package deveone.logic.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraversalTest {
+    // Случайный граф с несколькими компонентами: фронт быстро растёт, и обход переходит к шагам снизу вверх
+    @Test
+    void reachMatchesBreadthFirstOrder() {
+        for (boolean directed : new boolean[]{false, true}) {
+            CsrWeightedGraph graph = random(50_000, 4, directed, 1);
+            Traversal traversal = directed ? Traversal.of(graph) : Traversal.undirected(graph);
+            for (int start : new int[]{0, 7, 49_999}) {
+                long[] expected = set(graph.vertexCount(), traversal.order(start));
+                assertArrayEquals(expected, traversal.reach(start), "directed=" + directed + " start=" + start);
+                assertArrayEquals(expected, traversal.reach(start, true), "directed=" + directed + " start=" + start);
+            }
+        }
+    }
+
+    // Длинная цепочка: все шаги сверху вниз
+    @Test
+    void reachOnChain() {
+        CsrWeightedGraph.Builder builder = CsrWeightedGraph.builder();
+        for (int v = 0; v < 999; v++)
+            builder.edge(v, v + 1, 1);
+        builder.expectVertices(1001);
+        Traversal traversal = Traversal.undirected(builder.build());
+
+        long[] reached = traversal.reach(500);
+        for (int v = 0; v < 1000; v++)
+            assertTrue(Traversal.contains(reached, v));
+        assertFalse(Traversal.contains(reached, 1000));
+        assertEquals(0, traversal.reach(-1)[0]);
+    }
+
+    private static CsrWeightedGraph random(int n, int degree, boolean directed, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        CsrWeightedGraph.Builder builder = CsrWeightedGraph.builder(directed);
+        builder.expectVertices(n);
+        // Вершины с номерами, кратными 10, изолированы
+        for (int i = 0; i < n * degree / 2; i++) {
+            int v1 = random.nextInt(n);
+            int v2 = random.nextInt(n);
+            if (v1 % 10 != 0 && v2 % 10 != 0)
+                builder.edge(v1, v2, 1);
+        }
+        return builder.build();
+    }
+
+    private static long[] set(int n, int[] vertices) {
+        long[] set = new long[(n + 63) >>> 6];
+        for (int v : vertices)
+            set[v >>> 6] |= 1L << v;
+        return set;
+    }
+}
@@ -0,0 +1,103 @@
+package deveone.logic.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionHistoryTest {
+    @Test
+    void undoRedo() {
+        VersionHistory<Integer> history = new VersionHistory<>(0);
+        history.update(v -> 1);
+        history.update(v -> 2);
+
+        assertTrue(history.undo());
+        assertEquals(1, history.current());
+        assertTrue(history.undo());
+        assertEquals(0, history.current());
+        assertFalse(history.undo());
+
+        assertTrue(history.redo());
+        assertTrue(history.redo());
+        assertEquals(2, history.current());
+        assertFalse(history.redo());
+    }
+
+    @Test
+    void updateClearsRedo() {
+        VersionHistory<Integer> history = new VersionHistory<>(0);
+        history.update(v -> 1);
+        history.undo();
+        history.update(v -> 5);
+
+        assertFalse(history.canRedo());
+        assertEquals(5, history.current());
+        history.undo();
+        assertEquals(0, history.current());
+    }
+
+    @Test
+    void sameVersionIsNotRecorded() {
+        VersionHistory<Integer> history = new VersionHistory<>(7);
+        long version = history.version();
+
+        history.update(v -> v);
+
+        assertEquals(version, history.version());
+        assertFalse(history.canUndo());
+    }
+
+    @Test
+    void depthIsBounded() {
+        VersionHistory<Integer> history = new VersionHistory<>(0, 10);
+        for (int i = 1; i <= 100; i++) {
+            int next = i;
+            history.update(v -> next);
+        }
+
+        int undone = 0;
+        while (history.undo())
+            undone++;
+
+        assertTrue(undone >= 10 && undone <= 20, "отменено " + undone);
+        assertEquals(100 - undone, history.current());
+    }
+
+    @Test
+    void zeroDepthKeepsNoHistory() {
+        VersionHistory<Integer> history = new VersionHistory<>(0, 0);
+        history.update(v -> 1);
+
+        assertFalse(history.canUndo());
+        assertEquals(1, history.current());
+    }
+
+    // Изменение повторяется при гонке, поэтому ни одно из параллельных увеличений не теряется
+    @Test
+    void concurrentUpdatesAreNotLost() throws Exception {
+        VersionHistory<Integer> history = new VersionHistory<>(0, 10);
+        int threads = 4;
+        int updates = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Future<?>[] futures = new Future<?>[threads];
+            for (int t = 0; t < threads; t++)
+                futures[t] = executor.submit(() -> {
+                    for (int i = 0; i < updates; i++)
+                        history.update(v -> v + 1);
+                });
+            for (Future<?> future : futures)
+                future.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(threads * updates, history.current());
+        assertEquals(threads * updates, history.version());
+    }
+}
@@ -0,0 +1,66 @@
+package deveone.logic.solver;
+
+import deveone.logic.generator.GridGenerator;
+import deveone.logic.graph.CsrWeightedGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DomainDecompositionSolverTest {
+    private static final GridGenerator GRID = new GridGenerator(100, 2, GridGenerator.Terminals.CORNERS, 10, 0.05, 42);
+
+    @Test
+    void matchesDirectSolver() {
+        CsrWeightedGraph graph = GRID.toCsr();
+        double expected = DirectSolver.resistance(graph, GRID.startNode(), GRID.endNode());
+        for (int parts : new int[]{2, 5, 8}) {
+            double actual = new DomainDecompositionSolver(parts, ForkJoinPool.commonPool())
+                    .resistance(graph, GRID.startNode(), GRID.endNode());
+            assertEquals(expected, actual, 1e-9 * expected, "parts=" + parts);
+        }
+    }
+
+    // Предел разделителя уменьшает число частей, а не отменяет разбиение
+    @Test
+    void separatorStaysWithinLimit() {
+        GroundedLaplacian a = GroundedLaplacian.assemble(GRID.toCsr(), GRID.startNode(), GRID.endNode());
+        int[] unlimited = Partitioner.partition(a, 16, Integer.MAX_VALUE, 42);
+        assertEquals(16, partCount(unlimited));
+        int full = separatorSize(unlimited);
+
+        int limit = full / 2;
+        int[] part = Partitioner.partition(a, 16, limit, 42);
+        int count = partCount(part);
+        assertTrue(separatorSize(part) <= limit);
+        assertTrue(count >= 2 && count < 16, "частей: " + count);
+        assertPartsSeparated(a, part);
+
+        assertEquals(1, partCount(Partitioner.partition(a, 16, 0, 42)));
+    }
+
+    private static int partCount(int[] part) {
+        int count = 0;
+        for (int p : part)
+            count = Math.max(count, p + 1);
+        return count;
+    }
+
+    private static int separatorSize(int[] part) {
+        int size = 0;
+        for (int p : part)
+            if (p == Partitioner.SEPARATOR)
+                size++;
+        return size;
+    }
+
+    private static void assertPartsSeparated(GroundedLaplacian a, int[] part) {
+        for (int i = 0; i < a.size(); i++)
+            for (int k = a.rowPtr[i]; k < a.rowPtr[i + 1]; k++) {
+                int j = a.cols[k];
+                if (part[i] >= 0 && part[j] >= 0)
+                    assertEquals(part[i], part[j], "узлы " + i + " и " + j + " в разных частях смежны");
+            }
+    }
+}
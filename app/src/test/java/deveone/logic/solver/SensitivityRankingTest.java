@@ -0,0 +1,80 @@
+package deveone.logic.solver;
+
+import deveone.logic.graph.PersistentWeightedMultigraph;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SensitivityRankingTest {
+    private static final double EPS = 1e-9;
+
+    // 0 -1- 1 =две закоротки= 2 -закоротка- 3 -2- 4
+    @Test
+    void parallelShortsHaveZeroDerivative() {
+        PersistentWeightedMultigraph graph = vertices(5)
+                .withEdge(0, 1, 1)
+                .withEdge(1, 2, 0)
+                .withEdge(2, 1, 0)
+                .withEdge(2, 3, 0)
+                .withEdge(3, 4, 2);
+
+        SensitivityRanking ranking = SensitivityRanking.analyze(graph, 0, 4);
+
+        assertEquals(3, ranking.getResistance(), EPS);
+        assertEquals(0, derivativeOf(ranking, 1), EPS);
+        assertEquals(0, derivativeOf(ranking, 2), EPS);
+        assertEquals(1, derivativeOf(ranking, 3), EPS);
+        assertEquals(1, derivativeOf(ranking, 0), EPS);
+    }
+
+    // Закоротки 1-2, 2-3, 3-1 образуют цикл, 3-4 - мост
+    @Test
+    void shortCycleHasZeroDerivative() {
+        PersistentWeightedMultigraph graph = vertices(6)
+                .withEdge(0, 1, 1)
+                .withEdge(1, 2, 0)
+                .withEdge(2, 3, 0)
+                .withEdge(3, 1, 0)
+                .withEdge(3, 4, 0)
+                .withEdge(4, 5, 1);
+
+        SensitivityRanking ranking = SensitivityRanking.analyze(graph, 0, 5);
+
+        for (int id = 1; id <= 3; id++)
+            assertEquals(0, derivativeOf(ranking, id), EPS);
+        assertEquals(1, derivativeOf(ranking, 4), EPS);
+    }
+
+    // Производная закоротки-моста совпадает с конечной разностью
+    @Test
+    void bridgeShortMatchesFiniteDifference() {
+        PersistentWeightedMultigraph graph = vertices(3)
+                .withEdge(0, 1, 1)
+                .withEdge(0, 2, 0)
+                .withEdge(2, 1, 1);
+        double h = 1e-4;
+        PersistentWeightedMultigraph perturbed = graph.withoutEdge(1).withEdge(1, 0, 2, h);
+
+        SensitivityRanking ranking = SensitivityRanking.analyze(graph, 0, 1);
+        double r0 = ranking.getResistance();
+        double r1 = DirectSolver.solve(perturbed, 0, 1).getResistance();
+
+        assertEquals(0.5, r0, EPS);
+        assertEquals(0.25, derivativeOf(ranking, 1), EPS);
+        assertEquals((r1 - r0) / h, derivativeOf(ranking, 1), 1e-4);
+    }
+
+    private static PersistentWeightedMultigraph vertices(int count) {
+        PersistentWeightedMultigraph graph = PersistentWeightedMultigraph.empty();
+        for (int i = 0; i < count; i++)
+            graph = graph.withVertex();
+        return graph;
+    }
+
+    private static double derivativeOf(SensitivityRanking ranking, int edgeId) {
+        for (int rank = 0; rank < ranking.size(); rank++)
+            if (ranking.edgeId(rank) == edgeId)
+                return ranking.derivative(rank);
+        return fail("нет ребра " + edgeId);
+    }
+}
@@ -0,0 +1,79 @@
+package deveone.logic.solver;
+
+import deveone.logic.graph.CsrWeightedGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpectralSparsifierTest {
+    private static final int SIZE = 300;
+
+    @Test
+    void keepsResistancesWithinEpsilon() {
+        CsrWeightedGraph graph = dense(SIZE, 0).build();
+        CsrWeightedGraph sparse = new SpectralSparsifier(0.5, 7).sparsify(graph);
+
+        assertTrue(sparse.edgeCount() < graph.edgeCount() / 2, "резисторов " + sparse.edgeCount());
+        assertResistancesClose(graph, sparse, 0.5);
+    }
+
+    @Test
+    void resultDoesNotDependOnThreads() {
+        CsrWeightedGraph graph = dense(SIZE, 0).build();
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool many = new ForkJoinPool(4);
+        try {
+            CsrWeightedGraph first = new SpectralSparsifier(0.5, 7, single).sparsify(graph);
+            CsrWeightedGraph second = new SpectralSparsifier(0.5, 7, many).sparsify(graph);
+            assertEquals(first.edgeCount(), second.edgeCount());
+            for (int v = 0; v < SIZE; v++)
+                for (int i = first.rowStart(v), j = second.rowStart(v); i < first.rowEnd(v); i++, j++) {
+                    assertEquals(first.target(i), second.target(j));
+                    assertEquals(first.weight(i), second.weight(j));
+                }
+        } finally {
+            single.shutdown();
+            many.shutdown();
+        }
+    }
+
+    // Длинная цепочка делает лапласиан плохо обусловленным: сопряжённые градиенты не сходятся,
+    // эффективные сопротивления считаются по разложению
+    @Test
+    void illConditionedCircuitFallsBackToFactorization() {
+        int tail = 400;
+        CsrWeightedGraph.Builder builder = dense(SIZE, tail);
+        for (int v = SIZE - 1; v < SIZE + tail - 1; v++)
+            builder.edge(v, v + 1, 50);
+        CsrWeightedGraph graph = builder.build();
+
+        GroundedLaplacian a = GroundedLaplacian.assemble(graph, 0, SIZE + tail - 1);
+        assertEquals(-1, SpectralSparsifier.solve(a, a.unitSourceCurrent(), 1, ForkJoinPool.commonPool()));
+
+        CsrWeightedGraph sparse = new SpectralSparsifier(0.9, 7).sparsify(graph);
+        assertTrue(sparse.edgeCount() < graph.edgeCount());
+        assertResistancesClose(graph, sparse, 0.9);
+    }
+
+    private static CsrWeightedGraph.Builder dense(int size, int extra) {
+        SplittableRandom random = new SplittableRandom(42);
+        CsrWeightedGraph.Builder builder = CsrWeightedGraph.builder();
+        builder.expectVertices(size + extra);
+        for (int i = 0; i < size; i++)
+            for (int j = i + 1; j < size; j++)
+                if (random.nextDouble() < 0.9)
+                    builder.edge(i, j, 1 + random.nextInt(100));
+        return builder;
+    }
+
+    private static void assertResistancesClose(CsrWeightedGraph expected, CsrWeightedGraph actual, double epsilon) {
+        int n = expected.vertexCount();
+        for (int v = 1; v < n; v += 37) {
+            double r = DirectSolver.resistance(expected, 0, v);
+            assertEquals(r, DirectSolver.resistance(actual, 0, v), epsilon * r, "вершина " + v);
+        }
+    }
+}
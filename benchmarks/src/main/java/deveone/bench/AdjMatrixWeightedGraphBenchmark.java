@@ -0,0 +1,65 @@
+package deveone.bench;
+
+import deveone.logic.graph.AdjMatrixWeightedGraph;
+import deveone.logic.graph.WeightedGraph;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Построение AdjMatrixWeightedGraph (рост матрицы при addEdge) и обход смежности
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AdjMatrixWeightedGraphBenchmark {
+    @Param({"CHAIN", "LADDER", "GRID", "RANDOM_SPARSE", "COMPLETE"})
+    public GraphShape shape;
+
+    @Param({"16", "64", "256"})
+    public int size;
+
+    private EdgeList edges;
+    private AdjMatrixWeightedGraph graph;
+
+    @Setup
+    public void setUp() {
+        edges = EdgeList.of(shape, size, 42);
+        graph = new AdjMatrixWeightedGraph();
+        edges.copyTo(graph);
+    }
+
+    @Benchmark
+    public AdjMatrixWeightedGraph addEdgeGrowth() {
+        AdjMatrixWeightedGraph g = new AdjMatrixWeightedGraph();
+        edges.copyTo(g);
+        return g;
+    }
+
+    @Benchmark
+    public AdjMatrixWeightedGraph addEdgePresized() {
+        AdjMatrixWeightedGraph g = new AdjMatrixWeightedGraph(edges.vertexCount());
+        edges.copyTo(g);
+        return g;
+    }
+
+    @Benchmark
+    public void adjacency(Blackhole bh) {
+        for (int v = 0; v < graph.vertexCount(); v++)
+            for (Integer to : graph.adjacency(v))
+                bh.consume(to.intValue());
+    }
+
+    @Benchmark
+    public double adjacencyWithWeights() {
+        double sum = 0;
+        for (int v = 0; v < graph.vertexCount(); v++)
+            for (WeightedGraph.WeightedEdgeTo edge : graph.adjacencyWithWeights(v))
+                sum += edge.weight();
+        return sum;
+    }
+}
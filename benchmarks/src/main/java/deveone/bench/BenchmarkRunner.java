@@ -0,0 +1,23 @@
+package deveone.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Точка входа benchmarks.jar. Принимает обычные аргументы JMH и всегда подключает GC-профайлер,
+ * чтобы в отчёте был темп выделения памяти (gc.alloc.rate и gc.alloc.rate.norm).
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+
+        new Runner(new OptionsBuilder()
+                .parent(cmd)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
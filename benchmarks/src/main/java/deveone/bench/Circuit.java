@@ -0,0 +1,45 @@
+package deveone.bench;
+
+import deveone.logic.generator.*;
+
+/**
+ * Входные цепи для бенчмарков расчёта, построенные генераторами из deveone.logic.generator.
+ * size - примерное кол-во вершин.
+ */
+public enum Circuit {
+    LADDER {
+        @Override
+        public CircuitGenerator generator(int size, long seed) {
+            return new LadderGenerator(Math.max(1, size / 2), 10, 0.05, seed);
+        }
+    },
+    GRID_2D {
+        @Override
+        public CircuitGenerator generator(int size, long seed) {
+            int side = Math.max(2, (int) Math.round(Math.sqrt(size)));
+            return new GridGenerator(side, 2, GridGenerator.Terminals.CORNERS, 10, 0.05, seed);
+        }
+    },
+    GRID_3D {
+        @Override
+        public CircuitGenerator generator(int size, long seed) {
+            int side = Math.max(2, (int) Math.round(Math.cbrt(size)));
+            return new GridGenerator(side, 3, GridGenerator.Terminals.CORNERS, 10, 0.05, seed);
+        }
+    },
+    RANDOM_GEOMETRIC {
+        @Override
+        public CircuitGenerator generator(int size, long seed) {
+            return new RandomGeometricGenerator(size, 10, seed);
+        }
+    },
+    WHEATSTONE {
+        @Override
+        public CircuitGenerator generator(int size, long seed) {
+            int columns = Math.max(1, (int) Math.sqrt(size / 3.0));
+            return new WheatstoneLatticeGenerator(Math.max(1, size / (3 * columns)), columns, 10, 0.05, seed);
+        }
+    };
+
+    public abstract CircuitGenerator generator(int size, long seed);
+}
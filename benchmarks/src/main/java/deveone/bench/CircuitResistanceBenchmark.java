@@ -0,0 +1,48 @@
+package deveone.bench;
+
+import deveone.logic.Logic;
+import deveone.logic.graph.AdjMatrixWeightedGraph;
+import deveone.logic.metrics.SolverMetrics;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Расчёт сопротивления цепи через Logic.calcCircuitResistance.
+ * Метод упрощения последовательных/параллельных соединений не завершается на мостовых схемах
+ * (лестницы, сетки, полные графы), поэтому здесь только последовательно-параллельные формы.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CircuitResistanceBenchmark {
+    @Param({"CHAIN", "PARALLEL_CHAINS"})
+    public GraphShape shape;
+
+    @Param({"16", "64"})
+    public int size;
+
+    /**
+     * Сбор метрик расчёта (позволяет оценить их накладные расходы)
+     */
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private AdjMatrixWeightedGraph graph;
+    private int endNode;
+
+    @Setup
+    public void setUp() {
+        graph = new AdjMatrixWeightedGraph();
+        endNode = shape.fill(graph, size, 42);
+        SolverMetrics.setEnabled(metrics);
+    }
+
+    @Benchmark
+    public double calcCircuitResistance() {
+        return Logic.calcCircuitResistance(graph, 0, endNode);
+    }
+}
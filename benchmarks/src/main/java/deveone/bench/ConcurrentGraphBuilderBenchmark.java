@@ -0,0 +1,82 @@
+package deveone.bench;
+
+import deveone.logic.graph.ConcurrentGraphBuilder;
+import deveone.logic.graph.CsrWeightedGraph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Параллельное чтение цепи через ConcurrentGraphBuilder: список рёбер делится на части по числу потоков,
+ * каждый поток пишет свою часть, затем build(). Совпадение с последовательным CsrWeightedGraph.Builder
+ * проверяет ConcurrentGraphBuilderTest.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentGraphBuilderBenchmark {
+    @Param({"GRID", "RANDOM_SPARSE"})
+    public GraphShape shape;
+
+    // Примерное кол-во рёбер
+    @Param({"100000", "1800000"})
+    public int edgeCount;
+
+    @Param({"1", "2", "4"})
+    public int threads;
+
+    private EdgeList edges;
+    private String[] names;
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() {
+        // Сетка - 2 ребра на вершину, случайный граф - около 3
+        edges = EdgeList.of(shape, edgeCount / (shape == GraphShape.GRID ? 2 : 3), 42);
+        names = new String[edges.vertexCount()];
+        for (int v = 0; v < names.length; v++)
+            names[v] = "N" + v;
+        executor = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public CsrWeightedGraph ingestNumeric() throws Exception {
+        return ingest(new ConcurrentGraphBuilder(), false);
+    }
+
+    @Benchmark
+    public CsrWeightedGraph ingestNamed() throws Exception {
+        return ingest(new ConcurrentGraphBuilder(), true);
+    }
+
+    private CsrWeightedGraph ingest(ConcurrentGraphBuilder builder, boolean named) throws Exception {
+        int total = edges.size();
+        List<Future<?>> parts = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            int begin = (int) ((long) total * t / threads);
+            int end = (int) ((long) total * (t + 1) / threads);
+            parts.add(executor.submit(() -> {
+                if (named)
+                    edges.copyTo((v1, v2, w) -> builder.edge(names[v1], names[v2], w), begin, end);
+                else
+                    edges.copyTo(builder, begin, end);
+            }));
+        }
+        for (Future<?> part : parts)
+            part.get();
+        return builder.build();
+    }
+}
@@ -0,0 +1,95 @@
+package deveone.bench;
+
+import deveone.logic.solver.dense.DenseKernels;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Скалярные и векторные плотные ядра на матрицах, сравнимых по размеру с порогом плотного расчёта.
+ * Векторная реализация доступна только при --add-modules jdk.incubator.vector (добавляется в форк).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class DenseKernelBenchmark {
+    public enum Kernels {
+        SCALAR, VECTOR
+    }
+
+    @Param({"32", "64", "128", "256"})
+    public int n;
+
+    @Param({"SCALAR", "VECTOR"})
+    public Kernels kernels;
+
+    private DenseKernels impl;
+    private double[] resistances;
+    private double[] laplacian;
+    private double[] work;
+    private double[] x;
+    private double[] y;
+    private int[] pivots;
+
+    @Setup
+    public void setUp() {
+        impl = kernels == Kernels.SCALAR ? DenseKernels.scalar() : DenseKernels.get();
+        if (kernels == Kernels.VECTOR && impl == DenseKernels.scalar())
+            throw new IllegalStateException("Модуль jdk.incubator.vector не подключён");
+
+        // Плотная случайная цепь: каждая пара соединена с вероятностью 1/2
+        Random random = new Random(42);
+        resistances = new double[n * n];
+        for (int i = 0; i < n; i++)
+            for (int j = i + 1; j < n; j++)
+                if (random.nextBoolean() || j == i + 1)
+                    resistances[i * n + j] = resistances[j * n + i] = 1 + random.nextDouble() * 9;
+
+        // Лапласиан с небольшим сдвигом диагонали положительно определён
+        laplacian = new double[n * n];
+        DenseKernels.scalar().laplacian(resistances, n, laplacian);
+        for (int i = 0; i < n; i++)
+            laplacian[i * n + i] += 1e-3;
+
+        work = new double[n * n];
+        x = new double[n];
+        y = new double[n];
+        pivots = new int[n];
+        for (int i = 0; i < n; i++)
+            x[i] = random.nextDouble();
+    }
+
+    @Benchmark
+    public double[] laplacian() {
+        impl.laplacian(resistances, n, work);
+        return work;
+    }
+
+    @Benchmark
+    public double[] multiply() {
+        impl.multiply(laplacian, n, x, y);
+        return y;
+    }
+
+    @Benchmark
+    public double[] cholesky() {
+        System.arraycopy(laplacian, 0, work, 0, work.length);
+        impl.cholesky(work, n);
+        System.arraycopy(x, 0, y, 0, n);
+        impl.choleskySolve(work, n, y);
+        return y;
+    }
+
+    @Benchmark
+    public double[] lu() {
+        System.arraycopy(laplacian, 0, work, 0, work.length);
+        impl.lu(work, n, pivots);
+        System.arraycopy(x, 0, y, 0, n);
+        impl.luSolve(work, n, pivots, y);
+        return y;
+    }
+}
@@ -0,0 +1,56 @@
+package deveone.bench;
+
+import deveone.logic.generator.CircuitGenerator;
+import deveone.logic.solver.DoubleEnvelopeFactor;
+import deveone.logic.solver.EnvelopeStructure;
+import deveone.logic.solver.GroundedLaplacian;
+import deveone.logic.solver.dense.DenseKernels;
+import deveone.logic.solver.dense.DenseSolver;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Плотное и профильное решение узловой системы небольших цепей (для выбора DenseSolver.THRESHOLD)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class DenseSolverBenchmark {
+    @Param({"GRID_2D", "GRID_3D", "RANDOM_GEOMETRIC"})
+    public Circuit circuit;
+
+    @Param({"64", "128", "256", "512"})
+    public int size;
+
+    private GroundedLaplacian laplacian;
+    private double[] current;
+
+    @Setup
+    public void setUp() {
+        CircuitGenerator generator = circuit.generator(size, 42);
+        laplacian = GroundedLaplacian.assemble(generator.toCsr(), generator.startNode(), generator.endNode());
+        current = laplacian.unitSourceCurrent();
+    }
+
+    @Benchmark
+    public double envelope() {
+        EnvelopeStructure structure = EnvelopeStructure.analyze(laplacian);
+        double[] x = new double[laplacian.size()];
+        DoubleEnvelopeFactor.factor(structure, laplacian).solve(current, x);
+        return x[laplacian.source()];
+    }
+
+    @Benchmark
+    public double denseScalar() {
+        return DenseSolver.solve(laplacian, current, DenseKernels.scalar())[laplacian.source()];
+    }
+
+    @Benchmark
+    public double denseVector() {
+        return DenseSolver.solve(laplacian, current, DenseKernels.get())[laplacian.source()];
+    }
+}
@@ -0,0 +1,76 @@
+package deveone.bench;
+
+import deveone.logic.graph.DynamicWeightedGraph;
+import deveone.logic.graph.WeightedGraph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Построение, обход и редактирование DynamicWeightedGraph
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DynamicWeightedGraphBenchmark {
+    @Param({"CHAIN", "GRID", "RANDOM_SPARSE", "COMPLETE"})
+    public GraphShape shape;
+
+    @Param({"64", "256", "4096"})
+    public int size;
+
+    private EdgeList edges;
+    private DynamicWeightedGraph graph;
+    private SplittableRandom random;
+
+    @Setup
+    public void setUp() {
+        // Полный граф на 4096 вершинах слишком велик для бенчмарка
+        edges = EdgeList.of(shape, shape == GraphShape.COMPLETE ? Math.min(size, 256) : size, 42);
+        graph = new DynamicWeightedGraph();
+        edges.copyTo(graph);
+        random = new SplittableRandom(7);
+    }
+
+    @Benchmark
+    public DynamicWeightedGraph addEdge() {
+        DynamicWeightedGraph g = new DynamicWeightedGraph();
+        edges.copyTo(g);
+        return g;
+    }
+
+    @Benchmark
+    public double adjacencyWithWeights() {
+        double sum = 0;
+        for (int v = 0; v < graph.vertexCount(); v++)
+            for (WeightedGraph.WeightedEdgeTo edge : graph.adjacencyWithWeights(v))
+                sum += edge.weight();
+        return sum;
+    }
+
+    /**
+     * Удаление вершины со всеми рёбрами и её восстановление под переиспользованным номером
+     */
+    @Benchmark
+    public int vertexChurn() {
+        int v = random.nextInt(graph.vertexCount());
+        int degree = graph.degree(v);
+        int[] neighbours = new int[degree];
+        double[] weights = new double[degree];
+        int i = 0;
+        for (WeightedGraph.WeightedEdgeTo edge : graph.adjacencyWithWeights(v)) {
+            neighbours[i] = edge.to();
+            weights[i++] = edge.weight();
+        }
+
+        graph.removeVertex(v);
+        int id = graph.addVertex();
+        for (i = 0; i < degree; i++)
+            graph.addEdge(id, neighbours[i] == v ? id : neighbours[i], weights[i]);
+        return id;
+    }
+}
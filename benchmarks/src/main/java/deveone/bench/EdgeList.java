@@ -0,0 +1,58 @@
+package deveone.bench;
+
+import deveone.logic.graph.EdgeSink;
+import deveone.logic.graph.WeightedGraph;
+
+import java.util.Arrays;
+
+/**
+ * Список рёбер в примитивных массивах. Нужен, чтобы замерять построение графа без затрат на генерацию.
+ */
+final class EdgeList implements EdgeSink {
+    private int[] from = new int[16];
+    private int[] to = new int[16];
+    private double[] weights = new double[16];
+    private int size = 0;
+    private int vCount = 0;
+
+    static EdgeList of(GraphShape shape, int n, long seed) {
+        EdgeList list = new EdgeList();
+        shape.fill(list, n, seed);
+        return list;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int vertexCount() {
+        return vCount;
+    }
+
+    void copyTo(WeightedGraph graph) {
+        for (int i = 0; i < size; i++)
+            graph.addEdge(from[i], to[i], weights[i]);
+    }
+
+    /**
+     * Передаёт в sink рёбра с номерами begin..end-1 (для раздачи частей списка по потокам)
+     */
+    void copyTo(EdgeSink sink, int begin, int end) {
+        for (int i = begin; i < end; i++)
+            sink.edge(from[i], to[i], weights[i]);
+    }
+
+    @Override
+    public void edge(int v1, int v2, double weight) {
+        if (size == from.length) {
+            from = Arrays.copyOf(from, size * 2);
+            to = Arrays.copyOf(to, size * 2);
+            weights = Arrays.copyOf(weights, size * 2);
+        }
+        from[size] = v1;
+        to[size] = v2;
+        weights[size] = weight;
+        size++;
+        vCount = Math.max(vCount, Math.max(v1, v2) + 1);
+    }
+}
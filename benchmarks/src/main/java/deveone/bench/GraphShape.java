@@ -0,0 +1,141 @@
+package deveone.bench;
+
+import deveone.logic.graph.EdgeSink;
+import deveone.logic.graph.WeightedGraph;
+
+import java.util.SplittableRandom;
+
+/**
+ * Параметризованные формы входных графов для бенчмарков.
+ * Каждая форма умеет заполнить граф примерно заданным числом вершин и сообщает конечную вершину цепи
+ * (начальной всегда считается вершина 0).
+ */
+public enum GraphShape {
+    /**
+     * Последовательная цепочка 0 - 1 - ... - (n-1)
+     */
+    CHAIN {
+        @Override
+        public int fill(EdgeSink sink, int n, long seed) {
+            SplittableRandom random = new SplittableRandom(seed);
+            for (int i = 0; i < n - 1; i++)
+                sink.edge(i, i + 1, weight(random));
+            return n - 1;
+        }
+    },
+
+    /**
+     * Несколько параллельных цепочек между вершинами 0 и 1 (последовательно-параллельная цепь)
+     */
+    PARALLEL_CHAINS {
+        @Override
+        public int fill(EdgeSink sink, int n, long seed) {
+            SplittableRandom random = new SplittableRandom(seed);
+            int branches = Math.max(2, (int) Math.sqrt(n));
+            int length = Math.max(2, (n - 2) / branches + 1);
+            int next = 2;
+            for (int b = 0; b < branches; b++) {
+                int prev = 0;
+                for (int i = 0; i < length - 1; i++) {
+                    sink.edge(prev, next, weight(random));
+                    prev = next++;
+                }
+                sink.edge(prev, 1, weight(random));
+            }
+            return 1;
+        }
+    },
+
+    /**
+     * Лестничная цепь: две цепочки по n/2 вершин, соединённые перекладинами
+     */
+    LADDER {
+        @Override
+        public int fill(EdgeSink sink, int n, long seed) {
+            SplittableRandom random = new SplittableRandom(seed);
+            int rungs = Math.max(2, n / 2);
+            for (int i = 0; i < rungs; i++) {
+                sink.edge(2 * i, 2 * i + 1, weight(random));
+                if (i + 1 < rungs) {
+                    sink.edge(2 * i, 2 * i + 2, weight(random));
+                    sink.edge(2 * i + 1, 2 * i + 3, weight(random));
+                }
+            }
+            return 2 * rungs - 1;
+        }
+    },
+
+    /**
+     * Квадратная сетка sqrt(n) x sqrt(n), цепь между противоположными углами
+     */
+    GRID {
+        @Override
+        public int fill(EdgeSink sink, int n, long seed) {
+            SplittableRandom random = new SplittableRandom(seed);
+            int side = Math.max(2, (int) Math.sqrt(n));
+            for (int r = 0; r < side; r++)
+                for (int c = 0; c < side; c++) {
+                    int v = r * side + c;
+                    if (c + 1 < side)
+                        sink.edge(v, v + 1, weight(random));
+                    if (r + 1 < side)
+                        sink.edge(v, v + side, weight(random));
+                }
+            return side * side - 1;
+        }
+    },
+
+    /**
+     * Случайный разреженный связный граф: остовное дерево плюс примерно 2n случайных рёбер
+     */
+    RANDOM_SPARSE {
+        @Override
+        public int fill(EdgeSink sink, int n, long seed) {
+            SplittableRandom random = new SplittableRandom(seed);
+            for (int v = 1; v < n; v++)
+                sink.edge(random.nextInt(v), v, weight(random));
+            for (int i = 0; i < 2 * n; i++) {
+                int v1 = random.nextInt(n);
+                int v2 = random.nextInt(n);
+                if (v1 != v2)
+                    sink.edge(v1, v2, weight(random));
+            }
+            return n - 1;
+        }
+    },
+
+    /**
+     * Полный граф на n вершинах
+     */
+    COMPLETE {
+        @Override
+        public int fill(EdgeSink sink, int n, long seed) {
+            SplittableRandom random = new SplittableRandom(seed);
+            for (int i = 0; i < n; i++)
+                for (int j = i + 1; j < n; j++)
+                    sink.edge(i, j, weight(random));
+            return n - 1;
+        }
+    };
+
+    /**
+     * Выдаёт рёбра формы
+     *
+     * @param sink приёмник рёбер
+     * @param n    желаемое кол-во вершин (форма может его округлить)
+     * @param seed зерно генератора весов
+     * @return номер конечной вершины цепи
+     */
+    public abstract int fill(EdgeSink sink, int n, long seed);
+
+    /**
+     * Заполняет граф рёбрами через addEdge
+     */
+    public int fill(WeightedGraph graph, int n, long seed) {
+        return fill(EdgeSink.of(graph), n, seed);
+    }
+
+    private static double weight(SplittableRandom random) {
+        return 1 + random.nextInt(100);
+    }
+}
@@ -0,0 +1,49 @@
+package deveone.bench;
+
+import deveone.logic.graph.PersistentVector;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение PersistentVector с промежутками: номера вершин холста после удалений и set() за концом,
+ * когда поддеревья промежутка не созданы. Setup проверяет, что элементы промежутка читаются как null.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PersistentVectorBenchmark {
+    @Param({"1024", "65536"})
+    public int size;
+
+    // Каждый stride-й элемент задан, остальные - промежутки
+    @Param({"1", "100", "5000"})
+    public int stride;
+
+    private PersistentVector<Integer> vector;
+
+    @Setup
+    public void setUp() {
+        vector = PersistentVector.empty();
+        for (int i = size - 1; i >= 0; i -= stride)
+            vector = vector.set(i, i);
+        for (int i = 0; i < size; i++) {
+            Integer value = vector.get(i);
+            boolean expected = (size - 1 - i) % stride == 0;
+            if (expected ? value == null || value != i : value != null)
+                throw new IllegalStateException("Элемент " + i + ": " + value);
+        }
+    }
+
+    @Benchmark
+    public int scan() {
+        int live = 0;
+        for (int i = 0; i < vector.size(); i++)
+            if (vector.get(i) != null)
+                live++;
+        return live;
+    }
+}
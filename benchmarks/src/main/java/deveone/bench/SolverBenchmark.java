@@ -0,0 +1,46 @@
+package deveone.bench;
+
+import deveone.logic.Logic;
+import deveone.logic.SolverMode;
+import deveone.logic.generator.CircuitGenerator;
+import deveone.logic.graph.CsrWeightedGraph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Расчёт сопротивления движками, решающими систему узловых потенциалов
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SolverBenchmark {
+    @Param({"LADDER", "GRID_2D", "GRID_3D", "RANDOM_GEOMETRIC", "WHEATSTONE"})
+    public Circuit circuit;
+
+    @Param({"1000", "10000", "40000"})
+    public int size;
+
+    @Param({"DIRECT", "MIXED_PRECISION", "DOMAIN_DECOMPOSITION"})
+    public SolverMode mode;
+
+    private CsrWeightedGraph graph;
+    private int startNode;
+    private int endNode;
+
+    @Setup
+    public void setUp() {
+        CircuitGenerator generator = circuit.generator(size, 42);
+        graph = generator.toCsr();
+        startNode = generator.startNode();
+        endNode = generator.endNode();
+    }
+
+    @Benchmark
+    public double resistance() {
+        return Logic.calcCircuitResistance(graph, startNode, endNode, mode);
+    }
+}
@@ -0,0 +1,50 @@
+package deveone.bench;
+
+import deveone.logic.graph.CsrWeightedGraph;
+import deveone.logic.graph.Traversal;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Достижимость из вершины 0: Traversal.reach() с выбором направления против обычного поиска в ширину
+ * сверху вниз (order()). Снимок смежности общий с CSR-графом, как в GroundedLaplacian.assemble.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class TraversalBenchmark {
+    @Param({"GRID", "RANDOM_SPARSE"})
+    public GraphShape shape;
+
+    @Param({"100000", "2000000"})
+    public int size;
+
+    private Traversal traversal;
+
+    @Setup
+    public void setUp() {
+        EdgeList edges = EdgeList.of(shape, size, 42);
+        CsrWeightedGraph.Builder builder = CsrWeightedGraph.builder();
+        edges.copyTo(builder, 0, edges.size());
+        traversal = Traversal.undirected(builder.build());
+    }
+
+    @Benchmark
+    public long[] reach() {
+        return traversal.reach(0);
+    }
+
+    @Benchmark
+    public long[] reachParallel() {
+        return traversal.reach(0, true);
+    }
+
+    @Benchmark
+    public int[] breadthFirst() {
+        return traversal.order(0);
+    }
+}
@@ -1,16 +1,25 @@
 package deveone.graphics;
 
+import deveone.graphics.additional.CanvasJournal;
+import deveone.graphics.additional.CanvasState;
+import deveone.graphics.additional.HeatMap;
 import deveone.graphics.additional.ManipulateModes;
 import deveone.graphics.additional.ObjectModes;
 import deveone.graphics.additional.Resistor;
 import deveone.graphics.additional.Vertex;
-import deveone.logic.graph.AdjMatrixWeightedGraph;
+import deveone.logic.graph.PersistentWeightedMultigraph;
+import deveone.logic.graph.ShortestPaths;
+import deveone.logic.graph.VersionHistory;
+import deveone.logic.solver.CircuitSolution;
+import deveone.logic.solver.SensitivityRanking;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.*;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
 
 public class Canvas extends JComponent {
     private Graphics2D g;
@@ -18,22 +27,36 @@ public class Canvas extends JComponent {
 
     private final int vertexSize = 60;
 
-    private final ArrayList<Vertex> graphicalVertices = new ArrayList<>(); //Массив вершин
-    private final ArrayList<Resistor> graphicalResistors = new ArrayList<>();
+    //Версии цепи (граф и изображения вершин и резисторов), каждое изменение - новая версия, отмена - возврат к прежней
+    private final VersionHistory<CanvasState> history;
 
-    private Vertex[] linesBuffer = new Vertex[2]; //Хранит информацию о точках линии во время её создания
+    private final CanvasJournal journal; //Автосохранение изменений, null - не сохраняются
 
-    private AdjMatrixWeightedGraph graph = new AdjMatrixWeightedGraph(); //Матрица смежности вершин
+    private Vertex[] linesBuffer = new Vertex[2]; //Хранит информацию о точках линии во время её создания
 
     private ObjectModes objectMode = ObjectModes.VERTEX; //Текущий режим (вершины или линии)
     private ManipulateModes manipulateMode = ManipulateModes.ADD;
 
-    private int currId = 0;
     private int weight = 0; //Текущий вес ребра, задаётся извне
 
+    private HeatMap heatMap; //Раскраска по результатам последнего расчёта, null - не показывается
+
+    //Цвета выделенных путей: первый (кратчайший) путь и остальные
+    private static final Color[] ROUTE_COLORS = {new Color(200, 0, 140), new Color(240, 150, 0)};
+    private final List<Vertex> routeVertices = new ArrayList<>(); //Элементы, выделенные showRoutes
+    private final List<Resistor> routeResistors = new ArrayList<>();
+
 
     public Canvas() {
+        this(null);
+    }
+
+    //Холст с цепью, восстановленной из журнала; дальнейшие изменения записываются в журнал
+    public Canvas(CanvasJournal journal) {
+        this.journal = journal;
+        history = new VersionHistory<>(journal != null ? journal.restored() : CanvasState.EMPTY);
         createMouseListener();
+        createKeyBindings();
     }
 
     public void changeObjectMode(ObjectModes newMode) {
@@ -48,8 +71,91 @@ public class Canvas extends JComponent {
         weight = newWeight;
     }
 
-    public AdjMatrixWeightedGraph getGraph() {
-        return graph;
+    //Текущая версия графа цепи. Версия неизменяема, поэтому её можно считать в другом потоке, пока холст редактируется
+    public PersistentWeightedMultigraph getGraph() {
+        return history.current().getGraph();
+    }
+
+    //Отменяет последнее изменение цепи (Ctrl+Z)
+    public void undo() {
+        if (history.undo())
+            afterHistoryMove();
+    }
+
+    //Повторяет отменённое изменение (Ctrl+Y, Ctrl+Shift+Z)
+    public void redo() {
+        if (history.redo())
+            afterHistoryMove();
+    }
+
+    private void afterHistoryMove() {
+        journal();
+        linesBuffer = new Vertex[2]; //Начатая линия могла ссылаться на вершину, которой нет в этой версии
+        heatMap = null;
+        clearColors();
+        redraw();
+    }
+
+    //Показывает распределение токов и потенциалов до следующего изменения цепи
+    public void showDistribution(CircuitSolution solution) {
+        CanvasState state = history.current();
+        heatMap = new HeatMap(solution, state.resistors(), state.vertices());
+        redraw();
+    }
+
+    //Показывает чувствительность сопротивления цепи к каждому резистору (SensitivityRanking.ofEdges по графу холста)
+    public void showSensitivity(SensitivityRanking ranking) {
+        heatMap = new HeatMap(ranking);
+        redraw();
+    }
+
+    //Выделяет пути (номера вершин - номера вершин холста): первый путь основным цветом, остальные - вторым.
+    //Перекрашиваются и перерисовываются только элементы прежнего и нового выделения, а не весь холст
+    public void showRoutes(List<ShortestPaths.Route> routes) {
+        List<Vertex> dirtyVertices = new ArrayList<>(routeVertices);
+        List<Resistor> dirtyResistors = new ArrayList<>(routeResistors);
+        clearRoutes();
+
+        CanvasState state = history.current();
+        //Первый путь красится последним, чтобы на общих участках был виден его цвет
+        for (int k = routes.size() - 1; k >= 0; k--) {
+            ShortestPaths.Route route = routes.get(k);
+            Color color = ROUTE_COLORS[Math.min(k, ROUTE_COLORS.length - 1)];
+            for (int i = 0; i < route.size(); i++) {
+                Vertex v = state.vertex(route.vertex(i));
+                if (v == null) //Путь посчитан по другой версии цепи
+                    continue;
+                v.setColor(color);
+                routeVertices.add(v);
+                Vertex next = i + 1 < route.size() ? state.vertex(route.vertex(i + 1)) : null;
+                if (next == null)
+                    continue;
+                //Все параллельные резисторы между соседними вершинами пути
+                for (int edgeId : state.getGraph().incidentEdges(v.getId())) {
+                    Resistor r = state.resistor(edgeId);
+                    if (r.connects(v, next)) {
+                        r.setColor(color);
+                        routeResistors.add(r);
+                    }
+                }
+            }
+        }
+        dirtyVertices.addAll(routeVertices);
+        dirtyResistors.addAll(routeResistors);
+        redrawRegion(dirtyVertices, dirtyResistors);
+    }
+
+    public void showRoute(ShortestPaths.Route route) {
+        showRoutes(route != null ? List.of(route) : List.of());
+    }
+
+    public void hideRoutes() {
+        showRoutes(List.of());
+    }
+
+    public void hideDistribution() {
+        heatMap = null;
+        redraw();
     }
 
     private void createMouseListener() {
@@ -65,10 +171,28 @@ public class Canvas extends JComponent {
         addMouseListener(listener);
     }
 
+    private void createKeyBindings() {
+        InputMap inputs = getInputMap(WHEN_IN_FOCUSED_WINDOW);
+        inputs.put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK), "undo");
+        inputs.put(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK), "redo");
+        inputs.put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK), "redo");
+
+        getActionMap().put("undo", new AbstractAction() {
+            public void actionPerformed(ActionEvent e) {
+                undo();
+            }
+        });
+        getActionMap().put("redo", new AbstractAction() {
+            public void actionPerformed(ActionEvent e) {
+                redo();
+            }
+        });
+    }
+
     private Vertex checkVertexCollision(Point clicked) {
         int offsetRectSize = vertexSize * 2;
 
-        for (Vertex vertex : graphicalVertices) {
+        for (Vertex vertex : history.current().vertices()) {
             Ellipse2D r = new Ellipse2D.Float(vertex.getPos().x - vertexSize, vertex.getPos().y - vertexSize,
                     offsetRectSize, offsetRectSize);
 
@@ -79,8 +203,8 @@ public class Canvas extends JComponent {
     }
 
     private Resistor checkResistorCollision(Point clicked) {
-        for (Resistor resistor : graphicalResistors) {
-            Line2D.Float line = new Line2D.Float(resistor.getStart().getPos(), resistor.getEnd().getPos());
+        for (Resistor resistor : history.current().resistors()) {
+            Line2D line = resistorLine(resistor);
             if (line.getBounds().contains(clicked))
                 return resistor;
         }
@@ -141,31 +265,28 @@ public class Canvas extends JComponent {
         }
     }
 
-    //Записывает вершину в список и рисует её
+    //Записывает вершину в граф и рисует её
     private void createVertex(Point p) {
-        Vertex vertex = new Vertex(p, currId++);
-        graphicalVertices.add(vertex);
-        redraw();
+        history.update(state -> state.withVertex(p));
+        changed();
     }
 
+    //Удаляет вершину вместе с её резисторами (одно изменение для отмены)
     private void removeVertex(Vertex vertexToRemove) {
-        Iterable<Integer> adj = graph.adjacency(vertexToRemove.getId());
-        for (Integer vertex : adj) {
-            graph.removeEdge(vertex, vertexToRemove.getId());
-        }
-
-        graphicalVertices.remove(vertexToRemove);
-
-        for (int i = 0; i < graphicalResistors.size(); i++) {
-            Resistor resistor = graphicalResistors.get(i);
-
-            if (resistor.getStart() == vertexToRemove || resistor.getEnd() == vertexToRemove) {
-                removeResistor(resistor);
-                i--;
-            }
-        }
+        history.update(state -> state.withoutVertex(vertexToRemove)); //Номер вершины освобождается
+        changed();
+    }
 
-        redraw();
+    //Применяет много изменений (вставка, генерация подсхемы) как одно: новая версия строится за один проход,
+    //в истории она одна (отменяется целиком), в журнал пишется одной пачкой и холст перерисовывается один раз.
+    //При гонке с другим писателем edit вызывается заново, поэтому он должен менять только пакет
+    public void edit(Consumer<CanvasState.Batch> edit) {
+        history.update(state -> {
+            CanvasState.Batch batch = state.batch();
+            edit.accept(batch);
+            return batch.commit();
+        });
+        changed();
     }
 
     //Рисует вершину(без записи в список)
@@ -176,9 +297,12 @@ public class Canvas extends JComponent {
 
         g.setStroke(new BasicStroke(4));
 
-        g.setColor(Color.WHITE);
+        //Выделение (фокус) важнее раскраски
+        Color heat = heatMap != null && v.getColor() == Color.black ? heatMap.vertexColor(v) : null;
+
+        g.setColor(heat != null ? heat.brighter() : Color.WHITE);
         g.fillOval(drawX, drawY, vertexSize, vertexSize);
-        g.setColor(v.getColor());
+        g.setColor(heat != null ? heat : v.getColor());
         g.drawOval(drawX, drawY, vertexSize, vertexSize);
 
         String strId = String.valueOf(v.getId());
@@ -188,40 +312,75 @@ public class Canvas extends JComponent {
         g.drawString(strId, v.getPos().x - (int) stringBounds.getCenterX(), v.getPos().y - (int) stringBounds.getCenterY());
     }
 
-    //Рисует резистор между двумя точками
+    //Рисует резистор между двумя точками. Параллельные резисторы между теми же вершинами допускаются
     private void createResistor(Vertex start, Vertex end) {
-        Resistor resistor = new Resistor(start, end, weight);
-
-        if (graphicalResistors.contains(resistor))
-            return;
+        history.update(state -> state.withResistor(start, end, weight));
+        changed();
+    }
 
-        graphicalResistors.add(resistor);
-        graph.addEdge(start.getId(), end.getId(), weight);
+    private void removeResistor(Resistor resistorToRemove) {
+        history.update(state -> state.withoutResistor(resistorToRemove));
+        changed();
+    }
 
+    //После изменения цепи: раскраска и выделенные пути относились к прежней версии
+    private void changed() {
+        journal();
+        heatMap = null;
+        clearRoutes();
         redraw();
     }
 
-    private void removeResistor(Resistor resistorToRemove) {
-        graph.removeEdge(resistorToRemove.getStart().getId(), resistorToRemove.getEnd().getId());
-        graphicalResistors.remove(resistorToRemove);
+    //Снимает выделение путей без перерисовки
+    private void clearRoutes() {
+        routeVertices.forEach(v -> v.setColor(Color.black));
+        routeResistors.forEach(r -> r.setColor(Color.black));
+        routeVertices.clear();
+        routeResistors.clear();
+    }
 
-        redraw();
+    //Записывает изменение цепи в журнал (отмена и повтор записываются как обратные изменения)
+    private void journal() {
+        if (journal != null)
+            journal.record(history.current());
+    }
+
+    //Линия резистора: дорожка 0 - прямая между вершинами, остальные смещены поочерёдно в разные стороны
+    private Line2D resistorLine(Resistor resistor) {
+        Point start = resistor.getStart().getPos();
+        Point end = resistor.getEnd().getPos();
+        int lane = resistor.getLane();
+        if (lane == 0)
+            return new Line2D.Float(start, end);
+
+        //Направление смещения считаем от вершины с меньшим номером, чтобы оно не зависело от порядка рисования
+        Point from = resistor.getStart().getId() < resistor.getEnd().getId() ? start : end;
+        Point to = from == start ? end : start;
+        double length = from.distance(to);
+        double offset = (lane + 1) / 2 * (lane % 2 == 1 ? 1 : -1) * vertexSize * 0.6;
+        double dx = -(to.y - from.y) / length * offset;
+        double dy = (to.x - from.x) / length * offset;
+        return new Line2D.Double(start.x + dx, start.y + dy, end.x + dx, end.y + dy);
     }
 
     private void drawResistor(Resistor resistor) {
-        Line2D.Float line = new Line2D.Float(resistor.getStart().getPos(), resistor.getEnd().getPos());
+        Line2D line = resistorLine(resistor);
 
-        //Рисуем линию
-        g.setColor(resistor.getColor());
+        Color heat = heatMap != null && resistor.getColor() == Color.black ? heatMap.resistorColor(resistor) : null;
+        Color color = heat != null ? heat : resistor.getColor();
+
+        //Рисуем линию, при раскраске толщина растёт с током
+        g.setStroke(new BasicStroke(heat != null ? heatMap.resistorWidth(resistor) : 4));
+        g.setColor(color);
         g.draw(line);
+        g.setStroke(new BasicStroke(4));
 
         Rectangle bounds = line.getBounds();
         int centerX = (int) bounds.getCenterX();
         int centerY = (int) bounds.getCenterY();
 
         //Вычисляем поворот резистора
-        double theta = Math.atan2(resistor.getEnd().getPos().y - resistor.getStart().getPos().y,
-                resistor.getEnd().getPos().x - resistor.getStart().getPos().x);
+        double theta = Math.atan2(line.getY2() - line.getY1(), line.getX2() - line.getX1());
         AffineTransform rotation = new AffineTransform();
         rotation.rotate(theta, centerX, centerY);
 
@@ -234,7 +393,7 @@ public class Canvas extends JComponent {
             //Рисуем резистор
             g.setColor(Color.WHITE);
             g.fill(resistorBody);
-            g.setColor(resistor.getColor());
+            g.setColor(color);
             g.draw(resistorBody);
 
             //Рисуем сопротивление резиcтора
@@ -244,29 +403,84 @@ public class Canvas extends JComponent {
             g.setColor(Color.BLACK);
             g.drawString(strWeight, (int) (centerX - stringBounds.getCenterX()), (int) (centerY - stringBounds.getCenterY()));
         }
+
+        if (heat != null) {
+            //Подписываем величину (ток, чувствительность) под резистором
+            String strValue = heatMap.label(resistor);
+            Rectangle2D valueBounds = g.getFontMetrics(g.getFont()).getStringBounds(strValue, g);
+            g.setColor(Color.DARK_GRAY);
+            g.drawString(strValue, (int) (centerX - valueBounds.getCenterX()),
+                    (int) (centerY + resistorSize / 4 + valueBounds.getHeight()));
+        }
+    }
+
+    //Область, которую занимает вершина (с обводкой)
+    private Rectangle vertexBounds(Vertex v) {
+        int half = vertexSize / 2 + 4;
+        return new Rectangle(v.getPos().x - half, v.getPos().y - half, 2 * half, 2 * half);
+    }
+
+    //Область, которую занимает резистор: линия, повёрнутый корпус и подписи
+    private Rectangle resistorBounds(Resistor resistor) {
+        Rectangle bounds = resistorLine(resistor).getBounds();
+        bounds.grow(60, 60);
+        return bounds;
+    }
+
+    //Перерисовывает только область, занятую данными элементами: в ней заново рисуются все
+    //пересекающие её резисторы и вершины, чтобы сохранить порядок наложения
+    private void redrawRegion(List<Vertex> vertices, List<Resistor> resistors) {
+        if (g == null || (vertices.isEmpty() && resistors.isEmpty()))
+            return;
+
+        Rectangle dirty = null;
+        for (Vertex v : vertices)
+            dirty = dirty == null ? vertexBounds(v) : dirty.union(vertexBounds(v));
+        for (Resistor r : resistors)
+            dirty = dirty == null ? resistorBounds(r) : dirty.union(resistorBounds(r));
+
+        Shape clip = g.getClip();
+        g.setClip(dirty);
+        g.setPaint(Color.white);
+        g.fill(dirty);
+        CanvasState state = history.current();
+        for (Resistor r : state.resistors())
+            if (resistorBounds(r).intersects(dirty))
+                drawResistor(r);
+        for (Vertex v : state.vertices())
+            if (vertexBounds(v).intersects(dirty))
+                drawVertex(v);
+        if (heatMap != null)
+            heatMap.drawLegend(g, 10, 10);
+        g.setClip(clip);
+        repaint(dirty);
     }
 
     private void redraw() {
         clear();
         redrawResistors();
         redrawVertices();
+        if (heatMap != null && g != null)
+            heatMap.drawLegend(g, 10, 10);
 
         if (g != null)
             repaint();
     }
 
     private void clearColors() {
-        graphicalVertices.forEach(o -> o.setColor(Color.black));
-        graphicalResistors.forEach(o -> o.setColor(Color.black));
+        CanvasState state = history.current();
+        state.vertices().forEach(o -> o.setColor(Color.black));
+        state.resistors().forEach(o -> o.setColor(Color.black));
+        clearRoutes(); //Выделенные элементы могли остаться только в прежней версии
     }
 
     private void redrawVertices() {
-        for (Vertex v : graphicalVertices)
+        for (Vertex v : history.current().vertices())
             drawVertex(v);
     }
 
     private void redrawResistors() {
-        for (Resistor resistor : graphicalResistors)
+        for (Resistor resistor : history.current().resistors())
             drawResistor(resistor);
     }
 
@@ -285,6 +499,8 @@ public class Canvas extends JComponent {
             g.setFont(font);
 
             clear();
+            redrawResistors(); //Цепь могла быть восстановлена из журнала до первой отрисовки
+            redrawVertices();
         }
 
         g1.drawImage(img, 0, 0, null);
@@ -297,12 +513,13 @@ public class Canvas extends JComponent {
         repaint();
     }
 
-    //Удаляет
+    //Удаляет всю цепь (очистку тоже можно отменить)
     public void clearAll() {
-        currId = 0;
-        graph = new AdjMatrixWeightedGraph();
-        graphicalVertices.clear();
-        graphicalResistors.clear();
+        history.update(state -> CanvasState.EMPTY);
+        journal();
+        linesBuffer = new Vertex[2];
+        heatMap = null;
+        clearRoutes();
         clear();
     }
 }
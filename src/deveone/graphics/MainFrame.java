@@ -1,41 +1,60 @@
 package deveone.graphics;
 
 import deveone.logic.Logic;
+import deveone.graphics.additional.CanvasJournal;
 import deveone.graphics.additional.ManipulateModes;
 import deveone.graphics.additional.ObjectModes;
-import deveone.logic.graph.AdjMatrixWeightedGraph;
+import deveone.logic.graph.ShortestPaths;
+import deveone.logic.graph.WeightedGraph;
+import deveone.logic.solver.CircuitSolution;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 
 public class MainFrame extends JFrame {
-    private JPanel mainPanel;
-    private JPanel graphPanel;
+    private final JPanel mainPanel = new JPanel(new GridBagLayout());
+    private final JPanel graphPanel = new JPanel(new BorderLayout());
 
-    private JCheckBox vertexModeCheckBox;
-    private JCheckBox edgeModeCheckBox;
-    private JCheckBox addModeCheckBox;
-    private JCheckBox delModeCheckBox;
+    private final JCheckBox vertexModeCheckBox = new JCheckBox("Режим вершин", true);
+    private final JCheckBox edgeModeCheckBox = new JCheckBox("Режим ребер");
+    private final JCheckBox addModeCheckBox = new JCheckBox("Режим добавления", true);
+    private final JCheckBox delModeCheckBox = new JCheckBox("Режим удаления");
 
-    private JTextField weightField;
-    private JTextField answerField;
-    private JTextField circuitStartField;
-    private JTextField circuitEndField;
+    private final JTextField weightField = createField("0", true);
+    private final JTextField answerField = createField("", false);
+    private final JTextField circuitStartField = createField("0", true);
+    private final JTextField circuitEndField = createField("0", true);
 
-    private JButton getAnswerButton;
-    private JButton clearButton;
+    private final JButton getAnswerButton = new JButton("Вычислить сопротивление");
+    private final JButton findRouteButton = new JButton("Путь наименьшего сопротивления");
+    private final JButton clearButton = new JButton("Очистить граф");
 
-    private JLabel weightLabel;
-    private JLabel answerLabel;
-    private JLabel circuitStartLabel;
-    private JLabel circuitEndLabel;
+    private final JLabel weightLabel = new JLabel("Вес ребер");
+    private final JLabel answerLabel = new JLabel("Ответ");
+    private final JLabel circuitStartLabel = new JLabel("Начало цепи");
+    private final JLabel circuitEndLabel = new JLabel("Конец цепи");
 
-    private final Canvas canvas = new Canvas();
+    //Каталог автосохранения цепи, задаётся свойством deveone.session
+    private static final Path SESSION = Path.of(System.getProperty("deveone.session",
+            Path.of(System.getProperty("user.home"), ".deveone", "session").toString()));
+
+    //Сколько путей наименьшего сопротивления выделять
+    private static final int ROUTES = 3;
+
+    private final CanvasJournal journal = openJournal();
+    private final Canvas canvas = journal != null ? new Canvas(journal) : new Canvas();
 
 
     public MainFrame() {
         super();
 
+        createLayout();
         configureFrame();
         graphPanel.add(canvas, BorderLayout.CENTER);
         createButtonListeners();
@@ -47,11 +66,73 @@ public class MainFrame extends JFrame {
     private void configureFrame() {
         setContentPane(mainPanel);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                closeJournal();
+            }
+        });
         setTitle("Resistance calculator");
         setMinimumSize(new Dimension(1500, 800));
         setResizable(false);
     }
 
+    //Окно собирается в коде, без дизайнера форм, поэтому одинаково работает из IDE и из собранного jar
+    private void createLayout() {
+        JPanel modePanel = new JPanel(new GridBagLayout());
+        modePanel.add(vertexModeCheckBox, cell(0, 0, 1, GridBagConstraints.NONE));
+        modePanel.add(edgeModeCheckBox, cell(1, 0, 1, GridBagConstraints.NONE));
+        modePanel.add(addModeCheckBox, cell(0, 1, 1, GridBagConstraints.NONE));
+        modePanel.add(delModeCheckBox, cell(1, 1, 1, GridBagConstraints.NONE));
+
+        JPanel circuitPanel = new JPanel(new GridBagLayout());
+        circuitPanel.add(circuitStartLabel, cell(0, 0, 1, GridBagConstraints.NONE));
+        circuitPanel.add(circuitStartField, cell(1, 0, 1, GridBagConstraints.HORIZONTAL));
+        circuitPanel.add(circuitEndLabel, cell(2, 0, 1, GridBagConstraints.NONE));
+        circuitPanel.add(circuitEndField, cell(3, 0, 1, GridBagConstraints.HORIZONTAL));
+
+        JPanel editPanel = new JPanel(new GridBagLayout());
+        editPanel.add(clearButton, cell(0, 0, 1, GridBagConstraints.HORIZONTAL));
+        editPanel.add(weightLabel, cell(1, 0, 1, GridBagConstraints.NONE));
+        editPanel.add(weightField, cell(2, 0, 1, GridBagConstraints.HORIZONTAL));
+        editPanel.add(circuitPanel, cell(0, 1, 3, GridBagConstraints.HORIZONTAL));
+
+        JPanel answerPanel = new JPanel(new GridBagLayout());
+        answerPanel.add(answerLabel, cell(0, 0, 1, GridBagConstraints.NONE));
+        answerPanel.add(answerField, cell(1, 0, 1, GridBagConstraints.HORIZONTAL));
+
+        graphPanel.setBorder(BorderFactory.createLineBorder(Color.BLACK));
+
+        mainPanel.add(modePanel, cell(0, 0, 1, GridBagConstraints.BOTH));
+        mainPanel.add(editPanel, cell(1, 0, 1, GridBagConstraints.BOTH));
+        GridBagConstraints graphCell = cell(0, 1, 2, GridBagConstraints.BOTH);
+        graphCell.weighty = 1;
+        mainPanel.add(graphPanel, graphCell);
+        mainPanel.add(getAnswerButton, cell(0, 2, 1, GridBagConstraints.HORIZONTAL));
+        mainPanel.add(findRouteButton, cell(1, 2, 1, GridBagConstraints.HORIZONTAL));
+        mainPanel.add(answerPanel, cell(0, 3, 2, GridBagConstraints.BOTH));
+    }
+
+    //Ячейка сетки; растягиваемые по горизонтали компоненты делят свободное место поровну
+    private static GridBagConstraints cell(int x, int y, int width, int fill) {
+        GridBagConstraints c = new GridBagConstraints();
+        c.gridx = x;
+        c.gridy = y;
+        c.gridwidth = width;
+        c.fill = fill;
+        c.anchor = GridBagConstraints.WEST;
+        c.weightx = fill == GridBagConstraints.NONE ? 0 : 1;
+        c.insets = new Insets(2, 2, 2, 2);
+        return c;
+    }
+
+    private static JTextField createField(String text, boolean editable) {
+        JTextField field = new JTextField(text);
+        field.setEditable(editable);
+        field.setPreferredSize(new Dimension(150, field.getPreferredSize().height));
+        return field;
+    }
+
     private void createButtonListeners() {
         edgeModeCheckBox.addActionListener(o -> {
             vertexModeCheckBox.setSelected(false);
@@ -84,18 +165,83 @@ public class MainFrame extends JFrame {
             int startNode = Integer.parseInt(circuitStartField.getText());
             int endNode = Integer.parseInt(circuitEndField.getText());
 
-            AdjMatrixWeightedGraph graph = canvas.getGraph();
+            WeightedGraph graph = canvas.getGraph();
 
-            double answer = Logic.calcCircuitResistance(graph, startNode, endNode);
-            if (answer == -1) {
+            //Сопротивление и распределение токов получаются из одного расчёта
+            CircuitSolution solution = Logic.calcCircuitDistribution(graph, startNode, endNode);
+            if (solution == null) {
                 JOptionPane.showMessageDialog(this, "Начало цепи не связано с концом цепи",
                         "Ошибка", JOptionPane.ERROR_MESSAGE);
                 return;
             }
 
-            answerField.setText(String.valueOf(answer));
+            answerField.setText(String.valueOf(solution.getResistance()));
+            canvas.showDistribution(solution);
+        });
+
+        //Выделяет несколько путей наименьшего сопротивления; выделение снимается при следующем изменении цепи
+        findRouteButton.addActionListener(o -> {
+            List<ShortestPaths.Route> routes;
+            try {
+                int startNode = Integer.parseInt(circuitStartField.getText().trim());
+                int endNode = Integer.parseInt(circuitEndField.getText().trim());
+                routes = Logic.findLeastResistancePaths(canvas.getGraph(), startNode, endNode, ROUTES);
+            } catch (IllegalArgumentException e) { //Не число или нет такой вершины
+                JOptionPane.showMessageDialog(this, "Неверные вершины цепи: " + e.getMessage(),
+                        "Ошибка", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            if (routes.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "Начало цепи не связано с концом цепи",
+                        "Ошибка", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            canvas.showRoutes(routes);
         });
 
         clearButton.addActionListener(o -> canvas.clearAll());
     }
+
+    //Открывает журнал прошлой сессии; без журнала холст работает, но не сохраняется
+    private static CanvasJournal openJournal() {
+        try {
+            CanvasJournal journal = CanvasJournal.open(SESSION);
+            if (journal == null)
+                JOptionPane.showMessageDialog(null, "Цепь уже открыта в другом окне приложения. "
+                                + "Изменения в этом окне не будут сохраняться.",
+                        "Автосохранение отключено", JOptionPane.WARNING_MESSAGE);
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            int answer = JOptionPane.showConfirmDialog(null, "Не удалось восстановить цепь: " + e.getMessage()
+                            + "\nНачать новую сессию? Файлы прошлой сессии будут сохранены рядом.",
+                    "Ошибка", JOptionPane.YES_NO_OPTION, JOptionPane.ERROR_MESSAGE);
+            return answer == JOptionPane.YES_OPTION ? openFreshJournal() : null;
+        }
+    }
+
+    //Переносит повреждённую сессию в соседний каталог и открывает пустой журнал
+    private static CanvasJournal openFreshJournal() {
+        Path broken = SESSION.resolveSibling(SESSION.getFileName() + ".broken-" + System.currentTimeMillis());
+        try {
+            Files.move(SESSION, broken);
+            return CanvasJournal.open(SESSION);
+        } catch (IOException | RuntimeException e) {
+            JOptionPane.showMessageDialog(null, "Не удалось начать новую сессию: " + e.getMessage(),
+                    "Ошибка", JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
+    }
+
+    //Сохраняет цепь снимком перед выходом
+    private void closeJournal() {
+        if (journal == null)
+            return;
+        try {
+            journal.close();
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(this, "Не удалось сохранить цепь: " + e.getMessage(),
+                    "Ошибка", JOptionPane.ERROR_MESSAGE);
+        }
+    }
 }
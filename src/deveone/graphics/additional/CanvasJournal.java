@@ -0,0 +1,507 @@
+package deveone.graphics.additional;
+
+import java.awt.*;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал правок холста для автосохранения. Каждое изменение цепи (добавление и удаление вершин и резисторов,
+ * в том числе при отмене, повторе и очистке) записывается в конец журнала компактной двоичной записью
+ * с номерами из графа, поэтому восстановленная цепь совпадает с сохранённой вплоть до номеров.
+ * <p>
+ * Записи копятся в памяти и раз в COMMIT_INTERVAL миллисекунд дописываются фоновым потоком одной пачкой
+ * через FileChannel с force (групповая фиксация): при сбое теряются только правки последней пачки.
+ * Пачка снабжена длиной и CRC32, недописанная пачка в конце журнала при открытии отбрасывается.
+ * После SNAPSHOT_RECORDS записей текущее состояние сохраняется снимком (временный файл и атомарная замена),
+ * а журнал обрезается. Открытие - чтение снимка и повтор короткого журнала.
+ * <p>
+ * Снимок и журнал помечены номером поколения: журнал, оставшийся от прошлого поколения (сбой между заменой
+ * снимка и обрезкой журнала), уже учтён в снимке и не повторяется.
+ * <p>
+ * Записи убираются из памяти только после того, как они на диске (в пачке журнала или в снимке с обрезанным
+ * журналом), поэтому ошибка ввода-вывода ничего не теряет: следующая фиксация повторяет запись.
+ * Каталог занимает один экземпляр приложения (блокировка файла журнала).
+ */
+public final class CanvasJournal implements Closeable {
+    /**
+     * Период групповой фиксации, мс
+     */
+    public static final long COMMIT_INTERVAL = Long.getLong("deveone.journal.commitMillis", 200);
+    /**
+     * Кол-во записей журнала, после которого делается снимок
+     */
+    public static final int SNAPSHOT_RECORDS = Integer.getInteger("deveone.journal.snapshotRecords", 10_000);
+
+    private static final String LOG_FILE = "canvas.journal";
+    private static final String SNAPSHOT_FILE = "canvas.snapshot";
+
+    private static final int LOG_MAGIC = 0x44564A4C;      // "DVJL"
+    private static final int SNAPSHOT_MAGIC = 0x44564A53; // "DVJS"
+    private static final int VERSION = 1;
+    private static final int HEADER = 16;                 // магия, версия, поколение
+    private static final int FRAME_HEADER = 8;            // длина пачки, CRC32
+
+    private static final byte VERTEX_ADD = 1;        // номер, x, y
+    private static final byte VERTEX_REMOVE = 2;     // номер
+    private static final byte RESISTOR_ADD = 3;      // номер, начало, конец, сопротивление, дорожка
+    private static final byte RESISTOR_REMOVE = 4;   // номер
+
+    private final Path directory;
+    private final FileChannel log;
+    private final CanvasState restored;
+    private final ScheduledExecutorService committer;
+    private final Object io = new Object();  // Порядок записи в файлы: пачки, снимки, закрытие
+
+    // Под блокировкой this: последнее записанное состояние и ещё не зафиксированные записи
+    private CanvasState latest;
+    private ByteBuffer pending = ByteBuffer.allocate(4096);
+    private int records;               // записей с последнего снимка
+
+    private long generation;
+    // Хвост журнала не согласован со снимком (журнал прошлого поколения или недописанная пачка):
+    // следующая фиксация делает снимок, который переписывает журнал
+    private boolean logStale = false;
+    private boolean closed = false;
+
+    private CanvasJournal(Path directory, FileChannel log, CanvasState restored, long generation, int records) {
+        this.directory = directory;
+        this.log = log;
+        this.restored = restored;
+        this.latest = restored;
+        this.generation = generation;
+        this.records = records;
+        this.committer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "canvas-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        committer.scheduleWithFixedDelay(this::commitQuietly, COMMIT_INTERVAL, COMMIT_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Открывает журнал в каталоге (создаёт, если его нет) и восстанавливает сохранённую цепь
+     *
+     * @return журнал или null, если каталог занят другим экземпляром приложения
+     * @throws IOException если файлы не читаются или снимок повреждён
+     */
+    public static CanvasJournal open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+
+        FileChannel log = FileChannel.open(directory.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            // Блокировка держится, пока открыт канал журнала; второй экземпляр испортил бы журнал дописыванием
+            if (!tryLock(log)) {
+                log.close();
+                return null;
+            }
+
+            CanvasState state = CanvasState.EMPTY;
+            long generation = 0;
+            Path snapshot = directory.resolve(SNAPSHOT_FILE);
+            if (Files.exists(snapshot)) {
+                ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+                generation = readHeader(buffer, SNAPSHOT_MAGIC, snapshot);
+                state = readSnapshot(buffer, snapshot);
+            }
+
+            int replayed = 0;
+            long end = 0;
+            if (log.size() >= HEADER) {
+                ByteBuffer buffer = readAll(log);
+                if (readHeader(buffer, LOG_MAGIC, directory.resolve(LOG_FILE)) == generation) {
+                    Replay replay = replay(buffer, state);
+                    state = replay.state;
+                    replayed = replay.records;
+                    end = replay.end;
+                }
+            }
+            if (end == 0) {
+                // Пустой журнал или журнал прошлого поколения
+                log.truncate(0);
+                writeFully(log, header(LOG_MAGIC, generation), 0);
+                end = HEADER;
+            } else {
+                log.truncate(end); // Недописанная пачка
+            }
+            log.force(false);
+            log.position(end);
+            return new CanvasJournal(directory, log, state, generation, replayed);
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+    }
+
+    private static boolean tryLock(FileChannel log) throws IOException {
+        try {
+            return log.tryLock() != null;
+        } catch (OverlappingFileLockException e) {
+            return false; // Каталог уже открыт в этой же JVM
+        }
+    }
+
+    /**
+     * Цепь, восстановленная при открытии
+     */
+    public CanvasState restored() {
+        return restored;
+    }
+
+    /**
+     * Записывает изменения от предыдущего записанного состояния до state. Запись только в память,
+     * на диск изменения попадут при ближайшей групповой фиксации.
+     */
+    public synchronized void record(CanvasState state) {
+        if (closed)
+            throw new IllegalStateException("Журнал закрыт");
+        state.changesSince(latest, new CanvasState.Changes() {
+            @Override
+            public void vertexAdded(Vertex vertex) {
+                ensure(13).put(VERTEX_ADD).putInt(vertex.getId()).putInt(vertex.getPos().x).putInt(vertex.getPos().y);
+                records++;
+            }
+
+            @Override
+            public void vertexRemoved(Vertex vertex) {
+                ensure(5).put(VERTEX_REMOVE).putInt(vertex.getId());
+                records++;
+            }
+
+            @Override
+            public void resistorAdded(Resistor resistor) {
+                ensure(21).put(RESISTOR_ADD).putInt(resistor.getId()).putInt(resistor.getStart().getId())
+                        .putInt(resistor.getEnd().getId()).putInt(resistor.getWeight()).putInt(resistor.getLane());
+                records++;
+            }
+
+            @Override
+            public void resistorRemoved(Resistor resistor) {
+                ensure(5).put(RESISTOR_REMOVE).putInt(resistor.getId());
+                records++;
+            }
+        });
+        latest = state;
+    }
+
+    private ByteBuffer ensure(int bytes) {
+        if (pending.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+            grown.put(pending.flip());
+            pending = grown;
+        }
+        return pending;
+    }
+
+    /**
+     * Фиксирует накопленные записи на диске, при необходимости делает снимок
+     */
+    public void flush() throws IOException {
+        synchronized (io) {
+            checkOpen();
+            boolean snapshot;
+            synchronized (this) {
+                snapshot = records >= SNAPSHOT_RECORDS || logStale;
+            }
+            if (snapshot)
+                snapshot();
+            else
+                commit();
+        }
+    }
+
+    /**
+     * Сохраняет текущее состояние снимком и обрезает журнал
+     */
+    public void snapshot() throws IOException {
+        synchronized (io) {
+            checkOpen();
+            CanvasState state;
+            int written;
+            int counted;
+            synchronized (this) {
+                // Всё, что записано до latest, войдёт в снимок; записи после - останутся в журнале
+                state = latest;
+                written = pending.position();
+                counted = records;
+            }
+
+            long next = generation + 1;
+            Path file = directory.resolve(SNAPSHOT_FILE);
+            Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                writeFully(out, snapshotBytes(state, next), 0);
+                out.force(true);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            // Замена записана в каталоге - иначе после сбоя питания новый журнал мог бы встретить старый снимок
+            forceDirectory();
+
+            // Сбой до этой точки оставляет журнал прошлого поколения, который при открытии не повторяется
+            generation = next;
+            logStale = true;
+            log.truncate(0);
+            writeFully(log, header(LOG_MAGIC, generation), 0);
+            log.force(false);
+            log.position(HEADER);
+            logStale = false;
+            synchronized (this) {
+                drop(written);
+                records -= counted;
+            }
+        }
+    }
+
+    // Убирает из памяти первые bytes байт записей - они уже на диске
+    private void drop(int bytes) {
+        pending.flip().position(bytes);
+        pending.compact();
+    }
+
+    private void forceDirectory() throws IOException {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (AccessDeniedException e) {
+            // Windows не открывает каталог как файл; переименование там фиксируется журналом NTFS
+        }
+    }
+
+    /**
+     * Фиксирует записи, делает снимок и закрывает файл журнала
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (io) {
+            if (closed)
+                return;
+            committer.shutdown();
+            try {
+                snapshot();
+            } finally {
+                synchronized (this) {
+                    closed = true;
+                }
+                log.close();
+            }
+        }
+    }
+
+    private void commitQuietly() {
+        try {
+            synchronized (io) {
+                if (log.isOpen())
+                    flush();
+            }
+        } catch (IOException e) {
+            // Записи остались в памяти и уйдут при следующей фиксации; явные flush(), snapshot() и close()
+            // сообщают ошибку сами
+        }
+    }
+
+    // Одна пачка: длина, CRC32, записи
+    private void commit() throws IOException {
+        ByteBuffer payload;
+        synchronized (this) {
+            if (pending.position() == 0)
+                return;
+            // record() только дописывает в конец (или в новый буфер), первые written байт не меняются
+            payload = ByteBuffer.wrap(pending.array(), 0, pending.position()).slice();
+        }
+        int written = payload.remaining();
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER).putInt(written).putInt((int) crc.getValue()).flip();
+        long start = log.position();
+        try {
+            while (frame.hasRemaining() || payload.hasRemaining())
+                log.write(new ByteBuffer[]{frame, payload});
+            log.force(false);
+        } catch (IOException e) {
+            // Недописанная пачка оборвала бы повтор всех следующих - убираем её, иначе журнал перепишет снимок
+            try {
+                log.truncate(start);
+                log.position(start);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+                logStale = true;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            drop(written);
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed)
+            throw new IOException("Журнал закрыт");
+    }
+
+    private static ByteBuffer header(int magic, long generation) {
+        return ByteBuffer.allocate(HEADER).putInt(magic).putInt(VERSION).putLong(generation).flip();
+    }
+
+    private static long readHeader(ByteBuffer buffer, int magic, Path file) throws IOException {
+        if (buffer.remaining() < HEADER || buffer.getInt() != magic)
+            throw new IOException("Файл не является журналом холста: " + file);
+        int version = buffer.getInt();
+        if (version != VERSION)
+            throw new IOException("Неподдерживаемая версия " + version + ": " + file);
+        return buffer.getLong();
+    }
+
+    private static ByteBuffer snapshotBytes(CanvasState state, long generation) {
+        List<Vertex> vertices = state.vertices();
+        List<Resistor> resistors = state.resistors();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER + 8 + vertices.size() * 12 + resistors.size() * 20 + 4);
+        buffer.put(header(SNAPSHOT_MAGIC, generation));
+        buffer.putInt(vertices.size());
+        for (Vertex v : vertices)
+            buffer.putInt(v.getId()).putInt(v.getPos().x).putInt(v.getPos().y);
+        buffer.putInt(resistors.size());
+        for (Resistor r : resistors)
+            buffer.putInt(r.getId()).putInt(r.getStart().getId()).putInt(r.getEnd().getId())
+                    .putInt(r.getWeight()).putInt(r.getLane());
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        return buffer.putInt((int) crc.getValue()).flip();
+    }
+
+    private static CanvasState readSnapshot(ByteBuffer buffer, Path file) throws IOException {
+        int end = buffer.limit() - 4;
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, Math.max(end, 0));
+        if (end < buffer.position() || buffer.getInt(end) != (int) crc.getValue())
+            throw new IOException("Снимок повреждён: " + file);
+        try {
+            CanvasState.Batch batch = CanvasState.EMPTY.batch();
+            int vertices = buffer.getInt();
+            for (int i = 0; i < vertices; i++)
+                batch.addVertex(buffer.getInt(), new Point(buffer.getInt(), buffer.getInt()));
+            int resistors = buffer.getInt();
+            for (int i = 0; i < resistors; i++)
+                addResistor(batch, buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt());
+            return batch.commit();
+        } catch (RuntimeException e) {
+            throw new IOException("Снимок повреждён: " + file, e);
+        }
+    }
+
+    /**
+     * Результат повтора журнала: состояние, кол-во записей и конец последней целой пачки
+     */
+    private static final class Replay {
+        final CanvasState state;
+        final int records;
+        final long end;
+
+        Replay(CanvasState state, int records, long end) {
+            this.state = state;
+            this.records = records;
+            this.end = end;
+        }
+    }
+
+    // Весь журнал применяется одним пакетом
+    private static Replay replay(ByteBuffer buffer, CanvasState state) throws IOException {
+        CanvasState.Batch batch = state.batch();
+        int records = 0;
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= FRAME_HEADER) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                buffer.position(start);
+                break;
+            }
+            ByteBuffer frame = buffer.slice(buffer.position(), length);
+            crc.reset();
+            crc.update(frame.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                buffer.position(start);
+                break;
+            }
+            try {
+                while (frame.hasRemaining()) {
+                    apply(batch, frame);
+                    records++;
+                }
+            } catch (RuntimeException e) {
+                // Целая пачка с верной суммой, но неприменимая - журнал не от этого снимка
+                throw new IOException("Журнал холста не согласован со снимком", e);
+            }
+            buffer.position(start + FRAME_HEADER + length);
+        }
+        return new Replay(batch.commit(), records, buffer.position());
+    }
+
+    private static void apply(CanvasState.Batch batch, ByteBuffer record) {
+        byte type = record.get();
+        switch (type) {
+            case VERTEX_ADD:
+                batch.addVertex(record.getInt(), new Point(record.getInt(), record.getInt()));
+                break;
+            case VERTEX_REMOVE:
+                batch.removeVertex(existing(batch.vertex(record.getInt())));
+                break;
+            case RESISTOR_ADD:
+                addResistor(batch, record.getInt(), record.getInt(), record.getInt(), record.getInt(), record.getInt());
+                break;
+            case RESISTOR_REMOVE:
+                batch.removeResistor(existing(batch.resistor(record.getInt())));
+                break;
+            default:
+                throw new IllegalArgumentException("Неизвестная запись " + type);
+        }
+    }
+
+    private static void addResistor(CanvasState.Batch batch, int id, int start, int end, int weight, int lane) {
+        batch.addResistor(id, existing(batch.vertex(start)), existing(batch.vertex(end)), weight, lane);
+    }
+
+    private static <T> T existing(T item) {
+        if (item == null)
+            throw new IllegalArgumentException("Запись ссылается на отсутствующий элемент");
+        return item;
+    }
+
+    private static ByteBuffer readAll(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("Журнал холста слишком велик: " + size);
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        long position = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0)
+                break;
+            position += read;
+        }
+        return buffer.flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining())
+            position += channel.write(buffer, position);
+    }
+}
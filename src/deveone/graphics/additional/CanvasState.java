@@ -0,0 +1,254 @@
+package deveone.graphics.additional;
+
+import deveone.logic.graph.IntObjectMap;
+import deveone.logic.graph.PersistentVector;
+import deveone.logic.graph.PersistentWeightedMultigraph;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Неизменяемое состояние холста: граф цепи и изображения вершин и резисторов по их номерам в графе.
+ * Каждое изменение возвращает новое состояние, разделяющее неизменённые части со старым.
+ */
+public final class CanvasState {
+    public static final CanvasState EMPTY = new CanvasState(PersistentWeightedMultigraph.empty(),
+            PersistentVector.empty(), PersistentVector.empty());
+
+    private final PersistentWeightedMultigraph graph;
+    private final PersistentVector<Vertex> vertices;   //По номеру вершины
+    private final PersistentVector<Resistor> resistors; //По номеру ребра
+
+    private CanvasState(PersistentWeightedMultigraph graph, PersistentVector<Vertex> vertices,
+                        PersistentVector<Resistor> resistors) {
+        this.graph = graph;
+        this.vertices = vertices;
+        this.resistors = resistors;
+    }
+
+    public PersistentWeightedMultigraph getGraph() {
+        return graph;
+    }
+
+    public List<Vertex> vertices() {
+        List<Vertex> result = new ArrayList<>(graph.liveVertexCount());
+        for (int id = 0; id < vertices.size(); id++)
+            if (vertices.get(id) != null)
+                result.add(vertices.get(id));
+        return result;
+    }
+
+    public List<Resistor> resistors() {
+        List<Resistor> result = new ArrayList<>(graph.edgeCount());
+        for (int id = 0; id < resistors.size(); id++)
+            if (resistors.get(id) != null)
+                result.add(resistors.get(id));
+        return result;
+    }
+
+    /**
+     * Вершина с номером id или null
+     */
+    public Vertex vertex(int id) {
+        return vertices.get(id);
+    }
+
+    /**
+     * Резистор с номером id или null
+     */
+    public Resistor resistor(int id) {
+        return resistors.get(id);
+    }
+
+    public CanvasState withVertex(Point pos) {
+        return withVertex(graph.nextVertexId(), pos);
+    }
+
+    /**
+     * Вершина с заданным свободным номером (восстановление сохранённой цепи)
+     */
+    public CanvasState withVertex(int id, Point pos) {
+        return new CanvasState(graph.withVertex(id), vertices.set(id, new Vertex(pos, id)), resistors);
+    }
+
+    //Вершина удаляется вместе со своими резисторами
+    public CanvasState withoutVertex(Vertex vertex) {
+        int id = vertex.getId();
+        if (vertices.get(id) != vertex)
+            return this;
+
+        PersistentVector<Resistor> newResistors = resistors;
+        for (int edgeId : graph.incidentEdges(id))
+            newResistors = newResistors.set(edgeId, null);
+        return new CanvasState(graph.withoutVertex(id), vertices.set(id, null), newResistors);
+    }
+
+    /**
+     * Добавляет резистор на первую свободную «дорожку» между вершинами, чтобы параллельные резисторы не накладывались
+     */
+    public CanvasState withResistor(Vertex start, Vertex end, int weight) {
+        int lane = 0;
+        boolean taken = true;
+        while (taken) {
+            taken = false;
+            for (int edgeId : graph.incidentEdges(start.getId())) {
+                Resistor r = resistors.get(edgeId);
+                if (r.connects(start, end) && r.getLane() == lane) {
+                    taken = true;
+                    lane++;
+                    break;
+                }
+            }
+        }
+
+        return withResistor(graph.nextEdgeId(), start, end, weight, lane);
+    }
+
+    /**
+     * Резистор с заданным свободным номером и дорожкой (восстановление сохранённой цепи)
+     */
+    public CanvasState withResistor(int id, Vertex start, Vertex end, int weight, int lane) {
+        return new CanvasState(graph.withEdge(id, start.getId(), end.getId(), weight), vertices,
+                resistors.set(id, new Resistor(id, start, end, weight, lane)));
+    }
+
+    public CanvasState withoutResistor(Resistor resistor) {
+        if (resistors.get(resistor.getId()) != resistor)
+            return this;
+        return new CanvasState(graph.withoutEdge(resistor.getId()), vertices, resistors.set(resistor.getId(), null));
+    }
+
+    /**
+     * Пакет изменений этого состояния
+     */
+    public Batch batch() {
+        return new Batch();
+    }
+
+    /**
+     * Пакет изменений: вершины и резисторы добавляются и удаляются по одному, а новое состояние строится
+     * в commit() за один проход (PersistentWeightedMultigraph.Batch, PersistentVector.setAll).
+     * Результат совпадает с цепочкой withVertex, withResistor, ... с теми же аргументами.
+     */
+    public final class Batch {
+        private final PersistentWeightedMultigraph.Batch graphBatch = graph.batch();
+        private final IntObjectMap<Vertex> vertexChanges = new IntObjectMap<>();     //null - вершина удалена
+        private final IntObjectMap<Resistor> resistorChanges = new IntObjectMap<>(); //null - резистор удалён
+
+        private Batch() {
+        }
+
+        public Vertex vertex(int id) {
+            return vertexChanges.containsKey(id) ? vertexChanges.get(id) : vertices.get(id);
+        }
+
+        public Resistor resistor(int id) {
+            return resistorChanges.containsKey(id) ? resistorChanges.get(id) : resistors.get(id);
+        }
+
+        public Vertex addVertex(Point pos) {
+            return addVertex(graphBatch.nextVertexId(), pos);
+        }
+
+        public Vertex addVertex(int id, Point pos) {
+            graphBatch.addVertex(id);
+            Vertex vertex = new Vertex(pos, id);
+            vertexChanges.put(id, vertex);
+            return vertex;
+        }
+
+        //Вершина удаляется вместе со своими резисторами
+        public void removeVertex(Vertex vertex) {
+            int id = vertex.getId();
+            if (vertex(id) != vertex)
+                return;
+            for (int edgeId : graphBatch.incidentEdges(id))
+                resistorChanges.put(edgeId, null);
+            graphBatch.removeVertex(id);
+            vertexChanges.put(id, null);
+        }
+
+        /**
+         * Резистор на первой свободной дорожке между вершинами, как withResistor
+         */
+        public Resistor addResistor(Vertex start, Vertex end, int weight) {
+            int lane = 0;
+            boolean taken = true;
+            while (taken) {
+                taken = false;
+                for (int edgeId : graphBatch.incidentEdges(start.getId())) {
+                    Resistor r = resistor(edgeId);
+                    if (r.connects(start, end) && r.getLane() == lane) {
+                        taken = true;
+                        lane++;
+                        break;
+                    }
+                }
+            }
+            return addResistor(graphBatch.nextEdgeId(), start, end, weight, lane);
+        }
+
+        public Resistor addResistor(int id, Vertex start, Vertex end, int weight, int lane) {
+            graphBatch.addEdge(id, start.getId(), end.getId(), weight);
+            Resistor resistor = new Resistor(id, start, end, weight, lane);
+            resistorChanges.put(id, resistor);
+            return resistor;
+        }
+
+        public void removeResistor(Resistor resistor) {
+            if (resistor(resistor.getId()) != resistor)
+                return;
+            graphBatch.removeEdge(resistor.getId());
+            resistorChanges.put(resistor.getId(), null);
+        }
+
+        /**
+         * Состояние со всеми изменениями пакета (исходное, если изменений нет)
+         */
+        public CanvasState commit() {
+            if (vertexChanges.isEmpty() && resistorChanges.isEmpty())
+                return CanvasState.this;
+            return new CanvasState(graphBatch.commit(), vertices.setAll(vertexChanges), resistors.setAll(resistorChanges));
+        }
+    }
+
+    /**
+     * Изменения между состояниями в порядке, в котором их можно применить: сначала удаления резисторов и вершин,
+     * затем добавления вершин и резисторов. Общие части состояний не просматриваются (PersistentVector.diff),
+     * поэтому время пропорционально числу изменений, а не размеру цепи.
+     */
+    public void changesSince(CanvasState before, Changes changes) {
+        List<Vertex> addedVertices = new ArrayList<>();
+        List<Resistor> addedResistors = new ArrayList<>();
+        List<Vertex> removedVertices = new ArrayList<>();
+        resistors.diff(before.resistors, (id, old, now) -> {
+            if (old != null)
+                changes.resistorRemoved(old);
+            if (now != null)
+                addedResistors.add(now);
+        });
+        vertices.diff(before.vertices, (id, old, now) -> {
+            if (old != null)
+                removedVertices.add(old);
+            if (now != null)
+                addedVertices.add(now);
+        });
+        removedVertices.forEach(changes::vertexRemoved);
+        addedVertices.forEach(changes::vertexAdded);
+        addedResistors.forEach(changes::resistorAdded);
+    }
+
+    /**
+     * Получатель изменений changesSince
+     */
+    public interface Changes {
+        void vertexAdded(Vertex vertex);
+
+        void vertexRemoved(Vertex vertex);
+
+        void resistorAdded(Resistor resistor);
+
+        void resistorRemoved(Resistor resistor);
+    }
+}
@@ -0,0 +1,163 @@
+package deveone.graphics.additional;
+
+import deveone.logic.solver.CircuitSolution;
+import deveone.logic.solver.SensitivityRanking;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Раскраска цепи по величине, заданной для каждого резистора (ток, чувствительность) и, возможно, вершины (потенциал).
+ * Цвета считаются один раз при создании, перерисовка только берёт их из таблиц.
+ */
+public class HeatMap {
+    private static final int LEGEND_WIDTH = 200;
+    private static final int LEGEND_HEIGHT = 16;
+
+    private final Map<Integer, Double> values = new HashMap<>(); //Величина резистора по номеру ребра
+    private final Map<Integer, Color> resistorColors = new HashMap<>();
+    private final Map<Integer, Color> vertexColors = new HashMap<>();
+    private final Map<Integer, Float> resistorWidths = new HashMap<>();
+    private final String valueFormat;
+    private final String[] legendLines;
+    private final BufferedImage legend;
+
+    /**
+     * Резисторы - по модулю тока, вершины - по потенциалу
+     */
+    public HeatMap(CircuitSolution solution, List<Resistor> resistors, List<Vertex> vertices) {
+        //Ток закоротки между парой вершин делится поровну между параллельными закоротками
+        Map<Long, Integer> shortsPerPair = new HashMap<>();
+        for (Resistor r : resistors)
+            if (r.getWeight() == 0)
+                shortsPerPair.merge(pairKey(r), 1, Integer::sum);
+
+        for (Resistor r : resistors) {
+            int from = r.getStart().getId();
+            int to = r.getEnd().getId();
+            double current = r.getWeight() != 0
+                    ? solution.current(from, to, r.getWeight())
+                    : solution.shortCurrent(from, to) / shortsPerPair.get(pairKey(r));
+            values.put(r.getId(), Math.abs(current));
+        }
+        double maxCurrent = colorResistors();
+
+        double maxPotential = solution.maxPotential();
+        for (Vertex v : vertices) {
+            double potential = solution.potential(v.getId());
+            if (!Double.isNaN(potential))
+                vertexColors.put(v.getId(), color(maxPotential > 0 ? potential / maxPotential : 0));
+        }
+
+        valueFormat = "%.3g А";
+        legendLines = new String[]{
+                String.format("I: 0 - %.3g А", maxCurrent),
+                String.format("φ: 0 - %.3g В", maxPotential)
+        };
+        legend = createLegend();
+    }
+
+    /**
+     * Резисторы - по чувствительности сопротивления цепи dR/dr, вершины не раскрашиваются
+     */
+    public HeatMap(SensitivityRanking ranking) {
+        for (int k = 0; k < ranking.size(); k++)
+            values.put(ranking.edgeId(k), ranking.derivative(k));
+        double max = colorResistors();
+
+        valueFormat = "dR/dr %.3g";
+        legendLines = new String[]{String.format("dR/dr: 0 - %.3g", max)};
+        legend = createLegend();
+    }
+
+    /**
+     * Цвет шкалы: синий (0) - зелёный - красный (1)
+     */
+    public static Color color(double t) {
+        t = Math.max(0, Math.min(1, t));
+        return Color.getHSBColor((float) (2.0 / 3 * (1 - t)), 0.9f, 0.9f);
+    }
+
+    private static long pairKey(Resistor r) {
+        int a = Math.min(r.getStart().getId(), r.getEnd().getId());
+        int b = Math.max(r.getStart().getId(), r.getEnd().getId());
+        return (long) a << 32 | b;
+    }
+
+    //Цвет и толщина резисторов по доле от максимальной величины, возвращает максимум
+    private double colorResistors() {
+        double max = 0;
+        for (double value : values.values())
+            max = Math.max(max, value);
+
+        for (Map.Entry<Integer, Double> entry : values.entrySet()) {
+            double t = max > 0 ? entry.getValue() / max : 0;
+            resistorColors.put(entry.getKey(), color(t));
+            resistorWidths.put(entry.getKey(), (float) (2 + 6 * t));
+        }
+        return max;
+    }
+
+    private static BufferedImage createLegend() {
+        BufferedImage image = new BufferedImage(LEGEND_WIDTH, LEGEND_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < LEGEND_WIDTH; x++) {
+            int rgb = color((double) x / (LEGEND_WIDTH - 1)).getRGB();
+            for (int y = 0; y < LEGEND_HEIGHT; y++)
+                image.setRGB(x, y, rgb);
+        }
+        return image;
+    }
+
+    /**
+     * Величина резистора (ток при токе 1 А через цепь или чувствительность)
+     */
+    public double value(Resistor r) {
+        return values.getOrDefault(r.getId(), 0.0);
+    }
+
+    /**
+     * Подпись величины резистора
+     */
+    public String label(Resistor r) {
+        return String.format(valueFormat, value(r));
+    }
+
+    /**
+     * Цвет резистора; null, если резистор добавлен после расчёта
+     */
+    public Color resistorColor(Resistor r) {
+        return resistorColors.get(r.getId());
+    }
+
+    public float resistorWidth(Resistor r) {
+        return resistorWidths.getOrDefault(r.getId(), 4f);
+    }
+
+    /**
+     * Цвет вершины; null, если вершина не раскрашивается (не связана с началом цепи)
+     */
+    public Color vertexColor(Vertex v) {
+        return vertexColors.get(v.getId());
+    }
+
+    //Шкала с подписями в точке (x, y)
+    public void drawLegend(Graphics2D g, int x, int y) {
+        g.drawImage(legend, x, y, null);
+        g.setColor(Color.BLACK);
+        //Холст рисует следующие элементы тем же Graphics - возвращаем его толщину линии
+        Stroke stroke = g.getStroke();
+        g.setStroke(new BasicStroke(1));
+        g.drawRect(x, y, LEGEND_WIDTH, LEGEND_HEIGHT);
+        g.setStroke(stroke);
+
+        FontMetrics metrics = g.getFontMetrics();
+        int textY = y + LEGEND_HEIGHT + metrics.getAscent();
+        for (String line : legendLines) {
+            g.drawString(line, x, textY);
+            textY += metrics.getHeight();
+        }
+    }
+}
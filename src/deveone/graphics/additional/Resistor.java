@@ -3,18 +3,26 @@ package deveone.graphics.additional;
 import java.awt.*;
 
 public class Resistor {
+        private final int id; //Номер ребра в графе
         private final Vertex start;
         private final Vertex end;
         private final int weight;
+        private final int lane; //Смещение от прямой линии для параллельных резисторов
         private Color color;
 
-    public Resistor(Vertex start, Vertex end, int weight) {
+    public Resistor(int id, Vertex start, Vertex end, int weight, int lane) {
+        this.id = id;
         this.start = start;
         this.end = end;
         this.weight = weight;
+        this.lane = lane;
         this.color = Color.black;
     }
 
+    public int getId() {
+        return id;
+    }
+
     public Vertex getStart() {
         return start;
     }
@@ -27,6 +35,17 @@ public class Resistor {
         return weight;
     }
 
+    public int getLane() {
+        return lane;
+    }
+
+    /**
+     * Соединяет ли резистор те же вершины (в любом направлении)
+     */
+    public boolean connects(Vertex v1, Vertex v2) {
+        return (start.equals(v1) && end.equals(v2)) || (start.equals(v2) && end.equals(v1));
+    }
+
     public Color getColor() {
         return color;
     }
@@ -40,7 +59,11 @@ public class Resistor {
         if (this == o) return true;
         if (!(o instanceof Resistor resistor)) return false;
 
-        return (start.equals(resistor.start) && end.equals(resistor.end)) ||
-                (start.equals(resistor.end) && end.equals(resistor.start));
+        return id == resistor.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return id;
     }
 }
@@ -1,53 +1,42 @@
 package deveone.logic;
 
 import deveone.logic.graph.*;
+import deveone.logic.metrics.Phase;
+import deveone.logic.metrics.SolveTrace;
+import deveone.logic.metrics.SolverMetrics;
+import deveone.logic.solver.AcAnalysis;
+import deveone.logic.solver.CircuitSolution;
+import deveone.logic.solver.DirectSolver;
+import deveone.logic.solver.DomainDecompositionSolver;
+import deveone.logic.solver.HierarchicalSolver;
+import deveone.logic.solver.MixedPrecisionSolver;
+import deveone.logic.solver.SensitivityRanking;
+import deveone.logic.solver.SpectralSparsifier;
+import deveone.logic.solver.ToleranceAnalysis;
 
 import java.util.*;
 
 public class Logic {
     /**
-     * Проверяет, является ли вершина графа началом параллельного соединения.
-     * Для этого считает количество выходящих соединений. Если соединений > 1, следовательно, является началом.
-     *
-     * @param vToCheck Вершина для проверки
-     * @param graph    Граф, в котором будет осуществлена проверка
+     * Зерно случайных методов по умолчанию: повторный расчёт той же цепи даёт тот же результат
      */
-    private static boolean isParallelStart(Integer vToCheck, Graph graph) {
-        Iterable<Integer> adj = graph.adjacency(vToCheck);
-
-        int count = 0;
-        for (Integer ignored : adj)
-            count++;
-
-        return count > 1;
-    }
+    public static final long DEFAULT_SEED = 42;
 
     /**
-     * Возвращает список параллельных соединений. Последнее соединение не будет содержать последовательных соединений.
+     * Возвращает последнее в порядке обхода в ширину начало параллельного соединения
+     * (вершину, из которой выходит больше одного соединения).
      *
      * @param graph граф
      * @param from  Вершина, с которой начинается поиск
-     * @return
+     * @return номер вершины или -1, если параллельных соединений нет
      */
     private static int findParallelConnection(Graph graph, int from) {
-        boolean[] visited = new boolean[graph.vertexCount()];
-        Queue<Integer> queue = new LinkedList<>();
-        LinkedList<Integer> parallelList = new LinkedList<>();
-        queue.add(from);
-        visited[from] = true;
-        while (queue.size() > 0) {
-            Integer curr = queue.remove();
-            if (isParallelStart(curr, graph))
-                parallelList.add(curr);
-            for (Integer v : graph.adjacency(curr)) {
-                if (!visited[v]) {
-                    queue.add(v);
-                    visited[v] = true;
-                }
-            }
-        }
-
-        return parallelList.isEmpty() ? -1 : parallelList.getLast();
+        Traversal traversal = Traversal.of(graph);
+        int[] order = traversal.order(from);
+        for (int i = order.length - 1; i >= 0; i--)
+            if (traversal.degree(order[i]) > 1)
+                return order[i];
+        return -1;
     }
 
     private static void getAllPaths(Graph graph, List<List<Integer>> result, List<Integer> path, int start, int finish, boolean[] visited) {
@@ -76,9 +65,16 @@ public class Logic {
         }
     }
 
-    private static AdjMatrixWeightedDigraph stripCircuit(WeightedGraph graph, int startNode, int endNode) {
+    /**
+     * Ориентирует цепь от начала к концу по всем простым путям
+     *
+     * @param route вершины, лежащие на путях из начала в конец (Traversal.route); остальные в поиск путей не попадают
+     */
+    private static AdjMatrixWeightedDigraph stripCircuit(WeightedGraph graph, int startNode, int endNode, long[] route) {
         List<List<Integer>> result = new ArrayList<>();
         boolean[] visited = new boolean[graph.vertexCount()];
+        for (int v = 0; v < visited.length; v++)
+            visited[v] = !Traversal.contains(route, v);
         getAllPaths(graph, result, new ArrayList<>(), startNode, endNode, visited);
 
         AdjMatrixWeightedDigraph newGraph = new AdjMatrixWeightedDigraph();
@@ -213,39 +209,146 @@ public class Logic {
             return curr;
     }
 
-    private static boolean checkHavePath(WeightedGraph inputGraph, int startNode, int endNode, boolean[] visited) {
-        if (inputGraph.vertexCount() < startNode || inputGraph.vertexCount() < endNode || startNode == endNode)
-            return false;
+    public static double calcCircuitResistance(WeightedGraph inputGraph, int startNode, int endNode) {
+        SolveTrace trace = SolverMetrics.begin("reduction", inputGraph.vertexCount(), inputGraph.edgeCount());
+        try {
+            trace.phase(Phase.PATH_CHECK);
+            Traversal traversal = Traversal.of(inputGraph);
+            if (!traversal.hasPath(startNode, endNode))
+                return -1;
+
+            trace.phase(Phase.STRIP);
+            //Тупиковые ветви не проводят ток, отбрасываем их до перебора путей
+            long[] route = traversal.route(startNode, endNode);
+            AdjMatrixWeightedDigraph digraph = stripCircuit(inputGraph, startNode, endNode, route);
+            trace.graphSize(digraph.vertexCount(), digraph.edgeCount());
+            trace.matrixFill(digraph.edgeCount(), (long) digraph.vertexCount() * digraph.vertexCount());
+
+            trace.phase(Phase.REDUCTION);
+            int parallelStart;
+            while ((parallelStart = findParallelConnection(digraph, startNode)) != -1) {
+                boolean[][] tempAdjMatrix = digraph.getBooleanAdjMatrix();
+                double[][] tempWeightsMatrix = digraph.getWeightsMatrix();
+                simplifyParallel(tempAdjMatrix, tempWeightsMatrix, parallelStart);
+                digraph = new AdjMatrixWeightedDigraph(tempAdjMatrix, tempWeightsMatrix);
+                trace.reductions(1);
+            }
+            trace.graphSize(digraph.vertexCount(), digraph.edgeCount());
 
-        boolean havePath = false;
-        visited[startNode] = true;
+            trace.phase(Phase.SOLVE);
+            return simplifySerial(digraph.getBooleanAdjMatrix(), digraph.getWeightsMatrix(), startNode, endNode);
+        } finally {
+            trace.end();
+        }
+    }
 
-        for (Integer v : inputGraph.adjacency(startNode)) {
-            if (v == endNode)
-                havePath = true;
-            else if (!visited[v])
-                if (checkHavePath(inputGraph, v, endNode, visited))
-                    havePath = true;
+    /**
+     * Расчёт сопротивления цепи выбранным способом
+     *
+     * @return сопротивление или -1, если начало цепи не связано с концом
+     */
+    public static double calcCircuitResistance(WeightedGraph inputGraph, int startNode, int endNode, SolverMode mode) {
+        switch (mode) {
+            case DIRECT:
+                return DirectSolver.resistance(inputGraph, startNode, endNode);
+            case MIXED_PRECISION:
+                return new MixedPrecisionSolver().solve(inputGraph, startNode, endNode).getResistance();
+            case DOMAIN_DECOMPOSITION:
+                return new DomainDecompositionSolver().resistance(inputGraph, startNode, endNode);
+            default:
+                return calcCircuitResistance(inputGraph, startNode, endNode);
         }
+    }
 
-        return havePath;
+    /**
+     * Распределение потенциалов вершин и токов резисторов при токе 1 А через цепь.
+     * Сопротивление цепи - CircuitSolution.getResistance(), отдельный расчёт не нужен.
+     *
+     * @return распределение или null, если начало цепи не связано с концом
+     */
+    public static CircuitSolution calcCircuitDistribution(WeightedGraph inputGraph, int startNode, int endNode) {
+        return DirectSolver.solve(inputGraph, startNode, endNode);
     }
 
+    /**
+     * Чувствительность сопротивления цепи к каждому резистору (dR/dr) по одному решению системы
+     *
+     * @return резисторы по убыванию влияния или null, если начало цепи не связано с концом
+     */
+    public static SensitivityRanking calcSensitivity(WeightedMultigraph inputGraph, int startNode, int endNode) {
+        return SensitivityRanking.analyze(inputGraph, startNode, endNode);
+    }
 
-    public static double calcCircuitResistance(WeightedGraph inputGraph, int startNode, int endNode) {
-        if (!checkHavePath(inputGraph, startNode, endNode, new boolean[inputGraph.vertexCount()]))
-            return -1;
+    /**
+     * Распределение сопротивления цепи при случайном разбросе номиналов в пределах допуска (метод Монте-Карло)
+     *
+     * @param tolerance относительный допуск всех резисторов (0.05 - ±5%)
+     * @param trials    кол-во испытаний
+     * @param seed      зерно генератора отклонений: при одном зерне результат воспроизводим
+     * @return распределение или null, если начало цепи не связано с концом
+     */
+    public static ToleranceAnalysis.Result calcToleranceAnalysis(WeightedGraph inputGraph, int startNode, int endNode,
+                                                                 double tolerance, int trials, long seed) {
+        return new ToleranceAnalysis(tolerance, ToleranceAnalysis.Distribution.NORMAL, trials, seed)
+                .analyze(inputGraph, startNode, endNode);
+    }
 
-        AdjMatrixWeightedDigraph digraph = stripCircuit(inputGraph, startNode, endNode);
+    /**
+     * Распределение сопротивления цепи при разбросе номиналов с зерном DEFAULT_SEED
+     */
+    public static ToleranceAnalysis.Result calcToleranceAnalysis(WeightedGraph inputGraph, int startNode, int endNode,
+                                                                 double tolerance, int trials) {
+        return calcToleranceAnalysis(inputGraph, startNode, endNode, tolerance, trials, DEFAULT_SEED);
+    }
 
-        while (findParallelConnection(digraph, startNode) != -1) {
-            boolean[][] tempAdjMatrix = digraph.getBooleanAdjMatrix();
-            double[][] tempWeightsMatrix = digraph.getWeightsMatrix();
-            simplifyParallel(tempAdjMatrix, tempWeightsMatrix, findParallelConnection(digraph, startNode));
-            digraph = new AdjMatrixWeightedDigraph(tempAdjMatrix, tempWeightsMatrix);
-        }
+    /**
+     * Импеданс RLC-цепи между началом и концом на каждой из частот (Гц)
+     *
+     * @return импеданс по частотам или null, если начало цепи не связано с концом
+     */
+    public static AcAnalysis.Sweep calcImpedanceSweep(RlcNetwork network, int startNode, int endNode, double[] frequencies) {
+        return AcAnalysis.sweep(network, startNode, endNode, frequencies);
+    }
 
-        return simplifySerial(digraph.getBooleanAdjMatrix(), digraph.getWeightsMatrix(), startNode, endNode);
+    /**
+     * Путь наименьшего сопротивления (сумма сопротивлений резисторов на пути) из начала в конец
+     *
+     * @return путь или null, если начало цепи не связано с концом
+     */
+    public static ShortestPaths.Route findLeastResistancePath(WeightedGraph inputGraph, int startNode, int endNode) {
+        return ShortestPaths.of(inputGraph).bidirectional(startNode, endNode);
     }
-}
 
+    /**
+     * До k простых путей из начала в конец по возрастанию сопротивления
+     */
+    public static List<ShortestPaths.Route> findLeastResistancePaths(WeightedGraph inputGraph, int startNode, int endNode, int k) {
+        return ShortestPaths.of(inputGraph).kShortest(startNode, endNode, k);
+    }
+
+    /**
+     * Сопротивление иерархической схемы между её узлами; одинаковые подсхемы сводятся к эквиваленту один раз
+     *
+     * @return сопротивление или -1, если начало цепи не связано с концом
+     */
+    public static double calcHierarchicalResistance(Subcircuit design, int startNode, int endNode) {
+        return new HierarchicalSolver().resistance(design, startNode, endNode);
+    }
+
+    /**
+     * Разреженная цепь с теми же (в пределах 1 ± epsilon) сопротивлениями между вершинами и проводимостями сечений.
+     * Разрежение дольше одного расчёта исходной цепи в режиме DIRECT - оно окупается только при повторных расчётах
+     *
+     * @param seed зерно выбора резисторов: при одном зерне результат воспроизводим
+     */
+    public static CsrWeightedGraph sparsifyCircuit(WeightedGraph inputGraph, double epsilon, long seed) {
+        return new SpectralSparsifier(epsilon, seed).sparsify(inputGraph);
+    }
+
+    /**
+     * Разреженная цепь с зерном DEFAULT_SEED
+     */
+    public static CsrWeightedGraph sparsifyCircuit(WeightedGraph inputGraph, double epsilon) {
+        return sparsifyCircuit(inputGraph, epsilon, DEFAULT_SEED);
+    }
+}
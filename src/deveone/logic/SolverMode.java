@@ -0,0 +1,24 @@
+package deveone.logic;
+
+/**
+ * Способ расчёта сопротивления цепи
+ */
+public enum SolverMode {
+    /**
+     * Последовательное упрощение параллельных и последовательных соединений (только последовательно-параллельные цепи)
+     */
+    REDUCTION,
+    /**
+     * Решение системы узловых потенциалов разложением Холецкого в двойной точности
+     */
+    DIRECT,
+    /**
+     * Разложение в одинарной точности с уточнением решения в двойной: множитель занимает вдвое меньше памяти,
+     * но расчёт не быстрее DIRECT из-за итераций уточнения
+     */
+    MIXED_PRECISION,
+    /**
+     * Параллельное решение системы декомпозицией области (части и разделитель, дополнение Шура)
+     */
+    DOMAIN_DECOMPOSITION
+}
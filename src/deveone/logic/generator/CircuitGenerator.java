@@ -0,0 +1,108 @@
+package deveone.logic.generator;
+
+import deveone.logic.graph.CsrWeightedGraph;
+import deveone.logic.graph.EdgeSink;
+import deveone.logic.graph.WeightedGraph;
+
+import java.util.OptionalDouble;
+import java.util.SplittableRandom;
+
+/**
+ * Генератор синтетической цепи из резисторов.
+ * Генерация детерминирована: одинаковые параметры и зерно дают одинаковый поток рёбер,
+ * поэтому рёбра можно выдавать потоком (в граф, в CSR-построитель или в двоичный файл) без хранения.
+ */
+public abstract class CircuitGenerator {
+    protected final double resistance;
+    protected final double spread;
+    protected final long seed;
+
+    /**
+     * @param resistance Номинал резисторов
+     * @param spread     Относительный разброс номиналов, [0, 1). Номинал равномерно распределён в r*(1 +- spread)
+     * @param seed       Зерно генератора случайных чисел
+     */
+    protected CircuitGenerator(double resistance, double spread, long seed) {
+        if (!(resistance > 0))
+            throw new IllegalArgumentException("Номинал должен быть положительным: " + resistance);
+        if (spread < 0 || spread >= 1)
+            throw new IllegalArgumentException("Разброс должен лежать в [0, 1): " + spread);
+
+        this.resistance = resistance;
+        this.spread = spread;
+        this.seed = seed;
+    }
+
+    /**
+     * Кол-во вершин генерируемой цепи
+     */
+    public abstract int vertexCount();
+
+    /**
+     * Начало цепи
+     */
+    public int startNode() {
+        return 0;
+    }
+
+    /**
+     * Конец цепи
+     */
+    public abstract int endNode();
+
+    /**
+     * Выдаёт все рёбра цепи в приёмник. Перед первым ребром сообщает кол-во вершин.
+     */
+    public abstract void generate(EdgeSink sink);
+
+    /**
+     * Точное сопротивление между startNode и endNode, если для данной цепи есть формула
+     */
+    public OptionalDouble exactResistance() {
+        return OptionalDouble.empty();
+    }
+
+    /**
+     * Предельное сопротивление бесконечной цепи той же структуры (например, бесконечной сетки),
+     * к которому стремится сопротивление при росте размера. Имеет смысл только без разброса номиналов.
+     */
+    public OptionalDouble limitResistance() {
+        return OptionalDouble.empty();
+    }
+
+    /**
+     * Генерирует цепь в разреженный граф
+     */
+    public CsrWeightedGraph toCsr() {
+        CsrWeightedGraph.Builder builder = CsrWeightedGraph.builder();
+        generate(builder);
+        return builder.build();
+    }
+
+    /**
+     * Генерирует цепь в переданный граф
+     *
+     * @return этот же граф
+     */
+    public <G extends WeightedGraph> G into(G graph) {
+        generate(EdgeSink.of(graph));
+        return graph;
+    }
+
+    protected SplittableRandom newRandom() {
+        return new SplittableRandom(seed);
+    }
+
+    protected double nextWeight(SplittableRandom random) {
+        if (spread == 0)
+            return resistance;
+        return resistance * (1 + spread * (2 * random.nextDouble() - 1));
+    }
+
+    /**
+     * Параллельное соединение двух сопротивлений
+     */
+    static double parallel(double r1, double r2) {
+        return r1 * r2 / (r1 + r2);
+    }
+}
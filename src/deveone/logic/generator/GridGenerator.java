@@ -0,0 +1,113 @@
+package deveone.logic.generator;
+
+import deveone.logic.graph.EdgeSink;
+
+import java.util.OptionalDouble;
+import java.util.SplittableRandom;
+
+/**
+ * Квадратная (2D) или кубическая (3D) сетка side^dimensions вершин.
+ * Вершина (x, y, z) имеет номер x + side * (y + side * z).
+ */
+public class GridGenerator extends CircuitGenerator {
+    /**
+     * Выбор концов цепи на сетке
+     */
+    public enum Terminals {
+        /**
+         * Противоположные углы
+         */
+        CORNERS,
+        /**
+         * Центральная вершина и её сосед по оси x
+         */
+        ADJACENT,
+        /**
+         * Центральная вершина и её сосед по диагонали в плоскости xy
+         */
+        DIAGONAL
+    }
+
+    private final int side;
+    private final int dimensions;
+    private final Terminals terminals;
+
+    public GridGenerator(int side, int dimensions, Terminals terminals, double resistance, double spread, long seed) {
+        super(resistance, spread, seed);
+        if (dimensions != 2 && dimensions != 3)
+            throw new IllegalArgumentException("Поддерживаются только 2D и 3D сетки");
+        if (side < 2)
+            throw new IllegalArgumentException("Сторона сетки должна быть не меньше 2");
+        if (Math.pow(side, dimensions) > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Слишком большая сетка");
+
+        this.side = side;
+        this.dimensions = dimensions;
+        this.terminals = terminals;
+    }
+
+    public GridGenerator(int side, int dimensions, double resistance) {
+        this(side, dimensions, Terminals.CORNERS, resistance, 0, 0);
+    }
+
+    @Override
+    public int vertexCount() {
+        return dimensions == 2 ? side * side : side * side * side;
+    }
+
+    private int centre() {
+        int c = (side - 1) / 2;
+        return dimensions == 2 ? c + side * c : c + side * (c + side * c);
+    }
+
+    @Override
+    public int startNode() {
+        return terminals == Terminals.CORNERS ? 0 : centre();
+    }
+
+    @Override
+    public int endNode() {
+        switch (terminals) {
+            case ADJACENT:
+                return centre() + 1;
+            case DIAGONAL:
+                return centre() + 1 + side;
+            default:
+                return vertexCount() - 1;
+        }
+    }
+
+    @Override
+    public void generate(EdgeSink sink) {
+        sink.expectVertices(vertexCount());
+        SplittableRandom random = newRandom();
+        int depth = dimensions == 2 ? 1 : side;
+        int layer = side * side;
+        for (int z = 0; z < depth; z++)
+            for (int y = 0; y < side; y++)
+                for (int x = 0; x < side; x++) {
+                    int v = x + side * y + layer * z;
+                    if (x + 1 < side)
+                        sink.edge(v, v + 1, nextWeight(random));
+                    if (y + 1 < side)
+                        sink.edge(v, v + side, nextWeight(random));
+                    if (z + 1 < depth)
+                        sink.edge(v, v + layer, nextWeight(random));
+                }
+    }
+
+    /**
+     * Сопротивление бесконечной решётки одинаковых резисторов:
+     * 2D - r/2 между соседями и 2r/pi по диагонали, 3D - r/3 между соседями и 0.395112r
+     * по диагонали грани (численное значение решёточного интеграла Уотсона).
+     */
+    @Override
+    public OptionalDouble limitResistance() {
+        if (spread != 0 || terminals == Terminals.CORNERS)
+            return OptionalDouble.empty();
+
+        if (terminals == Terminals.ADJACENT)
+            return OptionalDouble.of(resistance / dimensions);
+        return OptionalDouble.of(dimensions == 2 ? 2 * resistance / Math.PI : 0.395112 * resistance);
+    }
+}
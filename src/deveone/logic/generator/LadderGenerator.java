@@ -0,0 +1,72 @@
+package deveone.logic.generator;
+
+import deveone.logic.graph.EdgeSink;
+
+import java.util.OptionalDouble;
+import java.util.SplittableRandom;
+
+/**
+ * Лестничная цепь: rungs перекладин (2i, 2i+1), соединённых резисторами по обеим сторонам.
+ * Цепь считается между концами первой перекладины (0 и 1).
+ */
+public class LadderGenerator extends CircuitGenerator {
+    private final int rungs;
+
+    public LadderGenerator(int rungs, double resistance, double spread, long seed) {
+        super(resistance, spread, seed);
+        if (rungs < 1)
+            throw new IllegalArgumentException("Нужна хотя бы одна перекладина");
+        this.rungs = rungs;
+    }
+
+    public LadderGenerator(int rungs, double resistance) {
+        this(rungs, resistance, 0, 0);
+    }
+
+    @Override
+    public int vertexCount() {
+        return 2 * rungs;
+    }
+
+    @Override
+    public int endNode() {
+        return 1;
+    }
+
+    @Override
+    public void generate(EdgeSink sink) {
+        sink.expectVertices(vertexCount());
+        SplittableRandom random = newRandom();
+        for (int i = 0; i < rungs; i++) {
+            sink.edge(2 * i, 2 * i + 1, nextWeight(random));
+            if (i + 1 < rungs) {
+                sink.edge(2 * i, 2 * i + 2, nextWeight(random));
+                sink.edge(2 * i + 1, 2 * i + 3, nextWeight(random));
+            }
+        }
+    }
+
+    /**
+     * Сворачивает лестницу с дальнего конца: R = rung[i] || (top[i] + bottom[i] + R)
+     */
+    @Override
+    public OptionalDouble exactResistance() {
+        double[] weights = new double[3 * rungs - 2]; // В порядке генерации: перекладина, верх, низ
+        SplittableRandom random = newRandom();
+        for (int i = 0; i < weights.length; i++)
+            weights[i] = nextWeight(random);
+
+        double r = weights[3 * (rungs - 1)];
+        for (int i = rungs - 2; i >= 0; i--)
+            r = parallel(weights[3 * i], weights[3 * i + 1] + weights[3 * i + 2] + r);
+        return OptionalDouble.of(r);
+    }
+
+    /**
+     * Бесконечная лестница одинаковых резисторов: R = r || (2r + R), откуда R = r(sqrt(3) - 1)
+     */
+    @Override
+    public OptionalDouble limitResistance() {
+        return spread == 0 ? OptionalDouble.of(resistance * (Math.sqrt(3) - 1)) : OptionalDouble.empty();
+    }
+}
@@ -0,0 +1,78 @@
+package deveone.logic.generator;
+
+import deveone.logic.graph.EdgeSink;
+
+import java.util.SplittableRandom;
+
+/**
+ * Безмасштабная сеть Барабаши-Альберт: каждая новая вершина присоединяется к m различным
+ * существующим вершинам с вероятностью, пропорциональной их степени.
+ * Начальное ядро - полный граф на m + 1 вершинах. Цепь считается между первым хабом 0 и последней вершиной.
+ */
+public class PowerLawGenerator extends CircuitGenerator {
+    private final int vertices;
+    private final int m;
+
+    public PowerLawGenerator(int vertices, int m, double resistance, double spread, long seed) {
+        super(resistance, spread, seed);
+        if (m < 1 || vertices <= m)
+            throw new IllegalArgumentException("Требуется 1 <= m < vertices");
+        this.vertices = vertices;
+        this.m = m;
+    }
+
+    public PowerLawGenerator(int vertices, int m, double resistance, long seed) {
+        this(vertices, m, resistance, 0, seed);
+    }
+
+    @Override
+    public int vertexCount() {
+        return vertices;
+    }
+
+    @Override
+    public int endNode() {
+        return vertices - 1;
+    }
+
+    @Override
+    public void generate(EdgeSink sink) {
+        sink.expectVertices(vertexCount());
+        SplittableRandom random = newRandom();
+
+        // Каждое ребро записывает оба конца, поэтому равномерный выбор из массива - выбор пропорционально степени
+        long ends = (long) (m + 1) * m + 2L * m * (vertices - m - 1);
+        if (ends > Integer.MAX_VALUE)
+            throw new IllegalStateException("Слишком большая сеть");
+        int[] endpoints = new int[(int) ends];
+        int size = 0;
+
+        for (int i = 0; i <= m; i++)
+            for (int j = i + 1; j <= m; j++) {
+                sink.edge(i, j, nextWeight(random));
+                endpoints[size++] = i;
+                endpoints[size++] = j;
+            }
+
+        int[] chosen = new int[m];
+        for (int v = m + 1; v < vertices; v++) {
+            int count = 0;
+            while (count < m) {
+                int candidate = endpoints[random.nextInt(size)];
+                boolean duplicate = false;
+                for (int i = 0; i < count; i++)
+                    if (chosen[i] == candidate) {
+                        duplicate = true;
+                        break;
+                    }
+                if (!duplicate)
+                    chosen[count++] = candidate;
+            }
+            for (int i = 0; i < m; i++) {
+                sink.edge(chosen[i], v, nextWeight(random));
+                endpoints[size++] = chosen[i];
+                endpoints[size++] = v;
+            }
+        }
+    }
+}
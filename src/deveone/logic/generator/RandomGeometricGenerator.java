@@ -0,0 +1,105 @@
+package deveone.logic.generator;
+
+import deveone.logic.graph.EdgeSink;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Случайный геометрический граф: точки в единичном квадрате, соединённые, если расстояние не больше radius.
+ * Сопротивление ребра пропорционально его длине (резистор длины radius имеет номинал resistance).
+ * Вершина 0 лежит в точке (0, 0), вершина 1 - в (1, 1).
+ * Связность не гарантируется; радиус по умолчанию выбран так, чтобы граф был связен с высокой вероятностью.
+ */
+public class RandomGeometricGenerator extends CircuitGenerator {
+    private final int vertices;
+    private final double radius;
+
+    public RandomGeometricGenerator(int vertices, double radius, double resistance, double spread, long seed) {
+        super(resistance, spread, seed);
+        if (vertices < 2)
+            throw new IllegalArgumentException("Нужно хотя бы 2 вершины");
+        if (!(radius > 0))
+            throw new IllegalArgumentException("Радиус должен быть положительным");
+        this.vertices = vertices;
+        this.radius = radius;
+    }
+
+    public RandomGeometricGenerator(int vertices, double resistance, long seed) {
+        this(vertices, connectivityRadius(vertices), resistance, 0, seed);
+    }
+
+    /**
+     * Радиус, при котором случайный геометрический граф на n вершинах связен с высокой вероятностью
+     */
+    public static double connectivityRadius(int n) {
+        return Math.sqrt(2 * Math.log(Math.max(n, 2)) / (Math.PI * n));
+    }
+
+    @Override
+    public int vertexCount() {
+        return vertices;
+    }
+
+    @Override
+    public int endNode() {
+        return 1;
+    }
+
+    /**
+     * Рёбра ищутся через корзины размера radius x radius: каждая точка сравнивается
+     * только с точками своей и соседних корзин, поэтому генерация почти линейна.
+     */
+    @Override
+    public void generate(EdgeSink sink) {
+        sink.expectVertices(vertexCount());
+        SplittableRandom random = newRandom();
+
+        double[] x = new double[vertices];
+        double[] y = new double[vertices];
+        x[1] = 1;
+        y[1] = 1;
+        for (int v = 2; v < vertices; v++) {
+            x[v] = random.nextDouble();
+            y[v] = random.nextDouble();
+        }
+
+        int cells = Math.max(1, Math.min((int) (1 / radius), (int) Math.sqrt(vertices)));
+        int[] cellStart = new int[cells * cells + 1];
+        int[] cellOf = new int[vertices];
+        for (int v = 0; v < vertices; v++) {
+            cellOf[v] = cell(x[v], cells) + cells * cell(y[v], cells);
+            cellStart[cellOf[v] + 1]++;
+        }
+        for (int c = 0; c < cells * cells; c++)
+            cellStart[c + 1] += cellStart[c];
+        int[] pos = Arrays.copyOf(cellStart, cells * cells);
+        int[] sorted = new int[vertices];
+        for (int v = 0; v < vertices; v++)
+            sorted[pos[cellOf[v]]++] = v;
+
+        double radius2 = radius * radius;
+        for (int v = 0; v < vertices; v++) {
+            int cx = cellOf[v] % cells;
+            int cy = cellOf[v] / cells;
+            for (int ny = Math.max(0, cy - 1); ny <= Math.min(cells - 1, cy + 1); ny++)
+                for (int nx = Math.max(0, cx - 1); nx <= Math.min(cells - 1, cx + 1); nx++) {
+                    int c = nx + cells * ny;
+                    for (int i = cellStart[c]; i < cellStart[c + 1]; i++) {
+                        int u = sorted[i];
+                        if (u <= v)
+                            continue;
+                        double dx = x[u] - x[v];
+                        double dy = y[u] - y[v];
+                        double d2 = dx * dx + dy * dy;
+                        if (d2 <= radius2)
+                            sink.edge(v, u, nextWeight(random) * Math.max(Math.sqrt(d2), 1e-9) / radius);
+                    }
+                }
+        }
+    }
+
+    private static int cell(double coordinate, int cells) {
+        return Math.min(cells - 1, (int) (coordinate * cells));
+    }
+}
@@ -0,0 +1,66 @@
+package deveone.logic.generator;
+
+import deveone.logic.graph.EdgeSink;
+
+import java.util.OptionalDouble;
+import java.util.SplittableRandom;
+
+/**
+ * Случайное рекурсивное дерево: предок вершины v выбирается равномерно среди вершин
+ * [v - window, v - 1]. Малое окно даёт длинные «ветки», окно во всё дерево - глубину O(log n).
+ * Сопротивление между корнем 0 и последней вершиной равно сумме весов на пути между ними.
+ */
+public class TreeGenerator extends CircuitGenerator {
+    private final int vertices;
+    private final int window;
+
+    public TreeGenerator(int vertices, int window, double resistance, double spread, long seed) {
+        super(resistance, spread, seed);
+        if (vertices < 2)
+            throw new IllegalArgumentException("Дерево должно содержать хотя бы 2 вершины");
+        if (window < 1)
+            throw new IllegalArgumentException("Окно выбора предка должно быть положительным");
+        this.vertices = vertices;
+        this.window = window;
+    }
+
+    public TreeGenerator(int vertices, double resistance, long seed) {
+        this(vertices, Integer.MAX_VALUE, resistance, 0, seed);
+    }
+
+    @Override
+    public int vertexCount() {
+        return vertices;
+    }
+
+    @Override
+    public int endNode() {
+        return vertices - 1;
+    }
+
+    private int nextParent(SplittableRandom random, int v) {
+        int from = Math.max(0, v - window);
+        return from + random.nextInt(v - from);
+    }
+
+    @Override
+    public void generate(EdgeSink sink) {
+        sink.expectVertices(vertexCount());
+        SplittableRandom random = newRandom();
+        for (int v = 1; v < vertices; v++) {
+            int parent = nextParent(random, v);
+            sink.edge(parent, v, nextWeight(random));
+        }
+    }
+
+    @Override
+    public OptionalDouble exactResistance() {
+        double[] distance = new double[vertices]; // Сопротивление от корня до вершины
+        SplittableRandom random = newRandom();
+        for (int v = 1; v < vertices; v++) {
+            int parent = nextParent(random, v);
+            distance[v] = distance[parent] + nextWeight(random);
+        }
+        return OptionalDouble.of(distance[vertices - 1]);
+    }
+}
@@ -0,0 +1,84 @@
+package deveone.logic.generator;
+
+import deveone.logic.graph.EdgeSink;
+
+import java.util.OptionalDouble;
+import java.util.SplittableRandom;
+
+/**
+ * Решётка мостов Уитстона: columns параллельных цепочек, каждая из length мостов,
+ * соединённых последовательно между вершинами 0 и 1.
+ * Мост a-b состоит из резисторов a-c, a-d, c-b, d-b и диагонали c-d.
+ */
+public class WheatstoneLatticeGenerator extends CircuitGenerator {
+    private final int length;
+    private final int columns;
+
+    public WheatstoneLatticeGenerator(int length, int columns, double resistance, double spread, long seed) {
+        super(resistance, spread, seed);
+        if (length < 1 || columns < 1)
+            throw new IllegalArgumentException("Решётка должна содержать хотя бы один мост");
+        this.length = length;
+        this.columns = columns;
+    }
+
+    public WheatstoneLatticeGenerator(int length, int columns, double resistance) {
+        this(length, columns, resistance, 0, 0);
+    }
+
+    @Override
+    public int vertexCount() {
+        // Кроме концов: по 2 внутренних вершины на мост и length - 1 соединительных вершин на цепочку
+        return 2 + columns * (3 * length - 1);
+    }
+
+    @Override
+    public int endNode() {
+        return 1;
+    }
+
+    @Override
+    public void generate(EdgeSink sink) {
+        sink.expectVertices(vertexCount());
+        SplittableRandom random = newRandom();
+        int next = 2;
+        for (int col = 0; col < columns; col++) {
+            int a = 0;
+            for (int i = 0; i < length; i++) {
+                int c = next++;
+                int d = next++;
+                int b = i + 1 == length ? 1 : next++;
+                sink.edge(a, c, nextWeight(random));
+                sink.edge(a, d, nextWeight(random));
+                sink.edge(c, b, nextWeight(random));
+                sink.edge(d, b, nextWeight(random));
+                sink.edge(c, d, nextWeight(random));
+                a = b;
+            }
+        }
+    }
+
+    /**
+     * Сопротивление моста: [R1R2(R3+R4) + R3R4(R1+R2) + R5(R1+R3)(R2+R4)] / [(R1+R2)(R3+R4) + R5(R1+R2+R3+R4)],
+     * мосты в цепочке складываются последовательно, цепочки - параллельно.
+     */
+    @Override
+    public OptionalDouble exactResistance() {
+        SplittableRandom random = newRandom();
+        double conductance = 0;
+        for (int col = 0; col < columns; col++) {
+            double chain = 0;
+            for (int i = 0; i < length; i++) {
+                double r1 = nextWeight(random); // a-c
+                double r2 = nextWeight(random); // a-d
+                double r3 = nextWeight(random); // c-b
+                double r4 = nextWeight(random); // d-b
+                double r5 = nextWeight(random); // c-d
+                chain += (r1 * r2 * (r3 + r4) + r3 * r4 * (r1 + r2) + r5 * (r1 + r3) * (r2 + r4))
+                        / ((r1 + r2) * (r3 + r4) + r5 * (r1 + r2 + r3 + r4));
+            }
+            conductance += 1 / chain;
+        }
+        return OptionalDouble.of(1 / conductance);
+    }
+}
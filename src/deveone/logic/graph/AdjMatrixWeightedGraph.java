@@ -1,5 +1,7 @@
 package deveone.logic.graph;
 
+import deveone.logic.metrics.SolverMetrics;
+
 import java.util.*;
 
 public class AdjMatrixWeightedGraph implements WeightedGraph {
@@ -111,21 +113,8 @@ public class AdjMatrixWeightedGraph implements WeightedGraph {
     @Override
     public void addEdge(int v1, int v2, double weight) {
         int maxV = Math.max(v1, v2);
-        if (maxV >= vertexCount()) {
-            adjMatrix = Arrays.copyOf(adjMatrix, maxV + 1);
-            for (int i = 0; i <= maxV; i++) {
-                if (i < vCount) {
-                    adjMatrix[i] = Arrays.copyOf(adjMatrix[i], maxV + 1);
-                    for (int j = vCount; j < maxV + 1; j++) {
-                        adjMatrix[i][j] = Double.MAX_VALUE;
-                    }
-                } else {
-                    adjMatrix[i] = getInfinityDouble(maxV + 1);
-                }
-            }
-
-            vCount = maxV + 1;
-        }
+        if (maxV >= vertexCount())
+            grow(maxV + 1);
         if (((Double.MAX_VALUE - adjMatrix[v1][v2]) < 1)) {
             adjMatrix[v1][v2] = weight;
             eCount++;
@@ -138,6 +127,107 @@ public class AdjMatrixWeightedGraph implements WeightedGraph {
 //        System.out.println(Arrays.deepToString(adjMatrix));
     }
 
+    //Расширяет матрицу до newCount вершин (одно копирование всех строк)
+    private void grow(int newCount) {
+        adjMatrix = Arrays.copyOf(adjMatrix, newCount);
+        for (int i = 0; i < newCount; i++) {
+            if (i < vCount) {
+                adjMatrix[i] = Arrays.copyOf(adjMatrix[i], newCount);
+                for (int j = vCount; j < newCount; j++) {
+                    adjMatrix[i][j] = Double.MAX_VALUE;
+                }
+            } else {
+                adjMatrix[i] = getInfinityDouble(newCount);
+            }
+        }
+
+        vCount = newCount;
+        SolverMetrics.matrixResized(vCount);
+    }
+
+    /**
+     * Пакет изменений графа. Добавления и удаления рёбер копятся и применяются в commit() по порядку,
+     * а матрица перед этим один раз расширяется до наибольшего номера вершины пакета
+     * (по одному ребру каждая новая вершина копировала бы всю матрицу).
+     */
+    public Batch batch() {
+        return new Batch();
+    }
+
+    public class Batch implements EdgeSink {
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private double[] weights = new double[16];   //NaN - удаление ребра
+        private int size = 0;
+        private int vertexBound = 0;                 //Наибольший номер добавляемой вершины + 1
+
+        private Batch() {
+        }
+
+        @Override
+        public void expectVertices(int vertexCount) {
+            vertexBound = Math.max(vertexBound, vertexCount);
+        }
+
+        @Override
+        public void edge(int v1, int v2, double weight) {
+            addEdge(v1, v2, weight);
+        }
+
+        public Batch addEdge(int v1, int v2, double weight) {
+            if (Double.isNaN(weight))
+                throw new IllegalArgumentException("Вес ребра " + v1 + "-" + v2 + " не число");
+            vertexBound = Math.max(vertexBound, Math.max(v1, v2) + 1);
+            return push(v1, v2, weight);
+        }
+
+        public Batch removeEdge(int v1, int v2) {
+            return push(v1, v2, Double.NaN);
+        }
+
+        private Batch push(int v1, int v2, double weight) {
+            if (v1 < 0 || v2 < 0)
+                throw new IllegalArgumentException("Отрицательный номер вершины");
+            if (size == from.length) {
+                int capacity = size * 2;
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+            }
+            from[size] = v1;
+            to[size] = v2;
+            weights[size++] = weight;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Применяет накопленные изменения к графу; пакет после этого пуст и может использоваться снова
+         */
+        public void commit() {
+            if (vertexBound > vCount)
+                grow(vertexBound);
+            for (int i = 0; i < size; i++) {
+                if (Double.isNaN(weights[i]))
+                    AdjMatrixWeightedGraph.this.removeEdge(from[i], to[i]);
+                else
+                    AdjMatrixWeightedGraph.this.addEdge(from[i], to[i], weights[i]);
+            }
+            rollback();
+        }
+
+        /**
+         * Отбрасывает накопленные изменения
+         */
+        public void rollback() {
+            size = 0;
+            vertexBound = 0;
+        }
+    }
+
     private Double[] getInfinityDouble(int length) {
         Double[] doubles = new Double[length];
         Arrays.fill(doubles, Double.MAX_VALUE);
@@ -146,7 +236,10 @@ public class AdjMatrixWeightedGraph implements WeightedGraph {
 
     @Override
     public void removeEdge(int v1, int v2) {
-        if (!adjMatrix[v1][v2].isInfinite()) {
+        if (Math.max(v1, v2) >= vCount)
+            return;
+        // Отсутствие ребра обозначается Double.MAX_VALUE, а не бесконечностью
+        if (adjMatrix[v1][v2] != Double.MAX_VALUE) {
             adjMatrix[v1][v2] = Double.MAX_VALUE;
             eCount--;
             // для наследников
@@ -198,6 +291,7 @@ public class AdjMatrixWeightedGraph implements WeightedGraph {
             return new boolean[0][0];
 
         boolean[][] newMatrix = new boolean[adjMatrix.length][adjMatrix[0].length];
+        SolverMetrics.matrixCopied(adjMatrix.length, adjMatrix[0].length);
 
         for (int i = 0; i < adjMatrix.length; i++)
             for (int j = 0; j < adjMatrix[i].length; j++)
@@ -230,6 +324,7 @@ public class AdjMatrixWeightedGraph implements WeightedGraph {
             return new double[0][0];
 
         double[][] newMatrix = new double[adjMatrix.length][adjMatrix[0].length];
+        SolverMetrics.matrixCopied(adjMatrix.length, adjMatrix[0].length);
 
         for (int i = 0; i < adjMatrix.length; i++)
             for (int j = 0; j < adjMatrix[i].length; j++)
@@ -0,0 +1,243 @@
+package deveone.logic.graph;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Потокобезопасный накопитель рёбер для параллельного чтения цепи (например, частей netlist в нескольких потоках).
+ * Каждый поток пишет рёбра в свой буфер без блокировок; имена узлов атомарно получают номера
+ * (computeIfAbsent в ConcurrentHashMap). build() после завершения всех пишущих потоков сливает буферы в CSR
+ * параллельно: буферы делятся на группы подряд идущих (не больше, чем потоков в пуле), степени вершин считаются
+ * по группам, затем каждая группа получает в каждой строке свой непересекающийся участок и раскладывает рёбра
+ * без синхронизации. Память на слияние - степень параллелизма пула x кол-во вершин int, сколько бы потоков
+ * ни писало.
+ * <p>
+ * Порядок записей в строке - по буферам, внутри буфера - в порядке добавления; номера по именам раздаются
+ * в порядке первого обращения, поэтому от запуска к запуску могут отличаться.
+ * <p>
+ * Вершины задаются либо номерами, либо именами, но не вперемешку: иначе имя могло бы получить номер,
+ * уже занятый числом. build() забирает рёбра из буферов потоков и освобождает их: после него накопитель пуст,
+ * а номера имён сохраняются.
+ */
+public final class ConcurrentGraphBuilder implements EdgeSink {
+    private static final int CHUNK = 1 << 14;
+    private static final int NUMBERS = 1;
+    private static final int NAMES = 2;
+
+    private final boolean directed;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final AtomicInteger expected = new AtomicInteger();
+    private final AtomicInteger mode = new AtomicInteger();  // 0 - ещё не выбран, NUMBERS или NAMES
+    private final Queue<Buffer> buffers = new ConcurrentLinkedQueue<>();
+    // Заменяется в build(): буферы прежних потоков не должны оставаться достижимыми
+    private volatile ThreadLocal<Buffer> local = ThreadLocal.withInitial(this::register);
+
+    /**
+     * @param directed Если true, ребро v1 -> v2 записывается только в строку v1
+     */
+    public ConcurrentGraphBuilder(boolean directed) {
+        this.directed = directed;
+    }
+
+    public ConcurrentGraphBuilder() {
+        this(false);
+    }
+
+    /**
+     * Номер узла по имени; при первом обращении узел получает следующий свободный номер
+     */
+    public int vertex(String name) {
+        use(NAMES);
+        Integer id = ids.get(name);
+        if (id == null)
+            id = ids.computeIfAbsent(name, k -> nextId.getAndIncrement());
+        return id;
+    }
+
+    /**
+     * Имена узлов по номерам
+     */
+    public String[] names() {
+        String[] names = new String[nextId.get()];
+        for (Map.Entry<String, Integer> entry : ids.entrySet())
+            if (entry.getValue() < names.length)
+                names[entry.getValue()] = entry.getKey();
+        return names;
+    }
+
+    @Override
+    public void expectVertices(int vertexCount) {
+        expected.accumulateAndGet(vertexCount, Math::max);
+    }
+
+    @Override
+    public void edge(int v1, int v2, double weight) {
+        if (v1 < 0 || v2 < 0)
+            throw new IllegalArgumentException("Отрицательный номер вершины");
+        use(NUMBERS);
+        local.get().add(v1, v2, weight);
+    }
+
+    public void edge(String name1, String name2, double weight) {
+        local.get().add(vertex(name1), vertex(name2), weight);
+    }
+
+    /**
+     * Кол-во рёбер во всех буферах (точно, если никто не пишет)
+     */
+    public long size() {
+        long size = 0;
+        for (Buffer buffer : buffers)
+            size += buffer.size;
+        return size;
+    }
+
+    private void use(int kind) {
+        int current = mode.get();
+        if (current != kind && !(current == 0 && mode.compareAndSet(0, kind)) && mode.get() != kind)
+            throw new IllegalStateException("Вершины задаются либо номерами, либо именами, но не вперемешку");
+    }
+
+    public CsrWeightedGraph build() {
+        return build(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Сливает буферы в граф на пуле потоков и освобождает их. Вызывается после завершения всех пишущих потоков.
+     */
+    public CsrWeightedGraph build(ForkJoinPool pool) {
+        local = ThreadLocal.withInitial(this::register);
+        Buffer[] parts = buffers.toArray(new Buffer[0]);
+        buffers.clear();
+        int n = Math.max(nextId.get(), expected.get());
+        long edges = 0;
+        for (Buffer part : parts) {
+            n = Math.max(n, part.vCount);
+            edges += part.size;
+        }
+        long entries = 0;
+        for (Buffer part : parts)
+            entries += directed ? part.size : 2L * part.size - part.loops;
+        if (entries > Integer.MAX_VALUE - 8)
+            throw new IllegalStateException("Слишком много рёбер для CSR: " + edges);
+        int vertexCount = n;
+        int chunks = (n + CHUNK - 1) / CHUNK;
+
+        // Группа g - буферы first[g]..first[g+1]-1; записи каждой группы в каждой строке
+        int groups = Math.max(1, Math.min(parts.length, pool.getParallelism()));
+        int[] first = new int[groups + 1];
+        for (int g = 0; g <= groups; g++)
+            first[g] = (int) ((long) parts.length * g / groups);
+        int[][] cursor = new int[groups][];
+        pool.submit(() -> IntStream.range(0, groups).parallel().forEach(g -> {
+            int[] count = new int[vertexCount];
+            for (int b = first[g]; b < first[g + 1]; b++) {
+                Buffer part = parts[b];
+                for (int i = 0; i < part.size; i++) {
+                    count[part.from[i]]++;
+                    if (!directed && part.from[i] != part.to[i])
+                        count[part.to[i]]++;
+                }
+            }
+            cursor[g] = count;
+        })).join();
+
+        // Начала строк, затем начало участка каждой группы в строке
+        int[] offsets = new int[vertexCount + 1];
+        pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(c -> {
+            int to = Math.min(vertexCount, (c + 1) * CHUNK);
+            for (int v = c * CHUNK; v < to; v++) {
+                int total = 0;
+                for (int[] count : cursor)
+                    total += count[v];
+                offsets[v + 1] = total;
+            }
+        })).join();
+        for (int v = 0; v < vertexCount; v++)
+            offsets[v + 1] += offsets[v];
+        pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(c -> {
+            int to = Math.min(vertexCount, (c + 1) * CHUNK);
+            for (int v = c * CHUNK; v < to; v++) {
+                int start = offsets[v];
+                for (int[] count : cursor) {
+                    int k = count[v];
+                    count[v] = start;
+                    start += k;
+                }
+            }
+        })).join();
+
+        // Раскладка: участки групп не пересекаются
+        int[] targets = new int[offsets[vertexCount]];
+        double[] weights = new double[offsets[vertexCount]];
+        pool.submit(() -> IntStream.range(0, groups).parallel().forEach(g -> {
+            int[] position = cursor[g];
+            for (int b = first[g]; b < first[g + 1]; b++) {
+                Buffer part = parts[b];
+                for (int i = 0; i < part.size; i++) {
+                    int v1 = part.from[i];
+                    int v2 = part.to[i];
+                    int p = position[v1]++;
+                    targets[p] = v2;
+                    weights[p] = part.weight[i];
+                    if (!directed && v1 != v2) {
+                        p = position[v2]++;
+                        targets[p] = v1;
+                        weights[p] = part.weight[i];
+                    }
+                }
+            }
+        })).join();
+
+        // Прежний ThreadLocal держит буферы в потоках-писателях до их завершения - отдаём массивы сразу
+        for (Buffer part : parts)
+            part.release();
+        return new CsrWeightedGraph(offsets, targets, weights, (int) edges);
+    }
+
+    private Buffer register() {
+        Buffer buffer = new Buffer();
+        buffers.add(buffer);
+        return buffer;
+    }
+
+    /**
+     * Рёбра одного потока. Пишет только владелец; build() читает после завершения записи.
+     */
+    private static final class Buffer {
+        int[] from = new int[64];
+        int[] to = new int[64];
+        double[] weight = new double[64];
+        int size = 0;
+        int loops = 0;
+        int vCount = 0;
+
+        void add(int v1, int v2, double w) {
+            if (size == from.length) {
+                int capacity = size + (size >> 1);
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                weight = Arrays.copyOf(weight, capacity);
+            }
+            from[size] = v1;
+            to[size] = v2;
+            weight[size++] = w;
+            if (v1 == v2)
+                loops++;
+            vCount = Math.max(vCount, Math.max(v1, v2) + 1);
+        }
+
+        void release() {
+            from = to = null;
+            weight = null;
+            size = loops = vCount = 0;
+        }
+    }
+}
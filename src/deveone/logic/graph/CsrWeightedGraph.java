@@ -0,0 +1,289 @@
+package deveone.logic.graph;
+
+import java.util.*;
+
+/**
+ * Неизменяемый взвешенный граф в формате CSR (compressed sparse row).
+ * Память пропорциональна V + E, поэтому подходит для больших разреженных цепей.
+ * Параллельные рёбра хранятся как отдельные записи, если граф не построен через Builder.buildCombined().
+ * Строится через {@link Builder}.
+ */
+public class CsrWeightedGraph implements WeightedGraph {
+    private final int[] offsets; // offsets[v]..offsets[v + 1] - записи вершины v
+    private final int[] targets;
+    private final double[] weights;
+    private final int eCount;
+
+    CsrWeightedGraph(int[] offsets, int[] targets, double[] weights, int edgeCount) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.eCount = edgeCount;
+    }
+
+    /**
+     * @param directed Если true, ребро v1 -> v2 записывается только в строку v1
+     */
+    public static Builder builder(boolean directed) {
+        return new Builder(directed);
+    }
+
+    public static Builder builder() {
+        return new Builder(false);
+    }
+
+    @Override
+    public int vertexCount() {
+        return offsets.length - 1;
+    }
+
+    @Override
+    public int edgeCount() {
+        return eCount;
+    }
+
+    /**
+     * Начало строки вершины v в массивах записей
+     */
+    public int rowStart(int v) {
+        return offsets[v];
+    }
+
+    /**
+     * Конец (не включительно) строки вершины v в массивах записей
+     */
+    public int rowEnd(int v) {
+        return offsets[v + 1];
+    }
+
+    public int degree(int v) {
+        return offsets[v + 1] - offsets[v];
+    }
+
+    /**
+     * Вершина, в которую ведёт запись i
+     */
+    public int target(int i) {
+        return targets[i];
+    }
+
+    /**
+     * Вес записи i
+     */
+    public double weight(int i) {
+        return weights[i];
+    }
+
+    // Массивы строк без копирования для снимков в пакете (Traversal); граф неизменяем, поэтому делить их безопасно
+    int[] offsetArray() {
+        return offsets;
+    }
+
+    int[] targetArray() {
+        return targets;
+    }
+
+    @Override
+    public Iterable<Integer> adjacency(int v) {
+        return () -> new Iterator<>() {
+            int i = offsets[v];
+
+            @Override
+            public boolean hasNext() {
+                return i < offsets[v + 1];
+            }
+
+            @Override
+            public Integer next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return targets[i++];
+            }
+        };
+    }
+
+    @Override
+    public Iterable<WeightedEdgeTo> adjacencyWithWeights(int v) {
+        return () -> new Iterator<>() {
+            int i = offsets[v];
+
+            @Override
+            public boolean hasNext() {
+                return i < offsets[v + 1];
+            }
+
+            @Override
+            public WeightedEdgeTo next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                int to = targets[i];
+                double w = weights[i++];
+                return new WeightedEdgeTo() {
+                    @Override
+                    public int to() {
+                        return to;
+                    }
+
+                    @Override
+                    public double weight() {
+                        return w;
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public boolean isAdj(int v1, int v2) {
+        if (Math.max(v1, v2) > vertexCount() - 1)
+            return false;
+        for (int i = offsets[v1]; i < offsets[v1 + 1]; i++)
+            if (targets[i] == v2)
+                return true;
+        return false;
+    }
+
+    @Override
+    public Double getWeight(int v1, int v2) {
+        for (int i = offsets[v1]; i < offsets[v1 + 1]; i++)
+            if (targets[i] == v2)
+                return weights[i];
+        return null;
+    }
+
+    @Override
+    public boolean[][] getBooleanAdjMatrix() {
+        int n = vertexCount();
+        boolean[][] matrix = new boolean[n][n];
+        for (int v = 0; v < n; v++)
+            for (int i = offsets[v]; i < offsets[v + 1]; i++)
+                matrix[v][targets[i]] = true;
+        return matrix;
+    }
+
+    @Override
+    public void addEdge(int v1, int v2) {
+        throw new UnsupportedOperationException("CsrWeightedGraph неизменяем");
+    }
+
+    @Override
+    public void addEdge(int v1, int v2, double weight) {
+        throw new UnsupportedOperationException("CsrWeightedGraph неизменяем");
+    }
+
+    @Override
+    public void removeEdge(int v1, int v2) {
+        throw new UnsupportedOperationException("CsrWeightedGraph неизменяем");
+    }
+
+    /**
+     * Накопитель рёбер в примитивных массивах. Сортировка подсчётом в CSR выполняется один раз в build().
+     */
+    public static class Builder implements EdgeSink {
+        private final boolean directed;
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private double[] w = new double[16];
+        private int size = 0;
+        private int vCount = 0;
+
+        Builder(boolean directed) {
+            this.directed = directed;
+        }
+
+        @Override
+        public void expectVertices(int vertexCount) {
+            vCount = Math.max(vCount, vertexCount);
+        }
+
+        /**
+         * Резервирует место под edgeCount рёбер
+         */
+        public Builder ensureCapacity(int edgeCount) {
+            if (edgeCount > from.length) {
+                from = Arrays.copyOf(from, edgeCount);
+                to = Arrays.copyOf(to, edgeCount);
+                w = Arrays.copyOf(w, edgeCount);
+            }
+            return this;
+        }
+
+        @Override
+        public void edge(int v1, int v2, double weight) {
+            if (v1 < 0 || v2 < 0)
+                throw new IllegalArgumentException("Отрицательный номер вершины");
+            if (size == from.length)
+                ensureCapacity(size + (size >> 1) + 16);
+            from[size] = v1;
+            to[size] = v2;
+            w[size] = weight;
+            size++;
+            vCount = Math.max(vCount, Math.max(v1, v2) + 1);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public CsrWeightedGraph build() {
+            int[] offsets = new int[vCount + 1];
+            for (int i = 0; i < size; i++) {
+                offsets[from[i] + 1]++;
+                if (!directed && from[i] != to[i])
+                    offsets[to[i] + 1]++;
+            }
+            for (int v = 0; v < vCount; v++)
+                offsets[v + 1] += offsets[v];
+
+            int[] pos = Arrays.copyOf(offsets, vCount);
+            int[] targets = new int[offsets[vCount]];
+            double[] weights = new double[offsets[vCount]];
+            for (int i = 0; i < size; i++) {
+                int p = pos[from[i]]++;
+                targets[p] = to[i];
+                weights[p] = w[i];
+                if (!directed && from[i] != to[i]) {
+                    p = pos[to[i]]++;
+                    targets[p] = from[i];
+                    weights[p] = w[i];
+                }
+            }
+            return new CsrWeightedGraph(offsets, targets, weights, size);
+        }
+
+        /**
+         * Строит граф, свернув параллельные рёбра каждой пары вершин в одно
+         * с сопротивлением их параллельного соединения
+         */
+        public CsrWeightedGraph buildCombined() {
+            CsrWeightedGraph raw = build();
+            int n = raw.vertexCount();
+            int[] offsets = new int[n + 1];
+            int[] targets = new int[raw.targets.length];
+            double[] weights = new double[raw.weights.length];
+
+            int[] position = new int[n]; // position[u] - запись строки v, куда уже попала вершина u
+            Arrays.fill(position, -1);
+            int pairs = 0;
+            int k = 0;
+            for (int v = 0; v < n; v++) {
+                int rowStart = k;
+                for (int i = raw.offsets[v]; i < raw.offsets[v + 1]; i++) {
+                    int u = raw.targets[i];
+                    int p = position[u];
+                    if (p >= rowStart) {
+                        weights[p] = WeightedMultigraph.parallel(weights[p], raw.weights[i]);
+                    } else {
+                        position[u] = k;
+                        targets[k] = u;
+                        weights[k++] = raw.weights[i];
+                        if (directed || u >= v)
+                            pairs++;
+                    }
+                }
+                offsets[v + 1] = k;
+            }
+            return new CsrWeightedGraph(offsets, Arrays.copyOf(targets, k), Arrays.copyOf(weights, k), pairs);
+        }
+    }
+}
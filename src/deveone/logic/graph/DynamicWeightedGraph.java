@@ -0,0 +1,397 @@
+package deveone.logic.graph;
+
+import java.util.*;
+
+/**
+ * Изменяемый взвешенный граф для интерактивного редактирования.
+ * Смежность каждой вершины хранится в собственной примитивной хеш-таблице с открытой адресацией,
+ * поэтому добавление и удаление ребра - O(1) амортизированно, а удаление вершины - O(степень).
+ * Номера удалённых вершин переиспользуются через стек свободных номеров, таблицы сжимаются
+ * при опустошении, так что память пропорциональна числу живых вершин и рёбер.
+ * <p>
+ * vertexCount() возвращает границу номеров (максимальный занятый номер + 1), а не число живых вершин,
+ * чтобы алгоритмы могли индексировать массивы номерами вершин.
+ */
+public class DynamicWeightedGraph implements WeightedGraph {
+    private static final int MIN_CAPACITY = 8;
+
+    private NeighborMap[] adj;  // null - вершина не существует
+    private int[] freeIds;
+    private int freeSize = 0;
+    private int idBound = 0;
+    private int liveCount = 0;
+    private int eCount = 0;
+
+    public DynamicWeightedGraph(int expectedVertices) {
+        adj = new NeighborMap[Math.max(MIN_CAPACITY, expectedVertices)];
+        freeIds = new int[MIN_CAPACITY];
+    }
+
+    public DynamicWeightedGraph() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Создаёт вершину
+     *
+     * @return номер новой вершины (номер ранее удалённой вершины, если такой есть)
+     */
+    public int addVertex() {
+        while (freeSize > 0) {
+            int id = freeIds[--freeSize];
+            if (id < idBound && adj[id] == null) {
+                revive(id);
+                return id;
+            }
+            // Номер устарел: граница номеров уменьшилась или вершину создали через addEdge
+        }
+
+        int id = idBound;
+        ensureIdCapacity(id + 1);
+        idBound++;
+        revive(id);
+        return id;
+    }
+
+    /**
+     * Удаляет вершину вместе со всеми инцидентными ей рёбрами
+     */
+    public void removeVertex(int v) {
+        if (!containsVertex(v))
+            return;
+
+        NeighborMap map = adj[v];
+        for (int i = 0; i < map.keys.length; i++) {
+            int u = map.keys[i];
+            if (u != NeighborMap.EMPTY && u != v)
+                adj[u].remove(v);
+        }
+        eCount -= map.size;
+        adj[v] = null;
+        liveCount--;
+        pushFree(v);
+
+        // Отбрасываем пустой «хвост» номеров, чтобы граница номеров не росла за время сессии
+        while (idBound > 0 && adj[idBound - 1] == null)
+            idBound--;
+        if (adj.length > MIN_CAPACITY && idBound < adj.length / 4)
+            adj = Arrays.copyOf(adj, Math.max(MIN_CAPACITY, adj.length / 2));
+        if (freeSize > 2 * liveCount + MIN_CAPACITY)
+            dropStaleFreeIds();
+    }
+
+    public boolean containsVertex(int v) {
+        return v >= 0 && v < idBound && adj[v] != null;
+    }
+
+    /**
+     * Кол-во существующих вершин (в отличие от vertexCount(), который возвращает границу номеров)
+     */
+    public int liveVertexCount() {
+        return liveCount;
+    }
+
+    @Override
+    public int vertexCount() {
+        return idBound;
+    }
+
+    @Override
+    public int edgeCount() {
+        return eCount;
+    }
+
+    public int degree(int v) {
+        return containsVertex(v) ? adj[v].size : 0;
+    }
+
+    /**
+     * Добавляет ребро. Несуществующие вершины создаются. Повторное ребро между теми же вершинами
+     * игнорируется, как и в AdjMatrixWeightedGraph.
+     */
+    @Override
+    public void addEdge(int v1, int v2, double weight) {
+        if (v1 < 0 || v2 < 0)
+            throw new IllegalArgumentException("Отрицательный номер вершины");
+        ensureVertex(v1);
+        ensureVertex(v2);
+
+        if (adj[v1].indexOf(v2) >= 0)
+            return;
+
+        adj[v1].put(v2, weight);
+        if (v1 != v2)
+            adj[v2].put(v1, weight);
+        eCount++;
+    }
+
+    /**
+     * Добавляет ребро с нулевым весом (закоротка)
+     */
+    @Override
+    public void addEdge(int v1, int v2) {
+        addEdge(v1, v2, 0);
+    }
+
+    @Override
+    public void removeEdge(int v1, int v2) {
+        if (!containsVertex(v1) || !containsVertex(v2))
+            return;
+
+        if (adj[v1].remove(v2)) {
+            if (v1 != v2)
+                adj[v2].remove(v1);
+            eCount--;
+        }
+    }
+
+    @Override
+    public boolean isAdj(int v1, int v2) {
+        return containsVertex(v1) && adj[v1].indexOf(v2) >= 0;
+    }
+
+    @Override
+    public Double getWeight(int v1, int v2) {
+        if (!containsVertex(v1))
+            return null;
+        int i = adj[v1].indexOf(v2);
+        return i >= 0 ? adj[v1].values[i] : null;
+    }
+
+    @Override
+    public Iterable<Integer> adjacency(int v) {
+        NeighborMap map = containsVertex(v) ? adj[v] : NeighborMap.NONE;
+        return () -> new Iterator<>() {
+            int i = map.nextSlot(0);
+
+            @Override
+            public boolean hasNext() {
+                return i < map.keys.length;
+            }
+
+            @Override
+            public Integer next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                int result = map.keys[i];
+                i = map.nextSlot(i + 1);
+                return result;
+            }
+        };
+    }
+
+    @Override
+    public Iterable<WeightedEdgeTo> adjacencyWithWeights(int v) {
+        NeighborMap map = containsVertex(v) ? adj[v] : NeighborMap.NONE;
+        return () -> new Iterator<>() {
+            int i = map.nextSlot(0);
+
+            @Override
+            public boolean hasNext() {
+                return i < map.keys.length;
+            }
+
+            @Override
+            public WeightedEdgeTo next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                int to = map.keys[i];
+                double weight = map.values[i];
+                i = map.nextSlot(i + 1);
+                return new WeightedEdgeTo() {
+                    @Override
+                    public int to() {
+                        return to;
+                    }
+
+                    @Override
+                    public double weight() {
+                        return weight;
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public boolean[][] getBooleanAdjMatrix() {
+        boolean[][] matrix = new boolean[idBound][idBound];
+        for (int v = 0; v < idBound; v++) {
+            NeighborMap map = adj[v];
+            if (map == null)
+                continue;
+            for (int i = map.nextSlot(0); i < map.keys.length; i = map.nextSlot(i + 1))
+                matrix[v][map.keys[i]] = true;
+        }
+        return matrix;
+    }
+
+    /**
+     * Перенумеровывает живые вершины подряд (с сохранением порядка) и освобождает лишнюю память
+     *
+     * @return массив старый номер -> новый номер (-1 для несуществующих вершин)
+     */
+    public int[] compact() {
+        int[] mapping = new int[idBound];
+        int next = 0;
+        for (int v = 0; v < idBound; v++)
+            mapping[v] = adj[v] != null ? next++ : -1;
+
+        NeighborMap[] newAdj = new NeighborMap[Math.max(MIN_CAPACITY, next)];
+        for (int v = 0; v < idBound; v++) {
+            NeighborMap map = adj[v];
+            if (map == null)
+                continue;
+            NeighborMap copy = new NeighborMap();
+            for (int i = map.nextSlot(0); i < map.keys.length; i = map.nextSlot(i + 1))
+                copy.put(mapping[map.keys[i]], map.values[i]);
+            newAdj[mapping[v]] = copy;
+        }
+
+        adj = newAdj;
+        idBound = next;
+        freeIds = new int[MIN_CAPACITY];
+        freeSize = 0;
+        return mapping;
+    }
+
+    private void ensureVertex(int v) {
+        if (v >= idBound) {
+            ensureIdCapacity(v + 1);
+            for (int id = v - 1; id >= idBound; id--)
+                pushFree(id);
+            idBound = v + 1;
+        }
+        if (adj[v] == null)
+            revive(v);
+    }
+
+    private void revive(int v) {
+        adj[v] = new NeighborMap();
+        liveCount++;
+    }
+
+    private void ensureIdCapacity(int capacity) {
+        if (capacity > adj.length)
+            adj = Arrays.copyOf(adj, Math.max(capacity, adj.length + (adj.length >> 1)));
+    }
+
+    private void pushFree(int id) {
+        if (freeSize == freeIds.length)
+            freeIds = Arrays.copyOf(freeIds, freeSize * 2);
+        freeIds[freeSize++] = id;
+    }
+
+    private void dropStaleFreeIds() {
+        int size = 0;
+        for (int i = 0; i < freeSize; i++) {
+            int id = freeIds[i];
+            if (id < idBound && adj[id] == null)
+                freeIds[size++] = id;
+        }
+        freeSize = size;
+        if (freeIds.length > MIN_CAPACITY && size < freeIds.length / 4)
+            freeIds = Arrays.copyOf(freeIds, Math.max(MIN_CAPACITY, freeIds.length / 2));
+    }
+
+    /**
+     * Хеш-таблица int -> double с линейным пробированием.
+     * Удаление сдвигает следующие элементы кластера назад, поэтому «надгробия» не нужны.
+     */
+    static final class NeighborMap {
+        static final int EMPTY = -1;
+
+        private static final int[] NO_KEYS = new int[0];
+        private static final double[] NO_VALUES = new double[0];
+
+        // Объявлена после NO_KEYS и NO_VALUES: иначе при инициализации класса получит null вместо пустых массивов
+        static final NeighborMap NONE = new NeighborMap();
+
+        int[] keys = NO_KEYS;
+        double[] values = NO_VALUES;
+        int size = 0;
+
+        private static int hash(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        int indexOf(int key) {
+            if (size == 0)
+                return -1;
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+                if (keys[i] == key)
+                    return i;
+                if (keys[i] == EMPTY)
+                    return -1;
+            }
+        }
+
+        /**
+         * Первый занятый слот, начиная с from (или keys.length, если таких нет)
+         */
+        int nextSlot(int from) {
+            while (from < keys.length && keys[from] == EMPTY)
+                from++;
+            return from;
+        }
+
+        void put(int key, double value) {
+            if ((size + 1) * 4 > keys.length * 3)
+                resize(Math.max(4, keys.length * 2));
+
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (keys[i] != EMPTY && keys[i] != key)
+                i = (i + 1) & mask;
+            if (keys[i] == EMPTY)
+                size++;
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        boolean remove(int key) {
+            int i = indexOf(key);
+            if (i < 0)
+                return false;
+
+            int mask = keys.length - 1;
+            int gap = i;
+            for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+                int home = hash(keys[j]) & mask;
+                // Переносим элемент в «дыру», если его домашний слот не лежит между дырой и ним
+                if (((j - home) & mask) >= ((j - gap) & mask)) {
+                    keys[gap] = keys[j];
+                    values[gap] = values[j];
+                    gap = j;
+                }
+            }
+            keys[gap] = EMPTY;
+            size--;
+
+            if (size == 0)
+                clear();
+            else if (keys.length > 8 && size * 8 < keys.length)
+                resize(keys.length / 2);
+            return true;
+        }
+
+        private void clear() {
+            keys = NO_KEYS;
+            values = NO_VALUES;
+        }
+
+        private void resize(int capacity) {
+            int[] oldKeys = keys;
+            double[] oldValues = values;
+            keys = new int[capacity];
+            values = new double[capacity];
+            Arrays.fill(keys, EMPTY);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++)
+                if (oldKeys[i] != EMPTY)
+                    put(oldKeys[i], oldValues[i]);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package deveone.logic.graph;
+
+/**
+ * Приёмник потока рёбер. Позволяет генераторам и читателям выдавать рёбра по одному,
+ * не собирая промежуточный граф в памяти.
+ */
+@FunctionalInterface
+public interface EdgeSink {
+    /**
+     * Принимает ребро между вершинами v1 и v2 с весом weight
+     * @param v1
+     * @param v2
+     * @param weight
+     */
+    void edge(int v1, int v2, double weight);
+
+    /**
+     * Подсказка о кол-ве вершин, вызывается до первого ребра (если кол-во известно заранее)
+     * @param vertexCount
+     */
+    default void expectVertices(int vertexCount) {
+    }
+
+    /**
+     * @param graph Граф, в который будут добавляться рёбра
+     * @return Приёмник, добавляющий рёбра в граф через addEdge
+     */
+    static EdgeSink of(WeightedGraph graph) {
+        return graph::addEdge;
+    }
+}
@@ -0,0 +1,130 @@
+package deveone.logic.graph;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Индексированная 4-арная куча с минимумом: ключи - номера 0..capacity-1, приоритеты - double.
+ * Позиция каждого ключа в куче хранится в массиве, поэтому уменьшение приоритета - O(log n) без поиска,
+ * а ключи и приоритеты лежат в примитивных массивах без упаковки. У 4-арной кучи дерево вдвое ниже двоичной,
+ * а дети узла лежат подряд, что для алгоритма Дейкстры (много decrease, меньше poll) быстрее.
+ */
+public final class IntDoubleHeap {
+    private static final int ARITY = 4;
+
+    private final int[] heap;        // ключи в порядке кучи
+    private final double[] priority; // приоритет по позиции в куче
+    private final int[] position;    // позиция ключа в куче или -1
+    private int size = 0;
+
+    public IntDoubleHeap(int capacity) {
+        heap = new int[capacity];
+        priority = new double[capacity];
+        position = new int[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int key) {
+        return position[key] >= 0;
+    }
+
+    /**
+     * Добавляет ключ или уменьшает его приоритет; больший приоритет существующего ключа не меняет
+     *
+     * @return true, если ключ добавлен или приоритет уменьшен
+     */
+    public boolean offer(int key, double value) {
+        int i = position[key];
+        if (i < 0) {
+            i = size++;
+            heap[i] = key;
+            position[key] = i;
+        } else if (value >= priority[i]) {
+            return false;
+        }
+        siftUp(i, key, value);
+        return true;
+    }
+
+    /**
+     * Ключ с наименьшим приоритетом
+     */
+    public int peek() {
+        if (size == 0)
+            throw new NoSuchElementException();
+        return heap[0];
+    }
+
+    /**
+     * Наименьший приоритет
+     */
+    public double peekPriority() {
+        if (size == 0)
+            throw new NoSuchElementException();
+        return priority[0];
+    }
+
+    /**
+     * Удаляет и возвращает ключ с наименьшим приоритетом
+     */
+    public int poll() {
+        int top = peek();
+        position[top] = -1;
+        size--;
+        if (size > 0)
+            siftDown(0, heap[size], priority[size]);
+        return top;
+    }
+
+    /**
+     * Удаляет все ключи за O(size), а не O(capacity)
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++)
+            position[heap[i]] = -1;
+        size = 0;
+    }
+
+    private void siftUp(int i, int key, double value) {
+        while (i > 0) {
+            int parent = (i - 1) / ARITY;
+            if (priority[parent] <= value)
+                break;
+            place(i, heap[parent], priority[parent]);
+            i = parent;
+        }
+        place(i, key, value);
+    }
+
+    private void siftDown(int i, int key, double value) {
+        while (true) {
+            int first = i * ARITY + 1;
+            if (first >= size)
+                break;
+            int last = Math.min(first + ARITY, size);
+            int best = first;
+            for (int c = first + 1; c < last; c++)
+                if (priority[c] < priority[best])
+                    best = c;
+            if (priority[best] >= value)
+                break;
+            place(i, heap[best], priority[best]);
+            i = best;
+        }
+        place(i, key, value);
+    }
+
+    private void place(int i, int key, double value) {
+        heap[i] = key;
+        priority[i] = value;
+        position[key] = i;
+    }
+}
@@ -0,0 +1,105 @@
+package deveone.logic.graph;
+
+import java.util.Arrays;
+
+/**
+ * Отображение неотрицательных int в объекты с открытой адресацией (линейное пробирование,
+ * ёмкость - степень двойки, растёт вдвое при заполнении на 1/2). Заменяет Map&lt;Integer, V&gt;
+ * без упаковки ключей и без объекта на каждую запись. Значение null допустимо и отличается
+ * от отсутствия ключа (containsKey).
+ *
+ * @param <V> тип значений
+ */
+public final class IntObjectMap<V> {
+    private static final int EMPTY = -1;
+
+    private int[] keys;
+    private Object[] values;
+    private int size = 0;
+
+    public IntObjectMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    public IntObjectMap() {
+        this(8);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(int key) {
+        return key >= 0 && keys[slot(key)] == key;
+    }
+
+    /**
+     * @return значение или null, если ключа нет
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (key < 0)
+            return null;
+        int slot = slot(key);
+        return keys[slot] == key ? (V) values[slot] : null;
+    }
+
+    public void put(int key, V value) {
+        if (key < 0)
+            throw new IllegalArgumentException("Отрицательный ключ: " + key);
+        int slot = slot(key);
+        if (keys[slot] != key) {
+            if (2 * (size + 1) > keys.length) {
+                grow();
+                slot = slot(key);
+            }
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    /**
+     * Ключи в порядке возрастания
+     */
+    public int[] sortedKeys() {
+        int[] result = new int[size];
+        int k = 0;
+        for (int key : keys)
+            if (key != EMPTY)
+                result[k++] = key;
+        Arrays.sort(result);
+        return result;
+    }
+
+    // Ячейка ключа или первая пустая ячейка на его пути
+    private int slot(int key) {
+        int mask = keys.length - 1;
+        int hash = key * 0x9E3779B9;
+        int slot = (hash ^ hash >>> 16) & mask;
+        while (keys[slot] != key && keys[slot] != EMPTY)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new Object[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++)
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+    }
+}
@@ -0,0 +1,67 @@
+package deveone.logic.graph;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Очередь int в кольцевом буфере (ёмкость - степень двойки, растёт вдвое при заполнении).
+ * Заменяет Queue&lt;Integer&gt; в обходах графа без упаковки значений.
+ */
+public final class IntQueue {
+    private int[] buffer;
+    private int head = 0;
+    private int size = 0;
+
+    public IntQueue(int expectedSize) {
+        buffer = new int[Integer.highestOneBit(Math.max(4, expectedSize - 1)) << 1];
+    }
+
+    public IntQueue() {
+        this(16);
+    }
+
+    public void add(int value) {
+        if (size == buffer.length)
+            grow();
+        buffer[(head + size++) & (buffer.length - 1)] = value;
+    }
+
+    public int remove() {
+        if (size == 0)
+            throw new NoSuchElementException();
+        int value = buffer[head];
+        head = (head + 1) & (buffer.length - 1);
+        size--;
+        return value;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    private void grow() {
+        int[] larger = new int[buffer.length * 2];
+        int tail = buffer.length - head;
+        System.arraycopy(buffer, head, larger, 0, tail);
+        System.arraycopy(buffer, 0, larger, tail, head);
+        buffer = larger;
+        head = 0;
+    }
+
+    @Override
+    public String toString() {
+        int[] items = new int[size];
+        for (int i = 0; i < size; i++)
+            items[i] = buffer[(head + i) & (buffer.length - 1)];
+        return Arrays.toString(items);
+    }
+}
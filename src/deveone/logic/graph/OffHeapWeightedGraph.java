@@ -0,0 +1,502 @@
+package deveone.logic.graph;
+
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Неизменяемый взвешенный граф в формате CSR вне кучи: смежность и веса лежат в одном сегменте памяти
+ * (jdk.incubator.foreign), выделенном в native-памяти или отображённом из файла. Куча и сборщик мусора
+ * от размера графа не зависят, поэтому многогигабайтные цепи рассчитываются с небольшой кучей.
+ * <p>
+ * Раскладка сегмента (порядок байт платформы): заголовок - MAGIC (int), VERSION (int), кол-во вершин (long),
+ * кол-во записей (long), кол-во рёбер (long); затем offsets (long[вершины + 1]), targets (int[записи],
+ * дополнено до 8 байт), weights (double[записи]). Файл, записанный writeTo() или Builder.build(Path),
+ * открывается map() без чтения в память.
+ * <p>
+ * Память освобождается close(); после этого любое обращение к графу бросает IllegalStateException.
+ * Читать граф можно из нескольких потоков одновременно. Требует --add-modules jdk.incubator.foreign.
+ * <p>
+ * Сборка матрицы решателей (GroundedLaplacian.assemble) читает строки прямо из сегмента
+ * через rowStart/rowEnd/target/weight, без копирования графа в кучу.
+ */
+public final class OffHeapWeightedGraph implements WeightedGraph, AutoCloseable {
+    public static final int MAGIC = 0x44564F47; // "DVOG"
+    public static final int VERSION = 1;
+    private static final long HEADER_BYTES = 32;
+
+    private final ResourceScope scope;
+    private final MemorySegment segment;
+    private final MemorySegment offsets;
+    private final MemorySegment targets;
+    private final MemorySegment weights;
+    private final int vCount;
+    private final int eCount;
+    private final boolean mapped;
+
+    private OffHeapWeightedGraph(ResourceScope scope, MemorySegment segment, boolean mapped) {
+        this.scope = scope;
+        this.segment = segment;
+        this.mapped = mapped;
+        this.vCount = (int) MemoryAccess.getLongAtOffset(segment, 8);
+        long entries = MemoryAccess.getLongAtOffset(segment, 16);
+        this.eCount = (int) MemoryAccess.getLongAtOffset(segment, 24);
+
+        long offsetsBytes = (vCount + 1L) * Long.BYTES;
+        long targetsBytes = align(entries * Integer.BYTES);
+        this.offsets = segment.asSlice(HEADER_BYTES, offsetsBytes);
+        this.targets = segment.asSlice(HEADER_BYTES + offsetsBytes, entries * Integer.BYTES);
+        this.weights = segment.asSlice(HEADER_BYTES + offsetsBytes + targetsBytes, entries * Double.BYTES);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Копирует граф в native-память (параллельные рёбра сохраняются как отдельные записи)
+     */
+    public static OffHeapWeightedGraph copyOf(WeightedGraph graph) {
+        try (Builder builder = builder()) {
+            copyEdges(graph, builder);
+            return builder.build();
+        }
+    }
+
+    /**
+     * Отображает файл графа в память только для чтения
+     *
+     * @throws IOException если файл не является графом этого формата
+     */
+    public static OffHeapWeightedGraph map(Path file) throws IOException {
+        long size = Files.size(file);
+        if (size < HEADER_BYTES)
+            throw new IOException("Неизвестный формат файла");
+
+        ResourceScope scope = ResourceScope.newSharedScope();
+        try {
+            MemorySegment segment = MemorySegment.mapFile(file, 0, size, FileChannel.MapMode.READ_ONLY, scope);
+            if (MemoryAccess.getIntAtOffset(segment, 0) != MAGIC)
+                throw new IOException("Неизвестный формат файла (или другой порядок байт)");
+            int version = MemoryAccess.getIntAtOffset(segment, 4);
+            if (version != VERSION)
+                throw new IOException("Неподдерживаемая версия формата: " + version);
+            long vertices = MemoryAccess.getLongAtOffset(segment, 8);
+            long entries = MemoryAccess.getLongAtOffset(segment, 16);
+            if (vertices < 0 || vertices > Integer.MAX_VALUE - 1 || entries < 0
+                    || layoutBytes(vertices, entries) != size)
+                throw new IOException("Повреждённый заголовок графа");
+            return new OffHeapWeightedGraph(scope, segment, true);
+        } catch (IOException | RuntimeException e) {
+            scope.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Сохраняет граф в файл, который затем можно открыть map(). Запись идёт во временный файл рядом,
+     * который затем атомарно заменяет file: file может быть тем самым файлом, из которого отображён граф.
+     */
+    public void writeTo(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (ResourceScope fileScope = ResourceScope.newConfinedScope()) {
+                MemorySegment out = mapNew(temp, segment.byteSize(), fileScope);
+                out.copyFrom(segment);
+                out.force();
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Освобождает память (или снимает отображение файла). Повторный вызов ничего не делает.
+     */
+    @Override
+    public void close() {
+        if (scope.isAlive())
+            scope.close();
+    }
+
+    public boolean isAlive() {
+        return scope.isAlive();
+    }
+
+    /**
+     * true, если граф отображён из файла
+     */
+    public boolean isMapped() {
+        return mapped;
+    }
+
+    /**
+     * Размер сегмента графа в байтах
+     */
+    public long byteSize() {
+        return segment.byteSize();
+    }
+
+    @Override
+    public int vertexCount() {
+        checkAlive();
+        return vCount;
+    }
+
+    @Override
+    public int edgeCount() {
+        checkAlive();
+        return eCount;
+    }
+
+    /**
+     * Начало строки вершины v в массивах записей
+     */
+    public long rowStart(int v) {
+        return MemoryAccess.getLongAtIndex(offsets, v);
+    }
+
+    /**
+     * Конец (не включительно) строки вершины v в массивах записей
+     */
+    public long rowEnd(int v) {
+        return MemoryAccess.getLongAtIndex(offsets, v + 1L);
+    }
+
+    public int degree(int v) {
+        return (int) (rowEnd(v) - rowStart(v));
+    }
+
+    /**
+     * Вершина, в которую ведёт запись i
+     */
+    public int target(long i) {
+        return MemoryAccess.getIntAtIndex(targets, i);
+    }
+
+    /**
+     * Вес записи i
+     */
+    public double weight(long i) {
+        return MemoryAccess.getDoubleAtIndex(weights, i);
+    }
+
+    @Override
+    public Iterable<Integer> adjacency(int v) {
+        return () -> new Iterator<>() {
+            long i = rowStart(v);
+            final long end = rowEnd(v);
+
+            @Override
+            public boolean hasNext() {
+                return i < end;
+            }
+
+            @Override
+            public Integer next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return target(i++);
+            }
+        };
+    }
+
+    @Override
+    public Iterable<WeightedEdgeTo> adjacencyWithWeights(int v) {
+        return () -> new Iterator<>() {
+            long i = rowStart(v);
+            final long end = rowEnd(v);
+
+            @Override
+            public boolean hasNext() {
+                return i < end;
+            }
+
+            @Override
+            public WeightedEdgeTo next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                int to = target(i);
+                double w = weight(i++);
+                return new WeightedEdgeTo() {
+                    @Override
+                    public int to() {
+                        return to;
+                    }
+
+                    @Override
+                    public double weight() {
+                        return w;
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public boolean isAdj(int v1, int v2) {
+        if (!contains(v1) || !contains(v2))
+            return false;
+        for (long i = rowStart(v1), end = rowEnd(v1); i < end; i++)
+            if (target(i) == v2)
+                return true;
+        return false;
+    }
+
+    @Override
+    public Double getWeight(int v1, int v2) {
+        if (!contains(v1) || !contains(v2))
+            return null;
+        for (long i = rowStart(v1), end = rowEnd(v1); i < end; i++)
+            if (target(i) == v2)
+                return weight(i);
+        return null;
+    }
+
+    @Override
+    public boolean[][] getBooleanAdjMatrix() {
+        int n = vertexCount();
+        boolean[][] matrix = new boolean[n][n];
+        for (int v = 0; v < n; v++)
+            for (long i = rowStart(v), end = rowEnd(v); i < end; i++)
+                matrix[v][target(i)] = true;
+        return matrix;
+    }
+
+    @Override
+    public void addEdge(int v1, int v2) {
+        throw new UnsupportedOperationException("OffHeapWeightedGraph неизменяем");
+    }
+
+    @Override
+    public void addEdge(int v1, int v2, double weight) {
+        throw new UnsupportedOperationException("OffHeapWeightedGraph неизменяем");
+    }
+
+    @Override
+    public void removeEdge(int v1, int v2) {
+        throw new UnsupportedOperationException("OffHeapWeightedGraph неизменяем");
+    }
+
+    private boolean contains(int v) {
+        return v >= 0 && v < vertexCount();
+    }
+
+    private void checkAlive() {
+        if (!scope.isAlive())
+            throw new IllegalStateException("Граф закрыт");
+    }
+
+    private static void copyEdges(WeightedGraph graph, EdgeSink sink) {
+        sink.expectVertices(graph.vertexCount());
+        for (int v = 0; v < graph.vertexCount(); v++)
+            for (WeightedEdgeTo edge : graph.adjacencyWithWeights(v))
+                if (edge.to() >= v)
+                    sink.edge(v, edge.to(), edge.weight());
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private static long layoutBytes(long vertices, long entries) {
+        return HEADER_BYTES + (vertices + 1) * Long.BYTES + align(entries * Integer.BYTES) + entries * Double.BYTES;
+    }
+
+    /**
+     * Создаёт (или перезаписывает) файл нужного размера и отображает его для записи
+     */
+    private static MemorySegment mapNew(Path file, long bytes, ResourceScope scope) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(0);
+            raf.setLength(bytes);
+        }
+        return MemorySegment.mapFile(file, 0, bytes, FileChannel.MapMode.READ_WRITE, scope);
+    }
+
+    /**
+     * Накопитель рёбер вне кучи (по 16 байт на ребро). Раскладка CSR строится в build() сортировкой подсчётом
+     * прямо в сегменте графа, без промежуточных массивов в куче. Используется из одного потока;
+     * после build() буфер освобождается и строитель больше не принимает рёбер.
+     */
+    public static final class Builder implements EdgeSink, AutoCloseable {
+        private static final long RECORD_BYTES = 16;
+
+        private ResourceScope bufferScope = ResourceScope.newConfinedScope();
+        private MemorySegment buffer = MemorySegment.allocateNative(1024 * RECORD_BYTES, 8, bufferScope);
+        private long size = 0;
+        private int vCount = 0;
+
+        private Builder() {
+        }
+
+        @Override
+        public void expectVertices(int vertexCount) {
+            vCount = Math.max(vCount, vertexCount);
+        }
+
+        @Override
+        public void edge(int v1, int v2, double weight) {
+            if (v1 < 0 || v2 < 0)
+                throw new IllegalArgumentException("Отрицательный номер вершины");
+            if (v1 == Integer.MAX_VALUE || v2 == Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Слишком большой номер вершины");
+            checkOpen();
+            if ((size + 1) * RECORD_BYTES > buffer.byteSize())
+                grow();
+            long at = size * RECORD_BYTES;
+            MemoryAccess.setIntAtOffset(buffer, at, v1);
+            MemoryAccess.setIntAtOffset(buffer, at + 4, v2);
+            MemoryAccess.setDoubleAtOffset(buffer, at + 8, weight);
+            size++;
+            vCount = Math.max(vCount, Math.max(v1, v2) + 1);
+        }
+
+        public long size() {
+            return size;
+        }
+
+        /**
+         * Строит граф в native-памяти
+         */
+        public OffHeapWeightedGraph build() {
+            checkOpen();
+            ResourceScope scope = ResourceScope.newSharedScope();
+            try {
+                long entries = entryCount();
+                MemorySegment segment = MemorySegment.allocateNative(layoutBytes(vCount, entries), 8, scope);
+                fill(segment, entries);
+                return new OffHeapWeightedGraph(scope, segment, false);
+            } catch (RuntimeException e) {
+                scope.close();
+                throw e;
+            } finally {
+                close();
+            }
+        }
+
+        /**
+         * Строит граф сразу в файле и возвращает его отображение (файл можно открыть позже через map())
+         */
+        public OffHeapWeightedGraph build(Path file) throws IOException {
+            checkOpen();
+            ResourceScope scope = ResourceScope.newSharedScope();
+            try {
+                long entries = entryCount();
+                MemorySegment segment = mapNew(file, layoutBytes(vCount, entries), scope);
+                fill(segment, entries);
+                segment.force();
+                return new OffHeapWeightedGraph(scope, segment, true);
+            } catch (IOException | RuntimeException e) {
+                scope.close();
+                throw e;
+            } finally {
+                close();
+            }
+        }
+
+        /**
+         * Освобождает буфер рёбер
+         */
+        @Override
+        public void close() {
+            if (bufferScope != null) {
+                bufferScope.close();
+                bufferScope = null;
+                buffer = null;
+            }
+        }
+
+        private long entryCount() {
+            if (size > Integer.MAX_VALUE)
+                throw new IllegalStateException("Слишком много рёбер: " + size);
+            long entries = 0;
+            for (long at = 0; at < size * RECORD_BYTES; at += RECORD_BYTES)
+                entries += MemoryAccess.getIntAtOffset(buffer, at) == MemoryAccess.getIntAtOffset(buffer, at + 4) ? 1 : 2;
+            return entries;
+        }
+
+        /**
+         * Записывает раскладку графа в обнулённый сегмент
+         */
+        private void fill(MemorySegment segment, long entries) {
+            long offsetsBytes = (vCount + 1L) * Long.BYTES;
+            MemorySegment offsets = segment.asSlice(HEADER_BYTES, offsetsBytes);
+            MemorySegment targets = segment.asSlice(HEADER_BYTES + offsetsBytes, entries * Integer.BYTES);
+            MemorySegment weights = segment.asSlice(HEADER_BYTES + offsetsBytes + align(entries * Integer.BYTES),
+                    entries * Double.BYTES);
+
+            MemoryAccess.setIntAtOffset(segment, 0, MAGIC);
+            MemoryAccess.setIntAtOffset(segment, 4, VERSION);
+            MemoryAccess.setLongAtOffset(segment, 8, vCount);
+            MemoryAccess.setLongAtOffset(segment, 16, entries);
+            MemoryAccess.setLongAtOffset(segment, 24, size);
+
+            // offsets[v + 1] - степень v, затем префиксные суммы: offsets[v] - начало строки v
+            for (long at = 0; at < size * RECORD_BYTES; at += RECORD_BYTES) {
+                int v1 = MemoryAccess.getIntAtOffset(buffer, at);
+                int v2 = MemoryAccess.getIntAtOffset(buffer, at + 4);
+                increment(offsets, v1 + 1L);
+                if (v1 != v2)
+                    increment(offsets, v2 + 1L);
+            }
+            for (long v = 0; v < vCount; v++)
+                MemoryAccess.setLongAtIndex(offsets, v + 1,
+                        MemoryAccess.getLongAtIndex(offsets, v + 1) + MemoryAccess.getLongAtIndex(offsets, v));
+
+            // offsets[v] служит курсором строки v и в конце указывает на начало строки v + 1
+            for (long at = 0; at < size * RECORD_BYTES; at += RECORD_BYTES) {
+                int v1 = MemoryAccess.getIntAtOffset(buffer, at);
+                int v2 = MemoryAccess.getIntAtOffset(buffer, at + 4);
+                double w = MemoryAccess.getDoubleAtOffset(buffer, at + 8);
+                place(offsets, targets, weights, v1, v2, w);
+                if (v1 != v2)
+                    place(offsets, targets, weights, v2, v1, w);
+            }
+            for (long v = vCount; v > 0; v--)
+                MemoryAccess.setLongAtIndex(offsets, v, MemoryAccess.getLongAtIndex(offsets, v - 1));
+            MemoryAccess.setLongAtIndex(offsets, 0, 0);
+        }
+
+        private static void increment(MemorySegment offsets, long index) {
+            MemoryAccess.setLongAtIndex(offsets, index, MemoryAccess.getLongAtIndex(offsets, index) + 1);
+        }
+
+        private static void place(MemorySegment offsets, MemorySegment targets, MemorySegment weights, int from, int to, double w) {
+            long p = MemoryAccess.getLongAtIndex(offsets, from);
+            MemoryAccess.setLongAtIndex(offsets, from, p + 1);
+            MemoryAccess.setIntAtIndex(targets, p, to);
+            MemoryAccess.setDoubleAtIndex(weights, p, w);
+        }
+
+        private void grow() {
+            ResourceScope grownScope = ResourceScope.newConfinedScope();
+            MemorySegment grown = MemorySegment.allocateNative(buffer.byteSize() * 2, 8, grownScope);
+            grown.copyFrom(buffer);
+            bufferScope.close();
+            bufferScope = grownScope;
+            buffer = grown;
+        }
+
+        private void checkOpen() {
+            if (buffer == null)
+                throw new IllegalStateException("Граф уже построен");
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package deveone.logic.graph;
+
+import java.util.Arrays;
+
+/**
+ * Неизменяемый вектор - 32-ичное префиксное дерево. Изменение элемента копирует только путь от корня
+ * до листа (log32 n узлов по 32 ссылки), остальные узлы общие со старой версией.
+ *
+ * @param <T> тип элементов; отсутствующий элемент - null
+ */
+public final class PersistentVector<T> {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final PersistentVector<?> EMPTY = new PersistentVector<>(new Object[WIDTH], 0, 0);
+
+    private final Object[] root;
+    private final int shift;  // Сдвиг индекса для корня: 0 - корень является листом
+    private final int size;
+
+    private PersistentVector(Object[] root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentVector<T> empty() {
+        return (PersistentVector<T>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int i) {
+        if (i < 0 || i >= size)
+            return null;
+        Object[] node = root;
+        for (int level = shift; level > 0 && node != null; level -= BITS)
+            node = (Object[]) node[(i >>> level) & MASK];
+        // Поддерево промежутка (set() за концом) не создаётся
+        return node != null ? (T) node[i & MASK] : null;
+    }
+
+    /**
+     * Новая версия с элементом value на месте i. Индекс size добавляет элемент в конец;
+     * индекс больше size заполняет промежуток значениями null.
+     */
+    public PersistentVector<T> set(int i, T value) {
+        if (i < 0)
+            throw new IndexOutOfBoundsException(i);
+
+        Object[] newRoot = root;
+        int newShift = shift;
+        // Добавляем уровни, пока индекс не поместится в дерево
+        while ((i >>> newShift) >= WIDTH) {
+            Object[] top = new Object[WIDTH];
+            top[0] = newRoot;
+            newRoot = top;
+            newShift += BITS;
+        }
+        return new PersistentVector<>(setIn(newRoot, newShift, i, value), newShift, Math.max(size, i + 1));
+    }
+
+    private static Object[] setIn(Object[] node, int level, int i, Object value) {
+        Object[] copy = node != null ? node.clone() : new Object[WIDTH];
+        int slot = (i >>> level) & MASK;
+        if (level == 0)
+            copy[slot] = value;
+        else
+            copy[slot] = setIn((Object[]) copy[slot], level - BITS, i, value);
+        return copy;
+    }
+
+    /**
+     * Новая версия с элементами changes (индекс - значение) за один проход: каждый затронутый узел дерева
+     * копируется один раз, а не по разу на каждый элемент, как при цепочке set()
+     */
+    public PersistentVector<T> setAll(IntObjectMap<? extends T> changes) {
+        if (changes.isEmpty())
+            return this;
+
+        int[] indices = changes.sortedKeys();
+        Object[] values = new Object[indices.length];
+        for (int k = 0; k < indices.length; k++)
+            values[k] = changes.get(indices[k]);
+
+        int last = indices[indices.length - 1];
+        Object[] newRoot = root;
+        int newShift = shift;
+        while ((last >>> newShift) >= WIDTH) {
+            newRoot = wrap(newRoot);
+            newShift += BITS;
+        }
+        return new PersistentVector<>(setAllIn(newRoot, newShift, indices, values, 0, indices.length), newShift,
+                Math.max(size, last + 1));
+    }
+
+    // Индексы from..to-1 (по возрастанию) лежат в поддереве node
+    private static Object[] setAllIn(Object[] node, int level, int[] indices, Object[] values, int from, int to) {
+        Object[] copy = node != null ? node.clone() : new Object[WIDTH];
+        if (level == 0) {
+            for (int k = from; k < to; k++)
+                copy[indices[k] & MASK] = values[k];
+            return copy;
+        }
+        int k = from;
+        while (k < to) {
+            int slot = (indices[k] >>> level) & MASK;
+            int end = k + 1;
+            while (end < to && ((indices[end] >>> level) & MASK) == slot)
+                end++;
+            copy[slot] = setAllIn((Object[]) copy[slot], level - BITS, indices, values, k, end);
+            k = end;
+        }
+        return copy;
+    }
+
+    /**
+     * Изменение элемента между двумя версиями вектора
+     */
+    @FunctionalInterface
+    public interface Change<T> {
+        /**
+         * @param before элемент в старой версии (null - отсутствовал)
+         * @param after  элемент в новой версии (null - отсутствует)
+         */
+        void changed(int i, T before, T after);
+    }
+
+    /**
+     * Перечисляет элементы, отличающиеся (по ссылке) в этой версии от версии before, по возрастанию индекса.
+     * Общие с before поддеревья пропускаются целиком, поэтому для версий, полученных друг из друга
+     * k изменениями, время O(k log32 n), а не O(n).
+     */
+    public void diff(PersistentVector<T> before, Change<T> change) {
+        Object[] oldRoot = before.root;
+        Object[] newRoot = root;
+        int level = Math.max(shift, before.shift);
+        // Меньшее дерево - левый край большего: set() добавляет уровни, ставя старый корень в позицию 0
+        for (int s = before.shift; s < level; s += BITS)
+            oldRoot = wrap(oldRoot);
+        for (int s = shift; s < level; s += BITS)
+            newRoot = wrap(newRoot);
+        diff(oldRoot, newRoot, level, 0, change);
+    }
+
+    private static Object[] wrap(Object[] node) {
+        Object[] top = new Object[WIDTH];
+        top[0] = node;
+        return top;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void diff(Object[] before, Object[] after, int level, int base, Change<T> change) {
+        if (before == after)
+            return;
+        for (int slot = 0; slot < WIDTH; slot++) {
+            Object a = before != null ? before[slot] : null;
+            Object b = after != null ? after[slot] : null;
+            if (a == b)
+                continue;
+            int i = base + (slot << level);
+            if (level == 0)
+                change.changed(i, (T) a, (T) b);
+            else
+                diff((Object[]) a, (Object[]) b, level - BITS, i, change);
+        }
+    }
+
+    @Override
+    public String toString() {
+        Object[] items = new Object[size];
+        for (int i = 0; i < size; i++)
+            items[i] = get(i);
+        return Arrays.toString(items);
+    }
+}
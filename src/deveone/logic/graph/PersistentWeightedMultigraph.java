@@ -0,0 +1,633 @@
+package deveone.logic.graph;
+
+import java.util.*;
+
+/**
+ * Неизменяемый взвешенный мультиграф со структурным разделением между версиями.
+ * Вершины и рёбра хранятся в PersistentVector, поэтому каждое изменение (withVertex, withEdge, ...)
+ * возвращает новую версию, копируя только изменённые пути дерева и смежность затронутых вершин,
+ * а старая версия остаётся целой. Версию можно читать из любого потока без блокировок.
+ * <p>
+ * Номера рёбер постоянны, номера удалённых вершин и рёбер переиспользуются,
+ * а методы WeightedGraph видят параллельные рёбра свёрнутыми в одно. Изменяющие методы интерфейсов
+ * не поддерживаются.
+ */
+public final class PersistentWeightedMultigraph implements WeightedMultigraph {
+    private static final PersistentWeightedMultigraph EMPTY = new PersistentWeightedMultigraph(
+            PersistentVector.empty(), PersistentVector.empty(), null, null, 0, 0, 0, 0);
+
+    private final PersistentVector<Node> vertices;  // null - вершина не существует
+    private final PersistentVector<Edge> edges;     // null - ребро удалено
+    private final IdStack freeVertices;
+    private final IdStack freeEdges;
+    private final int vertexBound;
+    private final int edgeBound;
+    private final int liveVertices;
+    private final int eCount;
+
+    private PersistentWeightedMultigraph(PersistentVector<Node> vertices, PersistentVector<Edge> edges,
+                                         IdStack freeVertices, IdStack freeEdges,
+                                         int vertexBound, int edgeBound, int liveVertices, int eCount) {
+        this.vertices = vertices;
+        this.edges = edges;
+        this.freeVertices = freeVertices;
+        this.freeEdges = freeEdges;
+        this.vertexBound = vertexBound;
+        this.edgeBound = edgeBound;
+        this.liveVertices = liveVertices;
+        this.eCount = eCount;
+    }
+
+    public static PersistentWeightedMultigraph empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Номер, который получит вершина, добавленная withVertex()
+     */
+    public int nextVertexId() {
+        return freeVertices != null ? freeVertices.id : vertexBound;
+    }
+
+    /**
+     * Номер, который получит ребро, добавленное withEdge()
+     */
+    public int nextEdgeId() {
+        return freeEdges != null ? freeEdges.id : edgeBound;
+    }
+
+    /**
+     * Версия с новой вершиной номер nextVertexId()
+     */
+    public PersistentWeightedMultigraph withVertex() {
+        return withVertex(nextVertexId());
+    }
+
+    /**
+     * Версия с новой вершиной заданного свободного номера (восстановление сохранённого графа с прежними номерами).
+     * Пропущенные номера меньше id становятся свободными.
+     */
+    public PersistentWeightedMultigraph withVertex(int id) {
+        if (id < 0 || containsVertex(id))
+            throw new IllegalArgumentException("Номер вершины занят: " + id);
+        return new PersistentWeightedMultigraph(vertices.set(id, Node.EMPTY), edges,
+                IdStack.take(freeVertices, id, vertexBound), freeEdges,
+                Math.max(vertexBound, id + 1), edgeBound, liveVertices + 1, eCount);
+    }
+
+    /**
+     * Версия без вершины v и инцидентных ей рёбер
+     */
+    public PersistentWeightedMultigraph withoutVertex(int v) {
+        if (!containsVertex(v))
+            return this;
+
+        PersistentWeightedMultigraph result = this;
+        for (int id : vertices.get(v).edgeIds)
+            result = result.withoutEdge(id);
+        return new PersistentWeightedMultigraph(result.vertices.set(v, null), result.edges,
+                new IdStack(v, result.freeVertices), result.freeEdges,
+                vertexBound, result.edgeBound, liveVertices - 1, result.eCount);
+    }
+
+    /**
+     * Версия с ещё одним (возможно, параллельным) ребром номер nextEdgeId()
+     */
+    public PersistentWeightedMultigraph withEdge(int v1, int v2, double weight) {
+        return withEdge(nextEdgeId(), v1, v2, weight);
+    }
+
+    /**
+     * Версия с ребром заданного свободного номера (восстановление сохранённого графа с прежними номерами)
+     */
+    public PersistentWeightedMultigraph withEdge(int id, int v1, int v2, double weight) {
+        if (!containsVertex(v1) || !containsVertex(v2))
+            throw new IllegalArgumentException("Нет вершины " + (containsVertex(v1) ? v2 : v1));
+        if (id < 0 || containsEdge(id))
+            throw new IllegalArgumentException("Номер ребра занят: " + id);
+
+        IdStack free = IdStack.take(freeEdges, id, edgeBound);
+        PersistentVector<Edge> newEdges = edges.set(id, new Edge(v1, v2, weight));
+
+        PersistentVector<Node> newVertices = vertices;
+        newVertices = newVertices.set(v1, Node.of(v1, append(vertices.get(v1).edgeIds, id), newEdges));
+        if (v1 != v2)
+            newVertices = newVertices.set(v2, Node.of(v2, append(vertices.get(v2).edgeIds, id), newEdges));
+
+        return new PersistentWeightedMultigraph(newVertices, newEdges, freeVertices, free,
+                vertexBound, Math.max(edgeBound, id + 1), liveVertices, eCount + 1);
+    }
+
+    /**
+     * Версия без ребра с номером id
+     */
+    public PersistentWeightedMultigraph withoutEdge(int id) {
+        if (!containsEdge(id))
+            return this;
+
+        Edge edge = edges.get(id);
+        PersistentVector<Edge> newEdges = edges.set(id, null);
+        PersistentVector<Node> newVertices = vertices;
+        newVertices = newVertices.set(edge.source, Node.of(edge.source, without(vertices.get(edge.source).edgeIds, id), newEdges));
+        if (edge.source != edge.target)
+            newVertices = newVertices.set(edge.target, Node.of(edge.target, without(vertices.get(edge.target).edgeIds, id), newEdges));
+
+        return new PersistentWeightedMultigraph(newVertices, newEdges, freeVertices, new IdStack(id, freeEdges),
+                vertexBound, edgeBound, liveVertices, eCount - 1);
+    }
+
+    private static int[] append(int[] array, int value) {
+        int[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = value;
+        return result;
+    }
+
+    private static int[] without(int[] array, int value) {
+        int[] result = new int[array.length - 1];
+        int k = 0;
+        for (int item : array)
+            if (item != value)
+                result[k++] = item;
+        return result;
+    }
+
+    public boolean containsVertex(int v) {
+        return vertices.get(v) != null;
+    }
+
+    /**
+     * Кол-во существующих вершин (vertexCount() - граница номеров)
+     */
+    public int liveVertexCount() {
+        return liveVertices;
+    }
+
+    @Override
+    public int vertexCount() {
+        return vertexBound;
+    }
+
+    /**
+     * Кол-во рёбер с учётом параллельных
+     */
+    @Override
+    public int edgeCount() {
+        return eCount;
+    }
+
+    /**
+     * Номера рёбер, инцидентных вершине
+     */
+    public int[] incidentEdges(int v) {
+        Node node = vertices.get(v);
+        return node != null ? node.edgeIds.clone() : new int[0];
+    }
+
+    @Override
+    public int insertEdge(int v1, int v2, double weight) {
+        throw new UnsupportedOperationException("PersistentWeightedMultigraph неизменяем, используйте withEdge");
+    }
+
+    @Override
+    public boolean removeEdgeById(int edgeId) {
+        throw new UnsupportedOperationException("PersistentWeightedMultigraph неизменяем, используйте withoutEdge");
+    }
+
+    @Override
+    public void addEdge(int v1, int v2, double weight) {
+        throw new UnsupportedOperationException("PersistentWeightedMultigraph неизменяем, используйте withEdge");
+    }
+
+    @Override
+    public void addEdge(int v1, int v2) {
+        throw new UnsupportedOperationException("PersistentWeightedMultigraph неизменяем, используйте withEdge");
+    }
+
+    @Override
+    public void removeEdge(int v1, int v2) {
+        throw new UnsupportedOperationException("PersistentWeightedMultigraph неизменяем, используйте withoutEdge");
+    }
+
+    @Override
+    public boolean containsEdge(int edgeId) {
+        return edges.get(edgeId) != null;
+    }
+
+    @Override
+    public int edgeIdBound() {
+        return edgeBound;
+    }
+
+    @Override
+    public int edgeSource(int edgeId) {
+        return edges.get(edgeId).source;
+    }
+
+    @Override
+    public int edgeTarget(int edgeId) {
+        return edges.get(edgeId).target;
+    }
+
+    @Override
+    public double edgeWeight(int edgeId) {
+        return edges.get(edgeId).weight;
+    }
+
+    @Override
+    public int parallelCount(int v1, int v2) {
+        Node node = vertices.get(v1);
+        if (node == null)
+            return 0;
+        int count = 0;
+        for (int id : node.edgeIds) {
+            Edge edge = edges.get(id);
+            if (edge.other(v1) == v2)
+                count++;
+        }
+        return count;
+    }
+
+    @Override
+    public boolean isAdj(int v1, int v2) {
+        Node node = vertices.get(v1);
+        return node != null && node.indexOf(v2) >= 0;
+    }
+
+    @Override
+    public Double getWeight(int v1, int v2) {
+        Node node = vertices.get(v1);
+        if (node == null)
+            return null;
+        int i = node.indexOf(v2);
+        return i >= 0 ? node.weights[i] : null;
+    }
+
+    @Override
+    public Iterable<Integer> adjacency(int v) {
+        Node node = vertices.get(v);
+        int[] neighbors = node != null ? node.neighbors : Node.EMPTY.neighbors;
+        return () -> new Iterator<>() {
+            int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < neighbors.length;
+            }
+
+            @Override
+            public Integer next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return neighbors[i++];
+            }
+        };
+    }
+
+    @Override
+    public Iterable<WeightedEdgeTo> adjacencyWithWeights(int v) {
+        Node node = vertices.get(v) != null ? vertices.get(v) : Node.EMPTY;
+        return () -> new Iterator<>() {
+            int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < node.neighbors.length;
+            }
+
+            @Override
+            public WeightedEdgeTo next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                int to = node.neighbors[i];
+                double weight = node.weights[i++];
+                return new WeightedEdgeTo() {
+                    @Override
+                    public int to() {
+                        return to;
+                    }
+
+                    @Override
+                    public double weight() {
+                        return weight;
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public boolean[][] getBooleanAdjMatrix() {
+        boolean[][] matrix = new boolean[vertexBound][vertexBound];
+        for (int v = 0; v < vertexBound; v++) {
+            Node node = vertices.get(v);
+            if (node != null)
+                for (int u : node.neighbors)
+                    matrix[v][u] = true;
+        }
+        return matrix;
+    }
+
+    /**
+     * Пакет изменений этой версии
+     */
+    public Batch batch() {
+        return new Batch();
+    }
+
+    /**
+     * Пакет изменений: много добавлений и удалений применяются в commit() за один проход.
+     * Пока пакет открыт, смежность затронутых вершин хранится изменяемыми списками, а итоговая смежность
+     * (сортировка по соседям) строится один раз на вершину, и векторы вершин и рёбер копируют каждый узел
+     * дерева один раз (PersistentVector.setAll). Номера вершин и рёбер выдаются так же, как при
+     * последовательных withVertex, withEdge, ..., поэтому результат совпадает с цепочкой этих вызовов.
+     * Исходная версия не меняется.
+     */
+    public final class Batch {
+        private final IntObjectMap<IdList> touched = new IntObjectMap<>();   // Рёбра затронутых вершин, null - вершина удалена
+        private final IntObjectMap<Edge> edgeChanges = new IntObjectMap<>(); // null - ребро удалено
+        private IdStack freeVertices = PersistentWeightedMultigraph.this.freeVertices;
+        private IdStack freeEdges = PersistentWeightedMultigraph.this.freeEdges;
+        private int vertexBound = PersistentWeightedMultigraph.this.vertexBound;
+        private int edgeBound = PersistentWeightedMultigraph.this.edgeBound;
+        private int liveVertices = PersistentWeightedMultigraph.this.liveVertices;
+        private int eCount = PersistentWeightedMultigraph.this.eCount;
+
+        private Batch() {
+        }
+
+        public boolean containsVertex(int v) {
+            if (touched.containsKey(v))
+                return touched.get(v) != null;
+            return PersistentWeightedMultigraph.this.containsVertex(v);
+        }
+
+        public boolean containsEdge(int id) {
+            return edge(id) != null;
+        }
+
+        public int nextVertexId() {
+            return freeVertices != null ? freeVertices.id : vertexBound;
+        }
+
+        public int nextEdgeId() {
+            return freeEdges != null ? freeEdges.id : edgeBound;
+        }
+
+        /**
+         * Номера рёбер, инцидентных вершине, с учётом изменений пакета
+         */
+        public int[] incidentEdges(int v) {
+            if (!containsVertex(v))
+                return new int[0];
+            IdList list = touched.get(v);
+            return list != null ? Arrays.copyOf(list.ids, list.size) : vertices.get(v).edgeIds.clone();
+        }
+
+        public int edgeSource(int id) {
+            return edge(id).source;
+        }
+
+        public int edgeTarget(int id) {
+            return edge(id).target;
+        }
+
+        /**
+         * @return номер новой вершины (nextVertexId())
+         */
+        public int addVertex() {
+            return addVertex(nextVertexId());
+        }
+
+        /**
+         * Вершина с заданным свободным номером, как withVertex(id)
+         */
+        public int addVertex(int id) {
+            if (id < 0 || containsVertex(id))
+                throw new IllegalArgumentException("Номер вершины занят: " + id);
+            freeVertices = IdStack.take(freeVertices, id, vertexBound);
+            vertexBound = Math.max(vertexBound, id + 1);
+            touched.put(id, new IdList(new int[0]));
+            liveVertices++;
+            return id;
+        }
+
+        /**
+         * Удаляет вершину вместе с инцидентными рёбрами, как withoutVertex(v)
+         */
+        public void removeVertex(int v) {
+            if (!containsVertex(v))
+                return;
+            for (int id : incidentEdges(v))
+                removeEdge(id);
+            touched.put(v, null);
+            freeVertices = new IdStack(v, freeVertices);
+            liveVertices--;
+        }
+
+        /**
+         * @return номер нового ребра (nextEdgeId())
+         */
+        public int addEdge(int v1, int v2, double weight) {
+            return addEdge(nextEdgeId(), v1, v2, weight);
+        }
+
+        /**
+         * Ребро с заданным свободным номером, как withEdge(id, v1, v2, weight)
+         */
+        public int addEdge(int id, int v1, int v2, double weight) {
+            if (!containsVertex(v1) || !containsVertex(v2))
+                throw new IllegalArgumentException("Нет вершины " + (containsVertex(v1) ? v2 : v1));
+            if (id < 0 || containsEdge(id))
+                throw new IllegalArgumentException("Номер ребра занят: " + id);
+            freeEdges = IdStack.take(freeEdges, id, edgeBound);
+            edgeBound = Math.max(edgeBound, id + 1);
+            edgeChanges.put(id, new Edge(v1, v2, weight));
+            edges(v1).add(id);
+            if (v1 != v2)
+                edges(v2).add(id);
+            eCount++;
+            return id;
+        }
+
+        /**
+         * Удаляет ребро, как withoutEdge(id)
+         */
+        public void removeEdge(int id) {
+            Edge edge = edge(id);
+            if (edge == null)
+                return;
+            edges(edge.source).remove(id);
+            if (edge.source != edge.target)
+                edges(edge.target).remove(id);
+            edgeChanges.put(id, null);
+            freeEdges = new IdStack(id, freeEdges);
+            eCount--;
+        }
+
+        /**
+         * Версия со всеми изменениями пакета (исходная, если изменений нет)
+         */
+        public PersistentWeightedMultigraph commit() {
+            if (touched.isEmpty() && edgeChanges.isEmpty())
+                return PersistentWeightedMultigraph.this;
+
+            PersistentVector<Edge> newEdges = edges.setAll(edgeChanges);
+            IntObjectMap<Node> nodes = new IntObjectMap<>(touched.size());
+            for (int v : touched.sortedKeys()) {
+                IdList list = touched.get(v);
+                nodes.put(v, list == null ? null : Node.of(v, Arrays.copyOf(list.ids, list.size), newEdges));
+            }
+            return new PersistentWeightedMultigraph(vertices.setAll(nodes), newEdges, freeVertices, freeEdges,
+                    vertexBound, edgeBound, liveVertices, eCount);
+        }
+
+        private Edge edge(int id) {
+            if (edgeChanges.containsKey(id))
+                return edgeChanges.get(id);
+            return edges.get(id);
+        }
+
+        // Изменяемый список рёбер вершины (копия при первом изменении)
+        private IdList edges(int v) {
+            IdList list = touched.get(v);
+            if (list == null) {
+                list = new IdList(vertices.get(v).edgeIds);
+                touched.put(v, list);
+            }
+            return list;
+        }
+    }
+
+    /**
+     * Список номеров рёбер вершины в пакете; порядок как у append/without
+     */
+    private static final class IdList {
+        int[] ids;
+        int size;
+
+        IdList(int[] ids) {
+            this.ids = ids.clone();
+            this.size = ids.length;
+        }
+
+        void add(int id) {
+            if (size == ids.length)
+                ids = Arrays.copyOf(ids, Math.max(4, size * 2));
+            ids[size++] = id;
+        }
+
+        void remove(int id) {
+            for (int i = 0; i < size; i++)
+                if (ids[i] == id) {
+                    System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+                    size--;
+                    return;
+                }
+        }
+    }
+
+    private static final class Edge {
+        final int source;
+        final int target;
+        final double weight;
+
+        Edge(int source, int target, double weight) {
+            this.source = source;
+            this.target = target;
+            this.weight = weight;
+        }
+
+        int other(int v) {
+            return v == source ? target : source;
+        }
+    }
+
+    /**
+     * Смежность вершины: инцидентные рёбра и соседи (по возрастанию) с сопротивлением параллельной группы
+     */
+    private static final class Node {
+        static final Node EMPTY = new Node(new int[0], new int[0], new double[0]);
+
+        final int[] edgeIds;
+        final int[] neighbors;
+        final double[] weights;
+
+        private Node(int[] edgeIds, int[] neighbors, double[] weights) {
+            this.edgeIds = edgeIds;
+            this.neighbors = neighbors;
+            this.weights = weights;
+        }
+
+        static Node of(int v, int[] edgeIds, PersistentVector<Edge> edges) {
+            if (edgeIds.length == 0)
+                return EMPTY;
+
+            // Сортируем рёбра по соседу: старшие биты - сосед, младшие - позиция в edgeIds
+            long[] order = new long[edgeIds.length];
+            for (int i = 0; i < edgeIds.length; i++)
+                order[i] = (long) edges.get(edgeIds[i]).other(v) << 32 | i;
+            Arrays.sort(order);
+
+            int[] neighbors = new int[edgeIds.length];
+            double[] weights = new double[edgeIds.length];
+            int size = 0;
+            for (long key : order) {
+                int u = (int) (key >>> 32);
+                double w = edges.get(edgeIds[(int) key]).weight;
+                if (size > 0 && neighbors[size - 1] == u) {
+                    weights[size - 1] = WeightedMultigraph.parallel(weights[size - 1], w);
+                } else {
+                    neighbors[size] = u;
+                    weights[size++] = w;
+                }
+            }
+            return new Node(edgeIds, Arrays.copyOf(neighbors, size), Arrays.copyOf(weights, size));
+        }
+
+        int indexOf(int u) {
+            return Arrays.binarySearch(neighbors, u);
+        }
+    }
+
+    /**
+     * Неизменяемый стек свободных номеров
+     */
+    private static final class IdStack {
+        final int id;
+        final IdStack next;
+
+        IdStack(int id, IdStack next) {
+            this.id = id;
+            this.next = next;
+        }
+
+        /**
+         * Стек без номера id: номер берётся из стека, а если он не меньше bound - номера от bound до id - 1
+         * становятся свободными
+         */
+        static IdStack take(IdStack stack, int id, int bound) {
+            if (id >= bound) {
+                for (int skipped = id - 1; skipped >= bound; skipped--)
+                    stack = new IdStack(skipped, stack);
+                return stack;
+            }
+            // Номера выше id копируются, хвост после id остаётся общим
+            int depth = 0;
+            IdStack found = stack;
+            while (found != null && found.id != id) {
+                found = found.next;
+                depth++;
+            }
+            if (found == null)
+                throw new IllegalStateException("Номер " + id + " не свободен");
+            int[] above = new int[depth];
+            IdStack link = stack;
+            for (int i = 0; i < depth; i++, link = link.next)
+                above[i] = link.id;
+            IdStack result = found.next;
+            for (int i = depth - 1; i >= 0; i--)
+                result = new IdStack(above[i], result);
+            return result;
+        }
+    }
+}
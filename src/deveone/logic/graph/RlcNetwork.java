@@ -0,0 +1,201 @@
+package deveone.logic.graph;
+
+import java.util.Arrays;
+
+/**
+ * Неизменяемая RLC-цепь: элементы (резисторы, конденсаторы, катушки) со своими номиналами,
+ * параллельные элементы хранятся отдельно.
+ * <p>
+ * Как WeightedGraph цепь представлена на постоянном токе: вес ребра - сопротивление резистора,
+ * катушка - закоротка (вес 0), конденсатор - разрыв (ребра нет). Поэтому сопротивление по постоянному
+ * току считается любым из существующих способов, а элементы с типами читаются через element*().
+ * Строится через {@link Builder}.
+ */
+public final class RlcNetwork implements WeightedGraph {
+    public enum Kind {
+        /**
+         * Номинал - сопротивление, Ом
+         */
+        RESISTOR,
+        /**
+         * Номинал - ёмкость, Ф
+         */
+        CAPACITOR,
+        /**
+         * Номинал - индуктивность, Гн
+         */
+        INDUCTOR
+    }
+
+    private final int[] source;
+    private final int[] target;
+    private final Kind[] kind;
+    private final double[] value;
+    private final CsrWeightedGraph dc;
+
+    private RlcNetwork(int[] source, int[] target, Kind[] kind, double[] value, CsrWeightedGraph dc) {
+        this.source = source;
+        this.target = target;
+        this.kind = kind;
+        this.value = value;
+        this.dc = dc;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Кол-во элементов (с учётом параллельных и конденсаторов)
+     */
+    public int elementCount() {
+        return source.length;
+    }
+
+    public int elementSource(int i) {
+        return source[i];
+    }
+
+    public int elementTarget(int i) {
+        return target[i];
+    }
+
+    public Kind elementKind(int i) {
+        return kind[i];
+    }
+
+    public double elementValue(int i) {
+        return value[i];
+    }
+
+    @Override
+    public int vertexCount() {
+        return dc.vertexCount();
+    }
+
+    /**
+     * Кол-во рёбер цепи на постоянном токе (резисторы и катушки)
+     */
+    @Override
+    public int edgeCount() {
+        return dc.edgeCount();
+    }
+
+    @Override
+    public Iterable<Integer> adjacency(int v) {
+        return dc.adjacency(v);
+    }
+
+    @Override
+    public Iterable<WeightedEdgeTo> adjacencyWithWeights(int v) {
+        return dc.adjacencyWithWeights(v);
+    }
+
+    @Override
+    public boolean isAdj(int v1, int v2) {
+        return dc.isAdj(v1, v2);
+    }
+
+    @Override
+    public Double getWeight(int v1, int v2) {
+        return dc.getWeight(v1, v2);
+    }
+
+    @Override
+    public boolean[][] getBooleanAdjMatrix() {
+        return dc.getBooleanAdjMatrix();
+    }
+
+    @Override
+    public void addEdge(int v1, int v2) {
+        throw new UnsupportedOperationException("RlcNetwork неизменяем");
+    }
+
+    @Override
+    public void addEdge(int v1, int v2, double weight) {
+        throw new UnsupportedOperationException("RlcNetwork неизменяем");
+    }
+
+    @Override
+    public void removeEdge(int v1, int v2) {
+        throw new UnsupportedOperationException("RlcNetwork неизменяем");
+    }
+
+    /**
+     * Накопитель элементов. Как EdgeSink принимает резисторы.
+     */
+    public static class Builder implements EdgeSink {
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private Kind[] kinds = new Kind[16];
+        private double[] values = new double[16];
+        private int size = 0;
+        private int vCount = 0;
+
+        Builder() {
+        }
+
+        @Override
+        public void expectVertices(int vertexCount) {
+            vCount = Math.max(vCount, vertexCount);
+        }
+
+        @Override
+        public void edge(int v1, int v2, double weight) {
+            element(v1, v2, Kind.RESISTOR, weight);
+        }
+
+        public Builder resistor(int v1, int v2, double ohms) {
+            return element(v1, v2, Kind.RESISTOR, ohms);
+        }
+
+        public Builder capacitor(int v1, int v2, double farads) {
+            return element(v1, v2, Kind.CAPACITOR, farads);
+        }
+
+        public Builder inductor(int v1, int v2, double henries) {
+            return element(v1, v2, Kind.INDUCTOR, henries);
+        }
+
+        /**
+         * @param value неотрицательный номинал; нулевой резистор или катушка - закоротка, нулевой конденсатор - разрыв
+         */
+        public Builder element(int v1, int v2, Kind kind, double value) {
+            if (v1 < 0 || v2 < 0)
+                throw new IllegalArgumentException("Отрицательный номер вершины");
+            if (value < 0 || Double.isNaN(value) || Double.isInfinite(value))
+                throw new IllegalArgumentException("Недопустимый номинал между " + v1 + " и " + v2 + ": " + value);
+            if (size == from.length) {
+                int capacity = size + (size >> 1);
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                kinds = Arrays.copyOf(kinds, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            from[size] = v1;
+            to[size] = v2;
+            kinds[size] = kind;
+            values[size] = value;
+            size++;
+            vCount = Math.max(vCount, Math.max(v1, v2) + 1);
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public RlcNetwork build() {
+            CsrWeightedGraph.Builder dc = CsrWeightedGraph.builder();
+            dc.expectVertices(vCount);
+            for (int i = 0; i < size; i++) {
+                if (kinds[i] == Kind.RESISTOR)
+                    dc.edge(from[i], to[i], values[i]);
+                else if (kinds[i] == Kind.INDUCTOR)
+                    dc.edge(from[i], to[i], 0);
+            }
+            return new RlcNetwork(Arrays.copyOf(from, size), Arrays.copyOf(to, size), Arrays.copyOf(kinds, size),
+                    Arrays.copyOf(values, size), dc.build());
+        }
+    }
+}
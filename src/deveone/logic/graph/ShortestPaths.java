@@ -0,0 +1,396 @@
+package deveone.logic.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Пути наименьшего сопротивления: длина пути - сумма весов его рёбер. Параллельные рёбра входят в путь
+ * общим сопротивлением группы (как их сворачивают методы WeightedGraph мультиграфов), петли не учитываются.
+ * <p>
+ * Смежность копируется один раз в CSR на примитивных массивах, поиск - алгоритм Дейкстры
+ * на IntDoubleHeap без упаковки. Массивы расстояний не очищаются между поисками: значение действительно,
+ * только если отметка вершины равна номеру текущего поиска, поэтому повторные поиски (алгоритм Йена)
+ * не тратят O(n) на подготовку. Веса должны быть неотрицательными.
+ * <p>
+ * Объект хранит рабочие массивы поиска и не предназначен для одновременного использования из нескольких потоков.
+ */
+public final class ShortestPaths {
+    private final int n;
+    private final int[] offsets;
+    private final int[] targets;
+    private final double[] weights;
+
+    // Запреты алгоритма Йена: вершины корня и записи (в обе стороны) рёбер, которыми уже уходили найденные пути
+    private final boolean[] bannedVertex;
+    private final boolean[] bannedEntry;
+
+    private final Search forward;
+    private Search backward;        // Создаётся при первом двунаправленном поиске
+
+    private ShortestPaths(int n, int[] offsets, int[] targets, double[] weights) {
+        this.n = n;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.bannedVertex = new boolean[n];
+        this.bannedEntry = new boolean[targets.length];
+        this.forward = new Search();
+    }
+
+    /**
+     * Снимок смежности графа (по adjacencyWithWeights)
+     */
+    public static ShortestPaths of(WeightedGraph graph) {
+        int n = graph.vertexCount();
+        int[] offsets = new int[n + 1];
+        if (graph instanceof CsrWeightedGraph) {
+            CsrWeightedGraph csr = (CsrWeightedGraph) graph;
+            int entries = csr.rowStart(n);
+            int[] targets = new int[entries];
+            double[] weights = new double[entries];
+            for (int v = 0; v < n; v++) {
+                offsets[v + 1] = csr.rowEnd(v);
+                for (int i = csr.rowStart(v); i < csr.rowEnd(v); i++) {
+                    targets[i] = csr.target(i);
+                    weights[i] = checked(v, csr.target(i), csr.weight(i));
+                }
+            }
+            return merged(n, offsets, targets, weights);
+        }
+
+        int[] targets = new int[Math.max(16, 2 * graph.edgeCount())];
+        double[] weights = new double[targets.length];
+        int size = 0;
+        for (int v = 0; v < n; v++) {
+            for (WeightedGraph.WeightedEdgeTo edge : graph.adjacencyWithWeights(v)) {
+                if (size == targets.length) {
+                    targets = Arrays.copyOf(targets, size * 2);
+                    weights = Arrays.copyOf(weights, size * 2);
+                }
+                targets[size] = edge.to();
+                weights[size++] = checked(v, edge.to(), edge.weight());
+            }
+            offsets[v + 1] = size;
+        }
+        return merged(n, offsets, targets, weights);
+    }
+
+    /**
+     * Сворачивает параллельные записи строки в одну с общим сопротивлением и убирает петли,
+     * чтобы у каждой пары смежных вершин была ровно одна запись
+     */
+    private static ShortestPaths merged(int n, int[] offsets, int[] targets, double[] weights) {
+        int[] newOffsets = new int[n + 1];
+        int[] newTargets = new int[offsets[n]];
+        double[] newWeights = new double[offsets[n]];
+        int size = 0;
+        long[] order = new long[0];
+        for (int v = 0; v < n; v++) {
+            int from = offsets[v];
+            int count = offsets[v + 1] - from;
+            if (order.length < count)
+                order = new long[Math.max(count, 2 * order.length)];
+            // Старшие биты - сосед, младшие - позиция записи
+            for (int i = 0; i < count; i++)
+                order[i] = (long) targets[from + i] << 32 | i;
+            Arrays.sort(order, 0, count);
+            int rowStart = size;
+            for (int i = 0; i < count; i++) {
+                int u = (int) (order[i] >>> 32);
+                double w = weights[from + (int) order[i]];
+                if (u == v)
+                    continue;
+                if (size > rowStart && newTargets[size - 1] == u) {
+                    newWeights[size - 1] = WeightedMultigraph.parallel(newWeights[size - 1], w);
+                } else {
+                    newTargets[size] = u;
+                    newWeights[size++] = w;
+                }
+            }
+            newOffsets[v + 1] = size;
+        }
+        return new ShortestPaths(n, newOffsets, Arrays.copyOf(newTargets, size), Arrays.copyOf(newWeights, size));
+    }
+
+    private static double checked(int v, int u, double weight) {
+        if (!(weight >= 0))
+            throw new IllegalArgumentException("Вес ребра " + v + "-" + u + " должен быть неотрицательным: " + weight);
+        return weight;
+    }
+
+    /**
+     * Путь наименьшего сопротивления (алгоритм Дейкстры от начала, поиск останавливается на конце)
+     *
+     * @return путь или null, если начало не связано с концом
+     */
+    public Route shortest(int startNode, int endNode) {
+        check(startNode);
+        check(endNode);
+        return forward.run(startNode, endNode);
+    }
+
+    /**
+     * То же, что shortest(), но поиск ведётся одновременно от начала и от конца (шаг делает сторона
+     * с меньшим расстоянием в вершине кучи) и останавливается, когда сумма расстояний в вершинах обеих куч
+     * не меньше лучшего найденного пути. На графах с малым диаметром просматривает меньше вершин.
+     *
+     * @return путь или null, если начало не связано с концом
+     */
+    public Route bidirectional(int startNode, int endNode) {
+        check(startNode);
+        check(endNode);
+        return between(startNode, endNode);
+    }
+
+    private Route between(int startNode, int endNode) {
+        if (bannedVertex[startNode] || bannedVertex[endNode])
+            return null;
+        if (startNode == endNode)
+            return new Route(new int[]{startNode}, 0);
+        if (backward == null)
+            backward = new Search();
+
+        Search f = forward;
+        Search b = backward;
+        f.start(startNode);
+        b.start(endNode);
+        double best = Double.POSITIVE_INFINITY;
+        int meetFrom = -1; // Лучший путь: начало .. meetFrom - meetTo .. конец
+        int meetTo = -1;
+        while (!f.heap.isEmpty() && !b.heap.isEmpty()) {
+            if (f.heap.peekPriority() + b.heap.peekPriority() >= best)
+                break;
+            boolean forwardStep = f.heap.peekPriority() <= b.heap.peekPriority();
+            Search side = forwardStep ? f : b;
+            Search other = forwardStep ? b : f;
+            int u = side.heap.poll();
+            side.done[u] = side.epoch;
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                int v = targets[i];
+                if (side.done[v] == side.epoch || bannedEntry[i] || bannedVertex[v])
+                    continue;
+                double distance = side.dist[u] + weights[i];
+                side.relax(v, u, distance);
+                if (other.reached(v) && distance + other.dist[v] < best) {
+                    best = distance + other.dist[v];
+                    meetFrom = forwardStep ? u : v;
+                    meetTo = forwardStep ? v : u;
+                }
+            }
+        }
+        f.heap.clear();
+        b.heap.clear();
+        if (meetFrom < 0)
+            return null;
+
+        int[] head = f.trace(meetFrom);
+        int[] tail = b.trace(meetTo);
+        int[] vertices = Arrays.copyOf(head, head.length + tail.length);
+        for (int i = 0; i < tail.length; i++)
+            vertices[head.length + i] = tail[tail.length - 1 - i];
+        return new Route(vertices, best);
+    }
+
+    /**
+     * k кратчайших простых путей по возрастанию длины (алгоритм Йена). Каждый следующий путь ищется
+     * как отклонение от уже найденных: для каждой вершины ответвления предыдущего пути запрещаются
+     * рёбра, которыми из того же корня уже уходили найденные пути, и вершины корня, после чего путь
+     * от вершины ответвления до конца ищется двунаправленным поиском.
+     *
+     * @return до k путей (меньше, если простых путей меньше); пустой список, если начало не связано с концом
+     */
+    public List<Route> kShortest(int startNode, int endNode, int k) {
+        if (k < 1)
+            throw new IllegalArgumentException("Кол-во путей должно быть положительным: " + k);
+        check(startNode);
+        check(endNode);
+
+        List<Route> result = new ArrayList<>();
+        Route first = forward.run(startNode, endNode);
+        if (first == null)
+            return result;
+        result.add(first);
+
+        PriorityQueue<Route> candidates = new PriorityQueue<>(Comparator.comparingDouble(Route::getLength)
+                .thenComparing(Route::compareVertices));
+        Set<Route> known = new HashSet<>();
+        known.add(first);
+        IntQueue banned = new IntQueue();
+        while (result.size() < k) {
+            int[] last = result.get(result.size() - 1).vertices;
+            double rootLength = 0;
+            for (int i = 0; i < last.length - 1; i++) {
+                int spur = last[i];
+                for (Route found : result)
+                    if (found.vertices.length > i + 1 && Arrays.equals(found.vertices, 0, i + 1, last, 0, i + 1))
+                        banEdge(found.vertices[i], found.vertices[i + 1], banned);
+                for (int j = 0; j < i; j++)
+                    bannedVertex[last[j]] = true;
+
+                Route spurRoute = between(spur, endNode);
+
+                for (int j = 0; j < i; j++)
+                    bannedVertex[last[j]] = false;
+                while (!banned.isEmpty())
+                    bannedEntry[banned.remove()] = false;
+
+                if (spurRoute != null) {
+                    int[] vertices = Arrays.copyOf(last, i + spurRoute.vertices.length);
+                    System.arraycopy(spurRoute.vertices, 0, vertices, i, spurRoute.vertices.length);
+                    Route candidate = new Route(vertices, rootLength + spurRoute.length);
+                    if (known.add(candidate))
+                        candidates.add(candidate);
+                }
+                rootLength += weights[entry(last[i], last[i + 1])];
+            }
+            if (candidates.isEmpty())
+                break;
+            result.add(candidates.poll());
+        }
+        return result;
+    }
+
+    private void banEdge(int v, int u, IntQueue banned) {
+        int i = entry(v, u);
+        int j = entry(u, v);
+        bannedEntry[i] = true;
+        bannedEntry[j] = true;
+        banned.add(i);
+        banned.add(j);
+    }
+
+    // Позиция ребра v-u в строке v
+    private int entry(int v, int u) {
+        for (int i = offsets[v]; i < offsets[v + 1]; i++)
+            if (targets[i] == u)
+                return i;
+        throw new IllegalStateException("Нет ребра " + v + "-" + u);
+    }
+
+    private void check(int v) {
+        if (v < 0 || v >= n)
+            throw new IllegalArgumentException("Нет вершины " + v);
+    }
+
+    /**
+     * Рабочие массивы одного поиска Дейкстры
+     */
+    private final class Search {
+        final double[] dist = new double[n];
+        final int[] prev = new int[n];
+        final int[] seen = new int[n];  // == epoch - dist и prev действительны
+        final int[] done = new int[n];  // == epoch - расстояние окончательно
+        final IntDoubleHeap heap = new IntDoubleHeap(n);
+        int epoch = 0;
+
+        void start(int source) {
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(seen, 0);
+                Arrays.fill(done, 0);
+                epoch = 1;
+            }
+            relax(source, -1, 0);
+        }
+
+        boolean reached(int v) {
+            return seen[v] == epoch;
+        }
+
+        void relax(int v, int from, double distance) {
+            if (seen[v] == epoch && dist[v] <= distance)
+                return;
+            seen[v] = epoch;
+            dist[v] = distance;
+            prev[v] = from;
+            heap.offer(v, distance);
+        }
+
+        Route run(int source, int target) {
+            start(source);
+            while (!heap.isEmpty()) {
+                int u = heap.poll();
+                done[u] = epoch;
+                if (u == target) {
+                    heap.clear();
+                    return new Route(trace(target), dist[target]);
+                }
+                for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                    int v = targets[i];
+                    if (done[v] != epoch)
+                        relax(v, u, dist[u] + weights[i]);
+                }
+            }
+            return null;
+        }
+
+        // Вершины от источника до v
+        int[] trace(int v) {
+            int length = 0;
+            for (int u = v; u >= 0; u = prev[u])
+                length++;
+            int[] path = new int[length];
+            for (int u = v; u >= 0; u = prev[u])
+                path[--length] = u;
+            return path;
+        }
+    }
+
+    /**
+     * Путь: вершины от начала до конца и сумма весов рёбер
+     */
+    public static final class Route {
+        private final int[] vertices;
+        private final double length;
+
+        Route(int[] vertices, double length) {
+            this.vertices = vertices;
+            this.length = length;
+        }
+
+        public double getLength() {
+            return length;
+        }
+
+        /**
+         * Кол-во вершин пути
+         */
+        public int size() {
+            return vertices.length;
+        }
+
+        public int vertex(int i) {
+            return vertices[i];
+        }
+
+        public int[] vertices() {
+            return vertices.clone();
+        }
+
+        private int compareVertices(Route other) {
+            return Arrays.compare(vertices, other.vertices);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Route route)) return false;
+
+            return Arrays.equals(vertices, route.vertices);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(vertices);
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(vertices) + " " + length;
+        }
+    }
+}
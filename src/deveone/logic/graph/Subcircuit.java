@@ -0,0 +1,159 @@
+package deveone.logic.graph;
+
+import java.util.Arrays;
+
+/**
+ * Неизменяемое определение подсхемы: резисторы и экземпляры других подсхем между узлами.
+ * Узлы 0..ports()-1 - выводы, через которые подсхема подключается к внешней цепи, остальные - внутренние.
+ * Экземпляр подключает выводы определения (по порядку) к узлам этой подсхемы, так что подсхемы
+ * вкладываются друг в друга; циклы невозможны, потому что определение неизменяемо и собирается
+ * из уже построенных. Схема верхнего уровня - тоже Subcircuit (выводы ей не нужны).
+ * Строится через {@link Builder}.
+ */
+public final class Subcircuit {
+    private final int ports;
+    private final int nodeCount;
+    private final int[] source;
+    private final int[] target;
+    private final double[] resistance;
+    private final Subcircuit[] definitions;
+    private final int[][] connections;
+
+    private Subcircuit(int ports, int nodeCount, int[] source, int[] target, double[] resistance,
+                       Subcircuit[] definitions, int[][] connections) {
+        this.ports = ports;
+        this.nodeCount = nodeCount;
+        this.source = source;
+        this.target = target;
+        this.resistance = resistance;
+        this.definitions = definitions;
+        this.connections = connections;
+    }
+
+    /**
+     * @param ports кол-во выводов (узлы 0..ports-1)
+     */
+    public static Builder builder(int ports) {
+        return new Builder(ports);
+    }
+
+    public int ports() {
+        return ports;
+    }
+
+    /**
+     * Кол-во узлов, включая выводы
+     */
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public int resistorCount() {
+        return source.length;
+    }
+
+    public int resistorSource(int i) {
+        return source[i];
+    }
+
+    public int resistorTarget(int i) {
+        return target[i];
+    }
+
+    public double resistance(int i) {
+        return resistance[i];
+    }
+
+    public int instanceCount() {
+        return definitions.length;
+    }
+
+    public Subcircuit instanceDefinition(int i) {
+        return definitions[i];
+    }
+
+    /**
+     * Узел этой подсхемы, к которому подключён вывод port экземпляра i
+     */
+    public int instanceNode(int i, int port) {
+        return connections[i][port];
+    }
+
+    /**
+     * Накопитель резисторов и экземпляров. Как EdgeSink принимает резисторы.
+     */
+    public static class Builder implements EdgeSink {
+        private final int ports;
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private double[] values = new double[16];
+        private int size = 0;
+        private Subcircuit[] definitions = new Subcircuit[4];
+        private int[][] connections = new int[4][];
+        private int instances = 0;
+        private int nodeCount;
+
+        Builder(int ports) {
+            if (ports < 0)
+                throw new IllegalArgumentException("Отрицательное кол-во выводов: " + ports);
+            this.ports = ports;
+            this.nodeCount = ports;
+        }
+
+        @Override
+        public void expectVertices(int vertexCount) {
+            nodeCount = Math.max(nodeCount, vertexCount);
+        }
+
+        @Override
+        public void edge(int v1, int v2, double weight) {
+            resistor(v1, v2, weight);
+        }
+
+        /**
+         * @param ohms неотрицательное сопротивление; 0 - закоротка
+         */
+        public Builder resistor(int v1, int v2, double ohms) {
+            if (v1 < 0 || v2 < 0)
+                throw new IllegalArgumentException("Отрицательный номер узла");
+            if (ohms < 0 || Double.isNaN(ohms) || Double.isInfinite(ohms))
+                throw new IllegalArgumentException("Недопустимое сопротивление между " + v1 + " и " + v2 + ": " + ohms);
+            if (size == from.length) {
+                int capacity = size + (size >> 1);
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            from[size] = v1;
+            to[size] = v2;
+            values[size++] = ohms;
+            nodeCount = Math.max(nodeCount, Math.max(v1, v2) + 1);
+            return this;
+        }
+
+        /**
+         * Экземпляр подсхемы definition, её вывод i подключается к узлу nodes[i]
+         */
+        public Builder instance(Subcircuit definition, int... nodes) {
+            if (nodes.length != definition.ports())
+                throw new IllegalArgumentException("У подсхемы " + definition.ports() + " выводов, подключено " + nodes.length);
+            for (int v : nodes) {
+                if (v < 0)
+                    throw new IllegalArgumentException("Отрицательный номер узла");
+                nodeCount = Math.max(nodeCount, v + 1);
+            }
+            if (instances == definitions.length) {
+                definitions = Arrays.copyOf(definitions, instances * 2);
+                connections = Arrays.copyOf(connections, instances * 2);
+            }
+            definitions[instances] = definition;
+            connections[instances++] = nodes.clone();
+            return this;
+        }
+
+        public Subcircuit build() {
+            return new Subcircuit(ports, nodeCount, Arrays.copyOf(from, size), Arrays.copyOf(to, size),
+                    Arrays.copyOf(values, size), Arrays.copyOf(definitions, instances), Arrays.copyOf(connections, instances));
+        }
+    }
+}
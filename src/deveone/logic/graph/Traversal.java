@@ -0,0 +1,367 @@
+package deveone.logic.graph;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Обходы графа на примитивных массивах: смежность копируется один раз в CSR (int[]),
+ * множества вершин хранятся битовыми масками long[], очередь - IntQueue. Строки CsrWeightedGraph не копируются.
+ * <p>
+ * reach() - поиск в ширину с выбором направления: пока фронт мал, он хранится списком и расширяется
+ * к соседям (сверху вниз), а когда рёбер фронта становится больше, чем рёбер непосещённых вершин, фронт
+ * переводится в маску, и каждая непосещённая вершина сама ищет соседа во фронте (снизу вверх), прекращая
+ * поиск при первой находке. Шаги снизу вверх могут выполняться параллельно по кускам маски.
+ */
+public final class Traversal {
+    // Пороги переключения направления (Beamer, Asanović, Patterson)
+    private static final int ALPHA = 14;
+    private static final int BETA = 24;
+    // Слов маски в куске параллельного шага (64 слова - 4096 вершин)
+    private static final int CHUNK_WORDS = 64;
+
+    private final int n;
+    private final int[] offsets;
+    private final int[] targets;
+    // Входящие рёбра для шага снизу вверх; строятся при первом таком шаге, у неориентированного графа - те же строки
+    private int[] reverseOffsets;
+    private int[] reverseTargets;
+
+    private Traversal(int n, int[] offsets, int[] targets, boolean undirected) {
+        this.n = n;
+        this.offsets = offsets;
+        this.targets = targets;
+        if (undirected) {
+            reverseOffsets = offsets;
+            reverseTargets = targets;
+        }
+    }
+
+    /**
+     * Снимок смежности графа (по adjacency)
+     */
+    public static Traversal of(Graph graph) {
+        return of(graph, false);
+    }
+
+    /**
+     * Снимок смежности неориентированного графа: входящие рёбра вершины совпадают с исходящими,
+     * поэтому обратная смежность для reach() не строится. Смежность графа должна быть симметричной.
+     */
+    public static Traversal undirected(Graph graph) {
+        return of(graph, true);
+    }
+
+    private static Traversal of(Graph graph, boolean undirected) {
+        int n = graph.vertexCount();
+        if (graph instanceof CsrWeightedGraph) {
+            CsrWeightedGraph csr = (CsrWeightedGraph) graph;
+            return new Traversal(n, csr.offsetArray(), csr.targetArray(), undirected);
+        }
+
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[Math.max(16, 2 * graph.edgeCount())];
+        int size = 0;
+        for (int v = 0; v < n; v++) {
+            for (int u : graph.adjacency(v)) {
+                if (size == targets.length)
+                    targets = Arrays.copyOf(targets, size * 2);
+                targets[size++] = u;
+            }
+            offsets[v + 1] = size;
+        }
+        return new Traversal(n, offsets, targets, undirected);
+    }
+
+    private synchronized void buildReverse() {
+        if (reverseOffsets != null)
+            return;
+        int[] rOffsets = new int[n + 1];
+        for (int i = 0; i < offsets[n]; i++)
+            rOffsets[targets[i] + 1]++;
+        for (int v = 0; v < n; v++)
+            rOffsets[v + 1] += rOffsets[v];
+        int[] rTargets = new int[offsets[n]];
+        int[] fill = Arrays.copyOf(rOffsets, n);
+        for (int v = 0; v < n; v++)
+            for (int i = offsets[v]; i < offsets[v + 1]; i++)
+                rTargets[fill[targets[i]]++] = v;
+        reverseTargets = rTargets;
+        reverseOffsets = rOffsets;
+    }
+
+    public int vertexCount() {
+        return n;
+    }
+
+    /**
+     * Кол-во исходящих рёбер вершины
+     */
+    public int degree(int v) {
+        return offsets[v + 1] - offsets[v];
+    }
+
+    public static boolean contains(long[] set, int v) {
+        return (set[v >>> 6] & (1L << v)) != 0;
+    }
+
+    private static void add(long[] set, int v) {
+        set[v >>> 6] |= 1L << v;
+    }
+
+    private static long[] newSet(int n) {
+        return new long[(n + 63) >>> 6];
+    }
+
+    private boolean inRange(int v) {
+        return v >= 0 && v < n;
+    }
+
+    /**
+     * Есть ли путь из startNode в endNode. Поиск в ширину останавливается, как только конец найден.
+     */
+    public boolean hasPath(int startNode, int endNode) {
+        if (!inRange(startNode) || !inRange(endNode) || startNode == endNode)
+            return false;
+
+        long[] visited = newSet(n);
+        IntQueue queue = new IntQueue();
+        add(visited, startNode);
+        queue.add(startNode);
+        while (!queue.isEmpty()) {
+            int v = queue.remove();
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                int u = targets[i];
+                if (u == endNode)
+                    return true;
+                if (!contains(visited, u)) {
+                    add(visited, u);
+                    queue.add(u);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Вершины в порядке обхода в ширину из startNode
+     */
+    public int[] order(int startNode) {
+        if (!inRange(startNode))
+            return new int[0];
+
+        long[] visited = newSet(n);
+        int[] order = new int[n];
+        int size = 0;
+        IntQueue queue = new IntQueue();
+        add(visited, startNode);
+        queue.add(startNode);
+        while (!queue.isEmpty()) {
+            int v = queue.remove();
+            order[size++] = v;
+            for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                int u = targets[i];
+                if (!contains(visited, u)) {
+                    add(visited, u);
+                    queue.add(u);
+                }
+            }
+        }
+        return Arrays.copyOf(order, size);
+    }
+
+    /**
+     * Множество вершин, достижимых из startNode (включая её)
+     */
+    public long[] reach(int startNode) {
+        return reach(startNode, false);
+    }
+
+    /**
+     * Множество вершин, достижимых из startNode, поиском в ширину с выбором направления
+     *
+     * @param parallel выполнять шаги снизу вверх параллельно по кускам маски (в общем пуле ForkJoin)
+     */
+    public long[] reach(int startNode, boolean parallel) {
+        long[] visited = newSet(n);
+        if (!inRange(startNode))
+            return visited;
+
+        // Фронт сверху вниз - queue[head..tail), снизу вверх - маска frontier
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        long[] frontier = null;
+        long[] next = null;
+        add(visited, startNode);
+        queue[tail++] = startNode;
+        long frontierCount = 1;
+        long frontierEdges = degree(startNode);
+        long unexploredEdges = offsets[n] - frontierEdges;
+        boolean bottomUp = false;
+
+        while (frontierCount > 0) {
+            if (!bottomUp && frontierEdges > unexploredEdges / ALPHA) {
+                bottomUp = true;
+                buildReverse();
+                if (frontier == null) {
+                    frontier = newSet(n);
+                    next = newSet(n);
+                } else {
+                    Arrays.fill(frontier, 0);
+                }
+                for (; head < tail; head++)
+                    add(frontier, queue[head]);
+            } else if (bottomUp && frontierCount < n / BETA) {
+                bottomUp = false;
+                for (int w = 0; w < frontier.length; w++)
+                    for (long word = frontier[w]; word != 0; word &= word - 1)
+                        queue[tail++] = (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+
+            frontierEdges = 0;
+            if (bottomUp) {
+                long[] current = frontier;
+                long[] found = next;
+                Arrays.fill(found, 0);
+                int chunks = (visited.length + CHUNK_WORDS - 1) / CHUNK_WORDS;
+                if (parallel)
+                    IntStream.range(0, chunks).parallel().forEach(c -> bottomUpStep(current, found, visited, c));
+                else
+                    for (int c = 0; c < chunks; c++)
+                        bottomUpStep(current, found, visited, c);
+
+                frontierCount = 0;
+                for (int w = 0; w < found.length; w++) {
+                    long word = found[w];
+                    frontierCount += Long.bitCount(word);
+                    for (; word != 0; word &= word - 1)
+                        frontierEdges += degree((w << 6) + Long.numberOfTrailingZeros(word));
+                }
+                frontier = found;
+                next = current;
+            } else {
+                int levelEnd = tail;
+                for (; head < levelEnd; head++) {
+                    int v = queue[head];
+                    for (int i = offsets[v]; i < offsets[v + 1]; i++) {
+                        int u = targets[i];
+                        if (!contains(visited, u)) {
+                            add(visited, u);
+                            queue[tail++] = u;
+                            frontierEdges += degree(u);
+                        }
+                    }
+                }
+                frontierCount = tail - levelEnd;
+            }
+            unexploredEdges -= frontierEdges;
+        }
+        return visited;
+    }
+
+    // Снизу вверх: непосещённые вершины куска c ищут соседа во фронте; пишутся только слова своего куска
+    private void bottomUpStep(long[] frontier, long[] next, long[] visited, int c) {
+        int end = Math.min(visited.length, (c + 1) * CHUNK_WORDS);
+        for (int w = c * CHUNK_WORDS; w < end; w++) {
+            long unvisited = ~visited[w];
+            if (w == visited.length - 1 && (n & 63) != 0)
+                unvisited &= (1L << n) - 1;
+            for (; unvisited != 0; unvisited &= unvisited - 1) {
+                int v = (w << 6) + Long.numberOfTrailingZeros(unvisited);
+                for (int i = reverseOffsets[v]; i < reverseOffsets[v + 1]; i++)
+                    if (contains(frontier, reverseTargets[i])) {
+                        next[w] |= 1L << v;
+                        break;
+                    }
+            }
+            visited[w] |= next[w];
+        }
+    }
+
+    /**
+     * Вершины, лежащие хотя бы на одном простом пути из startNode в endNode (граф считается неориентированным).
+     * Остальные вершины - «тупиковые» ветви, подключённые через одну вершину, - ток не проводят и могут
+     * быть отброшены до расчёта.
+     * <p>
+     * Вершина лежит на простом пути тогда и только тогда, когда её блок (компонента двусвязности) лежит
+     * на пути между блоками начала и конца в дереве блоков и точек сочленения. Блоки находятся
+     * нерекурсивным алгоритмом Хопкрофта - Тарьяна, путь в дереве блоков - по пути дерева обхода в глубину.
+     *
+     * @return множество вершин или пустое множество, если пути нет
+     */
+    public long[] route(int startNode, int endNode) {
+        long[] result = newSet(n);
+        if (!inRange(startNode) || !inRange(endNode))
+            return result;
+        if (startNode == endNode) {
+            add(result, startNode);
+            return result;
+        }
+
+        int[] discovered = new int[n];  // 0 - не посещена, иначе время входа + 1
+        int[] low = new int[n];
+        int[] parent = new int[n];
+        int[] edge = new int[n];        // Следующее ребро для продолжения обхода
+        int[] blockOf = new int[n];     // Блок ребра дерева (parent[v], v)
+        int[] blockHead = new int[n];   // Точка сочленения, «выше» которой лежит блок
+        int[] dfsStack = new int[n];
+        int[] vertexStack = new int[n];
+        int dfsSize = 0;
+        int vertexSize = 0;
+        int time = 0;
+        int blocks = 0;
+
+        discovered[startNode] = ++time;
+        low[startNode] = time;
+        parent[startNode] = -1;
+        edge[startNode] = offsets[startNode];
+        dfsStack[dfsSize++] = startNode;
+        while (dfsSize > 0) {
+            int v = dfsStack[dfsSize - 1];
+            if (edge[v] < offsets[v + 1]) {
+                int u = targets[edge[v]++];
+                if (discovered[u] == 0) {
+                    parent[u] = v;
+                    discovered[u] = ++time;
+                    low[u] = time;
+                    edge[u] = offsets[u];
+                    dfsStack[dfsSize++] = u;
+                    vertexStack[vertexSize++] = u;
+                } else if (u != parent[v]) {
+                    low[v] = Math.min(low[v], discovered[u]);
+                }
+                continue;
+            }
+
+            dfsSize--;
+            int p = parent[v];
+            if (p < 0)
+                continue;
+            low[p] = Math.min(low[p], low[v]);
+            if (low[v] >= discovered[p]) {
+                // p отделяет v и его потомков: они вместе с p образуют блок
+                int w;
+                do {
+                    w = vertexStack[--vertexSize];
+                    blockOf[w] = blocks;
+                } while (w != v);
+                blockHead[blocks++] = p;
+            }
+        }
+
+        if (discovered[endNode] == 0)
+            return result;
+
+        // Блоки рёбер дерева на пути из конца в начало
+        boolean[] onPath = new boolean[blocks];
+        for (int w = endNode; w != startNode; w = parent[w])
+            onPath[blockOf[w]] = true;
+        for (int v = 0; v < n; v++)
+            if (v != startNode && discovered[v] != 0 && onPath[blockOf[v]])
+                add(result, v);
+        for (int b = 0; b < blocks; b++)
+            if (onPath[b])
+                add(result, blockHead[b]);
+        return result;
+    }
+}
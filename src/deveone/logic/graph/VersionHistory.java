@@ -0,0 +1,156 @@
+package deveone.logic.graph;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * История неизменяемых версий (например, PersistentWeightedMultigraph) с отменой и повтором.
+ * Текущая версия вместе со стеками отмены и повтора публикуется одной ссылкой через AtomicReference,
+ * поэтому изменение, отмена и повтор - атомарная замена ссылки, а читатели (например, расчёт в фоновом потоке)
+ * получают согласованную версию без блокировок и копирования.
+ *
+ * @param <T> неизменяемый тип версии
+ */
+public final class VersionHistory<T> {
+    /**
+     * Глубина истории по умолчанию
+     */
+    public static final int DEFAULT_DEPTH = 1000;
+
+    private final AtomicReference<State<T>> state;
+    private final int maxDepth;
+
+    /**
+     * @param maxDepth сколько последних версий можно отменить (хранится от maxDepth до 2 maxDepth)
+     */
+    public VersionHistory(T initial, int maxDepth) {
+        if (maxDepth < 0)
+            throw new IllegalArgumentException("Отрицательная глубина истории");
+        this.state = new AtomicReference<>(new State<>(initial, null, null, 0));
+        this.maxDepth = maxDepth;
+    }
+
+    public VersionHistory(T initial) {
+        this(initial, DEFAULT_DEPTH);
+    }
+
+    /**
+     * Текущая версия
+     */
+    public T current() {
+        return state.get().current;
+    }
+
+    /**
+     * Номер текущей версии: растёт при каждом изменении, отмене и повторе
+     */
+    public long version() {
+        return state.get().version;
+    }
+
+    /**
+     * Применяет изменение к текущей версии и публикует результат. При гонке с другим писателем изменение
+     * применяется заново к новой текущей версии, поэтому оно не должно иметь побочных эффектов.
+     * Если изменение вернуло ту же версию, история не меняется.
+     *
+     * @return опубликованная версия
+     */
+    public T update(UnaryOperator<T> edit) {
+        while (true) {
+            State<T> old = state.get();
+            T next = edit.apply(old.current);
+            if (next == old.current)
+                return next;
+            Link<T> undo = trim(new Link<>(old.current, old.undo));
+            if (state.compareAndSet(old, new State<>(next, undo, null, old.version + 1)))
+                return next;
+        }
+    }
+
+    /**
+     * Возвращает предыдущую версию
+     *
+     * @return false, если отменять нечего
+     */
+    public boolean undo() {
+        while (true) {
+            State<T> old = state.get();
+            if (old.undo == null)
+                return false;
+            State<T> next = new State<>(old.undo.value, old.undo.next, new Link<>(old.current, old.redo), old.version + 1);
+            if (state.compareAndSet(old, next))
+                return true;
+        }
+    }
+
+    /**
+     * Повторяет отменённое изменение
+     *
+     * @return false, если повторять нечего
+     */
+    public boolean redo() {
+        while (true) {
+            State<T> old = state.get();
+            if (old.redo == null)
+                return false;
+            State<T> next = new State<>(old.redo.value, new Link<>(old.current, old.undo), old.redo.next, old.version + 1);
+            if (state.compareAndSet(old, next))
+                return true;
+        }
+    }
+
+    public boolean canUndo() {
+        return state.get().undo != null;
+    }
+
+    public boolean canRedo() {
+        return state.get().redo != null;
+    }
+
+    //Стек отмены обрезается до maxDepth версий, когда вырастает вдвое, так что копирование звеньев амортизируется
+    private Link<T> trim(Link<T> undo) {
+        if (maxDepth == 0)
+            return null;
+        if (undo.depth <= 2L * maxDepth)
+            return undo;
+
+        @SuppressWarnings("unchecked")
+        T[] kept = (T[]) new Object[maxDepth];
+        Link<T> link = undo;
+        for (int i = 0; i < maxDepth; i++, link = link.next)
+            kept[i] = link.value;
+        Link<T> result = null;
+        for (int i = maxDepth - 1; i >= 0; i--)
+            result = new Link<>(kept[i], result);
+        return result;
+    }
+
+    private static final class State<T> {
+        final T current;
+        final Link<T> undo;
+        final Link<T> redo;
+        final long version;
+
+        State(T current, Link<T> undo, Link<T> redo, long version) {
+            this.current = current;
+            this.undo = undo;
+            this.redo = redo;
+            this.version = version;
+        }
+    }
+
+    /**
+     * Звено неизменяемого стека версий
+     */
+    private static final class Link<T> {
+        final T value;
+        final Link<T> next;
+        final int depth;
+
+        Link(T value, Link<T> next) {
+            this.value = value;
+            this.next = next;
+            this.depth = next != null ? next.depth + 1 : 1;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package deveone.logic.graph;
+
+/**
+ * Интерфейс для описания взвешенного мультиграфа: между парой вершин может быть несколько рёбер
+ * (параллельных резисторов), у каждого ребра есть постоянный номер.
+ * <p>
+ * Методы WeightedGraph видят мультиграф как обычный граф: adjacencyWithWeights и getWeight
+ * возвращают одно ребро на пару вершин с сопротивлением параллельного соединения всех её рёбер,
+ * поэтому алгоритмы расчёта получают уже свёрнутые параллельные группы.
+ */
+public interface WeightedMultigraph extends WeightedGraph {
+    /**
+     * Добавление ребра между вершинами v1 и v2 с весом weight
+     * @return постоянный номер ребра, действителен до удаления ребра
+     */
+    int insertEdge(int v1, int v2, double weight);
+
+    /**
+     * Удаление одного ребра по номеру
+     * @return true, если ребро существовало
+     */
+    boolean removeEdgeById(int edgeId);
+
+    boolean containsEdge(int edgeId);
+
+    /**
+     * Граница номеров рёбер: номера всех существующих рёбер меньше неё
+     */
+    int edgeIdBound();
+
+    int edgeSource(int edgeId);
+
+    int edgeTarget(int edgeId);
+
+    double edgeWeight(int edgeId);
+
+    /**
+     * Кол-во параллельных рёбер между v1 и v2
+     */
+    int parallelCount(int v1, int v2);
+
+    /**
+     * Сопротивление параллельного соединения: 1 / (1/r1 + 1/r2); нулевое сопротивление закорачивает группу
+     */
+    static double parallel(double r1, double r2) {
+        if (r1 == 0 || r2 == 0)
+            return 0;
+        return 1 / (1 / r1 + 1 / r2);
+    }
+}
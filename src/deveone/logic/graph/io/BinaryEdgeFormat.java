@@ -0,0 +1,93 @@
+package deveone.logic.graph.io;
+
+import deveone.logic.graph.EdgeSink;
+
+import java.io.*;
+
+/**
+ * Двоичный формат потока рёбер.
+ * Заголовок: MAGIC (int), VERSION (int), кол-во вершин (int).
+ * Далее до конца файла записи по 16 байт: v1 (int), v2 (int), вес (double), big-endian.
+ */
+public final class BinaryEdgeFormat {
+    public static final int MAGIC = 0x52455347; // "RESG"
+    public static final int VERSION = 1;
+    public static final int RECORD_BYTES = 16;
+
+    private BinaryEdgeFormat() {
+    }
+
+    /**
+     * Создаёт приёмник, записывающий рёбра в поток.
+     * Поток необходимо закрыть после генерации.
+     *
+     * @param out         Поток, куда пишутся рёбра
+     * @param vertexCount Кол-во вершин для заголовка
+     */
+    public static Writer writer(OutputStream out, int vertexCount) throws IOException {
+        return new Writer(out, vertexCount);
+    }
+
+    /**
+     * Читает рёбра из потока и передаёт их в приёмник
+     *
+     * @return кол-во прочитанных рёбер
+     */
+    public static long read(InputStream in, EdgeSink sink) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        if (data.readInt() != MAGIC)
+            throw new IOException("Неизвестный формат файла");
+        int version = data.readInt();
+        if (version != VERSION)
+            throw new IOException("Неподдерживаемая версия формата: " + version);
+
+        sink.expectVertices(data.readInt());
+
+        long count = 0;
+        while (true) {
+            int v1;
+            try {
+                v1 = data.readInt();
+            } catch (EOFException e) {
+                return count;
+            }
+            int v2 = data.readInt();
+            double weight = data.readDouble();
+            sink.edge(v1, v2, weight);
+            count++;
+        }
+    }
+
+    public static class Writer implements EdgeSink, Closeable {
+        private final DataOutputStream data;
+        private long count = 0;
+
+        private Writer(OutputStream out, int vertexCount) throws IOException {
+            data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeInt(vertexCount);
+        }
+
+        @Override
+        public void edge(int v1, int v2, double weight) {
+            try {
+                data.writeInt(v1);
+                data.writeInt(v2);
+                data.writeDouble(weight);
+                count++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        public long count() {
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            data.close();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package deveone.logic.metrics;
+
+/**
+ * Этапы расчёта сопротивления цепи
+ */
+public enum Phase {
+    /**
+     * Проверка наличия пути между началом и концом цепи
+     */
+    PATH_CHECK,
+    /**
+     * Выделение подграфа, лежащего на путях от начала к концу
+     */
+    STRIP,
+    /**
+     * Упрощение параллельных соединений
+     */
+    REDUCTION,
+    /**
+     * Сборка матрицы проводимостей и символьный анализ (перестановка, профиль)
+     */
+    ASSEMBLY,
+    /**
+     * Численное разложение матрицы
+     */
+    FACTORIZATION,
+    /**
+     * Итоговый расчёт (свёртка последовательной цепочки или решение системы)
+     */
+    SOLVE
+}
@@ -0,0 +1,25 @@
+package deveone.logic.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * JFR-событие одного этапа расчёта
+ */
+@Name("deveone.SolverPhase")
+@Label("Solver Phase")
+@Category({"Resistance Calculator", "Solver"})
+@StackTrace(false)
+class PhaseEvent extends Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("Vertices")
+    int vertices;
+
+    @Label("Edges")
+    int edges;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+}
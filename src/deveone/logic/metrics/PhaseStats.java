@@ -0,0 +1,74 @@
+package deveone.logic.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Накопленная статистика этапа. Безопасна для одновременного обновления из нескольких потоков.
+ */
+public class PhaseStats implements PhaseStatsMBean {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder allocatedBytes = new LongAdder();
+    private volatile int lastVertices;
+    private volatile int lastEdges;
+
+    void record(long nanos, long allocated, int vertices, int edges) {
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        if (allocated > 0)
+            allocatedBytes.add(allocated);
+        if (vertices >= 0) {
+            lastVertices = vertices;
+            lastEdges = edges;
+        }
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    @Override
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long c = count.sum();
+        return c == 0 ? 0 : totalNanos.sum() / 1000.0 / c;
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return SolverMetrics.ALLOCATION_SUPPORTED ? allocatedBytes.sum() : -1;
+    }
+
+    @Override
+    public int getLastVertices() {
+        return lastVertices;
+    }
+
+    @Override
+    public int getLastEdges() {
+        return lastEdges;
+    }
+
+    @Override
+    public void reset() {
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+        allocatedBytes.reset();
+        lastVertices = 0;
+        lastEdges = 0;
+    }
+}
@@ -0,0 +1,31 @@
+package deveone.logic.metrics;
+
+/**
+ * JMX-интерфейс статистики одного этапа расчёта
+ */
+public interface PhaseStatsMBean {
+    long getCount();
+
+    long getTotalNanos();
+
+    long getMaxNanos();
+
+    double getMeanMicros();
+
+    /**
+     * Байты, выделенные потоком за время этапа (-1, если JVM не умеет считать)
+     */
+    long getAllocatedBytes();
+
+    /**
+     * Кол-во вершин графа после последнего выполнения этапа
+     */
+    int getLastVertices();
+
+    /**
+     * Кол-во рёбер графа после последнего выполнения этапа
+     */
+    int getLastEdges();
+
+    void reset();
+}
@@ -0,0 +1,44 @@
+package deveone.logic.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * JFR-событие полного расчёта сопротивления цепи
+ */
+@Name("deveone.CircuitSolve")
+@Label("Circuit Solve")
+@Category({"Resistance Calculator", "Solver"})
+@StackTrace(false)
+class SolveEvent extends Event {
+    @Label("Engine")
+    String engine;
+
+    @Label("Vertices")
+    int vertices;
+
+    @Label("Edges")
+    int edges;
+
+    @Label("Reductions")
+    int reductions;
+
+    @Label("Iterations")
+    int iterations;
+
+    @Label("Matrix Fill")
+    @Percentage
+    double matrixFill;
+
+    @Label("Parts")
+    int parts;
+
+    @Label("Separator")
+    int separator;
+
+    @Label("Sequential Fallback")
+    boolean sequentialFallback;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+}
@@ -0,0 +1,166 @@
+package deveone.logic.metrics;
+
+/**
+ * Замер одного расчёта: время, выделенная память и размеры графа по этапам.
+ * Получается через {@link SolverMetrics#begin(String, int, int)}. Когда метрики выключены, возвращается
+ * общий неактивный экземпляр, все методы которого сразу выходят, так что расходы - одна проверка флага.
+ * Экземпляр не потокобезопасен и принадлежит потоку, выполняющему расчёт.
+ */
+public final class SolveTrace {
+    static final SolveTrace DISABLED = new SolveTrace(null, -1, -1);
+
+    private final boolean active;
+    private final String engine;
+    private final int vertices;
+    private final int edges;
+    private final long startNanos;
+    private final long startAllocated;
+    private final SolveEvent solveEvent;
+
+    private Phase phase;
+    private long phaseStartNanos;
+    private long phaseStartAllocated;
+    private int phaseVertices = -1;
+    private int phaseEdges = -1;
+    private PhaseEvent phaseEvent;
+
+    private int reductions;
+    private int iterations;
+    private double matrixFill;
+    private int parts;
+    private int separator;
+    private boolean sequentialFallback;
+
+    SolveTrace(String engine, int vertices, int edges) {
+        this.active = engine != null;
+        this.engine = engine;
+        this.vertices = vertices;
+        this.edges = edges;
+        this.startNanos = active ? System.nanoTime() : 0;
+        this.startAllocated = active ? SolverMetrics.allocatedBytes() : 0;
+        this.solveEvent = active ? new SolveEvent() : null;
+        if (active)
+            solveEvent.begin();
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Завершает текущий этап (если он был) и начинает новый
+     */
+    public void phase(Phase next) {
+        if (!active)
+            return;
+        closePhase();
+
+        phase = next;
+        phaseVertices = -1;
+        phaseEdges = -1;
+        phaseStartNanos = System.nanoTime();
+        phaseStartAllocated = SolverMetrics.allocatedBytes();
+        phaseEvent = new PhaseEvent();
+        phaseEvent.begin();
+    }
+
+    /**
+     * Размер графа, полученного на текущем этапе
+     */
+    public void graphSize(int vertices, int edges) {
+        if (!active)
+            return;
+        phaseVertices = vertices;
+        phaseEdges = edges;
+    }
+
+    public void reductions(int count) {
+        if (active)
+            reductions += count;
+    }
+
+    public void iterations(int count) {
+        if (active)
+            iterations += count;
+    }
+
+    /**
+     * Доля ненулевых элементов рабочей матрицы
+     */
+    public void matrixFill(long nonZero, long cells) {
+        if (active && cells > 0)
+            matrixFill = (double) nonZero / cells;
+    }
+
+    /**
+     * Разбиение для параллельного расчёта: кол-во частей и узлов разделителя
+     */
+    public void partitions(int parts, int separator) {
+        if (!active)
+            return;
+        this.parts = parts;
+        this.separator = separator;
+    }
+
+    /**
+     * Параллельный расчёт не удался (система не делится на части) и выполнен последовательно
+     */
+    public void sequentialFallback() {
+        if (active)
+            sequentialFallback = true;
+    }
+
+    /**
+     * Завершает замер и публикует результаты в JMX и JFR
+     */
+    public void end() {
+        if (!active)
+            return;
+        closePhase();
+        phase = null;
+
+        long nanos = System.nanoTime() - startNanos;
+        SolverStats stats = SolverMetrics.aggregate();
+        stats.solveCount.increment();
+        stats.totalNanos.add(nanos);
+        stats.reductions.add(reductions);
+        stats.iterations.add(iterations);
+        stats.lastMatrixFill = matrixFill;
+        if (sequentialFallback)
+            stats.sequentialFallbacks.increment();
+
+        solveEvent.end();
+        if (solveEvent.shouldCommit()) {
+            solveEvent.engine = engine;
+            solveEvent.vertices = vertices;
+            solveEvent.edges = edges;
+            solveEvent.reductions = reductions;
+            solveEvent.iterations = iterations;
+            solveEvent.matrixFill = matrixFill;
+            solveEvent.parts = parts;
+            solveEvent.separator = separator;
+            solveEvent.sequentialFallback = sequentialFallback;
+            solveEvent.allocatedBytes = SolverMetrics.allocatedBytes() - startAllocated;
+            solveEvent.commit();
+        }
+    }
+
+    private void closePhase() {
+        if (phase == null)
+            return;
+
+        long nanos = System.nanoTime() - phaseStartNanos;
+        long allocated = SolverMetrics.allocatedBytes() - phaseStartAllocated;
+        SolverMetrics.phaseRecord(phase).record(nanos, allocated, phaseVertices, phaseEdges);
+
+        phaseEvent.end();
+        if (phaseEvent.shouldCommit()) {
+            phaseEvent.phase = phase.name();
+            phaseEvent.vertices = phaseVertices;
+            phaseEvent.edges = phaseEdges;
+            phaseEvent.allocatedBytes = allocated;
+            phaseEvent.commit();
+        }
+        phaseEvent = null;
+    }
+}
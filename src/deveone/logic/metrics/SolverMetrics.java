@@ -0,0 +1,129 @@
+package deveone.logic.metrics;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Точка входа метрик расчёта.
+ * По умолчанию выключены; включаются свойством -Ddeveone.metrics=true, методом setEnabled
+ * или атрибутом Enabled MBean'а deveone:type=SolverMetrics.
+ */
+public final class SolverMetrics {
+    private static final SolverStats STATS = new SolverStats();
+    private static final Map<Phase, PhaseStats> PHASES = new EnumMap<>(Phase.class);
+
+    private static final com.sun.management.ThreadMXBean THREADS;
+    static final boolean ALLOCATION_SUPPORTED;
+
+    private static volatile boolean enabled;
+    private static boolean registered = false;
+
+    static {
+        for (Phase phase : Phase.values())
+            PHASES.put(phase, new PhaseStats());
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean sunThreads && sunThreads.isThreadAllocatedMemorySupported()) {
+            THREADS = sunThreads;
+            ALLOCATION_SUPPORTED = true;
+        } else {
+            THREADS = null;
+            ALLOCATION_SUPPORTED = false;
+        }
+
+        if (Boolean.getBoolean("deveone.metrics"))
+            setEnabled(true);
+    }
+
+    private SolverMetrics() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Включает/выключает сбор метрик. При первом включении регистрирует MBean'ы.
+     */
+    public static void setEnabled(boolean value) {
+        if (value)
+            registerMBeans();
+        enabled = value;
+    }
+
+    /**
+     * Начинает замер расчёта
+     *
+     * @param engine   Название движка расчёта
+     * @param vertices Кол-во вершин входного графа
+     * @param edges    Кол-во рёбер входного графа
+     */
+    public static SolveTrace begin(String engine, int vertices, int edges) {
+        return enabled ? new SolveTrace(engine, vertices, edges) : SolveTrace.DISABLED;
+    }
+
+    public static SolverStatsMBean stats() {
+        return STATS;
+    }
+
+    public static PhaseStatsMBean phaseStats(Phase phase) {
+        return PHASES.get(phase);
+    }
+
+    /**
+     * Учитывает пересоздание матрицы смежности при росте графа
+     */
+    public static void matrixResized(int newSize) {
+        if (!enabled)
+            return;
+        STATS.matrixResizes.increment();
+        STATS.matrixCells.add((long) newSize * newSize);
+    }
+
+    /**
+     * Учитывает переход смешанной точности на двойную
+     */
+    public static void precisionFallback() {
+        if (enabled)
+            STATS.precisionFallbacks.increment();
+    }
+
+    /**
+     * Учитывает копирование матрицы смежности
+     */
+    public static void matrixCopied(int rows, int columns) {
+        if (enabled)
+            STATS.matrixCells.add((long) rows * columns);
+    }
+
+    static SolverStats aggregate() {
+        return STATS;
+    }
+
+    static PhaseStats phaseRecord(Phase phase) {
+        return PHASES.get(phase);
+    }
+
+    static long allocatedBytes() {
+        return ALLOCATION_SUPPORTED ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    private static synchronized void registerMBeans() {
+        if (registered)
+            return;
+        registered = true;
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(STATS, new ObjectName("deveone:type=SolverMetrics"));
+            for (Phase phase : Phase.values())
+                server.registerMBean(PHASES.get(phase), new ObjectName("deveone:type=SolverMetrics,phase=" + phase.name()));
+        } catch (JMException e) {
+            // Метрики всё равно собираются, просто недоступны через JMX
+            System.err.println("Не удалось зарегистрировать MBean метрик: " + e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package deveone.logic.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Общая статистика расчётов, публикуемая через JMX как deveone:type=SolverMetrics
+ */
+public class SolverStats implements SolverStatsMBean {
+    final LongAdder solveCount = new LongAdder();
+    final LongAdder totalNanos = new LongAdder();
+    final LongAdder reductions = new LongAdder();
+    final LongAdder iterations = new LongAdder();
+    final LongAdder precisionFallbacks = new LongAdder();
+    final LongAdder sequentialFallbacks = new LongAdder();
+    final LongAdder matrixResizes = new LongAdder();
+    final LongAdder matrixCells = new LongAdder();
+    volatile double lastMatrixFill;
+
+    @Override
+    public boolean isEnabled() {
+        return SolverMetrics.isEnabled();
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        SolverMetrics.setEnabled(enabled);
+    }
+
+    @Override
+    public long getSolveCount() {
+        return solveCount.sum();
+    }
+
+    @Override
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    @Override
+    public long getReductions() {
+        return reductions.sum();
+    }
+
+    @Override
+    public long getIterations() {
+        return iterations.sum();
+    }
+
+    @Override
+    public long getPrecisionFallbacks() {
+        return precisionFallbacks.sum();
+    }
+
+    @Override
+    public long getSequentialFallbacks() {
+        return sequentialFallbacks.sum();
+    }
+
+    @Override
+    public double getLastMatrixFill() {
+        return lastMatrixFill;
+    }
+
+    @Override
+    public long getMatrixResizes() {
+        return matrixResizes.sum();
+    }
+
+    @Override
+    public long getMatrixCellsAllocated() {
+        return matrixCells.sum();
+    }
+
+    @Override
+    public void reset() {
+        solveCount.reset();
+        totalNanos.reset();
+        reductions.reset();
+        iterations.reset();
+        precisionFallbacks.reset();
+        sequentialFallbacks.reset();
+        matrixResizes.reset();
+        matrixCells.reset();
+        lastMatrixFill = 0;
+        for (Phase phase : Phase.values())
+            SolverMetrics.phaseRecord(phase).reset();
+    }
+}
@@ -0,0 +1,45 @@
+package deveone.logic.metrics;
+
+/**
+ * JMX-интерфейс общей статистики расчётов
+ */
+public interface SolverStatsMBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getSolveCount();
+
+    long getTotalNanos();
+
+    long getReductions();
+
+    long getIterations();
+
+    /**
+     * Кол-во переходов смешанной точности на разложение в двойной точности
+     */
+    long getPrecisionFallbacks();
+
+    /**
+     * Кол-во расчётов декомпозицией области, выполненных последовательно: разделитель не уложился в предел
+     */
+    long getSequentialFallbacks();
+
+    /**
+     * Доля ненулевых элементов матрицы смежности в последнем расчёте
+     */
+    double getLastMatrixFill();
+
+    /**
+     * Кол-во пересозданий матрицы смежности при росте графа
+     */
+    long getMatrixResizes();
+
+    /**
+     * Кол-во ячеек, выделенных под матрицы смежности (при росте и при копировании)
+     */
+    long getMatrixCellsAllocated();
+
+    void reset();
+}
@@ -0,0 +1,377 @@
+package deveone.logic.solver;
+
+import deveone.logic.graph.RlcNetwork;
+import deveone.logic.metrics.Phase;
+import deveone.logic.metrics.SolveTrace;
+import deveone.logic.metrics.SolverMetrics;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Расчёт комплексного сопротивления (импеданса) RLC-цепи между двумя вершинами в диапазоне частот.
+ * В начало цепи втекает ток 1 А, конец заземлён; матрица проводимостей Y = G + jB комплексная симметричная,
+ * раскладывается Y = L D L^T в профильном формате (ComplexEnvelopeFactor).
+ * <p>
+ * Портрет Y от частоты не зависит: сборка, объединение закороченных вершин, упорядочение RCM и профиль
+ * строятся один раз, на каждой частоте заново заполняются только значения и численное разложение.
+ * Частоты делятся на пачки по BATCH, пачки считаются на пуле потоков, у каждого потока свои массивы разложения.
+ */
+public final class AcAnalysis {
+    private static final int BATCH = 16;
+
+    private AcAnalysis() {
+    }
+
+    /**
+     * @param frequencies частоты, Гц (положительные)
+     * @return импеданс на каждой частоте или null, если начало не связано с концом
+     */
+    public static Sweep sweep(RlcNetwork network, int startNode, int endNode, double[] frequencies) {
+        return sweep(network, startNode, endNode, frequencies, ForkJoinPool.commonPool());
+    }
+
+    public static Sweep sweep(RlcNetwork network, int startNode, int endNode, double[] frequencies, ForkJoinPool pool) {
+        for (double f : frequencies)
+            if (!(f > 0) || Double.isInfinite(f))
+                throw new IllegalArgumentException("Частота должна быть положительной: " + f);
+
+        SolveTrace trace = SolverMetrics.begin("ac", network.vertexCount(), network.elementCount());
+        try {
+            trace.phase(Phase.ASSEMBLY);
+            Pattern pattern = Pattern.assemble(network, startNode, endNode);
+            if (pattern == null)
+                return null;
+
+            double[] re = new double[frequencies.length];
+            double[] im = new double[frequencies.length];
+            if (pattern.source < 0) {
+                // Начало закорочено с концом
+                return new Sweep(frequencies.clone(), re, im);
+            }
+
+            GroundedLaplacian matrix = pattern.matrix;
+            EnvelopeStructure structure = EnvelopeStructure.analyze(matrix);
+            long cells = (long) matrix.size() * (matrix.size() + 1) / 2;
+            trace.graphSize(matrix.size(), (matrix.nonZeros() - matrix.size()) / 2);
+            trace.matrixFill(structure.envelopeSize(), cells);
+
+            trace.phase(Phase.FACTORIZATION);
+            int batches = (frequencies.length + BATCH - 1) / BATCH;
+            pool.submit(() -> IntStream.range(0, batches).parallel().forEach(batch -> {
+                ComplexEnvelopeFactor factor = new ComplexEnvelopeFactor(structure);
+                double[] valuesRe = new double[matrix.nonZeros()];
+                double[] valuesIm = new double[matrix.nonZeros()];
+                int to = Math.min(frequencies.length, (batch + 1) * BATCH);
+                for (int i = batch * BATCH; i < to; i++) {
+                    pattern.fill(2 * Math.PI * frequencies[i], valuesRe, valuesIm);
+                    try {
+                        factor.factor(matrix, valuesRe, valuesIm);
+                        double[] z = factor.inverseEntry(pattern.source, pattern.source);
+                        re[i] = z[0];
+                        im[i] = z[1];
+                    } catch (ArithmeticException e) {
+                        // Вырожденная матрица: резонанс без потерь, импеданс не определён
+                        re[i] = Double.NaN;
+                        im[i] = Double.NaN;
+                    }
+                }
+            })).join();
+            trace.iterations(frequencies.length);
+
+            return new Sweep(frequencies.clone(), re, im);
+        } finally {
+            trace.end();
+        }
+    }
+
+    /**
+     * Частоты, равномерно распределённые в логарифмическом масштабе
+     *
+     * @param points кол-во точек (не меньше 2), включая from и to
+     */
+    public static double[] logFrequencies(double from, double to, int points) {
+        if (!(from > 0) || !(to > from) || points < 2)
+            throw new IllegalArgumentException("Неверный диапазон частот: " + from + ".." + to + ", " + points + " точек");
+        double[] frequencies = new double[points];
+        double step = Math.log(to / from) / (points - 1);
+        for (int i = 0; i < points; i++)
+            frequencies[i] = from * Math.exp(step * i);
+        frequencies[points - 1] = to;
+        return frequencies;
+    }
+
+    /**
+     * Портрет матрицы проводимостей и позиции вкладов каждого элемента.
+     * Вершины, соединённые закоротками (резистор или катушка с нулевым номиналом), объединяются в узел,
+     * узел конца цепи заземляется; конденсаторы нулевой ёмкости не учитываются.
+     */
+    private static final class Pattern {
+        final GroundedLaplacian matrix;
+        final int source;
+        final int count;
+        final RlcNetwork.Kind[] kind;
+        final double[] value;
+        final int[] diagonal1;
+        final int[] diagonal2;
+        final int[] offDiagonal12;
+        final int[] offDiagonal21;
+
+        private Pattern(GroundedLaplacian matrix, int source, int count, RlcNetwork.Kind[] kind, double[] value,
+                        int[] diagonal1, int[] diagonal2, int[] offDiagonal12, int[] offDiagonal21) {
+            this.matrix = matrix;
+            this.source = source;
+            this.count = count;
+            this.kind = kind;
+            this.value = value;
+            this.diagonal1 = diagonal1;
+            this.diagonal2 = diagonal2;
+            this.offDiagonal12 = offDiagonal12;
+            this.offDiagonal21 = offDiagonal21;
+        }
+
+        static Pattern assemble(RlcNetwork network, int startNode, int endNode) {
+            int vertexCount = network.vertexCount();
+            if (startNode < 0 || endNode < 0 || startNode >= vertexCount || endNode >= vertexCount || startNode == endNode)
+                return null;
+
+            // Элементы, проводящие на ненулевой частоте, по вершинам
+            int elements = network.elementCount();
+            int[] incidentPtr = new int[vertexCount + 1];
+            for (int e = 0; e < elements; e++)
+                if (conducts(network, e)) {
+                    incidentPtr[network.elementSource(e) + 1]++;
+                    incidentPtr[network.elementTarget(e) + 1]++;
+                }
+            for (int v = 0; v < vertexCount; v++)
+                incidentPtr[v + 1] += incidentPtr[v];
+            int[] incident = new int[incidentPtr[vertexCount]];
+            int[] fill = Arrays.copyOf(incidentPtr, vertexCount);
+            for (int e = 0; e < elements; e++)
+                if (conducts(network, e)) {
+                    incident[fill[network.elementSource(e)]++] = e;
+                    incident[fill[network.elementTarget(e)]++] = e;
+                }
+
+            int[] component = new int[vertexCount];
+            boolean[] visited = new boolean[vertexCount];
+            int size = 0;
+            component[size++] = startNode;
+            visited[startNode] = true;
+            for (int head = 0; head < size; head++) {
+                int v = component[head];
+                for (int k = incidentPtr[v]; k < incidentPtr[v + 1]; k++) {
+                    int e = incident[k];
+                    int u = network.elementSource(e) == v ? network.elementTarget(e) : network.elementSource(e);
+                    if (!visited[u]) {
+                        visited[u] = true;
+                        component[size++] = u;
+                    }
+                }
+            }
+            if (!visited[endNode])
+                return null;
+
+            int[] parent = new int[vertexCount];
+            for (int v = 0; v < vertexCount; v++)
+                parent[v] = v;
+            for (int e = 0; e < elements; e++)
+                if (isShort(network, e) && visited[network.elementSource(e)])
+                    union(parent, network.elementSource(e), network.elementTarget(e));
+
+            int[] index = new int[vertexCount];
+            Arrays.fill(index, GroundedLaplacian.OUTSIDE);
+            int ground = find(parent, endNode);
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                int v = component[i];
+                if (find(parent, v) == v && v != ground)
+                    index[v] = n++;
+            }
+            for (int i = 0; i < size; i++) {
+                int v = component[i];
+                int root = find(parent, v);
+                index[v] = root == ground ? GroundedLaplacian.GROUND : index[root];
+            }
+
+            // Портрет: диагональ и пары узлов, соединённые элементами; строки упорядочены по столбцам
+            int[] rowPtr = new int[n + 1];
+            for (int a = 0; a < n; a++)
+                rowPtr[a + 1] = 1;
+            for (int e = 0; e < elements; e++) {
+                int a = index[network.elementSource(e)];
+                int b = index[network.elementTarget(e)];
+                if (conducts(network, e) && !isShort(network, e) && a >= 0 && b >= 0 && a != b) {
+                    rowPtr[a + 1]++;
+                    rowPtr[b + 1]++;
+                }
+            }
+            for (int a = 0; a < n; a++)
+                rowPtr[a + 1] += rowPtr[a];
+            int[] rawCols = new int[rowPtr[n]];
+            int[] next = Arrays.copyOf(rowPtr, n);
+            for (int a = 0; a < n; a++)
+                rawCols[next[a]++] = a;
+            for (int e = 0; e < elements; e++) {
+                int a = index[network.elementSource(e)];
+                int b = index[network.elementTarget(e)];
+                if (conducts(network, e) && !isShort(network, e) && a >= 0 && b >= 0 && a != b) {
+                    rawCols[next[a]++] = b;
+                    rawCols[next[b]++] = a;
+                }
+            }
+            int[] ptr = new int[n + 1];
+            int k = 0;
+            for (int a = 0; a < n; a++) {
+                Arrays.sort(rawCols, rowPtr[a], rowPtr[a + 1]);
+                for (int i = rowPtr[a]; i < rowPtr[a + 1]; i++)
+                    if (i == rowPtr[a] || rawCols[i] != rawCols[i - 1])
+                        rawCols[k++] = rawCols[i];
+                ptr[a + 1] = k;
+            }
+            int[] cols = Arrays.copyOf(rawCols, k);
+            GroundedLaplacian matrix = new GroundedLaplacian(n, ptr, cols, new double[k], index, index[startNode]);
+
+            RlcNetwork.Kind[] kind = new RlcNetwork.Kind[elements];
+            double[] value = new double[elements];
+            int[] diagonal1 = new int[elements];
+            int[] diagonal2 = new int[elements];
+            int[] offDiagonal12 = new int[elements];
+            int[] offDiagonal21 = new int[elements];
+            int count = 0;
+            for (int e = 0; e < elements; e++) {
+                int a = index[network.elementSource(e)];
+                int b = index[network.elementTarget(e)];
+                if (!conducts(network, e) || isShort(network, e) || a == GroundedLaplacian.OUTSIDE || a == b)
+                    continue;
+                kind[count] = network.elementKind(e);
+                value[count] = network.elementValue(e);
+                diagonal1[count] = a >= 0 ? position(ptr, cols, a, a) : -1;
+                diagonal2[count] = b >= 0 ? position(ptr, cols, b, b) : -1;
+                offDiagonal12[count] = a >= 0 && b >= 0 ? position(ptr, cols, a, b) : -1;
+                offDiagonal21[count] = a >= 0 && b >= 0 ? position(ptr, cols, b, a) : -1;
+                count++;
+            }
+            return new Pattern(matrix, index[startNode], count, kind, value, diagonal1, diagonal2, offDiagonal12, offDiagonal21);
+        }
+
+        /**
+         * Значения матрицы на круговой частоте omega: G = 1/R, jwC, 1/(jwL) = -j/(wL)
+         */
+        void fill(double omega, double[] re, double[] im) {
+            Arrays.fill(re, 0);
+            Arrays.fill(im, 0);
+            for (int e = 0; e < count; e++) {
+                double yRe = 0;
+                double yIm = 0;
+                switch (kind[e]) {
+                    case RESISTOR:
+                        yRe = 1 / value[e];
+                        break;
+                    case CAPACITOR:
+                        yIm = omega * value[e];
+                        break;
+                    case INDUCTOR:
+                        yIm = -1 / (omega * value[e]);
+                        break;
+                }
+                stamp(re, im, diagonal1[e], yRe, yIm);
+                stamp(re, im, diagonal2[e], yRe, yIm);
+                stamp(re, im, offDiagonal12[e], -yRe, -yIm);
+                stamp(re, im, offDiagonal21[e], -yRe, -yIm);
+            }
+        }
+
+        private static void stamp(double[] re, double[] im, int position, double yRe, double yIm) {
+            if (position >= 0) {
+                re[position] += yRe;
+                im[position] += yIm;
+            }
+        }
+
+        private static int position(int[] ptr, int[] cols, int row, int col) {
+            return Arrays.binarySearch(cols, ptr[row], ptr[row + 1], col);
+        }
+
+        /**
+         * Конденсатор нулевой ёмкости - разрыв
+         */
+        private static boolean conducts(RlcNetwork network, int e) {
+            return network.elementKind(e) != RlcNetwork.Kind.CAPACITOR || network.elementValue(e) > 0;
+        }
+
+        private static boolean isShort(RlcNetwork network, int e) {
+            return network.elementKind(e) != RlcNetwork.Kind.CAPACITOR && network.elementValue(e) == 0;
+        }
+
+        private static int find(int[] parent, int v) {
+            while (parent[v] != v) {
+                parent[v] = parent[parent[v]];
+                v = parent[v];
+            }
+            return v;
+        }
+
+        private static void union(int[] parent, int v1, int v2) {
+            int r1 = find(parent, v1);
+            int r2 = find(parent, v2);
+            if (r1 != r2)
+                parent[Math.max(r1, r2)] = Math.min(r1, r2);
+        }
+    }
+
+    /**
+     * Импеданс цепи на каждой частоте развёртки
+     */
+    public static final class Sweep {
+        private final double[] frequencies;
+        private final double[] re;
+        private final double[] im;
+
+        Sweep(double[] frequencies, double[] re, double[] im) {
+            this.frequencies = frequencies;
+            this.re = re;
+            this.im = im;
+        }
+
+        public int size() {
+            return frequencies.length;
+        }
+
+        /**
+         * Частота точки i, Гц
+         */
+        public double frequency(int i) {
+            return frequencies[i];
+        }
+
+        /**
+         * Активная составляющая импеданса, Ом (NaN при резонансе цепи без потерь)
+         */
+        public double real(int i) {
+            return re[i];
+        }
+
+        /**
+         * Реактивная составляющая импеданса, Ом
+         */
+        public double imaginary(int i) {
+            return im[i];
+        }
+
+        /**
+         * Модуль импеданса, Ом
+         */
+        public double magnitude(int i) {
+            return Math.hypot(re[i], im[i]);
+        }
+
+        /**
+         * Фаза импеданса в градусах
+         */
+        public double phase(int i) {
+            return Math.toDegrees(Math.atan2(im[i], re[i]));
+        }
+    }
+}
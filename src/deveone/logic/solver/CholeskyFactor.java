@@ -0,0 +1,56 @@
+package deveone.logic.solver;
+
+import deveone.logic.solver.dense.DenseKernels;
+import deveone.logic.solver.dense.DenseSolver;
+
+/**
+ * Разложение Холецкого для многих правых частей: плотное до DenseSolver.THRESHOLD узлов, иначе профильное
+ * после упорядочения RCM. solve() не пользуется общими рабочими массивами, поэтому потокобезопасен.
+ */
+final class CholeskyFactor implements LaplacianFactor {
+    private final int n;
+    private final double[] dense;
+    private final DenseKernels kernels;
+    private final DoubleEnvelopeFactor envelope;
+
+    private CholeskyFactor(int n, double[] dense, DenseKernels kernels, DoubleEnvelopeFactor envelope) {
+        this.n = n;
+        this.dense = dense;
+        this.kernels = kernels;
+        this.envelope = envelope;
+    }
+
+    /**
+     * @throws ArithmeticException если матрица не положительно определена
+     */
+    static CholeskyFactor of(GroundedLaplacian a) {
+        int n = a.size();
+        if (n <= DenseSolver.THRESHOLD) {
+            DenseKernels kernels = DenseKernels.get();
+            double[] dense = new double[n * n];
+            a.toDense(dense);
+            kernels.cholesky(dense, n);
+            return new CholeskyFactor(n, dense, kernels, null);
+        }
+        return new CholeskyFactor(n, null, null, DoubleEnvelopeFactor.factor(EnvelopeStructure.analyze(a), a));
+    }
+
+    int size() {
+        return n;
+    }
+
+    @Override
+    public void solve(double[] b, double[] x) {
+        if (envelope != null) {
+            envelope.solve(b, x, new double[n]);
+        } else {
+            System.arraycopy(b, 0, x, 0, n);
+            kernels.choleskySolve(dense, n, x);
+        }
+    }
+
+    @Override
+    public long factorBytes() {
+        return envelope != null ? envelope.factorBytes() : (long) dense.length * Double.BYTES;
+    }
+}
@@ -0,0 +1,140 @@
+package deveone.logic.solver;
+
+import deveone.logic.graph.WeightedGraph;
+
+import java.util.Arrays;
+
+/**
+ * Распределение потенциалов и токов в цепи при токе 1 А, втекающем в начало цепи и вытекающем из конца.
+ * Получается из того же решения узловой системы, что и сопротивление цепи: потенциал конца цепи равен 0,
+ * потенциал начала - сопротивлению, ток резистора - разности потенциалов, делённой на сопротивление.
+ * <p>
+ * Через закоротки (резисторы нулевого сопротивления) ток по потенциалам не определяется, поэтому он находится
+ * по закону Кирхгофа для токов на остовном дереве закороток. Если закоротки образуют цикл, ток по нему
+ * распределяется неоднозначно, и хорды остовного дерева получают нулевой ток.
+ */
+public final class CircuitSolution {
+    private static final int NO_PARENT = -1;
+
+    private final int startNode;
+    private final int endNode;
+    private final double[] potentials;  // NaN - вершина не связана с началом цепи
+    private final int[] shortParent;    // Родитель вершины в остовном дереве закороток
+    private final double[] shortFlow;   // Ток от вершины к родителю по закоротке
+
+    private CircuitSolution(int startNode, int endNode, double[] potentials, int[] shortParent, double[] shortFlow) {
+        this.startNode = startNode;
+        this.endNode = endNode;
+        this.potentials = potentials;
+        this.shortParent = shortParent;
+        this.shortFlow = shortFlow;
+    }
+
+    /**
+     * @param a матрица цепи
+     * @param x потенциалы узлов матрицы
+     */
+    static CircuitSolution of(WeightedGraph graph, GroundedLaplacian a, double[] x, int startNode, int endNode) {
+        int vertexCount = graph.vertexCount();
+        double[] potentials = new double[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            int node = a.nodeOf(v);
+            potentials[v] = node >= 0 ? x[node] : node == GroundedLaplacian.GROUND ? 0 : Double.NaN;
+        }
+
+        // Остовные деревья закороток; дерево закороток конца цепи строится от конца, чтобы ток уходил в землю
+        int[] parent = new int[vertexCount];
+        Arrays.fill(parent, NO_PARENT);
+        boolean[] visited = new boolean[vertexCount];
+        int[] order = new int[vertexCount];
+        int size = 0;
+        for (int i = -1; i < vertexCount; i++) {
+            int root = i < 0 ? endNode : i;
+            if (visited[root] || Double.isNaN(potentials[root]))
+                continue;
+            visited[root] = true;
+            order[size++] = root;
+            for (int head = size - 1; head < size; head++) {
+                int v = order[head];
+                for (WeightedGraph.WeightedEdgeTo edge : graph.adjacencyWithWeights(v)) {
+                    int u = edge.to();
+                    if (edge.weight() == 0 && !visited[u]) {
+                        visited[u] = true;
+                        parent[u] = v;
+                        order[size++] = u;
+                    }
+                }
+            }
+        }
+
+        // Избыток тока в вершине (втекающий извне минус ушедший через резисторы) передаётся родителю
+        double[] flow = new double[vertexCount];
+        for (int k = size - 1; k >= 0; k--) {
+            int v = order[k];
+            if (v == startNode)
+                flow[v] += 1;
+            for (WeightedGraph.WeightedEdgeTo edge : graph.adjacencyWithWeights(v))
+                if (edge.weight() > 0)
+                    flow[v] -= (potentials[v] - potentials[edge.to()]) / edge.weight();
+            if (parent[v] != NO_PARENT)
+                flow[parent[v]] += flow[v];
+        }
+
+        return new CircuitSolution(startNode, endNode, potentials, parent, flow);
+    }
+
+    /**
+     * Эквивалентное сопротивление цепи (потенциал начала цепи)
+     */
+    public double getResistance() {
+        return potentials[startNode];
+    }
+
+    public int getStartNode() {
+        return startNode;
+    }
+
+    public int getEndNode() {
+        return endNode;
+    }
+
+    /**
+     * Потенциал вершины или NaN, если вершина не связана с началом цепи
+     */
+    public double potential(int v) {
+        return v >= 0 && v < potentials.length ? potentials[v] : Double.NaN;
+    }
+
+    /**
+     * Наибольший потенциал (потенциал начала цепи)
+     */
+    public double maxPotential() {
+        return potentials[startNode];
+    }
+
+    /**
+     * Ток через резистор от v1 к v2
+     *
+     * @param resistance сопротивление резистора; для нулевого сопротивления возвращается суммарный ток
+     *                   через закоротки между v1 и v2
+     */
+    public double current(int v1, int v2, double resistance) {
+        if (resistance == 0)
+            return shortCurrent(v1, v2);
+        double current = (potential(v1) - potential(v2)) / resistance;
+        return Double.isNaN(current) ? 0 : current;
+    }
+
+    /**
+     * Суммарный ток через закоротки от v1 к v2
+     */
+    public double shortCurrent(int v1, int v2) {
+        if (v1 < 0 || v2 < 0 || v1 >= shortParent.length || v2 >= shortParent.length)
+            return 0;
+        if (shortParent[v1] == v2)
+            return shortFlow[v1];
+        if (shortParent[v2] == v1)
+            return -shortFlow[v2];
+        return 0;
+    }
+}
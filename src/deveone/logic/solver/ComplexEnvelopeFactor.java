@@ -0,0 +1,139 @@
+package deveone.logic.solver;
+
+import java.util.Arrays;
+
+/**
+ * Разложение A = L D L^T комплексной симметричной (не эрмитовой) матрицы в профильном формате,
+ * L - с единичной диагональю. Действительная и мнимая части хранятся в отдельных массивах.
+ * Массивы выделяются один раз под структуру и переиспользуются при каждом factor(),
+ * поэтому один экземпляр используется одним потоком.
+ */
+final class ComplexEnvelopeFactor {
+    private final EnvelopeStructure structure;
+    private final double[] lRe; // строка i: L(i, j) в l[ptr[i] - first[i] + j], на месте диагонали - D(i)
+    private final double[] lIm;
+    private final double[] uRe; // строка i до деления на D: u(j) = L(i, j) D(j)
+    private final double[] uIm;
+    private final double[] yRe;
+    private final double[] yIm;
+
+    ComplexEnvelopeFactor(EnvelopeStructure structure) {
+        this.structure = structure;
+        int size = structure.checkedEnvelopeSize();
+        lRe = new double[size];
+        lIm = new double[size];
+        uRe = new double[structure.n];
+        uIm = new double[structure.n];
+        yRe = new double[structure.n];
+        yIm = new double[structure.n];
+    }
+
+    /**
+     * @param pattern портрет матрицы (значения pattern не используются)
+     * @param re      действительные части элементов в порядке pattern
+     * @param im      мнимые части
+     * @throws ArithmeticException при нулевом ведущем элементе (например, резонанс цепи без потерь)
+     */
+    void factor(GroundedLaplacian pattern, double[] re, double[] im) {
+        EnvelopeStructure s = structure;
+        int[] first = s.first;
+        for (int i = 0; i < s.n; i++) {
+            int fi = first[i];
+            int pi = (int) s.ptr[i] - fi;
+            for (int j = fi; j <= i; j++) {
+                lRe[pi + j] = 0;
+                lIm[pi + j] = 0;
+            }
+            int row = s.perm[i];
+            for (int k = pattern.rowPtr[row]; k < pattern.rowPtr[row + 1]; k++) {
+                int j = s.inverse[pattern.cols[k]];
+                if (j <= i) {
+                    lRe[pi + j] += re[k];
+                    lIm[pi + j] += im[k];
+                }
+            }
+
+            double dRe = lRe[pi + i];
+            double dIm = lIm[pi + i];
+            for (int j = fi; j < i; j++) {
+                int pj = (int) s.ptr[j] - first[j];
+                double sumRe = lRe[pi + j];
+                double sumIm = lIm[pi + j];
+                for (int k = Math.max(fi, first[j]); k < j; k++) {
+                    double aRe = uRe[k], aIm = uIm[k];
+                    double bRe = lRe[pj + k], bIm = lIm[pj + k];
+                    sumRe -= aRe * bRe - aIm * bIm;
+                    sumIm -= aRe * bIm + aIm * bRe;
+                }
+                uRe[j] = sumRe;
+                uIm[j] = sumIm;
+
+                // L(i, j) = u(j) / D(j)
+                double djRe = lRe[pj + j], djIm = lIm[pj + j];
+                double norm = djRe * djRe + djIm * djIm;
+                double lijRe = (sumRe * djRe + sumIm * djIm) / norm;
+                double lijIm = (sumIm * djRe - sumRe * djIm) / norm;
+                lRe[pi + j] = lijRe;
+                lIm[pi + j] = lijIm;
+
+                dRe -= sumRe * lijRe - sumIm * lijIm;
+                dIm -= sumRe * lijIm + sumIm * lijRe;
+            }
+            double norm = dRe * dRe + dIm * dIm;
+            if (!(norm > 0) || Double.isInfinite(norm))
+                throw new ArithmeticException("Нулевой ведущий элемент (строка " + i + ")");
+            lRe[pi + i] = dRe;
+            lIm[pi + i] = dIm;
+        }
+    }
+
+    /**
+     * Элемент x(row) решения A x = e(column): при симметричной A это элемент обратной матрицы
+     *
+     * @return {действительная часть, мнимая часть}
+     */
+    double[] inverseEntry(int row, int column) {
+        EnvelopeStructure s = structure;
+        Arrays.fill(yRe, 0);
+        Arrays.fill(yIm, 0);
+        int from = s.inverse[column];
+        yRe[from] = 1;
+
+        // L y = e: строки выше from остаются нулевыми
+        for (int i = from + 1; i < s.n; i++) {
+            int fi = s.first[i];
+            int pi = (int) s.ptr[i] - fi;
+            double sumRe = 0, sumIm = 0;
+            for (int k = Math.max(fi, from); k < i; k++) {
+                double aRe = lRe[pi + k], aIm = lIm[pi + k];
+                sumRe -= aRe * yRe[k] - aIm * yIm[k];
+                sumIm -= aRe * yIm[k] + aIm * yRe[k];
+            }
+            yRe[i] = sumRe;
+            yIm[i] = sumIm;
+        }
+        // D z = y
+        for (int i = from; i < s.n; i++) {
+            int pi = (int) s.ptr[i] - s.first[i];
+            double dRe = lRe[pi + i], dIm = lIm[pi + i];
+            double norm = dRe * dRe + dIm * dIm;
+            double re = (yRe[i] * dRe + yIm[i] * dIm) / norm;
+            double im = (yIm[i] * dRe - yRe[i] * dIm) / norm;
+            yRe[i] = re;
+            yIm[i] = im;
+        }
+        // L^T x = z, до нужной строки
+        int target = s.inverse[row];
+        for (int i = s.n - 1; i > target; i--) {
+            int fi = s.first[i];
+            int pi = (int) s.ptr[i] - fi;
+            double xRe = yRe[i], xIm = yIm[i];
+            for (int k = fi; k < i; k++) {
+                double aRe = lRe[pi + k], aIm = lIm[pi + k];
+                yRe[k] -= aRe * xRe - aIm * xIm;
+                yIm[k] -= aRe * xIm + aIm * xRe;
+            }
+        }
+        return new double[]{yRe[target], yIm[target]};
+    }
+}
@@ -0,0 +1,86 @@
+package deveone.logic.solver;
+
+import deveone.logic.graph.WeightedGraph;
+import deveone.logic.metrics.Phase;
+import deveone.logic.metrics.SolveTrace;
+import deveone.logic.metrics.SolverMetrics;
+import deveone.logic.solver.dense.DenseSolver;
+
+/**
+ * Расчёт сопротивления через решение системы узловых потенциалов.
+ * В начало цепи втекает ток 1 А, конец заземлён, сопротивление равно потенциалу начала.
+ * Система решается разложением Холецкого в двойной точности: небольшие (до DenseSolver.THRESHOLD узлов) -
+ * в плотной форме, остальные - в профильной после упорядочения RCM.
+ */
+public final class DirectSolver {
+    private DirectSolver() {
+    }
+
+    /**
+     * @return сопротивление цепи или -1, если начало не связано с концом
+     */
+    public static double resistance(WeightedGraph graph, int startNode, int endNode) {
+        SolveTrace trace = SolverMetrics.begin("direct", graph.vertexCount(), graph.edgeCount());
+        try {
+            trace.phase(Phase.ASSEMBLY);
+            GroundedLaplacian a = GroundedLaplacian.assemble(graph, startNode, endNode);
+            if (a == null)
+                return -1;
+            double[] x = potentials(a, trace);
+
+            return a.source() == GroundedLaplacian.GROUND ? 0 : x[a.source()];
+        } finally {
+            trace.end();
+        }
+    }
+
+    /**
+     * Потенциалы всех вершин и токи всех резисторов из одного решения системы
+     *
+     * @return распределение или null, если начало не связано с концом
+     */
+    public static CircuitSolution solve(WeightedGraph graph, int startNode, int endNode) {
+        SolveTrace trace = SolverMetrics.begin("direct", graph.vertexCount(), graph.edgeCount());
+        try {
+            trace.phase(Phase.ASSEMBLY);
+            GroundedLaplacian a = GroundedLaplacian.assemble(graph, startNode, endNode);
+            if (a == null)
+                return null;
+            double[] x = potentials(a, trace);
+
+            trace.phase(Phase.SOLVE);
+            return CircuitSolution.of(graph, a, x, startNode, endNode);
+        } finally {
+            trace.end();
+        }
+    }
+
+    /**
+     * Решает систему при единичном токе в начало цепи
+     *
+     * @return потенциалы узлов матрицы
+     */
+    static double[] potentials(GroundedLaplacian a, SolveTrace trace) {
+        if (a.size() == 0)
+            return new double[0];
+
+        long cells = (long) a.size() * (a.size() + 1) / 2;
+        trace.graphSize(a.size(), (a.nonZeros() - a.size()) / 2);
+        if (a.size() <= DenseSolver.THRESHOLD) {
+            trace.matrixFill(cells, cells);
+            trace.phase(Phase.FACTORIZATION);
+            return DenseSolver.solve(a, a.unitSourceCurrent());
+        }
+
+        EnvelopeStructure structure = EnvelopeStructure.analyze(a);
+        trace.matrixFill(structure.envelopeSize(), cells);
+
+        trace.phase(Phase.FACTORIZATION);
+        DoubleEnvelopeFactor factor = DoubleEnvelopeFactor.factor(structure, a);
+
+        trace.phase(Phase.SOLVE);
+        double[] x = new double[a.size()];
+        factor.solve(a.unitSourceCurrent(), x);
+        return x;
+    }
+}
@@ -0,0 +1,292 @@
+package deveone.logic.solver;
+
+import deveone.logic.graph.WeightedGraph;
+import deveone.logic.metrics.Phase;
+import deveone.logic.metrics.SolveTrace;
+import deveone.logic.metrics.SolverMetrics;
+import deveone.logic.solver.dense.DenseKernels;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Параллельный расчёт методом декомпозиции области.
+ * Узлы матрицы делятся на части и разделитель (Partitioner), так что части друг с другом не связаны.
+ * Внутренние узлы каждой части исключаются независимо на пуле потоков (профильное разложение Холецкого
+ * своей подматрицы), их вклады собираются в плотное дополнение Шура на разделителе:
+ * S = A_SS - sum A_Sp A_pp^-1 A_pS. После решения системы на разделителе потенциалы внутренних
+ * узлов находятся обратной подстановкой, тоже параллельно по частям.
+ * <p>
+ * Общий разделитель не больше MAX_SEPARATOR узлов: если он не укладывается в предел, частей становится
+ * меньше. Небольшие системы (меньше MIN_SIZE узлов) и системы, которые не удалось поделить даже на две части
+ * с таким разделителем, решаются последовательно, как в DirectSolver (отмечается в SolveTrace).
+ */
+public final class DomainDecompositionSolver {
+    /**
+     * Системы меньше этого размера не делятся на части
+     */
+    public static final int MIN_SIZE = Integer.getInteger("deveone.dd.minSize", 4096);
+    /**
+     * Наибольший разделитель, для которого строится плотное дополнение Шура
+     */
+    public static final int MAX_SEPARATOR = Integer.getInteger("deveone.dd.maxSeparator", 4096);
+
+    private static final long SEED = 42;
+
+    private final int parts;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param parts кол-во частей (не меньше 2)
+     */
+    public DomainDecompositionSolver(int parts, ForkJoinPool pool) {
+        if (parts < 2)
+            throw new IllegalArgumentException("Частей должно быть не меньше двух: " + parts);
+        this.parts = parts;
+        this.pool = pool;
+    }
+
+    /**
+     * По одной части на поток пула
+     */
+    public DomainDecompositionSolver(ForkJoinPool pool) {
+        this(Math.max(2, pool.getParallelism()), pool);
+    }
+
+    public DomainDecompositionSolver() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public int getParts() {
+        return parts;
+    }
+
+    /**
+     * @return сопротивление цепи или -1, если начало не связано с концом
+     */
+    public double resistance(WeightedGraph graph, int startNode, int endNode) {
+        SolveTrace trace = SolverMetrics.begin("domain-decomposition", graph.vertexCount(), graph.edgeCount());
+        try {
+            trace.phase(Phase.ASSEMBLY);
+            GroundedLaplacian a = GroundedLaplacian.assemble(graph, startNode, endNode);
+            if (a == null)
+                return -1;
+            double[] x = a.size() < MIN_SIZE ? DirectSolver.potentials(a, trace) : potentials(a, trace);
+
+            return a.source() == GroundedLaplacian.GROUND ? 0 : x[a.source()];
+        } finally {
+            trace.end();
+        }
+    }
+
+    private double[] potentials(GroundedLaplacian a, SolveTrace trace) {
+        int n = a.size();
+        trace.graphSize(n, (a.nonZeros() - n) / 2);
+
+        // Частей может получиться меньше, если разделитель упирается в MAX_SEPARATOR
+        int[] part = Partitioner.partition(a, parts, MAX_SEPARATOR, SEED);
+        int partCount = 0;
+        for (int p : part)
+            partCount = Math.max(partCount, p + 1);
+        int[] separator = new int[n]; // номер узла среди узлов разделителя или -1
+        int m = 0;
+        int[] partSize = new int[partCount];
+        for (int i = 0; i < n; i++) {
+            separator[i] = part[i] == Partitioner.SEPARATOR ? m++ : -1;
+            if (part[i] != Partitioner.SEPARATOR)
+                partSize[part[i]]++;
+        }
+        trace.partitions(partCount, m);
+        if (partCount < 2) {
+            trace.sequentialFallback();
+            return DirectSolver.potentials(a, trace);
+        }
+
+        int[][] nodes = new int[partCount][];
+        for (int p = 0; p < partCount; p++)
+            nodes[p] = new int[partSize[p]];
+        int[] separatorNodes = new int[m];
+        Arrays.fill(partSize, 0);
+        for (int i = 0; i < n; i++) {
+            if (part[i] == Partitioner.SEPARATOR)
+                separatorNodes[separator[i]] = i;
+            else
+                nodes[part[i]][partSize[part[i]]++] = i;
+        }
+
+        double[] b = a.unitSourceCurrent();
+        double[] schur = new double[m * m];
+        double[] g = new double[m];
+        for (int r = 0; r < m; r++) {
+            int row = separatorNodes[r];
+            g[r] = b[row];
+            for (int k = a.rowPtr[row]; k < a.rowPtr[row + 1]; k++) {
+                int c = separator[a.cols[k]];
+                if (c >= 0)
+                    schur[r * m + c] = a.vals[k];
+            }
+        }
+
+        trace.phase(Phase.FACTORIZATION);
+        DenseKernels kernels = DenseKernels.get();
+        Domain[] domains = new Domain[partCount];
+        int separatorSize = m;
+        parallel(partCount, p -> {
+            Domain d = new Domain(a, nodes[p], separator);
+            d.eliminate(b, schur, g, separatorSize, kernels);
+            domains[p] = d;
+        });
+        long fill = (long) m * (m + 1) / 2;
+        for (Domain d : domains)
+            fill += d.structure.envelopeSize();
+        trace.matrixFill(fill, (long) n * (n + 1) / 2);
+        kernels.cholesky(schur, m, pool);
+
+        trace.phase(Phase.SOLVE);
+        kernels.choleskySolve(schur, m, g);
+        double[] x = new double[n];
+        for (int r = 0; r < m; r++)
+            x[separatorNodes[r]] = g[r];
+        parallel(partCount, p -> domains[p].backSubstitute(b, g, x));
+        return x;
+    }
+
+    private void parallel(int count, IntConsumer task) {
+        pool.submit(() -> IntStream.range(0, count).parallel().forEach(task)).join();
+    }
+
+    /**
+     * Часть: подматрица внутренних узлов, её разложение и связи с разделителем.
+     * Узлы, смежные с разделителем, стоят в конце порядка множителя, поэтому W = L^-1 A_pS
+     * отлична от нуля только в последних строках и вклад в дополнение Шура A_Sp A_pp^-1 A_pS = W^T W
+     * считается коротким прямым ходом по каждому столбцу.
+     */
+    private static final class Domain {
+        final int[] nodes;
+        final int[] boundary;       // узлы разделителя (их номера среди узлов разделителя), смежные с частью
+        final int[] couplingPtr;    // A_pS построчно: строка - внутренний узел, столбец - номер в boundary
+        final int[] couplingCol;
+        final double[] couplingVal;
+        final EnvelopeStructure structure;
+        final DoubleEnvelopeFactor factor;
+
+        Domain(GroundedLaplacian a, int[] nodes, int[] separator) {
+            this.nodes = nodes;
+            int size = nodes.length;
+
+            int[] ptr = new int[size + 1];
+            int coupled = 0;
+            for (int i = 0; i < size; i++) {
+                int row = nodes[i];
+                int count = 0;
+                for (int k = a.rowPtr[row]; k < a.rowPtr[row + 1]; k++)
+                    if (separator[a.cols[k]] >= 0)
+                        count++;
+                ptr[i + 1] = ptr[i] + count;
+                if (count > 0)
+                    coupled++;
+            }
+            int[] col = new int[ptr[size]];
+            double[] val = new double[ptr[size]];
+            int[] coupledRows = new int[coupled];
+            for (int i = 0, e = 0, c = 0; i < size; i++) {
+                if (ptr[i + 1] > ptr[i])
+                    coupledRows[c++] = i;
+                int row = nodes[i];
+                for (int k = a.rowPtr[row]; k < a.rowPtr[row + 1]; k++) {
+                    int j = separator[a.cols[k]];
+                    if (j >= 0) {
+                        col[e] = j;
+                        val[e++] = a.vals[k];
+                    }
+                }
+            }
+            this.boundary = Arrays.stream(col).sorted().distinct().toArray();
+            for (int e = 0; e < col.length; e++)
+                col[e] = Arrays.binarySearch(boundary, col[e]);
+            this.couplingPtr = ptr;
+            this.couplingCol = col;
+            this.couplingVal = val;
+
+            GroundedLaplacian interior = a.principal(nodes);
+            this.structure = EnvelopeStructure.analyze(interior, coupledRows);
+            this.factor = DoubleEnvelopeFactor.factor(structure, interior);
+        }
+
+        /**
+         * Вычитает вклад части из дополнения Шура (S -= W^T W) и правой части на разделителе (g -= W^T L^-1 b_p)
+         */
+        void eliminate(double[] b, double[] schur, double[] g, int m, DenseKernels kernels) {
+            int size = nodes.length;
+            int width = boundary.length;
+            if (width == 0)
+                return;
+
+            // Строки множителя, в которых W может быть отлична от нуля
+            int tail = size;
+            for (int i = 0; i < size; i++)
+                if (couplingPtr[i + 1] > couplingPtr[i])
+                    tail = Math.min(tail, structure.inverse[i]);
+            int height = size - tail;
+
+            // Столбцы W подряд: столбец j - w[j * height .. (j + 1) * height)
+            double[] w = new double[width * height];
+            double[] y = new double[size];
+            for (int i = 0; i < size; i++)
+                for (int e = couplingPtr[i]; e < couplingPtr[i + 1]; e++)
+                    w[couplingCol[e] * height + structure.inverse[i] - tail] = couplingVal[e];
+            for (int j = 0; j < width; j++) {
+                System.arraycopy(w, j * height, y, tail, height);
+                factor.forward(y, tail);
+                System.arraycopy(y, tail, w, j * height, height);
+            }
+
+            double[] column = new double[width];
+            for (int j = 0; j < width; j++) {
+                for (int i = 0; i <= j; i++)
+                    column[i] = kernels.dot(w, i * height, w, j * height, height);
+                int c = boundary[j];
+                // Части делят узлы разделителя, поэтому запись в общую матрицу - под блокировкой
+                synchronized (schur) {
+                    for (int i = 0; i <= j; i++) {
+                        schur[boundary[i] * m + c] -= column[i];
+                        if (i != j)
+                            schur[c * m + boundary[i]] -= column[i];
+                    }
+                }
+            }
+
+            for (int i = 0; i < size; i++)
+                y[structure.inverse[i]] = b[nodes[i]];
+            factor.forward(y, 0);
+            for (int j = 0; j < width; j++)
+                column[j] = kernels.dot(w, j * height, y, tail, height);
+            synchronized (g) {
+                for (int j = 0; j < width; j++)
+                    g[boundary[j]] -= column[j];
+            }
+        }
+
+        /**
+         * x_p = A_pp^-1 (b_p - A_pS x_S)
+         */
+        void backSubstitute(double[] b, double[] separatorPotentials, double[] x) {
+            int size = nodes.length;
+            if (size == 0)
+                return;
+            double[] rhs = new double[size];
+            for (int i = 0; i < size; i++) {
+                double sum = b[nodes[i]];
+                for (int e = couplingPtr[i]; e < couplingPtr[i + 1]; e++)
+                    sum -= couplingVal[e] * separatorPotentials[boundary[couplingCol[e]]];
+                rhs[i] = sum;
+            }
+            double[] y = new double[size];
+            factor.solve(rhs, y);
+            for (int i = 0; i < size; i++)
+                x[nodes[i]] = y[i];
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package deveone.logic.solver;
+
+import deveone.logic.solver.dense.DenseKernels;
+
+/**
+ * Разложение Холецкого A = L L^T в двойной точности, профильный формат.
+ * Строки профиля хранятся подряд, поэтому скалярные произведения строк и подстановки выполняются
+ * ядрами DenseKernels (через Vector API, если он подключён).
+ */
+public final class DoubleEnvelopeFactor implements LaplacianFactor {
+    private final EnvelopeStructure structure;
+    private final double[] l;
+    private final double[] work;
+    private final DenseKernels kernels = DenseKernels.get();
+
+    private DoubleEnvelopeFactor(EnvelopeStructure structure, double[] l) {
+        this.structure = structure;
+        this.l = l;
+        this.work = new double[structure.n];
+    }
+
+    /**
+     * @throws ArithmeticException если матрица не положительно определена
+     */
+    public static DoubleEnvelopeFactor factor(EnvelopeStructure s, GroundedLaplacian a) {
+        double[] l = new double[s.checkedEnvelopeSize()];
+        int[] first = s.first;
+        DenseKernels kernels = DenseKernels.get();
+
+        for (int i = 0; i < s.n; i++) {
+            int fi = first[i];
+            int pi = (int) s.ptr[i] - fi; // L(i, j) = l[pi + j]
+
+            int row = s.perm[i];
+            for (int k = a.rowPtr[row]; k < a.rowPtr[row + 1]; k++) {
+                int j = s.inverse[a.cols[k]];
+                if (j <= i)
+                    l[pi + j] += a.vals[k];
+            }
+
+            for (int j = fi; j < i; j++) {
+                int pj = (int) s.ptr[j] - first[j];
+                int k0 = Math.max(fi, first[j]);
+                l[pi + j] = (l[pi + j] - kernels.dot(l, pi + k0, l, pj + k0, j - k0)) / l[pj + j];
+            }
+
+            double d = l[pi + i] - kernels.dot(l, pi + fi, l, pi + fi, i - fi);
+            if (!(d > 0))
+                throw new ArithmeticException("Матрица не положительно определена (строка " + i + ")");
+            l[pi + i] = Math.sqrt(d);
+        }
+        return new DoubleEnvelopeFactor(s, l);
+    }
+
+    @Override
+    public void solve(double[] b, double[] x) {
+        solve(b, x, work);
+    }
+
+    /**
+     * Решение с рабочим массивом вызывающего (длины size()): так множитель можно использовать из нескольких потоков
+     */
+    void solve(double[] b, double[] x, double[] y) {
+        EnvelopeStructure s = structure;
+        s.permute(b, y);
+
+        for (int i = 0; i < s.n; i++) {
+            int fi = s.first[i];
+            int pi = (int) s.ptr[i] - fi;
+            y[i] = (y[i] - kernels.dot(l, pi + fi, y, fi, i - fi)) / l[pi + i];
+        }
+        for (int i = s.n - 1; i >= 0; i--) {
+            int fi = s.first[i];
+            int pi = (int) s.ptr[i] - fi;
+            double xi = y[i] / l[pi + i];
+            y[i] = xi;
+            kernels.axpy(-xi, l, pi + fi, y, fi, i - fi);
+        }
+
+        s.unpermute(y, x);
+    }
+
+    /**
+     * Прямой ход L y = b на месте для вектора в порядке множителя (b[i] = 0 для i < from)
+     */
+    void forward(double[] y, int from) {
+        EnvelopeStructure s = structure;
+        for (int i = from; i < s.n; i++) {
+            int fi = s.first[i];
+            int pi = (int) s.ptr[i] - fi;
+            int k0 = Math.max(fi, from);
+            y[i] = (y[i] - kernels.dot(l, pi + k0, y, k0, i - k0)) / l[pi + i];
+        }
+    }
+
+    @Override
+    public long factorBytes() {
+        return (long) l.length * Double.BYTES;
+    }
+}
@@ -0,0 +1,198 @@
+package deveone.logic.solver;
+
+import java.util.Arrays;
+
+/**
+ * Символьный анализ для разложения Холецкого в профильном (envelope) формате.
+ * Узлы переставляются обратным алгоритмом Катхилла-Макки, что уменьшает профиль матрицы.
+ * Строка i множителя L хранит столбцы first[i]..i подряд, начиная с ptr[i].
+ * Структура зависит только от портрета матрицы, поэтому переиспользуется при изменении номиналов.
+ */
+public final class EnvelopeStructure {
+    final int n;
+    final int[] perm;    // perm[новый номер] = старый номер
+    final int[] inverse; // inverse[старый номер] = новый номер
+    final int[] first;
+    final long[] ptr;
+
+    private EnvelopeStructure(int n, int[] perm, int[] inverse, int[] first, long[] ptr) {
+        this.n = n;
+        this.perm = perm;
+        this.inverse = inverse;
+        this.first = first;
+        this.ptr = ptr;
+    }
+
+    public static EnvelopeStructure analyze(GroundedLaplacian a) {
+        return analyze(a, new int[0]);
+    }
+
+    /**
+     * Символьный анализ с узлами last в конце порядка: обход их компоненты начинается сразу со всех них.
+     * Прямой ход по столбцу с ненулями только в этих узлах затрагивает лишь последние строки множителя.
+     */
+    static EnvelopeStructure analyze(GroundedLaplacian a, int[] last) {
+        int n = a.n;
+        int[] perm = reverseCuthillMcKee(a, last);
+        int[] inverse = new int[n];
+        for (int i = 0; i < n; i++)
+            inverse[perm[i]] = i;
+
+        int[] first = new int[n];
+        long[] ptr = new long[n + 1];
+        for (int i = 0; i < n; i++) {
+            int row = perm[i];
+            int f = i;
+            for (int k = a.rowPtr[row]; k < a.rowPtr[row + 1]; k++)
+                f = Math.min(f, inverse[a.cols[k]]);
+            first[i] = f;
+            ptr[i + 1] = ptr[i] + (i - f + 1);
+        }
+        return new EnvelopeStructure(n, perm, inverse, first, ptr);
+    }
+
+    /**
+     * Кол-во элементов профиля (размер множителя L)
+     */
+    public long envelopeSize() {
+        return ptr[n];
+    }
+
+    public int size() {
+        return n;
+    }
+
+    int checkedEnvelopeSize() {
+        if (ptr[n] > Integer.MAX_VALUE - 8)
+            throw new IllegalStateException("Профиль матрицы слишком велик: " + ptr[n] + " элементов");
+        return (int) ptr[n];
+    }
+
+    /**
+     * Переставляет вектор в порядок множителя: out[i] = in[perm[i]]
+     */
+    void permute(double[] in, double[] out) {
+        for (int i = 0; i < n; i++)
+            out[i] = in[perm[i]];
+    }
+
+    /**
+     * Обратная перестановка: out[perm[i]] = in[i]
+     */
+    void unpermute(double[] in, double[] out) {
+        for (int i = 0; i < n; i++)
+            out[perm[i]] = in[i];
+    }
+
+    /**
+     * Обратный порядок Катхилла-Макки. Каждая компонента обходится в ширину от псевдопериферийной вершины,
+     * соседи добавляются в порядке возрастания степени. Первая компонента обходится от всех вершин roots сразу.
+     */
+    private static int[] reverseCuthillMcKee(GroundedLaplacian a, int[] roots) {
+        int n = a.n;
+        int[] degree = new int[n];
+        for (int i = 0; i < n; i++)
+            degree[i] = a.rowPtr[i + 1] - a.rowPtr[i] - 1;
+
+        int[] order = new int[n];
+        boolean[] placed = new boolean[n];
+        int[] level = new int[n];
+        int count = 0;
+        for (int v : roots) {
+            order[count++] = v;
+            placed[v] = true;
+        }
+        sortByDegree(order, 0, count, degree);
+        count = expand(a, order, 0, count, placed, degree);
+        for (int seed = 0; seed < n; seed++) {
+            if (placed[seed])
+                continue;
+
+            int start = pseudoPeripheral(a, seed, level);
+            int head = count;
+            order[count++] = start;
+            placed[start] = true;
+            count = expand(a, order, head, count, placed, degree);
+        }
+
+        for (int i = 0, j = n - 1; i < j; i++, j--) {
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+        return order;
+    }
+
+    /**
+     * Обход в ширину от вершин order[head..count): дописывает непоставленных соседей в порядке возрастания степени
+     *
+     * @return новое кол-во вершин в order
+     */
+    private static int expand(GroundedLaplacian a, int[] order, int head, int count, boolean[] placed, int[] degree) {
+        while (head < count) {
+            int v = order[head++];
+            int from = count;
+            for (int k = a.rowPtr[v]; k < a.rowPtr[v + 1]; k++) {
+                int u = a.cols[k];
+                if (!placed[u]) {
+                    placed[u] = true;
+                    order[count++] = u;
+                }
+            }
+            sortByDegree(order, from, count, degree);
+        }
+        return count;
+    }
+
+    /**
+     * Ищет вершину, наиболее удалённую от seed, повторяя обход в ширину, пока растёт эксцентриситет
+     */
+    private static int pseudoPeripheral(GroundedLaplacian a, int seed, int[] level) {
+        int[] queue = new int[a.n];
+        int current = seed;
+        int eccentricity = -1;
+        while (true) {
+            Arrays.fill(level, -1);
+            int size = 0;
+            queue[size++] = current;
+            level[current] = 0;
+            int last = current;
+            for (int head = 0; head < size; head++) {
+                int v = queue[head];
+                for (int k = a.rowPtr[v]; k < a.rowPtr[v + 1]; k++) {
+                    int u = a.cols[k];
+                    if (level[u] < 0) {
+                        level[u] = level[v] + 1;
+                        queue[size++] = u;
+                        last = u;
+                    }
+                }
+            }
+
+            // Среди вершин последнего уровня берём вершину минимальной степени
+            int depth = level[last];
+            int best = last;
+            for (int i = size - 1; i >= 0 && level[queue[i]] == depth; i--) {
+                int v = queue[i];
+                if (a.rowPtr[v + 1] - a.rowPtr[v] < a.rowPtr[best + 1] - a.rowPtr[best])
+                    best = v;
+            }
+            if (depth <= eccentricity)
+                return current;
+            eccentricity = depth;
+            current = best;
+        }
+    }
+
+    private static void sortByDegree(int[] order, int from, int to, int[] degree) {
+        for (int i = from + 1; i < to; i++) {
+            int v = order[i];
+            int j = i - 1;
+            while (j >= from && degree[order[j]] > degree[v]) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = v;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package deveone.logic.solver;
+
+import deveone.logic.solver.dense.DenseKernels;
+
+/**
+ * Разложение Холецкого A = L L^T в одинарной точности, профильный формат.
+ * Множитель занимает вдвое меньше памяти, чем в двойной точности, а в вектор Vector API помещается
+ * вдвое больше его элементов. Подстановки читают float, но накапливают суммы в double,
+ * что используется при уточнении решения.
+ */
+public final class FloatEnvelopeFactor implements LaplacianFactor {
+    private final EnvelopeStructure structure;
+    private final float[] l;
+    private final double[] work;
+    private final DenseKernels kernels = DenseKernels.get();
+
+    private FloatEnvelopeFactor(EnvelopeStructure structure, float[] l) {
+        this.structure = structure;
+        this.l = l;
+        this.work = new double[structure.n];
+    }
+
+    /**
+     * @throws ArithmeticException если в одинарной точности матрица оказалась не положительно определена
+     *                             или элементы вышли за пределы диапазона float
+     */
+    public static FloatEnvelopeFactor factor(EnvelopeStructure s, GroundedLaplacian a) {
+        float[] l = new float[s.checkedEnvelopeSize()];
+        int[] first = s.first;
+        DenseKernels kernels = DenseKernels.get();
+
+        for (int i = 0; i < s.n; i++) {
+            int fi = first[i];
+            int pi = (int) s.ptr[i] - fi;
+
+            int row = s.perm[i];
+            for (int k = a.rowPtr[row]; k < a.rowPtr[row + 1]; k++) {
+                int j = s.inverse[a.cols[k]];
+                if (j <= i)
+                    l[pi + j] += (float) a.vals[k];
+            }
+
+            for (int j = fi; j < i; j++) {
+                int pj = (int) s.ptr[j] - first[j];
+                int k0 = Math.max(fi, first[j]);
+                l[pi + j] = (l[pi + j] - kernels.dot(l, pi + k0, l, pj + k0, j - k0)) / l[pj + j];
+            }
+
+            float d = l[pi + i] - kernels.dot(l, pi + fi, l, pi + fi, i - fi);
+            if (!(d > 0) || Float.isInfinite(d))
+                throw new ArithmeticException("Разложение в одинарной точности неустойчиво (строка " + i + ")");
+            l[pi + i] = (float) Math.sqrt(d);
+        }
+        return new FloatEnvelopeFactor(s, l);
+    }
+
+    @Override
+    public void solve(double[] b, double[] x) {
+        EnvelopeStructure s = structure;
+        double[] y = work;
+        s.permute(b, y);
+
+        for (int i = 0; i < s.n; i++) {
+            int fi = s.first[i];
+            int pi = (int) s.ptr[i] - fi;
+            y[i] = (y[i] - kernels.dot(l, pi + fi, y, fi, i - fi)) / l[pi + i];
+        }
+        for (int i = s.n - 1; i >= 0; i--) {
+            int fi = s.first[i];
+            int pi = (int) s.ptr[i] - fi;
+            double xi = y[i] / l[pi + i];
+            y[i] = xi;
+            kernels.axpy(-xi, l, pi + fi, y, fi, i - fi);
+        }
+
+        s.unpermute(y, x);
+    }
+
+    @Override
+    public long factorBytes() {
+        return (long) l.length * Float.BYTES;
+    }
+}
@@ -0,0 +1,159 @@
+package deveone.logic.solver;
+
+import deveone.logic.graph.CsrWeightedGraph;
+import deveone.logic.graph.OffHeapWeightedGraph;
+import deveone.logic.graph.WeightedGraph;
+
+import java.util.Arrays;
+
+/**
+ * Чтение строк смежности графа по номерам записей. CSR-графы в куче и вне её (OffHeapWeightedGraph)
+ * читаются прямо из своих массивов и сегментов, без объекта на каждое ребро и без копирования;
+ * остальные графы один раз копируются в CSR в куче (один обход adjacencyWithWeights вместо нескольких).
+ */
+abstract class GraphRows {
+    abstract int vertexCount();
+
+    /**
+     * Первая запись строки v
+     */
+    abstract long start(int v);
+
+    /**
+     * Конец (не включительно) строки v
+     */
+    abstract long end(int v);
+
+    abstract int target(long i);
+
+    abstract double weight(long i);
+
+    static GraphRows of(WeightedGraph graph) {
+        if (graph instanceof OffHeapWeightedGraph)
+            return new OffHeap((OffHeapWeightedGraph) graph);
+        if (graph instanceof CsrWeightedGraph)
+            return new Csr((CsrWeightedGraph) graph);
+        return new Copy(graph);
+    }
+
+    private static final class OffHeap extends GraphRows {
+        private final OffHeapWeightedGraph graph;
+        private final int n;
+
+        OffHeap(OffHeapWeightedGraph graph) {
+            this.graph = graph;
+            this.n = graph.vertexCount();
+        }
+
+        @Override
+        int vertexCount() {
+            return n;
+        }
+
+        @Override
+        long start(int v) {
+            return graph.rowStart(v);
+        }
+
+        @Override
+        long end(int v) {
+            return graph.rowEnd(v);
+        }
+
+        @Override
+        int target(long i) {
+            return graph.target(i);
+        }
+
+        @Override
+        double weight(long i) {
+            return graph.weight(i);
+        }
+    }
+
+    private static final class Csr extends GraphRows {
+        private final CsrWeightedGraph graph;
+
+        Csr(CsrWeightedGraph graph) {
+            this.graph = graph;
+        }
+
+        @Override
+        int vertexCount() {
+            return graph.vertexCount();
+        }
+
+        @Override
+        long start(int v) {
+            return graph.rowStart(v);
+        }
+
+        @Override
+        long end(int v) {
+            return graph.rowEnd(v);
+        }
+
+        @Override
+        int target(long i) {
+            return graph.target((int) i);
+        }
+
+        @Override
+        double weight(long i) {
+            return graph.weight((int) i);
+        }
+    }
+
+    private static final class Copy extends GraphRows {
+        private final int[] offsets;
+        private final int[] targets;
+        private final double[] weights;
+
+        Copy(WeightedGraph graph) {
+            int n = graph.vertexCount();
+            int[] offsets = new int[n + 1];
+            int[] targets = new int[16];
+            double[] weights = new double[16];
+            int size = 0;
+            for (int v = 0; v < n; v++) {
+                for (WeightedGraph.WeightedEdgeTo edge : graph.adjacencyWithWeights(v)) {
+                    if (size == targets.length) {
+                        targets = Arrays.copyOf(targets, size * 2);
+                        weights = Arrays.copyOf(weights, size * 2);
+                    }
+                    targets[size] = edge.to();
+                    weights[size++] = edge.weight();
+                }
+                offsets[v + 1] = size;
+            }
+            this.offsets = offsets;
+            this.targets = targets;
+            this.weights = weights;
+        }
+
+        @Override
+        int vertexCount() {
+            return offsets.length - 1;
+        }
+
+        @Override
+        long start(int v) {
+            return offsets[v];
+        }
+
+        @Override
+        long end(int v) {
+            return offsets[v + 1];
+        }
+
+        @Override
+        int target(long i) {
+            return targets[(int) i];
+        }
+
+        @Override
+        double weight(long i) {
+            return weights[(int) i];
+        }
+    }
+}
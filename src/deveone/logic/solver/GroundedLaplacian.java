@@ -0,0 +1,399 @@
+package deveone.logic.solver;
+
+import deveone.logic.graph.CsrWeightedGraph;
+import deveone.logic.graph.Traversal;
+import deveone.logic.graph.WeightedGraph;
+
+import java.util.Arrays;
+
+/**
+ * Матрица проводимостей (лапласиан) цепи с заземлённым концом цепи.
+ * <p>
+ * В матрицу попадает только связная компонента, содержащая начало цепи. Вершины, соединённые
+ * резисторами нулевого сопротивления, объединяются в один узел. Узел, содержащий конец цепи,
+ * заземляется (его потенциал 0) и из матрицы исключается, поэтому матрица симметрична и положительно
+ * определена. Хранится в CSR вместе с диагональю, обе половины.
+ */
+public final class GroundedLaplacian {
+    /**
+     * Номер узла для вершин, закороченных с концом цепи
+     */
+    public static final int GROUND = -2;
+    /**
+     * Номер узла для вершин вне компоненты начала цепи
+     */
+    public static final int OUTSIDE = -1;
+
+    final int n;
+    final int[] rowPtr;
+    final int[] cols;
+    final double[] vals;
+    final int[] index;
+    final int source;
+
+    GroundedLaplacian(int n, int[] rowPtr, int[] cols, double[] vals, int[] index, int source) {
+        this.n = n;
+        this.rowPtr = rowPtr;
+        this.cols = cols;
+        this.vals = vals;
+        this.index = index;
+        this.source = source;
+    }
+
+    /**
+     * Собирает матрицу цепи
+     *
+     * @param graph     Граф цепи (вес ребра - сопротивление, неотрицательное)
+     * @param startNode Начало цепи
+     * @param endNode   Конец цепи (заземляется)
+     * @return матрица или null, если начало цепи не связано с концом
+     */
+    public static GroundedLaplacian assemble(WeightedGraph graph, int startNode, int endNode) {
+        GraphRows rows = GraphRows.of(graph);
+        int vertexCount = rows.vertexCount();
+        if (startNode < 0 || endNode < 0 || startNode >= vertexCount || endNode >= vertexCount || startNode == endNode)
+            return null;
+
+        // Компонента начала цепи
+        int[] component = component(graph, rows, startNode, endNode);
+        if (component == null)
+            return null;
+        int size = component.length;
+
+        // Объединяем закороченные вершины
+        int[] parent = new int[vertexCount];
+        for (int i = 0; i < size; i++)
+            parent[component[i]] = component[i];
+        for (int i = 0; i < size; i++) {
+            int v = component[i];
+            for (long e = rows.start(v), end = rows.end(v); e < end; e++) {
+                double w = rows.weight(e);
+                if (w < 0 || Double.isNaN(w))
+                    throw new IllegalArgumentException("Отрицательное сопротивление между " + v + " и " + rows.target(e));
+                if (w == 0)
+                    union(parent, v, rows.target(e));
+            }
+        }
+
+        int[] index = new int[vertexCount];
+        Arrays.fill(index, OUTSIDE);
+        int ground = find(parent, endNode);
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            int v = component[i];
+            if (find(parent, v) == v && v != ground)
+                index[v] = n++;
+        }
+        for (int i = 0; i < size; i++) {
+            int v = component[i];
+            int root = find(parent, v);
+            index[v] = root == ground ? GROUND : index[root];
+        }
+
+        // Подсчёт записей: диагональ + по одной на каждое направление ребра между разными узлами
+        int[] rowPtr = new int[n + 1];
+        for (int i = 0; i < size; i++) {
+            int v = component[i];
+            int a = index[v];
+            if (a < 0)
+                continue;
+            rowPtr[a + 1]++;
+            for (long e = rows.start(v), end = rows.end(v); e < end; e++) {
+                int b = index[rows.target(e)];
+                if (b >= 0 && b != a)
+                    rowPtr[a + 1]++;
+            }
+        }
+        for (int a = 0; a < n; a++)
+            rowPtr[a + 1] += rowPtr[a];
+
+        int[] fill = Arrays.copyOf(rowPtr, n);
+        int[] rawCols = new int[rowPtr[n]];
+        double[] rawVals = new double[rowPtr[n]];
+        double[] diagonal = new double[n];
+        for (int i = 0; i < size; i++) {
+            int v = component[i];
+            int a = index[v];
+            if (a < 0)
+                continue;
+            for (long e = rows.start(v), end = rows.end(v); e < end; e++) {
+                int b = index[rows.target(e)];
+                if (rows.weight(e) == 0 || b == a)
+                    continue;
+                double conductance = 1 / rows.weight(e);
+                diagonal[a] += conductance;
+                if (b >= 0) {
+                    rawCols[fill[a]] = b;
+                    rawVals[fill[a]++] = -conductance;
+                }
+            }
+            rawCols[fill[a]] = a;
+            fill[a]++;
+        }
+
+        // Складываем повторяющиеся записи (параллельные рёбра и рёбра объединённых вершин)
+        int[] position = new int[n];
+        Arrays.fill(position, -1);
+        int[] ptr = new int[n + 1];
+        int k = 0;
+        for (int a = 0; a < n; a++) {
+            int rowStart = k;
+            for (int i = rowPtr[a]; i < fill[a]; i++) {
+                int b = rawCols[i];
+                // Диагональная запись повторяется для каждой вершины объединённого узла, сумма в diagonal[a]
+                double value = b == a ? 0 : rawVals[i];
+                if (position[b] >= rowStart) {
+                    rawVals[position[b]] += value;
+                } else {
+                    position[b] = k;
+                    rawCols[k] = b;
+                    rawVals[k++] = value;
+                }
+            }
+            rawVals[position[a]] = diagonal[a];
+            ptr[a + 1] = k;
+        }
+
+        int source = index[startNode];
+        return new GroundedLaplacian(n, ptr, Arrays.copyOf(rawCols, k), Arrays.copyOf(rawVals, k), index, source);
+    }
+
+    /**
+     * Матрица того же портрета с другими значениями (массивы портрета общие)
+     */
+    GroundedLaplacian withValues(double[] values) {
+        return new GroundedLaplacian(n, rowPtr, cols, values, index, source);
+    }
+
+    /**
+     * Позиция элемента (row, col) в vals или -1, если его нет в портрете
+     */
+    int position(int row, int col) {
+        for (int k = rowPtr[row]; k < rowPtr[row + 1]; k++)
+            if (cols[k] == col)
+                return k;
+        return -1;
+    }
+
+    /**
+     * Главная подматрица на узлах nodes (в их порядке). Строки и столбцы остальных узлов отбрасываются,
+     * поэтому подматрица тоже положительно определена. Номеров вершин графа у неё нет: nodeOf() и source() не определены.
+     */
+    GroundedLaplacian principal(int[] nodes) {
+        int m = nodes.length;
+        int[] local = new int[n];
+        Arrays.fill(local, -1);
+        for (int i = 0; i < m; i++)
+            local[nodes[i]] = i;
+
+        int[] ptr = new int[m + 1];
+        for (int i = 0; i < m; i++) {
+            int row = nodes[i];
+            int count = 0;
+            for (int k = rowPtr[row]; k < rowPtr[row + 1]; k++)
+                if (local[cols[k]] >= 0)
+                    count++;
+            ptr[i + 1] = ptr[i] + count;
+        }
+        int[] subCols = new int[ptr[m]];
+        double[] subVals = new double[ptr[m]];
+        for (int i = 0, p = 0; i < m; i++) {
+            int row = nodes[i];
+            for (int k = rowPtr[row]; k < rowPtr[row + 1]; k++) {
+                int j = local[cols[k]];
+                if (j >= 0) {
+                    subCols[p] = j;
+                    subVals[p++] = vals[k];
+                }
+            }
+        }
+
+        return new GroundedLaplacian(m, ptr, subCols, subVals, null, OUTSIDE);
+    }
+
+    /**
+     * Матрица из диагонали и внедиагональных записей (row, col, value) размерности q.
+     * Записи должны быть симметричны (каждая пара в обоих направлениях), повторы складываются.
+     * Номеров вершин графа у матрицы нет, как у principal().
+     */
+    static GroundedLaplacian fromTriplets(int q, double[] diagonal, int[] rows, int[] cols, double[] vals, int count) {
+        int[] ptr = new int[q + 1];
+        for (int t = 0; t < count; t++)
+            ptr[rows[t] + 1]++;
+        for (int i = 0; i < q; i++)
+            ptr[i + 1] += ptr[i] + 1; // + диагональ
+        int[] fill = new int[q];
+        int[] rawCols = new int[ptr[q]];
+        double[] rawVals = new double[ptr[q]];
+        for (int i = 0; i < q; i++) {
+            fill[i] = ptr[i] + 1;
+            rawCols[ptr[i]] = i;
+            rawVals[ptr[i]] = diagonal[i];
+        }
+        for (int t = 0; t < count; t++) {
+            int i = rows[t];
+            rawCols[fill[i]] = cols[t];
+            rawVals[fill[i]++] = vals[t];
+        }
+
+        int[] position = new int[q];
+        Arrays.fill(position, -1);
+        int[] newPtr = new int[q + 1];
+        int k = 0;
+        for (int i = 0; i < q; i++) {
+            int rowStart = k;
+            for (int t = ptr[i]; t < ptr[i + 1]; t++) {
+                int j = rawCols[t];
+                if (position[j] >= rowStart) {
+                    rawVals[position[j]] += rawVals[t];
+                } else {
+                    position[j] = k;
+                    rawCols[k] = j;
+                    rawVals[k++] = rawVals[t];
+                }
+            }
+            newPtr[i + 1] = k;
+        }
+        return new GroundedLaplacian(q, newPtr, Arrays.copyOf(rawCols, k), Arrays.copyOf(rawVals, k), null, OUTSIDE);
+    }
+
+    /**
+     * Вершины компоненты начала цепи. CSR-граф в куче обходится Traversal.reach() по своим же массивам
+     * (без копирования), остальные - поиском в ширину по строкам rows.
+     *
+     * @return вершины по возрастанию номеров (CSR) или в порядке обхода; null, если конец цепи не в компоненте
+     */
+    private static int[] component(WeightedGraph graph, GraphRows rows, int startNode, int endNode) {
+        int vertexCount = rows.vertexCount();
+        if (graph instanceof CsrWeightedGraph) {
+            long[] reached = Traversal.undirected(graph).reach(startNode);
+            if (!Traversal.contains(reached, endNode))
+                return null;
+            int size = 0;
+            for (long word : reached)
+                size += Long.bitCount(word);
+            int[] component = new int[size];
+            int k = 0;
+            for (int w = 0; w < reached.length; w++)
+                for (long word = reached[w]; word != 0; word &= word - 1)
+                    component[k++] = (w << 6) + Long.numberOfTrailingZeros(word);
+            return component;
+        }
+
+        int[] component = new int[vertexCount];
+        boolean[] visited = new boolean[vertexCount];
+        int size = 0;
+        component[size++] = startNode;
+        visited[startNode] = true;
+        for (int head = 0; head < size; head++)
+            for (long e = rows.start(component[head]), end = rows.end(component[head]); e < end; e++) {
+                int u = rows.target(e);
+                if (!visited[u]) {
+                    visited[u] = true;
+                    component[size++] = u;
+                }
+            }
+        return visited[endNode] ? Arrays.copyOf(component, size) : null;
+    }
+
+    private static int find(int[] parent, int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    private static void union(int[] parent, int v1, int v2) {
+        int r1 = find(parent, v1);
+        int r2 = find(parent, v2);
+        if (r1 != r2)
+            parent[Math.max(r1, r2)] = Math.min(r1, r2);
+    }
+
+    /**
+     * Размерность матрицы (кол-во незаземлённых узлов)
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Кол-во хранимых элементов (обе половины и диагональ)
+     */
+    public int nonZeros() {
+        return rowPtr[n];
+    }
+
+    /**
+     * Номер узла, которому принадлежит вершина графа, либо GROUND / OUTSIDE
+     */
+    public int nodeOf(int vertex) {
+        return index[vertex];
+    }
+
+    /**
+     * Узел начала цепи; GROUND, если начало закорочено с концом
+     */
+    public int source() {
+        return source;
+    }
+
+    /**
+     * Максимальная по строкам сумма модулей элементов
+     */
+    public double infinityNorm() {
+        double norm = 0;
+        for (int i = 0; i < n; i++) {
+            double sum = 0;
+            for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++)
+                sum += Math.abs(vals[k]);
+            norm = Math.max(norm, sum);
+        }
+        return norm;
+    }
+
+    /**
+     * y = A x
+     */
+    public void multiply(double[] x, double[] y) {
+        for (int i = 0; i < n; i++) {
+            double sum = 0;
+            for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++)
+                sum += vals[k] * x[cols[k]];
+            y[i] = sum;
+        }
+    }
+
+    /**
+     * r = b - A x
+     */
+    public void residual(double[] b, double[] x, double[] r) {
+        for (int i = 0; i < n; i++) {
+            double sum = b[i];
+            for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++)
+                sum -= vals[k] * x[cols[k]];
+            r[i] = sum;
+        }
+    }
+
+    /**
+     * Записывает матрицу в плотный построчный массив n x n (элемент (i, j) - out[i * n + j])
+     */
+    public void toDense(double[] out) {
+        Arrays.fill(out, 0, n * n, 0);
+        for (int i = 0; i < n; i++)
+            for (int k = rowPtr[i]; k < rowPtr[i + 1]; k++)
+                out[i * n + cols[k]] = vals[k];
+    }
+
+    /**
+     * Правая часть: единичный ток, втекающий в начало цепи
+     */
+    public double[] unitSourceCurrent() {
+        double[] b = new double[n];
+        if (source >= 0)
+            b[source] = 1;
+        return b;
+    }
+}
@@ -0,0 +1,327 @@
+package deveone.logic.solver;
+
+import deveone.logic.graph.CsrWeightedGraph;
+import deveone.logic.graph.EdgeSink;
+import deveone.logic.graph.Subcircuit;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Расчёт иерархических схем из подсхем ({@link Subcircuit}).
+ * Каждое определение сводится к эквиваленту на выводах ({@link PortModel}) один раз: эквиваленты хранятся
+ * в кэше по канонической структуре подсхемы, так что одинаковые подсхемы, построенные независимо,
+ * тоже сводятся один раз. Вложенные экземпляры сначала заменяются своими эквивалентами,
+ * поэтому сведение определения стоит столько же, сколько сведение его собственных резисторов.
+ * Схема верхнего уровня разворачивается в граф, где каждый экземпляр - небольшой полный граф
+ * резисторов между выводами, и решается {@link DirectSolver}.
+ * Кэш потокобезопасен; один решатель можно использовать для многих схем с общими подсхемами.
+ */
+public final class HierarchicalSolver {
+    private final Map<Signature, PortModel> models = new ConcurrentHashMap<>();
+    // Определение -> эквивалент; Subcircuit сравнивается по ссылке. Ключи слабые: долгоживущий решатель
+    // не удерживает определения, которые больше нигде не используются
+    private final Map<Subcircuit, PortModel> resolved = Collections.synchronizedMap(new WeakHashMap<>());
+    private final AtomicLong reductions = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+
+    /**
+     * Эквивалент определения на его выводах (из кэша, если такая подсхема уже сводилась)
+     */
+    public PortModel model(Subcircuit definition) {
+        PortModel model = resolved.get(definition);
+        if (model != null)
+            return model;
+
+        Edges local = new Edges();
+        expand(definition, local);
+        Signature key = Signature.of(definition.ports(), definition.nodeCount(), local);
+        boolean[] reduced = new boolean[1];
+        model = models.computeIfAbsent(key, k -> {
+            reduced[0] = true;
+            return k.reduce();
+        });
+        (reduced[0] ? reductions : cacheHits).incrementAndGet();
+        resolved.put(definition, model);
+        return model;
+    }
+
+    /**
+     * Плоский граф схемы: её собственные резисторы и эквиваленты экземпляров; номера вершин - узлы схемы
+     */
+    public CsrWeightedGraph flatten(Subcircuit design) {
+        CsrWeightedGraph.Builder builder = CsrWeightedGraph.builder();
+        expand(design, builder);
+        return builder.build();
+    }
+
+    /**
+     * @return сопротивление между узлами схемы или -1, если они не связаны
+     */
+    public double resistance(Subcircuit design, int startNode, int endNode) {
+        return DirectSolver.resistance(flatten(design), startNode, endNode);
+    }
+
+    /**
+     * Кол-во различных (по структуре) подсхем в кэше
+     */
+    public int cachedModels() {
+        return models.size();
+    }
+
+    /**
+     * Кол-во выполненных сведений подсхем
+     */
+    public long reductions() {
+        return reductions.get();
+    }
+
+    /**
+     * Кол-во определений, эквивалент которых взят из кэша по структуре
+     */
+    public long cacheHits() {
+        return cacheHits.get();
+    }
+
+    private void expand(Subcircuit circuit, EdgeSink sink) {
+        sink.expectVertices(circuit.nodeCount());
+        for (int i = 0; i < circuit.resistorCount(); i++)
+            sink.edge(circuit.resistorSource(i), circuit.resistorTarget(i), circuit.resistance(i));
+        for (int i = 0; i < circuit.instanceCount(); i++) {
+            Subcircuit definition = circuit.instanceDefinition(i);
+            int[] nodes = new int[definition.ports()];
+            for (int p = 0; p < nodes.length; p++)
+                nodes[p] = circuit.instanceNode(i, p);
+            model(definition).stitch(sink, nodes);
+        }
+    }
+
+    private static final class Edges implements EdgeSink {
+        int[] from = new int[16];
+        int[] to = new int[16];
+        double[] resistance = new double[16];
+        int size = 0;
+
+        @Override
+        public void edge(int v1, int v2, double weight) {
+            if (size == from.length) {
+                int capacity = size + (size >> 1);
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                resistance = Arrays.copyOf(resistance, capacity);
+            }
+            from[size] = v1;
+            to[size] = v2;
+            resistance[size++] = weight;
+        }
+    }
+
+    /**
+     * Каноническая структура подсхемы после замены вложенных экземпляров эквивалентами.
+     * Узлы перенумерованы обходом в ширину от выводов по порядку (рёбра узла - по возрастанию сопротивления,
+     * при равном - ещё не пронумерованные соседи по набору сопротивлений их резисторов), не связанные с выводами
+     * отброшены, резисторы отсортированы по паре узлов и сопротивлению. Соседей, не различимых и по этому набору,
+     * нумерует порядок рёбер описания, поэтому сигнатура структурная с точностью до порядка рёбер: одна подсхема,
+     * записанная по-разному, может свестись дважды, но разные подсхемы одну сигнатуру не получат.
+     * Сравнение точное (по всему описанию), 64-битный хэш только ускоряет поиск.
+     */
+    static final class Signature {
+        // words: выводы, узлы, резисторы, затем по резистору (пара узлов, биты сопротивления)
+        private final long[] words;
+        private final long hash;
+
+        private Signature(long[] words) {
+            this.words = words;
+            long h = 0x243F6A8885A308D3L;
+            for (long w : words) {
+                h = (h ^ w) * 0x9E3779B97F4A7C15L;
+                h ^= h >>> 31;
+            }
+            this.hash = h;
+        }
+
+        static Signature of(int ports, int nodeCount, Edges edges) {
+            int m = edges.size;
+            // Инцидентные резисторы узлов
+            int[] start = new int[nodeCount + 1];
+            for (int e = 0; e < m; e++) {
+                start[edges.from[e] + 1]++;
+                if (edges.to[e] != edges.from[e])
+                    start[edges.to[e] + 1]++;
+            }
+            for (int v = 0; v < nodeCount; v++)
+                start[v + 1] += start[v];
+            int[] incident = new int[start[nodeCount]];
+            int[] fill = Arrays.copyOf(start, nodeCount);
+            for (int e = 0; e < m; e++) {
+                incident[fill[edges.from[e]]++] = e;
+                if (edges.to[e] != edges.from[e])
+                    incident[fill[edges.to[e]]++] = e;
+            }
+
+            // Набор сопротивлений резисторов каждого узла - различает соседей с равным ребром до узла
+            long[][] profile = new long[nodeCount][];
+            for (int v = 0; v < nodeCount; v++) {
+                long[] bits = new long[start[v + 1] - start[v]];
+                for (int k = 0; k < bits.length; k++)
+                    bits[k] = Double.doubleToLongBits(edges.resistance[incident[start[v] + k]]);
+                Arrays.sort(bits);
+                profile[v] = bits;
+            }
+
+            int[] label = new int[nodeCount];
+            Arrays.fill(label, -1);
+            int[] queue = new int[nodeCount];
+            int labeled = 0;
+            for (int p = 0; p < ports; p++) {
+                label[p] = p;
+                queue[labeled++] = p;
+            }
+            for (int head = 0; head < labeled; head++) {
+                int u = queue[head];
+                int[] order = sortedIncident(incident, start[u], start[u + 1], u, edges, label, profile);
+                for (int e : order) {
+                    int w = edges.from[e] == u ? edges.to[e] : edges.from[e];
+                    if (label[w] < 0) {
+                        label[w] = labeled;
+                        queue[labeled++] = w;
+                    }
+                }
+            }
+
+            // Резисторы в новых номерах, сортировка по паре узлов (два устойчивых прохода подсчётом)
+            int kept = 0;
+            int[] a = new int[m];
+            int[] b = new int[m];
+            long[] bits = new long[m];
+            for (int e = 0; e < m; e++) {
+                int x = label[edges.from[e]];
+                int y = label[edges.to[e]];
+                if (x < 0)
+                    continue;
+                a[kept] = Math.min(x, y);
+                b[kept] = Math.max(x, y);
+                bits[kept++] = Double.doubleToLongBits(edges.resistance[e]);
+            }
+            int[] order = new int[kept];
+            for (int i = 0; i < kept; i++)
+                order[i] = i;
+            order = countingSort(order, b, labeled);
+            order = countingSort(order, a, labeled);
+
+            long[] words = new long[3 + 2 * kept];
+            words[0] = ports;
+            words[1] = labeled;
+            words[2] = kept;
+            int runStart = 0;
+            for (int i = 0; i <= kept; i++) {
+                if (i < kept && i > runStart && a[order[i]] == a[order[runStart]] && b[order[i]] == b[order[runStart]])
+                    continue;
+                // Параллельные резисторы одной пары - по возрастанию сопротивления
+                if (i - runStart > 1) {
+                    long[] run = new long[i - runStart];
+                    for (int k = runStart; k < i; k++)
+                        run[k - runStart] = bits[order[k]];
+                    Arrays.sort(run);
+                    for (int k = runStart; k < i; k++)
+                        words[3 + 2 * k + 1] = run[k - runStart];
+                } else if (i > runStart) {
+                    words[3 + 2 * runStart + 1] = bits[order[runStart]];
+                }
+                for (int k = runStart; k < i; k++)
+                    words[3 + 2 * k] = (long) a[order[k]] << 32 | b[order[k]];
+                runStart = i;
+            }
+            return new Signature(words);
+        }
+
+        // Инцидентные резисторы узла u: по сопротивлению, затем по номеру соседа (ещё без номера - в конце),
+        // соседи без номера - по набору сопротивлений; сортировки устойчивы
+        private static int[] sortedIncident(int[] incident, int from, int to, int u, Edges edges, int[] label,
+                                            long[][] profile) {
+            int[] order = Arrays.copyOfRange(incident, from, to);
+            if (order.length > 16) {
+                // Узлы большой степени (общие шины) - сортировкой слиянием вместо вставок
+                Integer[] boxed = new Integer[order.length];
+                for (int i = 0; i < order.length; i++)
+                    boxed[i] = order[i];
+                Arrays.sort(boxed, (e1, e2) -> compare(e1, e2, u, edges, label, profile));
+                for (int i = 0; i < order.length; i++)
+                    order[i] = boxed[i];
+                return order;
+            }
+            for (int i = 1; i < order.length; i++) {
+                int e = order[i];
+                int j = i - 1;
+                while (j >= 0 && compare(order[j], e, u, edges, label, profile) > 0) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = e;
+            }
+            return order;
+        }
+
+        private static int compare(int e1, int e2, int u, Edges edges, int[] label, long[][] profile) {
+            int c = Double.compare(edges.resistance[e1], edges.resistance[e2]);
+            if (c != 0)
+                return c;
+            int n1 = edges.from[e1] == u ? edges.to[e1] : edges.from[e1];
+            int n2 = edges.from[e2] == u ? edges.to[e2] : edges.from[e2];
+            int w1 = label[n1];
+            int w2 = label[n2];
+            c = Integer.compare(w1 < 0 ? Integer.MAX_VALUE : w1, w2 < 0 ? Integer.MAX_VALUE : w2);
+            if (c != 0 || w1 >= 0)
+                return c;
+            c = Integer.compare(profile[n1].length, profile[n2].length);
+            return c != 0 ? c : Arrays.compare(profile[n1], profile[n2]);
+        }
+
+        private static int[] countingSort(int[] order, int[] key, int range) {
+            int[] count = new int[range + 1];
+            for (int i : order)
+                count[key[i] + 1]++;
+            for (int k = 0; k < range; k++)
+                count[k + 1] += count[k];
+            int[] result = new int[order.length];
+            for (int i : order)
+                result[count[key[i]]++] = i;
+            return result;
+        }
+
+        PortModel reduce() {
+            int ports = (int) words[0];
+            int nodes = (int) words[1];
+            int count = (int) words[2];
+            int[] from = new int[count];
+            int[] to = new int[count];
+            double[] resistance = new double[count];
+            for (int e = 0; e < count; e++) {
+                long pair = words[3 + 2 * e];
+                from[e] = (int) (pair >>> 32);
+                to[e] = (int) pair;
+                resistance[e] = Double.longBitsToDouble(words[3 + 2 * e + 1]);
+            }
+            return PortModel.reduce(ports, nodes, from, to, resistance, count);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Signature))
+                return false;
+            Signature other = (Signature) o;
+            return hash == other.hash && Arrays.equals(words, other.words);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package deveone.logic.solver;
+
+/**
+ * Разложение заземлённого лапласиана, позволяющее решать системы A x = b
+ */
+public interface LaplacianFactor {
+    /**
+     * Решает A x = b. Векторы в исходной нумерации узлов GroundedLaplacian.
+     */
+    void solve(double[] b, double[] x);
+
+    /**
+     * Память, занимаемая множителем, в байтах
+     */
+    long factorBytes();
+}
@@ -0,0 +1,206 @@
+package deveone.logic.solver;
+
+import deveone.logic.graph.WeightedGraph;
+import deveone.logic.metrics.Phase;
+import deveone.logic.metrics.SolveTrace;
+import deveone.logic.metrics.SolverMetrics;
+
+/**
+ * Расчёт сопротивления в смешанной точности.
+ * Лапласиан раскладывается в одинарной точности (вдвое меньше памяти), после чего решение
+ * уточняется итерациями x += L^-T L^-1 (b - A x) с невязкой, посчитанной в двойной точности.
+ * Выигрыш разложения в float съедают итерации уточнения, так что по времени расчёт не быстрее
+ * {@link DirectSolver} - смысл режима в экономии памяти на множитель.
+ * Если уточнение перестаёт сходиться или разложение в float неустойчиво, расчёт повторяется
+ * разложением в двойной точности, а в результате отмечается причина.
+ */
+public class MixedPrecisionSolver {
+    public enum Status {
+        /**
+         * Уточнение сошлось в смешанной точности
+         */
+        CONVERGED,
+        /**
+         * Уточнение перестало сходиться, использовано разложение в двойной точности
+         */
+        STALLED,
+        /**
+         * Разложение в одинарной точности неустойчиво, использовано разложение в двойной точности
+         */
+        FLOAT_FACTORIZATION_FAILED,
+        /**
+         * Начало цепи не связано с концом
+         */
+        NO_PATH
+    }
+
+    public static class Result {
+        private final double resistance;
+        private final Status status;
+        private final int iterations;
+        private final double backwardError;
+        private final long factorBytes;
+
+        Result(double resistance, Status status, int iterations, double backwardError, long factorBytes) {
+            this.resistance = resistance;
+            this.status = status;
+            this.iterations = iterations;
+            this.backwardError = backwardError;
+            this.factorBytes = factorBytes;
+        }
+
+        /**
+         * Сопротивление цепи или -1, если начало не связано с концом
+         */
+        public double getResistance() {
+            return resistance;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * Использовалось ли разложение в двойной точности
+         */
+        public boolean fellBack() {
+            return status == Status.STALLED || status == Status.FLOAT_FACTORIZATION_FAILED;
+        }
+
+        /**
+         * Кол-во выполненных итераций уточнения (до перехода на двойную точность, если он был)
+         */
+        public int getIterations() {
+            return iterations;
+        }
+
+        /**
+         * Обратная ошибка последней итерации уточнения ||b - Ax|| / (||A|| ||x||)
+         */
+        public double getBackwardError() {
+            return backwardError;
+        }
+
+        /**
+         * Память множителя, который дал ответ
+         */
+        public long getFactorBytes() {
+            return factorBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "R = " + resistance + " (" + status + ", итераций: " + iterations + ")";
+        }
+    }
+
+    private final double tolerance;
+    private final int maxIterations;
+
+    /**
+     * @param tolerance     Относительная поправка сопротивления, при которой уточнение считается сошедшимся
+     * @param maxIterations Максимальное кол-во итераций уточнения. Если по наблюдаемой скорости сходимости
+     *                      уточнение не успевает сойтись за это число итераций, расчёт сразу переходит
+     *                      на двойную точность.
+     */
+    public MixedPrecisionSolver(double tolerance, int maxIterations) {
+        this.tolerance = tolerance;
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Поправка 1e-11 - с запасом для требуемой относительной точности 1e-9
+     */
+    public MixedPrecisionSolver() {
+        this(1e-11, 30);
+    }
+
+    public Result solve(WeightedGraph graph, int startNode, int endNode) {
+        SolveTrace trace = SolverMetrics.begin("mixed", graph.vertexCount(), graph.edgeCount());
+        try {
+            trace.phase(Phase.ASSEMBLY);
+            GroundedLaplacian a = GroundedLaplacian.assemble(graph, startNode, endNode);
+            if (a == null)
+                return new Result(-1, Status.NO_PATH, 0, 0, 0);
+            if (a.source() == GroundedLaplacian.GROUND)
+                return new Result(0, Status.CONVERGED, 0, 0, 0);
+            EnvelopeStructure structure = EnvelopeStructure.analyze(a);
+            trace.graphSize(a.size(), (a.nonZeros() - a.size()) / 2);
+            trace.matrixFill(structure.envelopeSize(), (long) a.size() * (a.size() + 1) / 2);
+
+            Result result = refine(a, structure, trace);
+            if (result.fellBack())
+                SolverMetrics.precisionFallback();
+            return result;
+        } finally {
+            trace.end();
+        }
+    }
+
+    /**
+     * Решение и уточнение для уже собранной матрицы.
+     * Сходимость проверяется по поправке потенциала начала цепи, т.е. по самому сопротивлению.
+     * Невязка убывает линейно, по её скорости оценивается, успеет ли уточнение сойтись.
+     */
+    Result refine(GroundedLaplacian a, EnvelopeStructure structure, SolveTrace trace) {
+        int n = a.size();
+        int source = a.source();
+        double[] b = a.unitSourceCurrent();
+
+        trace.phase(Phase.FACTORIZATION);
+        FloatEnvelopeFactor factor;
+        try {
+            factor = FloatEnvelopeFactor.factor(structure, a);
+        } catch (ArithmeticException e) {
+            return solveDouble(a, structure, trace, Status.FLOAT_FACTORIZATION_FAILED, 0, Double.NaN);
+        }
+
+        trace.phase(Phase.SOLVE);
+        double aNorm = a.infinityNorm();
+        double[] x = new double[n];
+        double[] r = b.clone();
+        double[] d = new double[n];
+        double previous = Double.NaN;
+        double backwardError = Double.NaN;
+        for (int iteration = 1; iteration <= maxIterations; iteration++) {
+            factor.solve(r, d);
+            double xNorm = 0;
+            for (int i = 0; i < n; i++) {
+                x[i] += d[i];
+                xNorm = Math.max(xNorm, Math.abs(x[i]));
+            }
+            a.residual(b, x, r);
+            double rNorm = 0;
+            for (int i = 0; i < n; i++)
+                rNorm = Math.max(rNorm, Math.abs(r[i]));
+            trace.iterations(1);
+
+            backwardError = rNorm / (aNorm * xNorm);
+            double correction = Math.abs(d[source]) / Math.abs(x[source]);
+            if (correction <= tolerance)
+                return new Result(x[source], Status.CONVERGED, iteration, backwardError, factor.factorBytes());
+
+            if (iteration > 1) {
+                double rate = rNorm / previous;
+                if (!(rate < 1))
+                    return solveDouble(a, structure, trace, Status.STALLED, iteration, backwardError);
+                double remaining = Math.log(tolerance / correction) / Math.log(rate);
+                if (iteration + remaining > maxIterations)
+                    return solveDouble(a, structure, trace, Status.STALLED, iteration, backwardError);
+            }
+            previous = rNorm;
+        }
+        return solveDouble(a, structure, trace, Status.STALLED, maxIterations, backwardError);
+    }
+
+    private static Result solveDouble(GroundedLaplacian a, EnvelopeStructure structure, SolveTrace trace,
+                                      Status status, int iterations, double backwardError) {
+        trace.phase(Phase.FACTORIZATION);
+        DoubleEnvelopeFactor factor = DoubleEnvelopeFactor.factor(structure, a);
+
+        trace.phase(Phase.SOLVE);
+        double[] x = new double[a.size()];
+        factor.solve(a.unitSourceCurrent(), x);
+        return new Result(x[a.source()], status, iterations, backwardError, factor.factorBytes());
+    }
+}
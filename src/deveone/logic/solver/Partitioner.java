@@ -0,0 +1,414 @@
+package deveone.logic.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+/**
+ * Многоуровневое разбиение графа матрицы на части с вершинным разделителем (рекурсивная бисекция).
+ * Каждая бисекция: огрубление сжатием по тяжёлым рёбрам до COARSEST вершин, начальное разбиение
+ * выращиванием области обходом в ширину, затем на каждом уровне при развёртывании - жадное улучшение
+ * разреза перемещением граничных вершин с сохранением баланса. Разделитель - меньшая из двух
+ * граничных половин разреза; разделители всех уровней образуют общий разделитель.
+ * <p>
+ * Общий разделитель ограничен: части делятся по убыванию размера, и бисекция, после которой разделитель
+ * превысил бы предел, не принимается - такая часть остаётся целой. Поэтому частей может получиться меньше
+ * запрошенных (одна, если предел превышает уже первая бисекция).
+ */
+final class Partitioner {
+    /**
+     * Номер части для узлов разделителя
+     */
+    static final int SEPARATOR = -1;
+
+    private static final int COARSEST = 160;
+    private static final double IMBALANCE = 0.03;
+    private static final int INITIAL_TRIES = 4;
+    private static final int REFINE_PASSES = 8;
+
+    private Partitioner() {
+    }
+
+    /**
+     * @param parts        кол-во частей (не меньше 1)
+     * @param maxSeparator наибольший размер общего разделителя
+     * @return часть каждого узла матрицы (0..k-1, k <= parts) или SEPARATOR
+     */
+    static int[] partition(GroundedLaplacian a, int parts, int maxSeparator, long seed) {
+        int n = a.n;
+        int[] ptr = new int[n + 1];
+        int[] adj = new int[a.nonZeros() - n];
+        int e = 0;
+        for (int i = 0; i < n; i++) {
+            for (int k = a.rowPtr[i]; k < a.rowPtr[i + 1]; k++)
+                if (a.cols[k] != i)
+                    adj[e++] = a.cols[k];
+            ptr[i + 1] = e;
+        }
+        int[] ones = new int[Math.max(n, e)];
+        Arrays.fill(ones, 1);
+        Level g = new Level(n, ptr, Arrays.copyOf(adj, e), Arrays.copyOf(ones, e), Arrays.copyOf(ones, n));
+
+        int[] global = new int[n];
+        for (int i = 0; i < n; i++)
+            global[i] = i;
+        int[] part = new int[n];
+        SplittableRandom random = new SplittableRandom(seed);
+
+        // Сначала делятся большие куски: их разделители нужнее, пока предел не исчерпан
+        PriorityQueue<Piece> pieces = new PriorityQueue<>(
+                Comparator.comparingInt((Piece piece) -> -piece.g.n).thenComparingInt(piece -> piece.firstPart));
+        pieces.add(new Piece(g, global, 0, parts));
+        int separatorSize = 0;
+        int used = 0;   // Кол-во частей, получивших номер
+        while (!pieces.isEmpty()) {
+            Piece piece = pieces.poll();
+            if (piece.count > 1 && piece.g.n >= 2) {
+                int leftCount = piece.count / 2;
+                int[] side = bisect(piece.g, (double) leftCount / piece.count, random);
+                separate(piece.g, side);
+                int cut = 0;
+                for (int v = 0; v < piece.g.n; v++)
+                    if (side[v] == 2)
+                        cut++;
+                if (separatorSize + cut <= maxSeparator) {
+                    separatorSize += cut;
+                    for (int v = 0; v < piece.g.n; v++)
+                        if (side[v] == 2)
+                            part[piece.global[v]] = SEPARATOR;
+                    pieces.add(piece.side(side, 0, piece.firstPart, leftCount));
+                    pieces.add(piece.side(side, 1, piece.firstPart + leftCount, piece.count - leftCount));
+                    continue;
+                }
+            }
+            for (int v = 0; v < piece.g.n; v++)
+                part[piece.global[v]] = used;
+            if (piece.g.n > 0)
+                used++;
+        }
+        return part;
+    }
+
+    /**
+     * Кусок графа, который ещё предстоит поделить на count частей
+     */
+    private static final class Piece {
+        final Level g;
+        final int[] global;     // Номер узла матрицы для каждой вершины куска
+        final int firstPart;
+        final int count;
+
+        Piece(Level g, int[] global, int firstPart, int count) {
+            this.g = g;
+            this.global = global;
+            this.firstPart = firstPart;
+            this.count = count;
+        }
+
+        /**
+         * Вершины стороны which после бисекции
+         */
+        Piece side(int[] side, int which, int firstPart, int count) {
+            int[] local = new int[g.n];
+            int m = 0;
+            for (int v = 0; v < g.n; v++)
+                local[v] = side[v] == which ? m++ : -1;
+            int[] subGlobal = new int[m];
+            for (int v = 0; v < g.n; v++)
+                if (local[v] >= 0)
+                    subGlobal[local[v]] = global[v];
+            return new Piece(g.induced(local, m), subGlobal, firstPart, count);
+        }
+    }
+
+    /**
+     * Делит граф на стороны 0 и 1, доля веса стороны 0 - fraction
+     */
+    private static int[] bisect(Level g, double fraction, SplittableRandom random) {
+        List<Level> levels = new ArrayList<>();
+        Level current = g;
+        while (current.n > COARSEST) {
+            Level coarse = current.coarsen(random);
+            // Сжатие почти остановилось (например, звезда) - дальше огрублять бессмысленно
+            if (coarse.n > current.n * 0.85)
+                break;
+            levels.add(current);
+            current = coarse;
+        }
+
+        int[] side = initialPartition(current, fraction, random);
+        for (int i = levels.size() - 1; i >= 0; i--) {
+            Level fine = levels.get(i);
+            int[] fineSide = new int[fine.n];
+            for (int v = 0; v < fine.n; v++)
+                fineSide[v] = side[fine.coarseOf[v]];
+            side = fineSide;
+            refine(fine, side, fraction);
+        }
+        return side;
+    }
+
+    private static int[] initialPartition(Level g, double fraction, SplittableRandom random) {
+        long target = Math.round(fraction * g.totalWeight);
+        int[] best = null;
+        long bestCut = Long.MAX_VALUE;
+        for (int attempt = 0; attempt < INITIAL_TRIES; attempt++) {
+            int start = random.nextInt(g.n);
+            if (attempt == 0)
+                start = g.farthest(start);
+            int[] side = g.grow(start, target);
+            refine(g, side, fraction);
+            long cut = g.cut(side);
+            if (cut < bestCut) {
+                bestCut = cut;
+                best = side;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Жадно переносит граничные вершины на другую сторону, пока это уменьшает разрез;
+     * перегруженная сторона отдаёт граничные вершины независимо от выигрыша
+     */
+    private static void refine(Level g, int[] side, double fraction) {
+        long[] weight = new long[2];
+        for (int v = 0; v < g.n; v++)
+            weight[side[v]] += g.vertexWeight[v];
+        long[] max = {
+                (long) Math.ceil(fraction * g.totalWeight * (1 + IMBALANCE)),
+                (long) Math.ceil((1 - fraction) * g.totalWeight * (1 + IMBALANCE))
+        };
+
+        for (int pass = 0; pass < REFINE_PASSES; pass++) {
+            int moved = 0;
+            for (int v = 0; v < g.n; v++) {
+                int s = side[v];
+                int other = 1 - s;
+                long internal = 0;
+                long external = 0;
+                for (int k = g.ptr[v]; k < g.ptr[v + 1]; k++) {
+                    if (side[g.adj[k]] == s)
+                        internal += g.edgeWeight[k];
+                    else
+                        external += g.edgeWeight[k];
+                }
+                if (external == 0 || weight[other] + g.vertexWeight[v] > max[other])
+                    continue;
+                if (external > internal || weight[s] > max[s]) {
+                    side[v] = other;
+                    weight[s] -= g.vertexWeight[v];
+                    weight[other] += g.vertexWeight[v];
+                    moved++;
+                }
+            }
+            if (moved == 0)
+                break;
+        }
+    }
+
+    /**
+     * Отмечает стороной 2 меньшую из граничных половин разреза - после этого стороны 0 и 1 не смежны
+     */
+    private static void separate(Level g, int[] side) {
+        int[] boundary = new int[2];
+        boolean[] onBoundary = new boolean[g.n];
+        for (int v = 0; v < g.n; v++)
+            for (int k = g.ptr[v]; k < g.ptr[v + 1]; k++)
+                if (side[g.adj[k]] != side[v]) {
+                    onBoundary[v] = true;
+                    boundary[side[v]]++;
+                    break;
+                }
+        int which = boundary[0] <= boundary[1] ? 0 : 1;
+        for (int v = 0; v < g.n; v++)
+            if (onBoundary[v] && side[v] == which)
+                side[v] = 2;
+    }
+
+    /**
+     * Граф одного уровня: симметричная смежность в CSR с весами рёбер и вершин
+     */
+    private static final class Level {
+        final int n;
+        final int[] ptr;
+        final int[] adj;
+        final int[] edgeWeight;
+        final int[] vertexWeight;
+        final long totalWeight;
+        int[] coarseOf; // заполняется coarsen(): вершина -> вершина грубого уровня
+
+        Level(int n, int[] ptr, int[] adj, int[] edgeWeight, int[] vertexWeight) {
+            this.n = n;
+            this.ptr = ptr;
+            this.adj = adj;
+            this.edgeWeight = edgeWeight;
+            this.vertexWeight = vertexWeight;
+            long total = 0;
+            for (int w : vertexWeight)
+                total += w;
+            this.totalWeight = total;
+        }
+
+        /**
+         * Сжимает пары вершин, соединённые самыми тяжёлыми рёбрами (вершины обходятся в случайном порядке)
+         */
+        Level coarsen(SplittableRandom random) {
+            int[] order = new int[n];
+            for (int i = 0; i < n; i++) {
+                int j = random.nextInt(i + 1);
+                order[i] = order[j];
+                order[j] = i;
+            }
+
+            int[] match = new int[n];
+            Arrays.fill(match, -1);
+            for (int v : order) {
+                if (match[v] >= 0)
+                    continue;
+                int best = v;
+                int bestWeight = -1;
+                for (int k = ptr[v]; k < ptr[v + 1]; k++) {
+                    int u = adj[k];
+                    if (match[u] < 0 && u != v && edgeWeight[k] > bestWeight) {
+                        best = u;
+                        bestWeight = edgeWeight[k];
+                    }
+                }
+                match[v] = best;
+                match[best] = v;
+            }
+
+            coarseOf = new int[n];
+            int cn = 0;
+            for (int v = 0; v < n; v++)
+                if (match[v] >= v) {
+                    coarseOf[v] = cn;
+                    coarseOf[match[v]] = cn++;
+                }
+
+            int[] cPtr = new int[cn + 1];
+            int[] cAdj = new int[adj.length];
+            int[] cEdgeWeight = new int[adj.length];
+            int[] cVertexWeight = new int[cn];
+            int[] slot = new int[cn];
+            Arrays.fill(slot, -1);
+            int size = 0;
+            for (int v = 0; v < n; v++) {
+                if (match[v] < v)
+                    continue;
+                int c = coarseOf[v];
+                int rowStart = size;
+                for (int w = v; ; w = match[v]) {
+                    cVertexWeight[c] += vertexWeight[w];
+                    for (int k = ptr[w]; k < ptr[w + 1]; k++) {
+                        int cu = coarseOf[adj[k]];
+                        if (cu == c)
+                            continue;
+                        if (slot[cu] >= rowStart) {
+                            cEdgeWeight[slot[cu]] += edgeWeight[k];
+                        } else {
+                            slot[cu] = size;
+                            cAdj[size] = cu;
+                            cEdgeWeight[size++] = edgeWeight[k];
+                        }
+                    }
+                    if (w == match[v])
+                        break;
+                }
+                cPtr[c + 1] = size;
+            }
+            return new Level(cn, cPtr, Arrays.copyOf(cAdj, size), Arrays.copyOf(cEdgeWeight, size), cVertexWeight);
+        }
+
+        /**
+         * Подграф на вершинах с local[v] >= 0
+         */
+        Level induced(int[] local, int m) {
+            int[] subPtr = new int[m + 1];
+            int[] subAdj = new int[adj.length];
+            int[] subEdgeWeight = new int[adj.length];
+            int[] subVertexWeight = new int[m];
+            int size = 0;
+            for (int v = 0; v < n; v++) {
+                int i = local[v];
+                if (i < 0)
+                    continue;
+                subVertexWeight[i] = vertexWeight[v];
+                for (int k = ptr[v]; k < ptr[v + 1]; k++) {
+                    int u = local[adj[k]];
+                    if (u >= 0) {
+                        subAdj[size] = u;
+                        subEdgeWeight[size++] = edgeWeight[k];
+                    }
+                }
+                subPtr[i + 1] = size;
+            }
+            return new Level(m, subPtr, Arrays.copyOf(subAdj, size), Arrays.copyOf(subEdgeWeight, size), subVertexWeight);
+        }
+
+        /**
+         * Последняя вершина обхода в ширину из start (приближение периферийной вершины)
+         */
+        int farthest(int start) {
+            int[] queue = new int[n];
+            boolean[] visited = new boolean[n];
+            int size = 0;
+            queue[size++] = start;
+            visited[start] = true;
+            for (int head = 0; head < size; head++)
+                for (int k = ptr[queue[head]]; k < ptr[queue[head] + 1]; k++)
+                    if (!visited[adj[k]]) {
+                        visited[adj[k]] = true;
+                        queue[size++] = adj[k];
+                    }
+            return queue[size - 1];
+        }
+
+        /**
+         * Выращивает сторону 0 обходом в ширину из start, пока её вес не достигнет target;
+         * если компонента исчерпана, обход продолжается с первой непосещённой вершины
+         */
+        int[] grow(int start, long target) {
+            int[] side = new int[n];
+            Arrays.fill(side, 1);
+            int[] queue = new int[n];
+            boolean[] visited = new boolean[n];
+            int head = 0;
+            int size = 0;
+            int scan = 0;
+            queue[size++] = start;
+            visited[start] = true;
+            long weight = 0;
+            while (weight < target) {
+                if (head == size) {
+                    while (visited[scan])
+                        scan++;
+                    queue[size++] = scan;
+                    visited[scan] = true;
+                }
+                int v = queue[head++];
+                side[v] = 0;
+                weight += vertexWeight[v];
+                for (int k = ptr[v]; k < ptr[v + 1]; k++)
+                    if (!visited[adj[k]]) {
+                        visited[adj[k]] = true;
+                        queue[size++] = adj[k];
+                    }
+            }
+            return side;
+        }
+
+        long cut(int[] side) {
+            long cut = 0;
+            for (int v = 0; v < n; v++)
+                for (int k = ptr[v]; k < ptr[v + 1]; k++)
+                    if (side[adj[k]] != side[v])
+                        cut += edgeWeight[k];
+            return cut;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package deveone.logic.solver;
+
+import deveone.logic.graph.EdgeSink;
+
+import java.util.Arrays;
+
+/**
+ * Эквивалент подсхемы на её выводах: матрица проводимостей между выводами после исключения
+ * внутренних узлов (редукция Крона, дополнение Шура S = Y_pp - Y_pi Y_ii^-1 Y_ip).
+ * Выводы, соединённые закоротками, образуют один класс; матрица хранится плотно по классам.
+ * <p>
+ * Дополнение Шура лапласиана - снова лапласиан (внедиагональные элементы неположительны, суммы строк нулевые),
+ * поэтому эквивалент - полный граф резисторов между классами выводов с сопротивлениями -1 / S_ij
+ * ({@link #stitch}), и подсхема подключается к внешней цепи как небольшой плотный блок.
+ */
+public final class PortModel {
+    // Проводимости меньше этой доли наибольшей диагонали считаются нулевыми (ошибки округления исключения)
+    private static final double DROP_TOLERANCE = 1e-13;
+
+    private final int ports;
+    private final int[] portClass;
+    private final int classes;
+    private final double[] conductance;   // classes x classes, построчно
+    private final int internalNodes;
+
+    private PortModel(int ports, int[] portClass, int classes, double[] conductance, int internalNodes) {
+        this.ports = ports;
+        this.portClass = portClass;
+        this.classes = classes;
+        this.conductance = conductance;
+        this.internalNodes = internalNodes;
+    }
+
+    public int ports() {
+        return ports;
+    }
+
+    /**
+     * Класс вывода: закороченные выводы в одном классе
+     */
+    public int classOf(int port) {
+        return portClass[port];
+    }
+
+    public int classCount() {
+        return classes;
+    }
+
+    /**
+     * Элемент матрицы проводимостей между классами выводов, См
+     */
+    public double conductance(int class1, int class2) {
+        return conductance[class1 * classes + class2];
+    }
+
+    /**
+     * Кол-во исключённых внутренних узлов (после объединения закороченных и отбрасывания не связанных с выводами)
+     */
+    public int internalNodes() {
+        return internalNodes;
+    }
+
+    /**
+     * Подключает эквивалент к внешней цепи: выводу i соответствует узел nodes[i].
+     * Выдаёт резисторы между классами выводов и закоротки между выводами одного класса.
+     */
+    public void stitch(EdgeSink sink, int[] nodes) {
+        if (nodes.length != ports)
+            throw new IllegalArgumentException("У подсхемы " + ports + " выводов, подключено " + nodes.length);
+        int[] representative = new int[classes];
+        Arrays.fill(representative, -1);
+        for (int p = 0; p < ports; p++) {
+            int c = portClass[p];
+            if (representative[c] < 0)
+                representative[c] = p;
+            else
+                sink.edge(nodes[representative[c]], nodes[p], 0);
+        }
+        double scale = 0;
+        for (int c = 0; c < classes; c++)
+            scale = Math.max(scale, conductance[c * classes + c]);
+        for (int i = 0; i < classes; i++)
+            for (int j = i + 1; j < classes; j++) {
+                double g = -conductance[i * classes + j];
+                if (g > DROP_TOLERANCE * scale)
+                    sink.edge(nodes[representative[i]], nodes[representative[j]], 1 / g);
+            }
+    }
+
+    /**
+     * Редукция цепи из count резисторов на узлах 0..nodeCount-1, из которых 0..ports-1 - выводы.
+     * Узлы, не связанные ни с одним выводом, на эквивалент не влияют и отбрасываются.
+     */
+    static PortModel reduce(int ports, int nodeCount, int[] from, int[] to, double[] resistance, int count) {
+        // Объединяем закороченные узлы
+        int[] parent = new int[nodeCount];
+        for (int v = 0; v < nodeCount; v++)
+            parent[v] = v;
+        for (int e = 0; e < count; e++)
+            if (resistance[e] == 0)
+                union(parent, from[e], to[e]);
+
+        // Смежность корней по резисторам
+        int[] degree = new int[nodeCount + 1];
+        for (int e = 0; e < count; e++) {
+            int a = find(parent, from[e]);
+            int b = find(parent, to[e]);
+            if (a != b) {
+                degree[a + 1]++;
+                degree[b + 1]++;
+            }
+        }
+        for (int v = 0; v < nodeCount; v++)
+            degree[v + 1] += degree[v];
+        int[] adjacent = new int[degree[nodeCount]];
+        int[] fill = Arrays.copyOf(degree, nodeCount);
+        for (int e = 0; e < count; e++) {
+            int a = find(parent, from[e]);
+            int b = find(parent, to[e]);
+            if (a != b) {
+                adjacent[fill[a]++] = b;
+                adjacent[fill[b]++] = a;
+            }
+        }
+
+        // Номера: сначала классы выводов, затем внутренние узлы, достижимые от выводов (в порядке обхода)
+        int[] number = new int[nodeCount];
+        Arrays.fill(number, -1);
+        int[] portClass = new int[ports];
+        int[] queue = new int[nodeCount];
+        int size = 0;
+        int classes = 0;
+        for (int p = 0; p < ports; p++) {
+            int root = find(parent, p);
+            if (number[root] < 0) {
+                number[root] = classes++;
+                queue[size++] = root;
+            }
+            portClass[p] = number[root];
+        }
+        int next = classes;
+        for (int head = 0; head < size; head++)
+            for (int k = degree[queue[head]]; k < degree[queue[head] + 1]; k++) {
+                int u = adjacent[k];
+                if (number[u] < 0) {
+                    number[u] = next++;
+                    queue[size++] = u;
+                }
+            }
+        int q = next - classes;
+
+        // Блоки лапласиана: Y_pp плотно, Y_ip плотно (q x classes), Y_ii - тройками для CSR
+        double[] ypp = new double[classes * classes];
+        double[] yip = new double[q * classes];
+        double[] diagonal = new double[q];
+        int[] rows = new int[2 * count];
+        int[] cols = new int[2 * count];
+        double[] vals = new double[2 * count];
+        int triplets = 0;
+        for (int e = 0; e < count; e++) {
+            if (resistance[e] == 0)
+                continue;
+            int a = number[find(parent, from[e])];
+            int b = number[find(parent, to[e])];
+            if (a < 0 || a == b)
+                continue;
+            double g = 1 / resistance[e];
+            for (int side = 0; side < 2; side++) {
+                int x = side == 0 ? a : b;
+                int y = side == 0 ? b : a;
+                if (x < classes) {
+                    ypp[x * classes + x] += g;
+                    if (y < classes)
+                        ypp[x * classes + y] -= g;
+                } else {
+                    diagonal[x - classes] += g;
+                    if (y < classes) {
+                        yip[(x - classes) * classes + y] -= g;
+                    } else {
+                        rows[triplets] = x - classes;
+                        cols[triplets] = y - classes;
+                        vals[triplets++] = -g;
+                    }
+                }
+            }
+        }
+
+        double[] s = ypp;
+        if (q > 0) {
+            GroundedLaplacian yii = GroundedLaplacian.fromTriplets(q, diagonal, rows, cols, vals, triplets);
+            double[] b = new double[q];
+            double[] x = new double[q];
+            CholeskyFactor factor = CholeskyFactor.of(yii);
+            for (int j = 0; j < classes; j++) {
+                for (int i = 0; i < q; i++)
+                    b[i] = -yip[i * classes + j];
+                factor.solve(b, x);
+                // S(:, j) = Y_pp(:, j) + Y_pi x
+                for (int i = 0; i < q; i++) {
+                    if (x[i] == 0)
+                        continue;
+                    for (int c = 0; c < classes; c++)
+                        s[c * classes + j] += yip[i * classes + c] * x[i];
+                }
+            }
+            // Симметризация после округлений
+            for (int i = 0; i < classes; i++)
+                for (int j = i + 1; j < classes; j++) {
+                    double mean = (s[i * classes + j] + s[j * classes + i]) / 2;
+                    s[i * classes + j] = mean;
+                    s[j * classes + i] = mean;
+                }
+        }
+        return new PortModel(ports, portClass, classes, s, q);
+    }
+
+    private static int find(int[] parent, int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    private static void union(int[] parent, int v1, int v2) {
+        int r1 = find(parent, v1);
+        int r2 = find(parent, v2);
+        if (r1 != r2)
+            parent[Math.max(r1, r2)] = Math.min(r1, r2);
+    }
+}
@@ -0,0 +1,295 @@
+package deveone.logic.solver;
+
+import deveone.logic.graph.WeightedGraph;
+import deveone.logic.graph.WeightedMultigraph;
+
+import java.util.Arrays;
+
+/**
+ * Чувствительность сопротивления цепи к сопротивлению каждого резистора: dR/dr.
+ * <p>
+ * Задача самосопряжённая (матрица проводимостей симметрична, а сопротивление - потенциал в той же точке,
+ * куда втекает ток), поэтому сопряжённое решение совпадает с прямым и dR/dr = i^2, где i - ток резистора
+ * при токе 1 А через цепь. Все производные получаются из одного решения системы вместо пересчёта цепи
+ * для каждого резистора.
+ * <p>
+ * Хранится в примитивных массивах, упорядоченных по убыванию производной.
+ */
+public final class SensitivityRanking {
+    private final int[] edgeIds;  // -1 для пар вершин обычного графа
+    private final int[] sources;
+    private final int[] targets;
+    private final double[] resistances;
+    private final double[] derivatives;
+    private final double resistance;
+
+    private SensitivityRanking(int[] edgeIds, int[] sources, int[] targets, double[] resistances,
+                               double[] derivatives, double resistance) {
+        this.edgeIds = edgeIds;
+        this.sources = sources;
+        this.targets = targets;
+        this.resistances = resistances;
+        this.derivatives = derivatives;
+        this.resistance = resistance;
+        sort();
+    }
+
+    /**
+     * Чувствительность к каждому ребру мультиграфа (параллельные резисторы - по отдельности)
+     *
+     * @return ранжирование или null, если начало цепи не связано с концом
+     */
+    public static SensitivityRanking analyze(WeightedMultigraph graph, int startNode, int endNode) {
+        CircuitSolution solution = DirectSolver.solve(graph, startNode, endNode);
+        return solution == null ? null : ofEdges(solution, graph);
+    }
+
+    /**
+     * Чувствительность к каждому ребру мультиграфа по готовому решению.
+     * Закоротка, лежащая на цикле закороток (в том числе параллельная другой закоротке), не меняет сопротивление
+     * цепи: ток обходит её по остальным закороткам, поэтому dR/dr = 0. Ток однозначен только у закороток-мостов
+     * подграфа закороток, для них dR/dr = i^2, как у обычных резисторов.
+     */
+    public static SensitivityRanking ofEdges(CircuitSolution solution, WeightedMultigraph graph) {
+        int count = 0;
+        for (int id = 0; id < graph.edgeIdBound(); id++)
+            if (graph.containsEdge(id) && isInside(solution, graph.edgeSource(id)))
+                count++;
+        boolean[] bridges = shortBridges(solution, graph);
+
+        int[] edgeIds = new int[count];
+        int[] sources = new int[count];
+        int[] targets = new int[count];
+        double[] resistances = new double[count];
+        double[] derivatives = new double[count];
+        int k = 0;
+        for (int id = 0; id < graph.edgeIdBound(); id++) {
+            if (!graph.containsEdge(id) || !isInside(solution, graph.edgeSource(id)))
+                continue;
+            int v1 = graph.edgeSource(id);
+            int v2 = graph.edgeTarget(id);
+            double r = graph.edgeWeight(id);
+            double current = r != 0 ? solution.current(v1, v2, r) : bridges[id] ? solution.shortCurrent(v1, v2) : 0;
+
+            edgeIds[k] = id;
+            sources[k] = v1;
+            targets[k] = v2;
+            resistances[k] = r;
+            derivatives[k++] = current * current;
+        }
+        return new SensitivityRanking(edgeIds, sources, targets, resistances, derivatives, solution.getResistance());
+    }
+
+    /**
+     * Чувствительность к сопротивлению каждой пары смежных вершин (для мультиграфа - к параллельной группе)
+     */
+    public static SensitivityRanking ofPairs(CircuitSolution solution, WeightedGraph graph) {
+        int count = 0;
+        for (int v = 0; v < graph.vertexCount(); v++)
+            if (isInside(solution, v))
+                for (WeightedGraph.WeightedEdgeTo edge : graph.adjacencyWithWeights(v))
+                    if (edge.to() > v)
+                        count++;
+
+        int[] edgeIds = new int[count];
+        int[] sources = new int[count];
+        int[] targets = new int[count];
+        double[] resistances = new double[count];
+        double[] derivatives = new double[count];
+        int k = 0;
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            if (!isInside(solution, v))
+                continue;
+            for (WeightedGraph.WeightedEdgeTo edge : graph.adjacencyWithWeights(v)) {
+                if (edge.to() <= v)
+                    continue;
+                double current = solution.current(v, edge.to(), edge.weight());
+
+                edgeIds[k] = -1;
+                sources[k] = v;
+                targets[k] = edge.to();
+                resistances[k] = edge.weight();
+                derivatives[k++] = current * current;
+            }
+        }
+        return new SensitivityRanking(edgeIds, sources, targets, resistances, derivatives, solution.getResistance());
+    }
+
+    private static boolean isInside(CircuitSolution solution, int v) {
+        return !Double.isNaN(solution.potential(v));
+    }
+
+    /**
+     * Мосты подграфа закороток (алгоритм Тарьяна без рекурсии). Параллельные закоротки и петли мостами не бывают.
+     * Мост входит в любое остовное дерево закороток, поэтому его ток CircuitSolution находит однозначно.
+     *
+     * @return признак моста по номеру ребра
+     */
+    private static boolean[] shortBridges(CircuitSolution solution, WeightedMultigraph graph) {
+        boolean[] bridges = new boolean[graph.edgeIdBound()];
+        int n = graph.vertexCount();
+        int[] start = new int[n + 1];
+        for (int id = 0; id < graph.edgeIdBound(); id++)
+            if (isShort(solution, graph, id)) {
+                start[graph.edgeSource(id) + 1]++;
+                start[graph.edgeTarget(id) + 1]++;
+            }
+        for (int v = 0; v < n; v++)
+            start[v + 1] += start[v];
+        if (start[n] == 0)
+            return bridges;
+
+        // Списки смежности закороток: номер ребра и соседняя вершина
+        int[] fill = Arrays.copyOf(start, n);
+        int[] edgeOf = new int[start[n]];
+        int[] neighbour = new int[start[n]];
+        for (int id = 0; id < graph.edgeIdBound(); id++)
+            if (isShort(solution, graph, id)) {
+                int v1 = graph.edgeSource(id);
+                int v2 = graph.edgeTarget(id);
+                edgeOf[fill[v1]] = id;
+                neighbour[fill[v1]++] = v2;
+                edgeOf[fill[v2]] = id;
+                neighbour[fill[v2]++] = v1;
+            }
+
+        int[] entered = new int[n];     // 0 - вершина ещё не посещена
+        int[] low = new int[n];
+        int[] parentEdge = new int[n];
+        int[] next = new int[n];
+        int[] stack = new int[n];
+        int time = 0;
+        for (int root = 0; root < n; root++) {
+            if (start[root] == start[root + 1] || entered[root] != 0)
+                continue;
+            entered[root] = low[root] = ++time;
+            parentEdge[root] = -1;
+            next[root] = start[root];
+            int top = 0;
+            stack[top++] = root;
+            while (top > 0) {
+                int v = stack[top - 1];
+                if (next[v] < start[v + 1]) {
+                    int i = next[v]++;
+                    int u = neighbour[i];
+                    if (edgeOf[i] == parentEdge[v])
+                        continue;
+                    if (entered[u] == 0) {
+                        entered[u] = low[u] = ++time;
+                        parentEdge[u] = edgeOf[i];
+                        next[u] = start[u];
+                        stack[top++] = u;
+                    } else {
+                        low[v] = Math.min(low[v], entered[u]);
+                    }
+                } else if (--top > 0) {
+                    int parent = stack[top - 1];
+                    low[parent] = Math.min(low[parent], low[v]);
+                    if (low[v] > entered[parent])
+                        bridges[parentEdge[v]] = true;
+                }
+            }
+        }
+        return bridges;
+    }
+
+    private static boolean isShort(CircuitSolution solution, WeightedMultigraph graph, int id) {
+        return graph.containsEdge(id) && graph.edgeWeight(id) == 0 && graph.edgeSource(id) != graph.edgeTarget(id)
+                && isInside(solution, graph.edgeSource(id));
+    }
+
+    //Пирамидальная сортировка параллельных массивов по убыванию производной
+    private void sort() {
+        int n = derivatives.length;
+        for (int i = n / 2 - 1; i >= 0; i--)
+            siftDown(i, n);
+        for (int end = n - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+    }
+
+    // Пирамида с минимумом в корне: после выноса минимумов в конец массив упорядочен по убыванию
+    private void siftDown(int i, int n) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= n)
+                return;
+            if (child + 1 < n && derivatives[child + 1] < derivatives[child])
+                child++;
+            if (derivatives[i] <= derivatives[child])
+                return;
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int t = edgeIds[i]; edgeIds[i] = edgeIds[j]; edgeIds[j] = t;
+        t = sources[i]; sources[i] = sources[j]; sources[j] = t;
+        t = targets[i]; targets[i] = targets[j]; targets[j] = t;
+        double d = resistances[i]; resistances[i] = resistances[j]; resistances[j] = d;
+        d = derivatives[i]; derivatives[i] = derivatives[j]; derivatives[j] = d;
+    }
+
+    /**
+     * Кол-во резисторов
+     */
+    public int size() {
+        return derivatives.length;
+    }
+
+    /**
+     * Сопротивление цепи
+     */
+    public double getResistance() {
+        return resistance;
+    }
+
+    /**
+     * Номер ребра мультиграфа на месте rank (0 - самый влиятельный) или -1 для пары вершин
+     */
+    public int edgeId(int rank) {
+        return edgeIds[rank];
+    }
+
+    public int source(int rank) {
+        return sources[rank];
+    }
+
+    public int target(int rank) {
+        return targets[rank];
+    }
+
+    public double resistance(int rank) {
+        return resistances[rank];
+    }
+
+    /**
+     * dR/dr резистора на месте rank
+     */
+    public double derivative(int rank) {
+        return derivatives[rank];
+    }
+
+    /**
+     * Относительная чувствительность (r/R) dR/dr: на сколько процентов меняется R при изменении r на 1%
+     */
+    public double relative(int rank) {
+        return resistance > 0 ? resistances[rank] / resistance * derivatives[rank] : 0;
+    }
+
+    /**
+     * Производные по убыванию (копия)
+     */
+    public double[] derivatives() {
+        return derivatives.clone();
+    }
+
+    /**
+     * Номера рёбер в порядке убывания производной (копия)
+     */
+    public int[] edgeIds() {
+        return edgeIds.clone();
+    }
+}
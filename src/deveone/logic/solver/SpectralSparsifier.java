@@ -0,0 +1,452 @@
+package deveone.logic.solver;
+
+import deveone.logic.graph.CsrWeightedGraph;
+import deveone.logic.graph.WeightedGraph;
+import deveone.logic.metrics.Phase;
+import deveone.logic.metrics.SolveTrace;
+import deveone.logic.metrics.SolverMetrics;
+import deveone.logic.solver.dense.DenseKernels;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Спектральное разрежение цепи (Спилман - Шривастава): резисторы выбираются с вероятностью,
+ * пропорциональной вкладу w_e R_e (проводимость на эффективное сопротивление), и оставшиеся
+ * проводимости делятся на вероятность выбора. С высокой вероятностью лапласиан результата приближает исходный
+ * в пределах (1 ± eps), а значит, сохраняются сопротивления между любыми вершинами и проводимости любых сечений.
+ * В результате O(n log n / eps^2) резисторов при любой плотности исходной цепи.
+ * <p>
+ * Эффективные сопротивления оцениваются случайной проекцией (Джонсон - Линденштраусс):
+ * R_e = |W^1/2 B L^+ (χ_u - χ_v)|^2 приближается по O(log n) решениям системы. Системы решаются вместе
+ * сопряжёнными градиентами с предобуславливателем Якоби: у почти полных цепей, которые и имеет смысл разрежать,
+ * лапласиан хорошо обусловлен, и хватает нескольких проходов по резисторам вместо плотного разложения O(n^3).
+ * Если итерации не сходятся, решения считаются по разложению лапласиана.
+ * Решения и выборка идут на пуле потоков; генераторы проекций и пачек резисторов заранее отщепляются
+ * от SplittableRandom с заданным зерном, так что результат не зависит от числа потоков.
+ * Резисторы выбираются независимо (а не q раз с возвращением), поэтому каждый входит в результат не более раза.
+ * Закоротки сохраняются все, резисторы между закороченными вершинами отбрасываются (ток по ним не течёт).
+ */
+public final class SpectralSparsifier {
+    // Ожидаемое кол-во резисторов результата - OVERSAMPLING * n ln n / eps^2
+    private static final double OVERSAMPLING = 4;
+    // Кол-во проекций - PROJECTIONS * ln n: точность оценки R_e около ±15%, выборке этого достаточно
+    private static final double PROJECTIONS = 24;
+    private static final int BATCH = 4096;
+    // Сопряжённые градиенты: относительная невязка каждой проекции (оценке R_e хватает грубой точности),
+    // предел итераций, после которого решения считаются по разложению, и строк в блоке
+    private static final double TOLERANCE = 1e-2;
+    private static final int MAX_ITERATIONS = 100;
+    private static final int ROWS = 64;
+
+    private final double epsilon;
+    private final long seed;
+    private final ForkJoinPool pool;
+
+    public SpectralSparsifier(double epsilon, long seed, ForkJoinPool pool) {
+        if (!(epsilon > 0 && epsilon < 1))
+            throw new IllegalArgumentException("Точность должна быть в (0, 1): " + epsilon);
+        this.epsilon = epsilon;
+        this.seed = seed;
+        this.pool = pool;
+    }
+
+    public SpectralSparsifier(double epsilon, long seed) {
+        this(epsilon, seed, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param graph цепь (вес - сопротивление, неотрицательное); номера вершин результата те же
+     * @return разреженная цепь; если резисторов и так не больше целевого кол-ва - все резисторы без изменений
+     */
+    public CsrWeightedGraph sparsify(WeightedGraph graph) {
+        SolveTrace trace = SolverMetrics.begin("sparsify", graph.vertexCount(), graph.edgeCount());
+        try {
+            trace.phase(Phase.ASSEMBLY);
+            Network network = new Network(graph);
+            int n = network.size;
+            int m = network.count;
+            double target = OVERSAMPLING * n * Math.log(n + 1) / (epsilon * epsilon);
+            trace.graphSize(n, m);
+            if (m <= target)
+                return network.copy();
+
+            GroundedLaplacian a = network.laplacian();
+            trace.matrixFill(a.nonZeros(), (long) n * n);
+
+            trace.phase(Phase.SOLVE);
+            int k = (int) Math.ceil(PROJECTIONS * Math.log(n + 1));
+            double[] z = network.projections(k, new SplittableRandom(seed), pool);
+            int iterations = solve(a, z, k, pool);
+            if (iterations < 0) {
+                // Сопряжённые градиенты не сошлись (плохо обусловленная цепь) - решения по разложению
+                trace.phase(Phase.FACTORIZATION);
+                CholeskyFactor factor = CholeskyFactor.of(a);
+                trace.phase(Phase.SOLVE);
+                solve(factor, z, k, n, pool);
+                iterations = MAX_ITERATIONS;
+            }
+            trace.iterations(iterations);
+            double[] resistance = network.effectiveResistances(z, k, pool);
+
+            // Вероятность выбора min(1, q w_e R_e / n): сумма w_e R_e по цепи равна n (рангу лапласиана)
+            int batches = (m + BATCH - 1) / BATCH;
+            SplittableRandom root = new SplittableRandom(~seed);
+            SplittableRandom[] randoms = new SplittableRandom[batches];
+            for (int i = 0; i < batches; i++)
+                randoms[i] = root.split();
+            double[] kept = new double[m]; // сопротивление в результате или 0, если резистор не выбран
+            pool.submit(() -> IntStream.range(0, batches).parallel().forEach(batch -> {
+                int to = Math.min(m, (batch + 1) * BATCH);
+                for (int e = batch * BATCH; e < to; e++) {
+                    double p = Math.min(1, target * resistance[e] / (network.resistance[e] * n));
+                    if (randoms[batch].nextDouble() < p)
+                        kept[e] = network.resistance[e] * p;
+                }
+            })).join();
+
+            return network.build(kept);
+        } finally {
+            trace.end();
+        }
+    }
+
+    /**
+     * Резисторы цепи после объединения закороченных вершин, узлы - классы закороченных вершин;
+     * в каждой связной компоненте один узел заземлён
+     */
+    private static final class Network {
+        final int vertexCount;
+        final int[] node;          // узел вершины, -1 - заземлённый
+        final int[] root;          // класс закороченных вершин
+        final int size;            // кол-во незаземлённых узлов
+        int[] source = new int[16];
+        int[] target = new int[16];
+        double[] resistance = new double[16];
+        int count = 0;
+        int[] shorts = new int[16];
+        int shortCount = 0;
+
+        Network(WeightedGraph graph) {
+            vertexCount = graph.vertexCount();
+            int[] parent = new int[vertexCount];
+            for (int v = 0; v < vertexCount; v++)
+                parent[v] = v;
+            for (int v = 0; v < vertexCount; v++)
+                for (WeightedGraph.WeightedEdgeTo edge : graph.adjacencyWithWeights(v)) {
+                    int u = edge.to();
+                    double w = edge.weight();
+                    if (w < 0 || Double.isNaN(w))
+                        throw new IllegalArgumentException("Отрицательное сопротивление между " + v + " и " + u);
+                    // Каждый резистор - один раз (со стороны меньшего номера)
+                    if (u <= v)
+                        continue;
+                    if (w == 0) {
+                        if (shortCount + 2 > shorts.length)
+                            shorts = Arrays.copyOf(shorts, shorts.length * 2);
+                        shorts[shortCount++] = v;
+                        shorts[shortCount++] = u;
+                        union(parent, v, u);
+                    } else {
+                        add(v, u, w);
+                    }
+                }
+
+            // Резисторы внутри класса закороченных вершин не проводят ток
+            root = new int[vertexCount];
+            for (int v = 0; v < vertexCount; v++)
+                root[v] = find(parent, v);
+            int k = 0;
+            for (int e = 0; e < count; e++)
+                if (root[source[e]] != root[target[e]]) {
+                    source[k] = source[e];
+                    target[k] = target[e];
+                    resistance[k++] = resistance[e];
+                }
+            count = k;
+
+            // Компоненты связности по классам; первый класс компоненты заземляется
+            int[] component = root.clone();
+            for (int e = 0; e < count; e++)
+                union(component, root[source[e]], root[target[e]]);
+            boolean[] grounded = new boolean[vertexCount];
+            int[] number = new int[vertexCount];
+            int n = 0;
+            for (int v = 0; v < vertexCount; v++) {
+                if (root[v] != v)
+                    continue;
+                int c = find(component, v);
+                if (grounded[c]) {
+                    number[v] = n++;
+                } else {
+                    grounded[c] = true;
+                    number[v] = -1;
+                }
+            }
+            node = new int[vertexCount];
+            for (int v = 0; v < vertexCount; v++)
+                node[v] = number[root[v]];
+            size = n;
+        }
+
+        private void add(int v1, int v2, double r) {
+            if (count == source.length) {
+                int capacity = count + (count >> 1);
+                source = Arrays.copyOf(source, capacity);
+                target = Arrays.copyOf(target, capacity);
+                resistance = Arrays.copyOf(resistance, capacity);
+            }
+            source[count] = v1;
+            target[count] = v2;
+            resistance[count++] = r;
+        }
+
+        GroundedLaplacian laplacian() {
+            double[] diagonal = new double[size];
+            int[] rows = new int[2 * count];
+            int[] cols = new int[2 * count];
+            double[] vals = new double[2 * count];
+            int triplets = 0;
+            for (int e = 0; e < count; e++) {
+                int a = node[source[e]];
+                int b = node[target[e]];
+                double g = 1 / resistance[e];
+                if (a >= 0)
+                    diagonal[a] += g;
+                if (b >= 0)
+                    diagonal[b] += g;
+                if (a >= 0 && b >= 0) {
+                    rows[triplets] = a;
+                    cols[triplets] = b;
+                    vals[triplets++] = -g;
+                    rows[triplets] = b;
+                    cols[triplets] = a;
+                    vals[triplets++] = -g;
+                }
+            }
+            return GroundedLaplacian.fromTriplets(size, diagonal, rows, cols, vals, triplets);
+        }
+
+        /**
+         * Правые части k случайных проекций построчно по узлам (y[node * k + i]):
+         * строка проекции - случайные знаки ±1 на резисторах, Y = Q W^1/2 B.
+         * Проекции идут группами по 64 (знаки резистора - биты одного long), внутри группы - по резисторам,
+         * так что строки y заполняются подряд
+         */
+        double[] projections(int k, SplittableRandom root, ForkJoinPool pool) {
+            int groups = (k + 63) / 64;
+            SplittableRandom[] randoms = new SplittableRandom[groups];
+            for (int g = 0; g < groups; g++)
+                randoms[g] = root.split();
+            double[] scale = new double[count];
+            for (int e = 0; e < count; e++)
+                scale[e] = Math.sqrt(1 / resistance[e]);
+            double[] y = new double[size * k];
+            pool.submit(() -> IntStream.range(0, groups).parallel().forEach(g -> {
+                SplittableRandom random = randoms[g];
+                int from = g * 64;
+                int len = Math.min(k, from + 64) - from;
+                double[] row = new double[len];
+                for (int e = 0; e < count; e++) {
+                    // Бит знака i-й проекции переносится в знаковый бит sqrt(w_e) - без ветвлений
+                    long signs = random.nextLong();
+                    long bits = Double.doubleToRawLongBits(scale[e]);
+                    for (int i = 0; i < len; i++)
+                        row[i] = Double.longBitsToDouble(bits ^ (signs << 63 - i & Long.MIN_VALUE));
+                    int a = node[source[e]];
+                    int c = node[target[e]];
+                    if (a >= 0)
+                        for (int i = 0, o = a * k + from; i < len; i++)
+                            y[o + i] += row[i];
+                    if (c >= 0)
+                        for (int i = 0, o = c * k + from; i < len; i++)
+                            y[o + i] -= row[i];
+                }
+            })).join();
+            return y;
+        }
+
+        /**
+         * Оценка эффективных сопротивлений резисторов по решениям проекций Z = Y L^-1:
+         * R_e ≈ |Z (χ_u - χ_v)|^2 / k
+         */
+        double[] effectiveResistances(double[] z, int k, ForkJoinPool pool) {
+            double[] result = new double[count];
+            pool.submit(() -> IntStream.range(0, (count + BATCH - 1) / BATCH).parallel().forEach(batch -> {
+                int to = Math.min(count, (batch + 1) * BATCH);
+                for (int e = batch * BATCH; e < to; e++) {
+                    int a = node[source[e]];
+                    int c = node[target[e]];
+                    double sum = 0;
+                    for (int i = 0; i < k; i++) {
+                        double d = (a >= 0 ? z[a * k + i] : 0) - (c >= 0 ? z[c * k + i] : 0);
+                        sum += d * d;
+                    }
+                    result[e] = sum / k;
+                }
+            })).join();
+            return result;
+        }
+
+        CsrWeightedGraph copy() {
+            double[] all = Arrays.copyOf(resistance, count);
+            return build(all);
+        }
+
+        /**
+         * Цепь из закороток и резисторов с ненулевым kept[e] (новое сопротивление)
+         */
+        CsrWeightedGraph build(double[] kept) {
+            CsrWeightedGraph.Builder builder = CsrWeightedGraph.builder();
+            builder.expectVertices(vertexCount);
+            for (int i = 0; i < shortCount; i += 2)
+                builder.edge(shorts[i], shorts[i + 1], 0);
+            for (int e = 0; e < count; e++)
+                if (kept[e] > 0)
+                    builder.edge(source[e], target[e], kept[e]);
+            return builder.build();
+        }
+    }
+
+    /**
+     * Решает A X = Y для k правых частей сразу (X и Y построчно по узлам, y[node * k + i]) методом сопряжённых
+     * градиентов с предобуславливателем Якоби. Матрица читается один раз за итерацию для всех правых частей;
+     * суммы по строкам складываются по блокам в фиксированном порядке, поэтому результат не зависит от числа потоков.
+     *
+     * @param y правые части, заменяются решениями
+     * @return кол-во итераций или -1, если невязка не снизилась до TOLERANCE за MAX_ITERATIONS итераций
+     */
+    static int solve(GroundedLaplacian a, double[] y, int k, ForkJoinPool pool) {
+        int n = a.n;
+        int blocks = (n + ROWS - 1) / ROWS;
+        DenseKernels kernels = DenseKernels.get();
+        double[] inverse = new double[n];
+        for (int row = 0; row < n; row++)
+            for (int p = a.rowPtr[row]; p < a.rowPtr[row + 1]; p++)
+                if (a.cols[p] == row)
+                    inverse[row] = 1 / a.vals[p];
+
+        double[] r = y.clone();
+        double[] x = y;
+        Arrays.fill(x, 0);
+        double[] d = new double[n * k];
+        double[] q = new double[n * k];
+        double[][] partial = new double[blocks][2 * k];
+        double[] rz = new double[k];
+        double[] rr = new double[k];
+        double[] alpha = new double[k];
+
+        // d = D^-1 r, начальные r z и r r
+        pool.submit(() -> IntStream.range(0, blocks).parallel().forEach(block -> {
+            double[] sums = partial[block];
+            Arrays.fill(sums, 0);
+            for (int row = block * ROWS, to = Math.min(n, row + ROWS); row < to; row++)
+                for (int i = 0, o = row * k; i < k; i++, o++) {
+                    d[o] = inverse[row] * r[o];
+                    sums[i] += r[o] * d[o];
+                    sums[k + i] += r[o] * r[o];
+                }
+        })).join();
+        reduce(partial, rz, rr, k);
+        double[] bound = new double[k];
+        for (int i = 0; i < k; i++)
+            bound[i] = TOLERANCE * TOLERANCE * rr[i];
+
+        for (int iteration = 1; iteration <= MAX_ITERATIONS; iteration++) {
+            // q = A d и d q
+            pool.submit(() -> IntStream.range(0, blocks).parallel().forEach(block -> {
+                double[] sums = partial[block];
+                Arrays.fill(sums, 0);
+                for (int row = block * ROWS, to = Math.min(n, row + ROWS); row < to; row++) {
+                    int o = row * k;
+                    Arrays.fill(q, o, o + k, 0);
+                    for (int p = a.rowPtr[row]; p < a.rowPtr[row + 1]; p++)
+                        kernels.axpy(a.vals[p], d, a.cols[p] * k, q, o, k);
+                    for (int i = 0; i < k; i++)
+                        sums[i] += d[o + i] * q[o + i];
+                }
+            })).join();
+            reduce(partial, alpha, null, k);
+            for (int i = 0; i < k; i++)
+                alpha[i] = alpha[i] > 0 ? rz[i] / alpha[i] : 0;
+
+            // x += alpha d, r -= alpha q, новые r z (z = D^-1 r, хранится в q) и r r
+            pool.submit(() -> IntStream.range(0, blocks).parallel().forEach(block -> {
+                double[] sums = partial[block];
+                Arrays.fill(sums, 0);
+                for (int row = block * ROWS, to = Math.min(n, row + ROWS); row < to; row++)
+                    for (int i = 0, o = row * k; i < k; i++, o++) {
+                        x[o] += alpha[i] * d[o];
+                        r[o] -= alpha[i] * q[o];
+                        q[o] = inverse[row] * r[o];
+                        sums[i] += r[o] * q[o];
+                        sums[k + i] += r[o] * r[o];
+                    }
+            })).join();
+            double[] beta = alpha;
+            reduce(partial, beta, rr, k);
+            boolean converged = true;
+            for (int i = 0; i < k; i++) {
+                converged &= rr[i] <= bound[i];
+                double next = beta[i];
+                beta[i] = rz[i] > 0 ? next / rz[i] : 0;
+                rz[i] = next;
+            }
+            if (converged)
+                return iteration;
+
+            // d = z + beta d
+            pool.submit(() -> IntStream.range(0, blocks).parallel().forEach(block -> {
+                for (int row = block * ROWS, to = Math.min(n, row + ROWS); row < to; row++)
+                    for (int i = 0, o = row * k; i < k; i++, o++)
+                        d[o] = q[o] + beta[i] * d[o];
+            })).join();
+        }
+        return -1;
+    }
+
+    /**
+     * Решает A X = Y по готовому разложению, правые части независимо на пуле
+     */
+    private static void solve(CholeskyFactor factor, double[] y, int k, int n, ForkJoinPool pool) {
+        pool.submit(() -> IntStream.range(0, k).parallel().forEach(i -> {
+            double[] b = new double[n];
+            double[] x = new double[n];
+            for (int v = 0; v < n; v++)
+                b[v] = y[v * k + i];
+            factor.solve(b, x);
+            for (int v = 0; v < n; v++)
+                y[v * k + i] = x[v];
+        })).join();
+    }
+
+    // Суммы блоков по порядку: first[i] - первая половина сумм, second[i] (если есть) - вторая
+    private static void reduce(double[][] partial, double[] first, double[] second, int k) {
+        Arrays.fill(first, 0);
+        if (second != null)
+            Arrays.fill(second, 0);
+        for (double[] sums : partial)
+            for (int i = 0; i < k; i++) {
+                first[i] += sums[i];
+                if (second != null)
+                    second[i] += sums[k + i];
+            }
+    }
+
+    private static int find(int[] parent, int v) {
+        while (parent[v] != v) {
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    private static void union(int[] parent, int v1, int v2) {
+        int r1 = find(parent, v1);
+        int r2 = find(parent, v2);
+        if (r1 != r2)
+            parent[Math.max(r1, r2)] = Math.min(r1, r2);
+    }
+}
@@ -0,0 +1,291 @@
+package deveone.logic.solver;
+
+import deveone.logic.graph.WeightedGraph;
+import deveone.logic.metrics.Phase;
+import deveone.logic.metrics.SolveTrace;
+import deveone.logic.metrics.SolverMetrics;
+import deveone.logic.solver.dense.DenseSolver;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Анализ допусков методом Монте-Карло: номиналы резисторов случайно отклоняются в пределах допуска,
+ * для каждого испытания считается сопротивление цепи, результат - распределение сопротивления.
+ * <p>
+ * Портрет матрицы от номиналов не зависит, поэтому сборка и символьный анализ (упорядочение, профиль)
+ * выполняются один раз, а в испытании заново заполняются только значения матрицы и численное разложение.
+ * Испытания идут пачками по BATCH на пуле потоков; генератор каждой пачки заранее отщепляется
+ * от SplittableRandom с заданным зерном, так что результат не зависит от числа потоков.
+ * Резисторы нулевого сопротивления (закоротки) не варьируются.
+ */
+public final class ToleranceAnalysis {
+    private static final int BATCH = 64;
+
+    public enum Distribution {
+        /**
+         * Равномерно в пределах допуска
+         */
+        UNIFORM,
+        /**
+         * Нормально, допуск равен 3 сигма, отклонения за пределами допуска отсекаются
+         */
+        NORMAL
+    }
+
+    /**
+     * Относительный допуск резистора (0.05 - ±5%)
+     */
+    @FunctionalInterface
+    public interface Tolerance {
+        double of(int v1, int v2, double resistance);
+    }
+
+    private final Tolerance tolerance;
+    private final Distribution distribution;
+    private final int trials;
+    private final long seed;
+    private final ForkJoinPool pool;
+
+    public ToleranceAnalysis(Tolerance tolerance, Distribution distribution, int trials, long seed, ForkJoinPool pool) {
+        if (trials < 1)
+            throw new IllegalArgumentException("Кол-во испытаний должно быть положительным: " + trials);
+        this.tolerance = tolerance;
+        this.distribution = distribution;
+        this.trials = trials;
+        this.seed = seed;
+        this.pool = pool;
+    }
+
+    /**
+     * Одинаковый допуск для всех резисторов, общий пул потоков
+     */
+    public ToleranceAnalysis(double tolerance, Distribution distribution, int trials, long seed) {
+        this((v1, v2, r) -> tolerance, distribution, trials, seed, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @return распределение сопротивления или null, если начало не связано с концом
+     */
+    public Result analyze(WeightedGraph graph, int startNode, int endNode) {
+        SolveTrace trace = SolverMetrics.begin("tolerance", graph.vertexCount(), graph.edgeCount());
+        try {
+            trace.phase(Phase.ASSEMBLY);
+            GroundedLaplacian a = GroundedLaplacian.assemble(graph, startNode, endNode);
+            if (a == null)
+                return null;
+            if (a.source() < 0) {
+                // Начало закорочено с концом: сопротивление 0 при любых номиналах
+                return new Result(0, new double[trials]);
+            }
+
+            Stamps stamps = new Stamps(graph, a, tolerance);
+            EnvelopeStructure structure = a.size() > DenseSolver.THRESHOLD ? EnvelopeStructure.analyze(a) : null;
+            trace.graphSize(a.size(), (a.nonZeros() - a.size()) / 2);
+            double nominal = resistance(a, structure);
+            double[] samples = new double[trials];
+
+            trace.phase(Phase.FACTORIZATION);
+            int batches = (trials + BATCH - 1) / BATCH;
+            SplittableRandom root = new SplittableRandom(seed);
+            SplittableRandom[] randoms = new SplittableRandom[batches];
+            for (int i = 0; i < batches; i++)
+                randoms[i] = root.split();
+            pool.submit(() -> IntStream.range(0, batches).parallel().forEach(batch -> {
+                double[] values = new double[a.nonZeros()];
+                int from = batch * BATCH;
+                int to = Math.min(trials, from + BATCH);
+                for (int trial = from; trial < to; trial++) {
+                    stamps.fill(values, randoms[batch], distribution);
+                    samples[trial] = resistance(a.withValues(values), structure);
+                }
+            })).join();
+            trace.iterations(trials);
+
+            return new Result(nominal, samples);
+        } finally {
+            trace.end();
+        }
+    }
+
+    /**
+     * Потенциал начала цепи при единичном токе; structure == null - плотное разложение
+     */
+    private static double resistance(GroundedLaplacian a, EnvelopeStructure structure) {
+        if (structure == null)
+            return DenseSolver.solve(a, a.unitSourceCurrent())[a.source()];
+        double[] x = new double[a.size()];
+        DoubleEnvelopeFactor.factor(structure, a).solve(a.unitSourceCurrent(), x);
+        return x[a.source()];
+    }
+
+    /**
+     * Вклады резисторов в элементы матрицы: для каждого резистора позиции двух диагональных
+     * и двух внедиагональных элементов (-1, если узел заземлён)
+     */
+    private static final class Stamps {
+        final int count;
+        final double[] resistance;
+        final double[] tolerance;
+        final int[] diagonal1;
+        final int[] diagonal2;
+        final int[] offDiagonal12;
+        final int[] offDiagonal21;
+
+        Stamps(WeightedGraph graph, GroundedLaplacian a, Tolerance spec) {
+            int capacity = 0;
+            for (int v = 0; v < graph.vertexCount(); v++)
+                if (a.nodeOf(v) != GroundedLaplacian.OUTSIDE)
+                    for (WeightedGraph.WeightedEdgeTo ignored : graph.adjacencyWithWeights(v))
+                        capacity++;
+
+            resistance = new double[capacity];
+            tolerance = new double[capacity];
+            diagonal1 = new int[capacity];
+            diagonal2 = new int[capacity];
+            offDiagonal12 = new int[capacity];
+            offDiagonal21 = new int[capacity];
+            int k = 0;
+            for (int v = 0; v < graph.vertexCount(); v++) {
+                int n1 = a.nodeOf(v);
+                if (n1 == GroundedLaplacian.OUTSIDE)
+                    continue;
+                for (WeightedGraph.WeightedEdgeTo edge : graph.adjacencyWithWeights(v)) {
+                    int u = edge.to();
+                    int n2 = a.nodeOf(u);
+                    // Каждый резистор - один раз (со стороны меньшего номера); закоротки и резисторы внутри узла не влияют
+                    if (u < v || edge.weight() == 0 || n1 == n2)
+                        continue;
+                    double t = spec.of(v, u, edge.weight());
+                    if (!(t >= 0 && t < 1))
+                        throw new IllegalArgumentException("Допуск резистора " + v + "-" + u + " вне [0, 1): " + t);
+                    resistance[k] = edge.weight();
+                    tolerance[k] = t;
+                    diagonal1[k] = n1 >= 0 ? a.position(n1, n1) : -1;
+                    diagonal2[k] = n2 >= 0 ? a.position(n2, n2) : -1;
+                    offDiagonal12[k] = n1 >= 0 && n2 >= 0 ? a.position(n1, n2) : -1;
+                    offDiagonal21[k] = n1 >= 0 && n2 >= 0 ? a.position(n2, n1) : -1;
+                    k++;
+                }
+            }
+            count = k;
+        }
+
+        /**
+         * Заполняет значения матрицы для случайных номиналов
+         */
+        void fill(double[] values, SplittableRandom random, Distribution distribution) {
+            Arrays.fill(values, 0);
+            for (int k = 0; k < count; k++) {
+                double t = tolerance[k];
+                double deviation;
+                if (distribution == Distribution.UNIFORM)
+                    deviation = t * (2 * random.nextDouble() - 1);
+                else
+                    deviation = Math.max(-t, Math.min(t, random.nextGaussian() * t / 3));
+                double conductance = 1 / (resistance[k] * (1 + deviation));
+                add(values, diagonal1[k], conductance);
+                add(values, diagonal2[k], conductance);
+                add(values, offDiagonal12[k], -conductance);
+                add(values, offDiagonal21[k], -conductance);
+            }
+        }
+
+        private static void add(double[] values, int position, double value) {
+            if (position >= 0)
+                values[position] += value;
+        }
+    }
+
+    /**
+     * Распределение сопротивления цепи по испытаниям
+     */
+    public static final class Result {
+        private final double nominal;
+        private final double[] sorted;
+        private final double mean;
+        private final double standardDeviation;
+
+        Result(double nominal, double[] samples) {
+            this.nominal = nominal;
+            this.sorted = samples.clone();
+            Arrays.sort(sorted);
+            double sum = 0;
+            for (double r : sorted)
+                sum += r;
+            mean = sum / sorted.length;
+            double squares = 0;
+            for (double r : sorted)
+                squares += (r - mean) * (r - mean);
+            standardDeviation = sorted.length > 1 ? Math.sqrt(squares / (sorted.length - 1)) : 0;
+        }
+
+        /**
+         * Сопротивление при номинальных значениях
+         */
+        public double getNominal() {
+            return nominal;
+        }
+
+        public int getTrials() {
+            return sorted.length;
+        }
+
+        public double getMin() {
+            return sorted[0];
+        }
+
+        public double getMax() {
+            return sorted[sorted.length - 1];
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public double getStandardDeviation() {
+            return standardDeviation;
+        }
+
+        /**
+         * Процентиль с линейной интерполяцией между соседними испытаниями
+         *
+         * @param p от 0 до 100
+         */
+        public double percentile(double p) {
+            if (!(p >= 0 && p <= 100))
+                throw new IllegalArgumentException("Процентиль вне [0, 100]: " + p);
+            double position = p / 100 * (sorted.length - 1);
+            int i = (int) position;
+            if (i == sorted.length - 1)
+                return sorted[i];
+            return sorted[i] + (position - i) * (sorted[i + 1] - sorted[i]);
+        }
+
+        /**
+         * Гистограмма из bins равных интервалов от getMin() до getMax()
+         *
+         * @return кол-во испытаний в каждом интервале
+         */
+        public int[] histogram(int bins) {
+            if (bins < 1)
+                throw new IllegalArgumentException("Кол-во интервалов должно быть положительным: " + bins);
+            int[] counts = new int[bins];
+            double width = (getMax() - getMin()) / bins;
+            for (double r : sorted) {
+                int bin = width > 0 ? (int) ((r - getMin()) / width) : 0;
+                counts[Math.min(bin, bins - 1)]++;
+            }
+            return counts;
+        }
+
+        /**
+         * Сопротивления всех испытаний по возрастанию
+         */
+        public double[] samples() {
+            return sorted.clone();
+        }
+    }
+}
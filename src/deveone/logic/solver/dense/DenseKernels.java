@@ -0,0 +1,222 @@
+package deveone.logic.solver.dense;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Плотные матричные ядра над матрицами n x n, хранящимися построчно в одном массиве double[]
+ * (элемент (i, j) лежит в a[i * n + j]).
+ * Алгоритмы записаны через две примитивные операции над непрерывными участками строк -
+ * скалярное произведение и axpy, - которые реализуются скалярно или через Vector API.
+ */
+public abstract class DenseKernels {
+    private static final DenseKernels BEST = select();
+    // Меньшие обновления выполняются в вызывающем потоке
+    private static final long PARALLEL_UPDATE_CELLS = 1 << 16;
+
+    /**
+     * Лучшая доступная реализация: векторная, если модуль jdk.incubator.vector подключён
+     * (--add-modules jdk.incubator.vector) и не отключён свойством -Ddeveone.vector=false, иначе скалярная
+     */
+    public static DenseKernels get() {
+        return BEST;
+    }
+
+    public static DenseKernels scalar() {
+        return ScalarDenseKernels.INSTANCE;
+    }
+
+    private static DenseKernels select() {
+        if (!Boolean.parseBoolean(System.getProperty("deveone.vector", "true")))
+            return ScalarDenseKernels.INSTANCE;
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty())
+            return ScalarDenseKernels.INSTANCE;
+        try {
+            return (DenseKernels) Class.forName("deveone.logic.solver.dense.VectorDenseKernels")
+                    .getDeclaredField("INSTANCE").get(null);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return ScalarDenseKernels.INSTANCE;
+        }
+    }
+
+    /**
+     * Название реализации (для отчётов бенчмарков)
+     */
+    public abstract String name();
+
+    /**
+     * Сумма a[ao + k] * b[bo + k], k = 0..len-1
+     */
+    public abstract double dot(double[] a, int ao, double[] b, int bo, int len);
+
+    /**
+     * y[yo + k] += alpha * x[xo + k], k = 0..len-1
+     */
+    public abstract void axpy(double alpha, double[] x, int xo, double[] y, int yo, int len);
+
+    /**
+     * Сумма a[ao + k] * b[bo + k] в одинарной точности
+     */
+    public abstract float dot(float[] a, int ao, float[] b, int bo, int len);
+
+    /**
+     * Сумма a[ao + k] * b[bo + k] с элементами a, расширенными до double, и суммой в двойной точности
+     */
+    public abstract double dot(float[] a, int ao, double[] b, int bo, int len);
+
+    /**
+     * y[yo + k] += alpha * x[xo + k] с элементами x, расширенными до double
+     */
+    public abstract void axpy(double alpha, float[] x, int xo, double[] y, int yo, int len);
+
+    /**
+     * Строка лапласиана по строке сопротивлений: out[k] = -1/r[k] для r[k] > 0, иначе 0.
+     *
+     * @return сумма проводимостей строки (без учёта элемента skip)
+     */
+    protected abstract double conductanceRow(double[] r, int ro, double[] out, int oo, int len, int skip);
+
+    /**
+     * Лапласиан по матрице сопротивлений (0 - нет ребра, как в getWeightsMatrix()).
+     * Петли игнорируются.
+     */
+    public void laplacian(double[] resistances, int n, double[] out) {
+        for (int i = 0; i < n; i++) {
+            double degree = conductanceRow(resistances, i * n, out, i * n, n, i);
+            out[i * n + i] = degree;
+        }
+    }
+
+    /**
+     * y = A x
+     */
+    public void multiply(double[] a, int n, double[] x, double[] y) {
+        for (int i = 0; i < n; i++)
+            y[i] = dot(a, i * n, x, 0, n);
+    }
+
+    /**
+     * Разложение Холецкого на месте: нижний треугольник a заменяется на L (A = L L^T),
+     * верхний треугольник не используется.
+     *
+     * @throws ArithmeticException если матрица не положительно определена
+     */
+    public void cholesky(double[] a, int n) {
+        for (int i = 0; i < n; i++) {
+            int ri = i * n;
+            for (int j = 0; j < i; j++) {
+                int rj = j * n;
+                a[ri + j] = (a[ri + j] - dot(a, ri, a, rj, j)) / a[rj + j];
+            }
+            double d = a[ri + i] - dot(a, ri, a, ri, i);
+            if (!(d > 0))
+                throw new ArithmeticException("Матрица не положительно определена (строка " + i + ")");
+            a[ri + i] = Math.sqrt(d);
+        }
+    }
+
+    /**
+     * Разложение Холецкого для больших матриц: правостороннее (по строкам верхнего треугольника U = L^T),
+     * обновление оставшейся части матрицы на каждом шаге распределяется по строкам между потоками пула.
+     * Результат в том же виде, что и у cholesky(): L в нижнем треугольнике.
+     *
+     * @param a полная симметричная матрица (используются оба треугольника)
+     * @throws ArithmeticException если матрица не положительно определена
+     */
+    public void cholesky(double[] a, int n, ForkJoinPool pool) {
+        for (int k = 0; k < n; k++) {
+            int rk = k * n;
+            double d = a[rk + k];
+            if (!(d > 0))
+                throw new ArithmeticException("Матрица не положительно определена (строка " + k + ")");
+            double ukk = Math.sqrt(d);
+            a[rk + k] = ukk;
+            for (int j = k + 1; j < n; j++)
+                a[rk + j] /= ukk;
+
+            // A(i, i..n) -= U(k, i) * U(k, i..n) для i > k
+            int first = k + 1;
+            int rows = n - first;
+            if ((long) rows * rows < PARALLEL_UPDATE_CELLS) {
+                for (int i = first; i < n; i++)
+                    axpy(-a[rk + i], a, rk + i, a, i * n + i, n - i);
+            } else {
+                int chunks = Math.min(rows, pool.getParallelism() * 4);
+                int k0 = k;
+                pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(c -> {
+                    // Строки перемежаются между кусками: нижние строки короче, так нагрузка ровнее
+                    for (int i = first + c; i < n; i += chunks)
+                        axpy(-a[k0 * n + i], a, k0 * n + i, a, i * n + i, n - i);
+                })).join();
+            }
+        }
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < i; j++)
+                a[i * n + j] = a[j * n + i];
+    }
+
+    /**
+     * Решает L L^T x = b после cholesky(), b заменяется на x
+     */
+    public void choleskySolve(double[] l, int n, double[] b) {
+        for (int i = 0; i < n; i++)
+            b[i] = (b[i] - dot(l, i * n, b, 0, i)) / l[i * n + i];
+        for (int i = n - 1; i >= 0; i--) {
+            b[i] /= l[i * n + i];
+            axpy(-b[i], l, i * n, b, 0, i);
+        }
+    }
+
+    /**
+     * LU-разложение с выбором ведущего элемента по столбцу на месте: a = P^-1 L U,
+     * L с единичной диагональю хранится под диагональю.
+     *
+     * @param pivots pivots[k] - строка, переставленная со строкой k
+     * @throws ArithmeticException если матрица вырождена
+     */
+    public void lu(double[] a, int n, int[] pivots) {
+        for (int k = 0; k < n; k++) {
+            int p = k;
+            for (int i = k + 1; i < n; i++)
+                if (Math.abs(a[i * n + k]) > Math.abs(a[p * n + k]))
+                    p = i;
+            pivots[k] = p;
+            if (a[p * n + k] == 0)
+                throw new ArithmeticException("Матрица вырождена (столбец " + k + ")");
+            if (p != k)
+                for (int j = 0; j < n; j++) {
+                    double t = a[k * n + j];
+                    a[k * n + j] = a[p * n + j];
+                    a[p * n + j] = t;
+                }
+
+            int rk = k * n;
+            double pivot = a[rk + k];
+            for (int i = k + 1; i < n; i++) {
+                int ri = i * n;
+                double f = a[ri + k] / pivot;
+                a[ri + k] = f;
+                if (f != 0)
+                    axpy(-f, a, rk + k + 1, a, ri + k + 1, n - k - 1);
+            }
+        }
+    }
+
+    /**
+     * Решает A x = b после lu(), b заменяется на x
+     */
+    public void luSolve(double[] lu, int n, int[] pivots, double[] b) {
+        for (int k = 0; k < n; k++) {
+            int p = pivots[k];
+            if (p != k) {
+                double t = b[k];
+                b[k] = b[p];
+                b[p] = t;
+            }
+        }
+        for (int i = 0; i < n; i++)
+            b[i] -= dot(lu, i * n, b, 0, i);
+        for (int i = n - 1; i >= 0; i--)
+            b[i] = (b[i] - dot(lu, i * n + i + 1, b, i + 1, n - i - 1)) / lu[i * n + i];
+    }
+}
@@ -0,0 +1,97 @@
+package deveone.logic.solver.dense;
+
+import deveone.logic.solver.GroundedLaplacian;
+
+/**
+ * Решение узловой системы небольших цепей в плотной форме.
+ * Для маленьких матриц плотное разложение с векторными ядрами быстрее разреженного:
+ * нет косвенной адресации, а строки лежат в памяти подряд.
+ */
+public final class DenseSolver {
+    /**
+     * Наибольшая размерность матрицы, которая решается плотно (-Ddeveone.dense.threshold, по умолчанию 256)
+     */
+    public static final int THRESHOLD = Integer.getInteger("deveone.dense.threshold", 256);
+
+    private DenseSolver() {
+    }
+
+    /**
+     * Решает A x = b. Матрица раскладывается по Холецкому, если она оказалась не положительно определённой
+     * из-за округлений - LU с выбором ведущего элемента.
+     *
+     * @return x
+     */
+    public static double[] solve(GroundedLaplacian a, double[] b, DenseKernels kernels) {
+        int n = a.size();
+        double[] matrix = new double[n * n];
+        double[] x = b.clone();
+        a.toDense(matrix);
+        try {
+            kernels.cholesky(matrix, n);
+            kernels.choleskySolve(matrix, n, x);
+        } catch (ArithmeticException e) {
+            a.toDense(matrix);
+            int[] pivots = new int[n];
+            kernels.lu(matrix, n, pivots);
+            System.arraycopy(b, 0, x, 0, n);
+            kernels.luSolve(matrix, n, pivots, x);
+        }
+        return x;
+    }
+
+    public static double[] solve(GroundedLaplacian a, double[] b) {
+        return solve(a, b, DenseKernels.get());
+    }
+
+    /**
+     * Сопротивление цепи по плотной матрице сопротивлений (0 - нет ребра, как в getWeightsMatrix()).
+     * Закоротки в такой матрице не представимы.
+     *
+     * @param resistances построчная матрица n x n
+     * @return сопротивление цепи или -1, если начало не связано с концом
+     */
+    public static double resistance(double[] resistances, int n, int startNode, int endNode, DenseKernels kernels) {
+        if (startNode < 0 || endNode < 0 || startNode >= n || endNode >= n || startNode == endNode)
+            return -1;
+
+        // Компонента начала цепи
+        boolean[] reached = new boolean[n];
+        int[] queue = new int[n];
+        int size = 0;
+        queue[size++] = startNode;
+        reached[startNode] = true;
+        for (int head = 0; head < size; head++) {
+            int v = queue[head];
+            for (int u = 0; u < n; u++)
+                if (!reached[u] && resistances[v * n + u] > 0) {
+                    reached[u] = true;
+                    queue[size++] = u;
+                }
+        }
+        if (!reached[endNode])
+            return -1;
+
+        double[] a = new double[n * n];
+        kernels.laplacian(resistances, n, a);
+        // Конец цепи заземляем, вершины вне компоненты отключаем: их строки и столбцы заменяются единичными
+        for (int v = 0; v < n; v++)
+            if (v == endNode || !reached[v]) {
+                for (int k = 0; k < n; k++) {
+                    a[v * n + k] = 0;
+                    a[k * n + v] = 0;
+                }
+                a[v * n + v] = 1;
+            }
+
+        double[] x = new double[n];
+        x[startNode] = 1;
+        kernels.cholesky(a, n);
+        kernels.choleskySolve(a, n, x);
+        return x[startNode];
+    }
+
+    public static double resistance(double[] resistances, int n, int startNode, int endNode) {
+        return resistance(resistances, n, startNode, endNode, DenseKernels.get());
+    }
+}
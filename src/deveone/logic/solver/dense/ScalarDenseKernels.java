@@ -0,0 +1,65 @@
+package deveone.logic.solver.dense;
+
+/**
+ * Скалярная реализация плотных ядер
+ */
+final class ScalarDenseKernels extends DenseKernels {
+    static final ScalarDenseKernels INSTANCE = new ScalarDenseKernels();
+
+    private ScalarDenseKernels() {
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public double dot(double[] a, int ao, double[] b, int bo, int len) {
+        double sum = 0;
+        for (int k = 0; k < len; k++)
+            sum += a[ao + k] * b[bo + k];
+        return sum;
+    }
+
+    @Override
+    public void axpy(double alpha, double[] x, int xo, double[] y, int yo, int len) {
+        for (int k = 0; k < len; k++)
+            y[yo + k] += alpha * x[xo + k];
+    }
+
+    @Override
+    public float dot(float[] a, int ao, float[] b, int bo, int len) {
+        float sum = 0;
+        for (int k = 0; k < len; k++)
+            sum += a[ao + k] * b[bo + k];
+        return sum;
+    }
+
+    @Override
+    public double dot(float[] a, int ao, double[] b, int bo, int len) {
+        double sum = 0;
+        for (int k = 0; k < len; k++)
+            sum += a[ao + k] * b[bo + k];
+        return sum;
+    }
+
+    @Override
+    public void axpy(double alpha, float[] x, int xo, double[] y, int yo, int len) {
+        for (int k = 0; k < len; k++)
+            y[yo + k] += alpha * x[xo + k];
+    }
+
+    @Override
+    protected double conductanceRow(double[] r, int ro, double[] out, int oo, int len, int skip) {
+        double sum = 0;
+        for (int k = 0; k < len; k++) {
+            double g = r[ro + k] > 0 ? 1 / r[ro + k] : 0;
+            out[oo + k] = -g;
+            sum += g;
+        }
+        sum += out[oo + skip];
+        out[oo + skip] = 0;
+        return sum;
+    }
+}
@@ -0,0 +1,137 @@
+package deveone.logic.solver.dense;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Реализация плотных ядер через jdk.incubator.vector с предпочтительной для процессора шириной вектора.
+ * Загружается только через DenseKernels.get(), когда модуль подключён.
+ */
+final class VectorDenseKernels extends DenseKernels {
+    static final VectorDenseKernels INSTANCE = new VectorDenseKernels();
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    private static final VectorSpecies<Float> FLOAT_SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final int FLOAT_LANES = FLOAT_SPECIES.length();
+    // Столько же float, сколько double в SPECIES: вектор float расширяется до вектора double той же длины
+    private static final VectorSpecies<Float> HALF =
+            VectorSpecies.of(float.class, VectorShape.forBitSize(SPECIES.vectorBitSize() / 2));
+
+    private VectorDenseKernels() {
+    }
+
+    @Override
+    public String name() {
+        return "vector-" + SPECIES.vectorBitSize();
+    }
+
+    @Override
+    public double dot(double[] a, int ao, double[] b, int bo, int len) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int k = 0;
+        int upper = SPECIES.loopBound(len);
+        for (; k < upper; k += LANES) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, ao + k);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bo + k);
+            acc = va.fma(vb, acc);
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; k < len; k++)
+            sum += a[ao + k] * b[bo + k];
+        return sum;
+    }
+
+    @Override
+    public void axpy(double alpha, double[] x, int xo, double[] y, int yo, int len) {
+        DoubleVector va = DoubleVector.broadcast(SPECIES, alpha);
+        int k = 0;
+        int upper = SPECIES.loopBound(len);
+        for (; k < upper; k += LANES) {
+            DoubleVector vx = DoubleVector.fromArray(SPECIES, x, xo + k);
+            DoubleVector vy = DoubleVector.fromArray(SPECIES, y, yo + k);
+            vx.fma(va, vy).intoArray(y, yo + k);
+        }
+        for (; k < len; k++)
+            y[yo + k] += alpha * x[xo + k];
+    }
+
+    @Override
+    public float dot(float[] a, int ao, float[] b, int bo, int len) {
+        FloatVector acc = FloatVector.zero(FLOAT_SPECIES);
+        int k = 0;
+        int upper = FLOAT_SPECIES.loopBound(len);
+        for (; k < upper; k += FLOAT_LANES) {
+            FloatVector va = FloatVector.fromArray(FLOAT_SPECIES, a, ao + k);
+            FloatVector vb = FloatVector.fromArray(FLOAT_SPECIES, b, bo + k);
+            acc = va.fma(vb, acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; k < len; k++)
+            sum += a[ao + k] * b[bo + k];
+        return sum;
+    }
+
+    @Override
+    public double dot(float[] a, int ao, double[] b, int bo, int len) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int k = 0;
+        int upper = SPECIES.loopBound(len);
+        for (; k < upper; k += LANES) {
+            DoubleVector va = widen(a, ao + k);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bo + k);
+            acc = va.fma(vb, acc);
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; k < len; k++)
+            sum += a[ao + k] * b[bo + k];
+        return sum;
+    }
+
+    @Override
+    public void axpy(double alpha, float[] x, int xo, double[] y, int yo, int len) {
+        DoubleVector va = DoubleVector.broadcast(SPECIES, alpha);
+        int k = 0;
+        int upper = SPECIES.loopBound(len);
+        for (; k < upper; k += LANES) {
+            DoubleVector vx = widen(x, xo + k);
+            DoubleVector vy = DoubleVector.fromArray(SPECIES, y, yo + k);
+            vx.fma(va, vy).intoArray(y, yo + k);
+        }
+        for (; k < len; k++)
+            y[yo + k] += alpha * x[xo + k];
+    }
+
+    private static DoubleVector widen(float[] a, int offset) {
+        return (DoubleVector) FloatVector.fromArray(HALF, a, offset).convertShape(VectorOperators.F2D, SPECIES, 0);
+    }
+
+    @Override
+    protected double conductanceRow(double[] r, int ro, double[] out, int oo, int len, int skip) {
+        DoubleVector one = DoubleVector.broadcast(SPECIES, 1);
+        DoubleVector zero = DoubleVector.zero(SPECIES);
+        DoubleVector acc = zero;
+        int k = 0;
+        int upper = SPECIES.loopBound(len);
+        for (; k < upper; k += LANES) {
+            DoubleVector vr = DoubleVector.fromArray(SPECIES, r, ro + k);
+            VectorMask<Double> edge = vr.compare(VectorOperators.GT, 0);
+            DoubleVector g = zero.blend(one.div(vr), edge);
+            g.neg().intoArray(out, oo + k);
+            acc = acc.add(g);
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; k < len; k++) {
+            double g = r[ro + k] > 0 ? 1 / r[ro + k] : 0;
+            out[oo + k] = -g;
+            sum += g;
+        }
+        sum += out[oo + skip];
+        out[oo + skip] = 0;
+        return sum;
+    }
+}